@@ -55,7 +55,11 @@ public class ASTLMBOptions {
                         "optimized for memory and performance.", false),
 
         HUMAN_READABLE_KEYWORDS("hrkw", "humanReadableKeyWords", false,
-                "Uses keywords that can be read by humans instead of short ones.", false);
+                "Uses keywords that can be read by humans instead of short ones.", false),
+
+        SHARDED_COUNTING("sc", "shardedCounting", false,
+                "If set, each thread counts the token sequences separately and the counts are merged before "
+                        + "the language model is estimated. Only in this mode, the set number of threads is used.", false);
 
 
         /* the following code blocks should not need to be changed */
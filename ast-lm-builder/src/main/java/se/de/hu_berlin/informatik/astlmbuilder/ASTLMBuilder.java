@@ -15,10 +15,14 @@ import se.de.hu_berlin.informatik.utils.files.FileUtils;
 import se.de.hu_berlin.informatik.utils.files.processors.ThreadedFileWalkerProcessor;
 import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
 import se.de.hu_berlin.informatik.utils.optionparser.OptionParser;
+import se.de.hu_berlin.informatik.utils.processors.AbstractConsumingProcessor;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 
 
 /**
@@ -28,6 +32,7 @@ import java.nio.file.Paths;
 public class ASTLMBuilder {
 
     OptionParser options = null;
+    private final boolean SHARDED_COUNTING;
     private final int THREAD_COUNT;
     private final int MAPPING_DEPTH_VALUE;
     private final int NGRAM_ORDER;
@@ -42,8 +47,14 @@ public class ASTLMBuilder {
      */
     public ASTLMBuilder(String[] args) {
         options = OptionParser.getOptions("AST LM Builder", false, ASTLMBCmdOptions.class, args);
-        // using more than one thread currently creates unstable results
-        THREAD_COUNT = 1;
+        SHARDED_COUNTING = options.hasOption(ASTLMBCmdOptions.SHARDED_COUNTING);
+        if (SHARDED_COUNTING) {
+            // each thread counts into its own shard
+            THREAD_COUNT = Integer.parseInt(options.getOptionValue(ASTLMBCmdOptions.THREAD_COUNT, ASTLMBOptions.THREAD_COUNT_DEFAULT));
+        } else {
+            // using more than one thread with a shared language model creates unstable results
+            THREAD_COUNT = 1;
+        }
 
         MAPPING_DEPTH_VALUE = Integer.parseInt(options.getOptionValue(ASTLMBCmdOptions.MAPPING_DEPTH, ASTLMBOptions.MAPPING_DEPTH_DEFAULT));
 
@@ -85,41 +96,27 @@ public class ASTLMBuilder {
         boolean onlyMethods = options.getOptionValue(ASTLMBCmdOptions.ENTRY_POINT, ASTLMBOptions.ENTRY_DEFAULT)
                 .equalsIgnoreCase(ASTLMBOptions.ENTRY_METHOD);
 
-        //you can configure the token mapper here at this point
-        IBasicNodeMapper<String> mapper = null;
-        int maxListMembers = Integer.parseInt(options.getOptionValue(ASTLMBCmdOptions.MAX_LIST_MEMBERS, ASTLMBOptions.MAX_LIST_MEMBERS_DEFAULT));
-        boolean hrkwMode = options.hasOption(ASTLMBCmdOptions.HUMAN_READABLE_KEYWORDS);
-
-        // adding abstraction depended informations to the tokens
-        if (hrkwMode) {
-            mapper = new Node2AbstractionMapper.Builder(new KeyWordConstants())
-                    .setMaxListMembers(maxListMembers)
-                    .usesStringAbstraction()
-                    .usesVariableNameAbstraction()
-                    .usesPrivateMethodAbstraction()
-                    .usesClassNameAbstraction()
-                    .usesMethodNameAbstraction()
-                    .build();
-        } else {
-            mapper = new Node2AbstractionMapper.Builder(new KeyWordConstantsShort())
-                    .setMaxListMembers(maxListMembers)
-                    .usesStringAbstraction()
-                    .usesVariableNameAbstraction()
-                    .usesPrivateMethodAbstraction()
-                    .usesClassNameAbstraction()
-                    .usesMethodNameAbstraction()
-                    .build();
-        }
-
         ThreadedFileWalkerProcessor tfwm = new ThreadedFileWalkerProcessor(VALID_FILES_PATTERN, THREAD_COUNT);
         tfwm.includeRootDir(); // currently this sets the root directory in use variable to false
         tfwm.searchForFiles(); // enables the search for files which is the main purpose of this module
 
-        tfwm.setProcessorGenerator(new ASTTokenReader<>(mapper, wordIndexer, callback, onlyMethods, filterNodes, MAPPING_DEPTH_VALUE, false));
+        ShardedNGramCounter counter = null;
+        if (SHARDED_COUNTING) {
+            counter = new ShardedNGramCounter();
+            tfwm.setProcessorGenerator(new ShardedTokenReader(counter, onlyMethods, filterNodes));
+        } else {
+            tfwm.setProcessorGenerator(new ASTTokenReader<>(createMapper(), wordIndexer, callback, onlyMethods, filterNodes, MAPPING_DEPTH_VALUE, false));
+        }
 
         tfwm.asModule().enableTracking(50);
         tfwm.submit(inputPath);
 
+        if (counter != null) {
+            Log.out(this, "Merging the counts of %d threads...", counter.getShardCount());
+            int sequenceCount = counter.mergeInto(wordIndexer, callback);
+            Log.out(this, "Added %d distinct token sequences to the language model.", sequenceCount);
+        }
+
 
         Log.out(this, "Finished training the language model. Writing it to disk...");
 
@@ -127,25 +124,32 @@ public class ASTLMBuilder {
         String outputFile = options.getOptionValue(ASTLMBCmdOptions.OUTPUT);
         FileUtils.ensureParentDir(new File(outputFile));
 
+        // the files are written to temporary files first, so that no partial
+        // language model remains if writing fails
         if (options.hasOption(ASTLMBCmdOptions.CREATE_ARPA_TEXT)) {
-
+            // create a text file
+            File textOutput = new File(outputFile + ".arpa");
+            File tempTextOutput = new File(outputFile + ".arpa.tmp");
             try {
-                // create a text file
-                String textOutput = outputFile + ".arpa";
                 Log.out(this, "Start writing language model to text file...");
                 // sometimes this fails on some random null pointer and corrupts
                 // the bin file aswell
                 // I dont know why and when it happens... seems to happen with multiple threads only
-                callback.parse(new KneserNeyFileWritingLmReaderCallback<>(new File(textOutput), wordIndexer));
+                // (use the sharded counting mode for multiple threads)
+                callback.parse(new KneserNeyFileWritingLmReaderCallback<>(tempTextOutput, wordIndexer));
+                moveToOutput(tempTextOutput, textOutput);
             } catch (NullPointerException npe) {
                 // this is kind of strange and I dont know why this happens
                 Log.out(this, "Could not create the text version of the language model", npe);
+                FileUtils.delete(tempTextOutput);
             }
         }
 
         Log.out(this, "Start writing language model to binary file...");
         // create a binary file even if the text file was created too
-        LmReaders.writeLmBinary(callback, outputFile + ".bin");
+        File tempBinaryOutput = new File(outputFile + ".bin.tmp");
+        LmReaders.writeLmBinary(callback, tempBinaryOutput.getPath());
+        moveToOutput(tempBinaryOutput, new File(outputFile + ".bin"));
 
         Log.out(this, "Finished the AST Language Model Builder");
         Log.out(this, "Processed around " + ASTTokenReader.stats_files_processed + " files.");
@@ -165,6 +169,66 @@ public class ASTLMBuilder {
         }
     }
 
+    /**
+     * Creates a new token mapper. Token mappers store information about the currently
+     * processed file, so each thread needs its own mapper.
+     *
+     * @return a token mapper
+     */
+    private IBasicNodeMapper<String> createMapper() {
+        //you can configure the token mapper here at this point
+        int maxListMembers = Integer.parseInt(options.getOptionValue(ASTLMBCmdOptions.MAX_LIST_MEMBERS, ASTLMBOptions.MAX_LIST_MEMBERS_DEFAULT));
+        boolean hrkwMode = options.hasOption(ASTLMBCmdOptions.HUMAN_READABLE_KEYWORDS);
+
+        // adding abstraction depended informations to the tokens
+        if (hrkwMode) {
+            return new Node2AbstractionMapper.Builder(new KeyWordConstants())
+                    .setMaxListMembers(maxListMembers)
+                    .usesStringAbstraction()
+                    .usesVariableNameAbstraction()
+                    .usesPrivateMethodAbstraction()
+                    .usesClassNameAbstraction()
+                    .usesMethodNameAbstraction()
+                    .build();
+        } else {
+            return new Node2AbstractionMapper.Builder(new KeyWordConstantsShort())
+                    .setMaxListMembers(maxListMembers)
+                    .usesStringAbstraction()
+                    .usesVariableNameAbstraction()
+                    .usesPrivateMethodAbstraction()
+                    .usesClassNameAbstraction()
+                    .usesMethodNameAbstraction()
+                    .build();
+        }
+    }
+
+    private void moveToOutput(File tempFile, File outputFile) {
+        try {
+            Files.move(tempFile.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Log.abort(this, e, "Could not move '%s' to '%s'.", tempFile, outputFile);
+        }
+    }
+
+    /**
+     * Reads the token sequences of the submitted files with a separate token reader
+     * (and token mapper) for each thread and counts them in the thread's shard.
+     */
+    private class ShardedTokenReader extends AbstractConsumingProcessor<Path> {
+
+        private final ThreadLocal<ASTTokenReader<String>> readers;
+
+        private ShardedTokenReader(ShardedNGramCounter counter, boolean onlyMethods, boolean filterNodes) {
+            readers = ThreadLocal.withInitial(() -> new ASTTokenReader<>(
+                    createMapper(), counter, onlyMethods, filterNodes, MAPPING_DEPTH_VALUE, false));
+        }
+
+        @Override
+        public void consumeItem(Path item) {
+            readers.get().consumeItem(item);
+        }
+    }
+
     /**
      * Creates a new word indexer with default arpa symbols.
      *
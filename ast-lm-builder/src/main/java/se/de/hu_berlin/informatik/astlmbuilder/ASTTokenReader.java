@@ -49,6 +49,8 @@ public class ASTTokenReader<T> extends AbstractConsumingProcessor<Path> {
     private int endId = 0;
 
     private final LmReaderCallback<LongRef> callback;
+    // if set, sequences are counted here instead of being sent to the callback directly
+    private final ShardedNGramCounter counter;
     // this defines the entry point for the AST
     private final boolean onlyMethodNodes;
     // this enables the black list for unimportant node types
@@ -98,6 +100,7 @@ public class ASTTokenReader<T> extends AbstractConsumingProcessor<Path> {
         t_mapper = tokenMapper;
         wordIndexer = aWordIndexer;
         callback = aCallback;
+        counter = null;
         onlyMethodNodes = aOnlyMethodNodes;
         filterNodes = aFilterNodes;
         this.depth = depth;
@@ -109,6 +112,34 @@ public class ASTTokenReader<T> extends AbstractConsumingProcessor<Path> {
         }
     }
 
+    /**
+     * Constructor for a token reader that adds the token sequences to the shard of the
+     * current thread in the given counter. Each thread should use its own token reader.
+     *
+     * @param tokenMapper      a token mapper object (not shared with other token readers)
+     * @param aCounter         counts the token sequences until they are merged into the language model
+     * @param aOnlyMethodNodes if set to true only method nodes will be used to train the language
+     *                         model. If set to false the compilation unit will be the root of the
+     *                         abstract syntax tree.
+     * @param aFilterNodes     if set to true unimportant node types will not be included into the
+     *                         language model
+     * @param depth            the maximum depth of constructing the tokens, where 0 equals total
+     *                         abstraction and -1 means unlimited depth
+     * @param includeParent    whether to include information about the parent node
+     */
+    public ASTTokenReader(IBasicNodeMapper<T> tokenMapper, ShardedNGramCounter aCounter,
+                          boolean aOnlyMethodNodes, boolean aFilterNodes, int depth, boolean includeParent) {
+        super();
+        t_mapper = tokenMapper;
+        wordIndexer = null;
+        callback = null;
+        counter = aCounter;
+        onlyMethodNodes = aOnlyMethodNodes;
+        filterNodes = aFilterNodes;
+        this.depth = depth;
+        this.includeParent = includeParent;
+    }
+
     /**
      * Triggers the collection of all token sequences from the given file and
      * adds them to the token language model.
@@ -553,6 +584,10 @@ public class ASTTokenReader<T> extends AbstractConsumingProcessor<Path> {
      * @param aTokenSequence the sequences that were extracted from the abstract syntax tree
      */
     private void addSequenceToLM(List<T> aTokenSequence) {
+        if (counter != null) {
+            counter.addSequence(aTokenSequence);
+            return;
+        }
         final int[] sent = new int[aTokenSequence.size() + 2];
         sent[0] = startId;
         sent[sent.length - 1] = endId;
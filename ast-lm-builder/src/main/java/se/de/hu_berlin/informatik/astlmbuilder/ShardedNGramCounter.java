@@ -0,0 +1,273 @@
+package se.de.hu_berlin.informatik.astlmbuilder;
+
+import edu.berkeley.nlp.lm.StringWordIndexer;
+import edu.berkeley.nlp.lm.io.LmReaderCallback;
+import edu.berkeley.nlp.lm.util.LongRef;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Collects token sequences for a language model from multiple threads without any
+ * synchronization while reading. Each thread counts its sequences in its own shard, using
+ * a thread local vocabulary and a count table that is keyed by the (local) token ids.
+ * <p>
+ * After all sequences were added, {@link #mergeInto(StringWordIndexer, LmReaderCallback)}
+ * merges the shards and passes each distinct sequence once (with its count) to the language
+ * model callback. The merge does not depend on which thread counted which sequence: the global
+ * vocabulary is indexed in lexicographic order and the sequences are passed in the order of
+ * their global token ids. The resulting model is the same as if each sequence had been added
+ * to the callback separately in that order. (The estimates of the callback slightly depend on
+ * the order in which the sequences are added, so the fixed order also makes them reproducible.)
+ */
+public class ShardedNGramCounter {
+
+    private final List<Shard> shards = new ArrayList<>();
+    private final ThreadLocal<Shard> localShard = ThreadLocal.withInitial(this::newShard);
+
+    private synchronized Shard newShard() {
+        Shard shard = new Shard();
+        shards.add(shard);
+        return shard;
+    }
+
+    /**
+     * Adds a token sequence to the shard of the calling thread. Tokens are identified
+     * by their string representation.
+     *
+     * @param tokenSequence the token sequence (without start and end symbols)
+     */
+    public void addSequence(List<?> tokenSequence) {
+        localShard.get().add(tokenSequence);
+    }
+
+    /**
+     * @return the number of shards (threads that added sequences)
+     */
+    public synchronized int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Merges all shards and adds the counted sequences to the given callback. Has to be called
+     * after all threads finished adding sequences. The shards are cleared afterwards.
+     *
+     * @param wordIndexer the word indexer of the language model
+     * @param callback    the language model callback
+     * @return the number of distinct sequences that were passed to the callback
+     */
+    public synchronized int mergeInto(StringWordIndexer wordIndexer, LmReaderCallback<LongRef> callback) {
+        int startId = wordIndexer.getOrAddIndex(wordIndexer.getStartSymbol());
+        int endId = wordIndexer.getOrAddIndex(wordIndexer.getEndSymbol());
+
+        // index the vocabulary in a fixed order
+        TreeSet<String> vocabulary = new TreeSet<>();
+        for (Shard shard : shards) {
+            vocabulary.addAll(shard.words);
+        }
+        Map<String, Integer> globalIds = new HashMap<>();
+        for (String word : vocabulary) {
+            globalIds.put(word, wordIndexer.getOrAddIndexFromString(word));
+        }
+
+        // translate the local ids and sum up the counts of all shards
+        SequenceCountTable merged = new SequenceCountTable();
+        int[] buffer = new int[16];
+        for (Shard shard : shards) {
+            int[] localToGlobal = new int[shard.words.size()];
+            for (int i = 0; i < localToGlobal.length; ++i) {
+                localToGlobal[i] = globalIds.get(shard.words.get(i));
+            }
+            SequenceCountTable table = shard.counts;
+            for (int slot = 0; slot < table.slots.length; ++slot) {
+                int record = table.slots[slot] - 1;
+                if (record < 0) {
+                    continue;
+                }
+                int length = table.pool[record];
+                if (buffer.length < length) {
+                    buffer = new int[Math.max(length, 2 * buffer.length)];
+                }
+                for (int i = 0; i < length; ++i) {
+                    buffer[i] = localToGlobal[table.pool[record + 1 + i]];
+                }
+                merged.add(buffer, length, table.counts[slot]);
+            }
+        }
+        shards.clear();
+        localShard.remove();
+
+        // pass the sequences to the callback in the order of their ids
+        Integer[] slots = new Integer[merged.size];
+        int next = 0;
+        for (int slot = 0; slot < merged.slots.length; ++slot) {
+            if (merged.slots[slot] != 0) {
+                slots[next++] = slot;
+            }
+        }
+        Arrays.sort(slots, (a, b) -> merged.compareRecords(merged.slots[a] - 1, merged.slots[b] - 1));
+        for (int slot : slots) {
+            int record = merged.slots[slot] - 1;
+            int length = merged.pool[record];
+            final int[] sent = new int[length + 2];
+            sent[0] = startId;
+            System.arraycopy(merged.pool, record + 1, sent, 1, length);
+            sent[sent.length - 1] = endId;
+            callback.call(sent, 0, sent.length, new LongRef(merged.counts[slot]), null);
+        }
+        return slots.length;
+    }
+
+    /**
+     * The sequences of a single thread, with token ids from the thread's own vocabulary.
+     */
+    private static class Shard {
+
+        private final Map<String, Integer> vocabulary = new HashMap<>();
+        private final List<String> words = new ArrayList<>();
+        private final SequenceCountTable counts = new SequenceCountTable();
+        private int[] buffer = new int[16];
+
+        private void add(List<?> tokenSequence) {
+            if (buffer.length < tokenSequence.size()) {
+                buffer = new int[Math.max(tokenSequence.size(), 2 * buffer.length)];
+            }
+            for (int i = 0; i < tokenSequence.size(); ++i) {
+                // works if the token is a string or overrides toString() (see ASTTokenReader)
+                String word = tokenSequence.get(i).toString();
+                Integer id = vocabulary.get(word);
+                if (id == null) {
+                    id = words.size();
+                    vocabulary.put(word, id);
+                    words.add(word);
+                }
+                buffer[i] = id;
+            }
+            counts.add(buffer, tokenSequence.size(), 1);
+        }
+    }
+
+    /**
+     * Counts int sequences. The sequences are stored consecutively as [length, ids...] in an
+     * int pool, and the hash table (open addressing with linear probing) refers to them by their
+     * offset in the pool, so no objects are created per sequence.
+     */
+    static class SequenceCountTable {
+
+        private int[] pool = new int[1024];
+        private int poolSize = 0;
+
+        // offset of the sequence in the pool + 1, 0 marks an empty slot
+        private int[] slots = new int[1024];
+        private int[] hashes = new int[1024];
+        private long[] counts = new long[1024];
+        private int size = 0;
+
+        void add(int[] sequence, int length, long count) {
+            int hash = hash(sequence, length);
+            int mask = slots.length - 1;
+            int slot = hash & mask;
+            while (slots[slot] != 0) {
+                if (hashes[slot] == hash && equalsRecord(slots[slot] - 1, sequence, length)) {
+                    counts[slot] += count;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = store(sequence, length) + 1;
+            hashes[slot] = hash;
+            counts[slot] = count;
+            if (++size > slots.length / 2) {
+                grow();
+            }
+        }
+
+        long get(int[] sequence, int length) {
+            int hash = hash(sequence, length);
+            int mask = slots.length - 1;
+            int slot = hash & mask;
+            while (slots[slot] != 0) {
+                if (hashes[slot] == hash && equalsRecord(slots[slot] - 1, sequence, length)) {
+                    return counts[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private int store(int[] sequence, int length) {
+            if (poolSize + length + 1 > pool.length) {
+                pool = Arrays.copyOf(pool, Math.max(poolSize + length + 1, 2 * pool.length));
+            }
+            int record = poolSize;
+            pool[poolSize++] = length;
+            System.arraycopy(sequence, 0, pool, poolSize, length);
+            poolSize += length;
+            return record;
+        }
+
+        private boolean equalsRecord(int record, int[] sequence, int length) {
+            if (pool[record] != length) {
+                return false;
+            }
+            for (int i = 0; i < length; ++i) {
+                if (pool[record + 1 + i] != sequence[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int compareRecords(int a, int b) {
+            int lengthA = pool[a];
+            int lengthB = pool[b];
+            for (int i = 0; i < Math.min(lengthA, lengthB); ++i) {
+                int result = Integer.compare(pool[a + 1 + i], pool[b + 1 + i]);
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return Integer.compare(lengthA, lengthB);
+        }
+
+        private void grow() {
+            int[] oldSlots = slots;
+            int[] oldHashes = hashes;
+            long[] oldCounts = counts;
+            slots = new int[2 * oldSlots.length];
+            hashes = new int[slots.length];
+            counts = new long[slots.length];
+            int mask = slots.length - 1;
+            for (int i = 0; i < oldSlots.length; ++i) {
+                if (oldSlots[i] != 0) {
+                    int slot = oldHashes[i] & mask;
+                    while (slots[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    slots[slot] = oldSlots[i];
+                    hashes[slot] = oldHashes[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+
+        private static int hash(int[] sequence, int length) {
+            int hash = length;
+            for (int i = 0; i < length; ++i) {
+                hash = 31 * hash + sequence[i];
+            }
+            // spread the bits, since the table size is a power of two
+            hash *= 0x9E3779B9;
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+}
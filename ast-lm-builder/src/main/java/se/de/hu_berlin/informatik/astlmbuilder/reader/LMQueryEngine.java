@@ -0,0 +1,179 @@
+package se.de.hu_berlin.informatik.astlmbuilder.reader;
+
+import edu.berkeley.nlp.lm.ArrayEncodedNgramLanguageModel;
+import edu.berkeley.nlp.lm.NgramLanguageModel;
+import edu.berkeley.nlp.lm.WordIndexer;
+import edu.berkeley.nlp.lm.io.LmReaders;
+import se.de.hu_berlin.informatik.astlmbuilder.ASTLMBuilder;
+import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Scores token sentences with a language model in the current process. A model is only
+ * loaded once per file (see {@link #getInstance(String)}) and can then be queried by
+ * multiple threads, which makes it possible to rank the lines of many bugs without
+ * starting an external query process (and loading the model) for each of them.
+ * <p>
+ * Scores are base 10 log probabilities, like the ones that kenLM's query tool computes.
+ */
+public class LMQueryEngine {
+
+    public final static String ARPA_SUFFIX = ".arpa";
+    public final static int DEFAULT_BATCH_SIZE = 256;
+
+    private static final Map<String, LMQueryEngine> ENGINES = new ConcurrentHashMap<>();
+
+    private final ArrayEncodedNgramLanguageModel<String> lm;
+    private final WordIndexer<String> wordIndexer;
+    private final int lmOrder;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * @param lm a language model (that is not modified anymore)
+     */
+    public LMQueryEngine(ArrayEncodedNgramLanguageModel<String> lm) {
+        this.lm = lm;
+        this.wordIndexer = lm.getWordIndexer();
+        this.lmOrder = lm.getLmOrder();
+    }
+
+    /**
+     * @param lmFile the path to a language model file
+     * @return whether the file can be loaded by this engine (a berkeleylm binary or an arpa file)
+     */
+    public static boolean canRead(String lmFile) {
+        String fileName = new File(lmFile).getName();
+        return fileName.endsWith(ASTLMROptions.BINARY_SUFFIX)
+                || fileName.endsWith(ARPA_SUFFIX) || fileName.endsWith(ARPA_SUFFIX + ".gz");
+    }
+
+    /**
+     * Returns the engine for the given language model file. The model is loaded when it is
+     * requested for the first time and shared by all callers afterwards.
+     *
+     * @param lmFile the path to the language model file (a berkeleylm binary or an arpa file)
+     * @return the query engine
+     */
+    public static LMQueryEngine getInstance(String lmFile) {
+        return ENGINES.computeIfAbsent(new File(lmFile).getAbsolutePath(), LMQueryEngine::load);
+    }
+
+    /**
+     * Removes the engine for the given language model file (if loaded), such that the
+     * model can be garbage collected.
+     *
+     * @param lmFile the path to the language model file
+     */
+    public static void release(String lmFile) {
+        ENGINES.remove(new File(lmFile).getAbsolutePath());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static LMQueryEngine load(String lmFile) {
+        Log.out(LMQueryEngine.class, "Loading language model '%s'...", lmFile);
+        ArrayEncodedNgramLanguageModel<String> lm;
+        if (lmFile.endsWith(ASTLMROptions.BINARY_SUFFIX)) {
+            // binaries written by the AST LM builder contain the Kneser-Ney model itself
+            NgramLanguageModel<String> model = LmReaders.readLmBinary(lmFile);
+            if (!(model instanceof ArrayEncodedNgramLanguageModel)) {
+                throw new IllegalArgumentException("Unsupported language model type in '" + lmFile + "': "
+                        + model.getClass().getName());
+            }
+            lm = (ArrayEncodedNgramLanguageModel<String>) model;
+        } else {
+            lm = LmReaders.readArrayEncodedLmFromArpa(lmFile, false, ASTLMBuilder.getNewWordIndexer());
+        }
+        Log.out(LMQueryEngine.class, "Loaded language model of order %d.", lm.getLmOrder());
+        return new LMQueryEngine(lm);
+    }
+
+    /**
+     * @param batchSize the number of sentences that are scored by a single task
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public int getLmOrder() {
+        return lmOrder;
+    }
+
+    /**
+     * Scores a sentence of white space separated tokens.
+     *
+     * @param sentence   the sentence
+     * @param wrapTokens whether the sentence should be enclosed in start and end symbols
+     * @return the base 10 log probability of the sentence
+     */
+    public float scoreSentence(String sentence, boolean wrapTokens) {
+        String[] tokens = sentence.trim().split("\\s+");
+        int tokenCount = tokens.length == 1 && tokens[0].isEmpty() ? 0 : tokens.length;
+        int offset = wrapTokens ? 1 : 0;
+        int[] ids = new int[tokenCount + 2 * offset];
+        if (wrapTokens) {
+            ids[0] = wordIndexer.getIndexPossiblyUnk(wordIndexer.getStartSymbol());
+            ids[ids.length - 1] = wordIndexer.getIndexPossiblyUnk(wordIndexer.getEndSymbol());
+        }
+        for (int i = 0; i < tokenCount; ++i) {
+            ids[i + offset] = wordIndexer.getIndexPossiblyUnk(tokens[i]);
+        }
+
+        float score = 0;
+        // the start symbol itself is not scored
+        for (int i = offset; i < ids.length; ++i) {
+            score += lm.getLogProb(ids, Math.max(0, i + 1 - lmOrder), i + 1);
+        }
+        return score;
+    }
+
+    /**
+     * Scores the given sentences. The sentences are split into batches that are scored in parallel.
+     *
+     * @param sentences  sentences of white space separated tokens
+     * @param wrapTokens whether the sentences should be enclosed in start and end symbols
+     * @return the base 10 log probabilities of the sentences, in the same order
+     */
+    public float[] scoreSentences(List<String> sentences, boolean wrapTokens) {
+        float[] scores = new float[sentences.size()];
+        int batchCount = (sentences.size() + batchSize - 1) / batchSize;
+        IntStream.range(0, batchCount).parallel().forEach(batch -> {
+            int end = Math.min(sentences.size(), (batch + 1) * batchSize);
+            for (int i = batch * batchSize; i < end; ++i) {
+                scores[i] = scoreSentence(sentences.get(i), wrapTokens);
+            }
+        });
+        return scores;
+    }
+
+    /**
+     * Scores each line of the given sentence file and writes the scores to the output file,
+     * one score per line (in the order of the sentences).
+     *
+     * @param sentenceFile the file with the sentences (one sentence per line)
+     * @param outputFile   the output file
+     * @param wrapTokens   whether the sentences should be enclosed in start and end symbols
+     * @throws IOException if reading or writing a file fails
+     */
+    public void scoreFile(Path sentenceFile, Path outputFile, boolean wrapTokens) throws IOException {
+        List<String> sentences = Files.readAllLines(sentenceFile, StandardCharsets.UTF_8);
+        float[] scores = scoreSentences(sentences, wrapTokens);
+        try (BufferedWriter writer = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8)) {
+            for (float score : scores) {
+                // same representation as in kenLM's output
+                writer.write(Float.isNaN(score) ? "nan" : String.valueOf(score));
+                writer.newLine();
+            }
+        }
+    }
+
+}
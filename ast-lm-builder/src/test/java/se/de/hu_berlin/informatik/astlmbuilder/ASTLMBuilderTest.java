@@ -8,6 +8,7 @@ import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -132,4 +133,24 @@ public class ASTLMBuilderTest extends TestSettings {
         assertTrue(Files.exists(Paths.get(getStdTestDir(), "out2.lm.arpa")));
     }
 
+    /**
+     * Test method for {@link se.de.hu_berlin.informatik.astlmbuilder.ASTLMBuilder#main(java.lang.String[])}.
+     */
+    @Test
+    public void testMainShardedCounting() {
+        String[] args = {
+                ASTLMBCmdOptions.INPUT.asArg(), getStdResourcesDir() + File.separator + "training_files",
+                ASTLMBCmdOptions.OUTPUT.asArg(), getStdTestDir() + File.separator + "outSharded.lm",
+                ASTLMBCmdOptions.GRANULARITY.asArg(), "all",
+                ASTLMBCmdOptions.ENTRY_POINT.asArg(), "root",
+                ASTLMBCmdOptions.CREATE_ARPA_TEXT.asArg(),
+                ASTLMBCmdOptions.SHARDED_COUNTING.asArg(),
+                ASTLMBCmdOptions.THREAD_COUNT.asArg(), "4",
+                ASTLMBCmdOptions.NGRAM_ORDER.asArg(), "3"};
+        ASTLMBuilder.main(args);
+        assertTrue(Files.exists(Paths.get(getStdTestDir(), "outSharded.lm.bin")));
+        assertTrue(Files.exists(Paths.get(getStdTestDir(), "outSharded.lm.arpa")));
+        assertFalse(Files.exists(Paths.get(getStdTestDir(), "outSharded.lm.bin.tmp")));
+    }
+
 }
@@ -0,0 +1,165 @@
+package se.de.hu_berlin.informatik.astlmbuilder;
+
+import edu.berkeley.nlp.lm.ConfigOptions;
+import edu.berkeley.nlp.lm.StringWordIndexer;
+import edu.berkeley.nlp.lm.io.KneserNeyLmReaderCallback;
+import edu.berkeley.nlp.lm.util.LongRef;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ShardedNGramCounterTest {
+
+    private static List<List<String>> createSequences(int count, long seed) {
+        Random random = new Random(seed);
+        List<List<String>> sequences = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            List<String> sequence = new ArrayList<>();
+            int length = random.nextInt(12);
+            for (int j = 0; j < length; ++j) {
+                sequence.add("t" + random.nextInt(20));
+            }
+            sequences.add(sequence);
+        }
+        return sequences;
+    }
+
+    @Test
+    public void sequenceCountTable() {
+        ShardedNGramCounter.SequenceCountTable table = new ShardedNGramCounter.SequenceCountTable();
+        for (int i = 0; i < 10000; ++i) {
+            int[] sequence = {i % 3000, i % 7};
+            table.add(sequence, 1 + i % 2, 1);
+        }
+        assertEquals(1500 + 5000, table.size());
+        assertEquals(4, table.get(new int[]{0, 0}, 1));
+        assertEquals(1, table.get(new int[]{1, 1}, 2));
+        assertEquals(0, table.get(new int[]{1, 3}, 2));
+    }
+
+    private static KneserNeyLmReaderCallback<String> buildSharded(
+            List<List<String>> sequences, int order, int threadCount) throws InterruptedException {
+        ShardedNGramCounter counter = new ShardedNGramCounter();
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threads.length; ++t) {
+            final int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = offset; i < sequences.size(); i += threads.length) {
+                    counter.addSequence(sequences.get(i));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(threadCount, counter.getShardCount());
+
+        StringWordIndexer wordIndexer = ASTLMBuilder.getNewWordIndexer();
+        KneserNeyLmReaderCallback<String> callback =
+                new KneserNeyLmReaderCallback<>(wordIndexer, order, new ConfigOptions());
+        counter.mergeInto(wordIndexer, callback);
+        return callback;
+    }
+
+    @Test
+    public void mergedModelDoesNotDependOnThreads() throws InterruptedException {
+        List<List<String>> sequences = createSequences(2000, 42);
+        KneserNeyLmReaderCallback<String> singleThread = buildSharded(sequences, 3, 1);
+        KneserNeyLmReaderCallback<String> multipleThreads = buildSharded(sequences, 3, 4);
+
+        assertEquals(singleThread.getWordIndexer().numWords(), multipleThreads.getWordIndexer().numWords());
+        for (List<String> sequence : createSequences(200, 7)) {
+            assertEquals(singleThread.scoreSentence(sequence), multipleThreads.scoreSentence(sequence), 0);
+        }
+    }
+
+    private static KneserNeyLmReaderCallback<String> buildSequential(
+            List<List<String>> sequences, int order, boolean indexVocabularyFirst) {
+        StringWordIndexer wordIndexer = ASTLMBuilder.getNewWordIndexer();
+        KneserNeyLmReaderCallback<String> callback =
+                new KneserNeyLmReaderCallback<>(wordIndexer, order, new ConfigOptions());
+        int startId = wordIndexer.getOrAddIndex(wordIndexer.getStartSymbol());
+        int endId = wordIndexer.getOrAddIndex(wordIndexer.getEndSymbol());
+        if (indexVocabularyFirst) {
+            // like the merge: words get their ids in lexicographic order
+            TreeSet<String> vocabulary = new TreeSet<>();
+            sequences.forEach(vocabulary::addAll);
+            vocabulary.forEach(wordIndexer::getOrAddIndexFromString);
+        }
+        for (List<String> sequence : sequences) {
+            int[] sent = new int[sequence.size() + 2];
+            sent[0] = startId;
+            sent[sent.length - 1] = endId;
+            for (int i = 0; i < sequence.size(); ++i) {
+                sent[i + 1] = wordIndexer.getOrAddIndexFromString(sequence.get(i));
+            }
+            callback.call(sent, 0, sent.length, new LongRef(1L), null);
+        }
+        return callback;
+    }
+
+    // sorts the sequences like the merge does (by their word ids, which are in lexicographic order)
+    private static List<List<String>> sortLikeMerge(List<List<String>> sequences) {
+        List<List<String>> sorted = new ArrayList<>(sequences);
+        sorted.sort((a, b) -> {
+            for (int i = 0; i < Math.min(a.size(), b.size()); ++i) {
+                int result = a.get(i).compareTo(b.get(i));
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return Integer.compare(a.size(), b.size());
+        });
+        return sorted;
+    }
+
+    @Test
+    public void mergedModelMatchesSequentialModel() throws InterruptedException {
+        int order = 3;
+        List<List<String>> sequences = createSequences(2000, 42);
+        KneserNeyLmReaderCallback<String> sharded = buildSharded(sequences, order, 4);
+
+        // add all sequences one after another to a single language model, in the order of the merge
+        KneserNeyLmReaderCallback<String> sequential = buildSequential(sortLikeMerge(sequences), order, true);
+
+        assertEquals(sequential.getWordIndexer().numWords(), sharded.getWordIndexer().numWords());
+        for (List<String> sequence : createSequences(200, 7)) {
+            assertEquals(sequential.scoreSentence(sequence), sharded.scoreSentence(sequence), 0);
+        }
+    }
+
+    @Test
+    public void mergedModelDoesNotDependOnSequenceOrder() throws InterruptedException {
+        int order = 3;
+        List<List<String>> sequences = createSequences(2000, 42);
+        List<List<String>> shuffled = new ArrayList<>(sequences);
+        Collections.shuffle(shuffled, new Random(1));
+
+        // the Kneser-Ney estimates of berkeleylm slightly depend on the order in which the
+        // n-grams are added (by up to about 0.01 in log10 for these sequences), so a model
+        // that gets the sequences one after another depends on the order of the input...
+        KneserNeyLmReaderCallback<String> sequential = buildSequential(sequences, order, true);
+        KneserNeyLmReaderCallback<String> sequentialShuffled = buildSequential(shuffled, order, true);
+        boolean differs = false;
+        for (List<String> sequence : createSequences(200, 7)) {
+            differs |= sequential.scoreSentence(sequence) != sequentialShuffled.scoreSentence(sequence);
+        }
+        assertTrue(differs);
+
+        // ...while the merge always passes the sequences in the same order
+        KneserNeyLmReaderCallback<String> sharded = buildSharded(sequences, order, 4);
+        KneserNeyLmReaderCallback<String> shardedShuffled = buildSharded(shuffled, order, 4);
+        for (List<String> sequence : createSequences(200, 7)) {
+            assertEquals(sharded.scoreSentence(sequence), shardedShuffled.scoreSentence(sequence), 0);
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+package se.de.hu_berlin.informatik.astlmbuilder.reader;
+
+import edu.berkeley.nlp.lm.ConfigOptions;
+import edu.berkeley.nlp.lm.StringWordIndexer;
+import edu.berkeley.nlp.lm.io.KneserNeyLmReaderCallback;
+import edu.berkeley.nlp.lm.util.LongRef;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import se.de.hu_berlin.informatik.astlmbuilder.ASTLMBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LMQueryEngineTest {
+
+    private static KneserNeyLmReaderCallback<String> lm;
+    private static final List<String> sentences = new ArrayList<>();
+
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        StringWordIndexer wordIndexer = ASTLMBuilder.getNewWordIndexer();
+        lm = new KneserNeyLmReaderCallback<>(wordIndexer, 3, new ConfigOptions());
+        int startId = wordIndexer.getOrAddIndex(wordIndexer.getStartSymbol());
+        int endId = wordIndexer.getOrAddIndex(wordIndexer.getEndSymbol());
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; ++i) {
+            int[] sent = new int[2 + random.nextInt(10)];
+            sent[0] = startId;
+            sent[sent.length - 1] = endId;
+            StringBuilder sentence = new StringBuilder();
+            for (int j = 1; j < sent.length - 1; ++j) {
+                String token = "t" + random.nextInt(30);
+                sent[j] = wordIndexer.getOrAddIndexFromString(token);
+                sentence.append(token).append(' ');
+            }
+            lm.call(sent, 0, sent.length, new LongRef(1L), null);
+            sentences.add(sentence.toString());
+        }
+        // contains an unknown token
+        sentences.add("t1 unknown t2");
+        sentences.add("");
+    }
+
+    @Test
+    public void scoreSentence() {
+        LMQueryEngine engine = new LMQueryEngine(lm);
+        assertEquals(3, engine.getLmOrder());
+        for (String sentence : sentences.subList(0, 20)) {
+            List<String> tokens = sentence.isEmpty()
+                    ? new ArrayList<>() : Arrays.asList(sentence.trim().split(" "));
+            assertEquals(lm.scoreSentence(tokens), engine.scoreSentence(sentence, true), 1e-4);
+        }
+        // without start and end symbols
+        float score = lm.getLogProb(Arrays.asList("t1")) + lm.getLogProb(Arrays.asList("t1", "t2"));
+        assertEquals(score, engine.scoreSentence("t1 t2", false), 1e-4);
+        assertEquals(0, engine.scoreSentence("", false), 0);
+    }
+
+    @Test
+    public void scoreSentencesInBatches() {
+        LMQueryEngine engine = new LMQueryEngine(lm);
+        engine.setBatchSize(7);
+        float[] scores = engine.scoreSentences(sentences, false);
+        assertEquals(sentences.size(), scores.length);
+        for (int i = 0; i < sentences.size(); ++i) {
+            assertEquals(engine.scoreSentence(sentences.get(i), false), scores[i], 0);
+        }
+    }
+
+    @Test
+    public void scoreFile() throws IOException {
+        LMQueryEngine engine = new LMQueryEngine(lm);
+        Path sentenceFile = Files.createTempFile("sentences", ".txt");
+        Path outputFile = Files.createTempFile("scores", ".lmr");
+        try {
+            Files.write(sentenceFile, sentences, StandardCharsets.UTF_8);
+            engine.scoreFile(sentenceFile, outputFile, false);
+            List<String> lines = Files.readAllLines(outputFile, StandardCharsets.UTF_8);
+            assertEquals(sentences.size(), lines.size());
+            for (int i = 0; i < sentences.size(); ++i) {
+                assertEquals(engine.scoreSentence(sentences.get(i), false), Double.valueOf(lines.get(i)), 1e-4);
+            }
+        } finally {
+            Files.delete(sentenceFile);
+            Files.delete(outputFile);
+        }
+    }
+
+    @Test
+    public void canRead() {
+        assertTrue(LMQueryEngine.canRead("/path/to/some.lm.bin"));
+        assertTrue(LMQueryEngine.canRead("/path/to/some.lm.arpa"));
+        assertFalse(LMQueryEngine.canRead("/path/to/some_language_model.kenlm.binary"));
+    }
+
+}
@@ -2,11 +2,16 @@ package se.de.hu_berlin.informatik.experiments.defects4j;
 
 import org.apache.commons.cli.Option;
 import org.jacoco.core.runtime.AgentOptions;
+import se.de.hu_berlin.informatik.benchmark.api.BugLoRDConstants;
 import se.de.hu_berlin.informatik.benchmark.api.BuggyFixedEntity;
 import se.de.hu_berlin.informatik.benchmark.api.defects4j.Defects4J;
 import se.de.hu_berlin.informatik.benchmark.api.defects4j.Defects4JBuggyFixedEntity;
+import se.de.hu_berlin.informatik.experiments.defects4j.BugLoRD.BugLoRDProperties;
 import se.de.hu_berlin.informatik.experiments.defects4j.BugLoRD.ToolSpecific;
 import se.de.hu_berlin.informatik.experiments.defects4j.calls.*;
+import se.de.hu_berlin.informatik.experiments.defects4j.scheduler.ExperimentScheduler;
+import se.de.hu_berlin.informatik.experiments.defects4j.scheduler.ExperimentStage;
+import se.de.hu_berlin.informatik.experiments.defects4j.scheduler.ResourceClass;
 import se.de.hu_berlin.informatik.gen.spectra.predicates.modules.Output;
 import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
 import se.de.hu_berlin.informatik.utils.miscellaneous.Misc;
@@ -19,6 +24,11 @@ import se.de.hu_berlin.informatik.utils.processors.sockets.pipe.PipeLinker;
 import se.de.hu_berlin.informatik.utils.threaded.SemaphoreThreadLimit;
 import se.de.hu_berlin.informatik.utils.threaded.ThreadLimit;
 
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
 
 /**
@@ -26,6 +36,8 @@ import java.util.Locale;
  */
 public class ExperimentRunner {
 
+    public final static String DEFAULT_STATE_FILE = ".experiment_state";
+
     public enum CmdOptions implements OptionWrapperInterface {
         /* add options here according to your needs */
         PROJECTS(Option.builder("p").longOpt("projects").required().hasArgs().desc(
@@ -60,7 +72,11 @@ public class ExperimentRunner {
                 false),
         LM("lm", "globalLM", true, "Path to a language model binary (kenLM).", false),
         RANKING_TYPE("rt", "rankingType", true, "Rank predicates or sbfl", false),
-        JOINSTRATEGY("js", "joinStrategy", true, "how to join predicates", false);
+        JOINSTRATEGY("js", "joinStrategy", true, "how to join predicates", false),
+        SCHEDULE("sched", "schedule", false, "Whether to execute the experiments for all bugs with a scheduler that runs "
+                + "independent experiments in parallel and skips experiments with unchanged inputs and settings.", false),
+        STATE_FILE("state", "stateFile", true, "The file that records the finished experiments when using the scheduler. "
+                + "Default: '" + DEFAULT_STATE_FILE + "'.", false);
 
         /* the following code blocks should not need to be changed */
         final private OptionWrapper option;
@@ -143,6 +159,24 @@ public class ExperimentRunner {
             projects = Defects4J.getAllProjectIDs();
         }
 
+        if (options.hasOption(CmdOptions.SCHEDULE)) {
+            List<BuggyFixedEntity<?>> entities = new ArrayList<>();
+            for (String project : projects) {
+                if (all) {
+                    ids = Defects4J.getAllBugIDs(project);
+                }
+                for (String id : ids) {
+                    entities.add(new Defects4JBuggyFixedEntity(project, id));
+                }
+            }
+            int failed = createScheduler(options, toDo, threadCount).run(entities);
+            if (failed > 0) {
+                Log.err(ExperimentRunner.class, "%d task(s) failed.", failed);
+                System.exit(1);
+            }
+            return;
+        }
+
         PipeLinker linker = new PipeLinker();
         ThreadLimit limit = new SemaphoreThreadLimit(threadCount);
 
@@ -268,6 +302,142 @@ public class ExperimentRunner {
         linker.shutdown();
     }
 
+    /**
+     * Creates a scheduler with the experiments to execute. The experiments for a bug only
+     * wait for the experiments that they depend on.
+     */
+    private static ExperimentScheduler createScheduler(OptionParser options, String[] toDo, int threadCount) {
+        ExperimentScheduler scheduler = new ExperimentScheduler(threadCount,
+                Paths.get(options.getOptionValue(CmdOptions.STATE_FILE, DEFAULT_STATE_FILE)));
+
+        String suffix = options.getOptionValue(CmdOptions.SUFFIX, null);
+        String rankingDirName = suffix == null ? BugLoRDConstants.DIR_NAME_RANKING : BugLoRDConstants.DIR_NAME_RANKING + "_" + suffix;
+        boolean fillEmptyLines = options.hasOption(CmdOptions.FILL_EMPTY_LINES);
+        ToolSpecific toolSpecific = options.getOptionValue(CmdOptions.SPECTRA_TOOL,
+                ToolSpecific.class, ToolSpecific.TRACE_COBERTURA, true);
+        String subDirName = BugLoRD.getSubDirName(toolSpecific);
+        String joinStrategy = options.getOptionValue(CmdOptions.JOINSTRATEGY, "pairs");
+        List<String> stageNames = new ArrayList<>();
+
+        if (toDoContains(toDo, "check")) {
+            scheduler.addStage(new ExperimentStage("check", ResourceClass.IO,
+                    i -> new ERCheckoutBugAndFixEH())
+                    .asPrerequisite());
+            stageNames.add("check");
+        }
+
+        if (toDoContains(toDo, "checkout") || toDoContains(toDo, "all")) {
+            scheduler.addStage(new ExperimentStage("checkout", ResourceClass.IO,
+                    i -> new ERCheckoutEH())
+                    .asPrerequisite());
+            stageNames.add("checkout");
+        }
+
+        if (toDoContains(toDo, "genSpectra") || toDoContains(toDo, "all")) {
+            // every thread needs its own port for the JaCoCo Java agent, sadly...
+            scheduler.addStage(new ExperimentStage("genSpectra", ResourceClass.MEMORY,
+                    i -> new ERGenerateSpectraEH(toolSpecific, suffix, AgentOptions.DEFAULT_PORT + (i * 3), fillEmptyLines))
+                    .dependsOn("checkout")
+                    .withOutputs(entity -> Collections.singletonList(
+                            BugLoRD.getSpectraFilePath(entity.getBuggyVersion(), subDirName)))
+                    .withConfiguration("tool=" + toolSpecific + ",fill=" + fillEmptyLines + ",suffix=" + suffix));
+            stageNames.add("genSpectra");
+        }
+
+        if (toDoContains(toDo, "predicates")) {
+            scheduler.addStage(new ExperimentStage("predicates", ResourceClass.MEMORY,
+                    i -> new ERProducePredicates(suffix, fillEmptyLines, joinStrategy))
+                    .dependsOn("checkout")
+                    .withConfiguration("fill=" + fillEmptyLines + ",join=" + joinStrategy + ",suffix=" + suffix));
+            stageNames.add("predicates");
+        }
+
+        if (toDoContains(toDo, "genCodeLocationRanking")) {
+            String rankingType = options.getOptionValue(CmdOptions.RANKING_TYPE);
+            scheduler.addStage(new ExperimentStage("genCodeLocationRanking", ResourceClass.CPU,
+                    i -> new GenCodeLocationBasedRankings(suffix, rankingType))
+                    .dependsOn("predicates")
+                    .withConfiguration("type=" + rankingType + ",suffix=" + suffix));
+            stageNames.add("genCodeLocationRanking");
+        }
+
+        if (toDoContains(toDo, "reSave")) {
+            // rewrites the spectra file, so it only depends on its configuration and the spectra generation
+            scheduler.addStage(new ExperimentStage("reSave", ResourceClass.MEMORY,
+                    i -> new ERLoadAndSaveSpectraEH(toolSpecific, fillEmptyLines))
+                    .dependsOn("genSpectra")
+                    .withOutputs(entity -> Collections.singletonList(
+                            BugLoRD.getSpectraFilePath(entity.getBuggyVersion(), subDirName)))
+                    .withConfiguration("tool=" + toolSpecific + ",fill=" + fillEmptyLines));
+            stageNames.add("reSave");
+        }
+
+        if (toDoContains(toDo, "computeSBFL") || toDoContains(toDo, "all")) {
+            boolean filter = options.hasOption(CmdOptions.FILTER);
+            boolean removeTestClasses = options.hasOption(CmdOptions.REMOVE_TEST_CLASSES);
+            boolean condense = options.hasOption(CmdOptions.CONDENSE);
+            boolean forceLoad = options.hasOption(CmdOptions.FORCE_LOAD_SPECTRA_FOR_FL);
+            scheduler.addStage(new ExperimentStage("computeSBFL", ResourceClass.CPU,
+                    i -> new ERComputeSBFLRankingsFromSpectraEH(toolSpecific, suffix,
+                            filter, removeTestClasses, condense, forceLoad))
+                    .dependsOn("checkout", "genSpectra", "reSave")
+                    .withInputs(entity -> Collections.singletonList(
+                            BugLoRD.getSpectraFilePath(entity.getBuggyVersion(), subDirName)))
+                    .withOutputs(entity -> Collections.singletonList(
+                            entity.getBuggyVersion().getWorkDataDir().resolve(rankingDirName)
+                                    .resolve(BugLoRDConstants.getTraceFileFileName(null))))
+                    .withConfiguration("tool=" + toolSpecific + ",filter=" + filter
+                            + ",removeTestClasses=" + removeTestClasses + ",condense=" + condense
+                            + ",forceLoad=" + forceLoad + ",suffix=" + suffix
+                            + ",localizers=" + BugLoRD.getValueOf(BugLoRDProperties.LOCALIZERS)));
+            stageNames.add("computeSBFL");
+        }
+
+        if (toDoContains(toDo, "checkChanges") || toDoContains(toDo, "all")) {
+            scheduler.addStage(new ExperimentStage("checkChanges", ResourceClass.IO,
+                    i -> new ERCheckoutFixAndCheckForChangesEH())
+                    .dependsOn("checkout")
+                    .withOutputs(entity -> Collections.singletonList(
+                            entity.getBuggyVersion().getWorkDataDir().resolve(BugLoRDConstants.CHANGES_FILE_NAME))));
+            stageNames.add("checkChanges");
+        }
+
+        if (toDoContains(toDo, "bugDiagnosis")) {
+            scheduler.addStage(new ExperimentStage("bugDiagnosis", ResourceClass.CPU,
+                    i -> new ERBugDiagnosisEH())
+                    .dependsOn("checkout", "computeSBFL"));
+            stageNames.add("bugDiagnosis");
+        }
+
+        if (toDoContains(toDo, "query") || toDoContains(toDo, "all")) {
+            String globalLM = options.getOptionValue(CmdOptions.LM, null);
+            String lmFile = globalLM == null ? BugLoRD.getValueOf(BugLoRDProperties.GLOBAL_LM_BINARY) : globalLM;
+            // language models are too large to hash their contents
+            File lm = new File(lmFile);
+            scheduler.addStage(new ExperimentStage("query", ResourceClass.CPU,
+                    i -> new ERQueryLMRankingsEH(suffix, globalLM))
+                    .dependsOn("checkout", "computeSBFL")
+                    .withInputs(entity -> Collections.singletonList(
+                            entity.getBuggyVersion().getWorkDataDir().resolve(rankingDirName)
+                                    .resolve(BugLoRDConstants.getTraceFileFileName(null))))
+                    .withOutputs(entity -> Collections.singletonList(
+                            entity.getBuggyVersion().getWorkDataDir().resolve(rankingDirName)
+                                    .resolve(BugLoRDConstants.DIR_NAME_LM_RANKING)))
+                    .withConfiguration("lm=" + lm.getAbsolutePath() + ",size=" + lm.length()
+                            + ",modified=" + lm.lastModified()));
+            stageNames.add("query");
+        }
+
+        if (toDoContains(toDo, "cleanup")) {
+            scheduler.addStage(new ExperimentStage("cleanup", ResourceClass.IO,
+                    i -> new ERCleanupEH())
+                    .dependsOn(stageNames.toArray(new String[0]))
+                    .alwaysExecuted());
+        }
+
+        return scheduler;
+    }
+
     private static boolean toDoContains(String[] toDo, String item) {
         for (String element : toDo) {
             if (element.toLowerCase(Locale.getDefault()).equals(item.toLowerCase(Locale.getDefault())))
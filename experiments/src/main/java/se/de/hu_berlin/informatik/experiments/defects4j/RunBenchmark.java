@@ -1,6 +1,7 @@
 package se.de.hu_berlin.informatik.experiments.defects4j;
 
 import org.apache.commons.cli.Option;
+import se.de.hu_berlin.informatik.astlmbuilder.reader.LMQueryEngine;
 import se.de.hu_berlin.informatik.benchmark.api.defects4j.Defects4J;
 import se.de.hu_berlin.informatik.benchmark.api.defects4j.Defects4JBuggyFixedEntity;
 import se.de.hu_berlin.informatik.experiments.defects4j.BugLoRD.BugLoRDProperties;
@@ -160,6 +161,8 @@ public class RunBenchmark {
                 }
             }
             linker.shutdown();
+            // the language model is not needed anymore
+            LMQueryEngine.release(globalLM);
         }
 
 //		/*
@@ -1,5 +1,6 @@
 package se.de.hu_berlin.informatik.experiments.defects4j.calls;
 
+import se.de.hu_berlin.informatik.astlmbuilder.reader.LMQueryEngine;
 import se.de.hu_berlin.informatik.benchmark.api.BugLoRDConstants;
 import se.de.hu_berlin.informatik.benchmark.api.BuggyFixedEntity;
 import se.de.hu_berlin.informatik.benchmark.api.Entity;
@@ -49,7 +50,7 @@ public class ERQueryLMRankingsEH extends AbstractProcessor<BuggyFixedEntity<?>,
         Entity bug = buggyEntity.getBuggyVersion();
 
         /* #====================================================================================
-         * # query sentences to the LM via kenLM,
+         * # query sentences to the LM (in process or via kenLM),
          * # combine the generated rankings
          * #==================================================================================== */
 
@@ -113,6 +114,10 @@ public class ERQueryLMRankingsEH extends AbstractProcessor<BuggyFixedEntity<?>,
                 .toString();
         new File(lmRankingDir).mkdirs();
 
+        // berkeleylm binaries and arpa files are queried in this process, and the model
+        // is only loaded once for all bugs; other models (kenLM binaries) need kenLM's query tool
+        LMQueryEngine queryEngine = LMQueryEngine.canRead(globalLM) ? LMQueryEngine.getInstance(globalLM) : null;
+
         Log.out(this, "Processing: " + traceFile);
         File allLMRankingFileNames = new File(BugLoRDConstants.LM_RANKING_FILENAMES_FILE);
 
@@ -131,8 +136,19 @@ public class ERQueryLMRankingsEH extends AbstractProcessor<BuggyFixedEntity<?>,
                 }
                 String lmRankingFile = getLMRankingFileName(lmFileName, pre, post);
 
-                Defects4J.executeCommand(null, true, "/bin/sh", "-c", BugLoRD.getKenLMQueryExecutable()
-                        + " -n -c " + globalLM + " < " + sentenceOutput + " > " + lmRankingDir + File.separator + lmRankingFile);
+                String lmRankingOutput = lmRankingDir + File.separator + lmRankingFile;
+                if (queryEngine != null) {
+                    try {
+                        // like kenLM's query with '-n': sentences are not wrapped in start and end symbols
+                        queryEngine.scoreFile(Paths.get(sentenceOutput), Paths.get(lmRankingOutput), false);
+                    } catch (IOException e) {
+                        Log.err(this, e, "Could not query sentences in '%s'.", sentenceOutput);
+                        continue;
+                    }
+                } else {
+                    Defects4J.executeCommand(null, true, "/bin/sh", "-c", BugLoRD.getKenLMQueryExecutable()
+                            + " -n -c " + globalLM + " < " + sentenceOutput + " > " + lmRankingOutput);
+                }
 
                 try {
                     // first check without synchronization
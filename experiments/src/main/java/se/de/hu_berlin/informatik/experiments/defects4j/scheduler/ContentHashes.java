@@ -0,0 +1,110 @@
+package se.de.hu_berlin.informatik.experiments.defects4j.scheduler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Computes SHA-256 hashes of the contents of files and directories. Hashes of files are
+ * cached as long as the size and modification time of a file do not change, so that
+ * large spectra files are only read once per run.
+ */
+public class ContentHashes {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Map<Path, CachedHash> cache = new ConcurrentHashMap<>();
+
+    private static class CachedHash {
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+
+        private CachedHash(long size, long lastModified, String hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+            builder.append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Adds the content of the given path to the digest. Directories are hashed by the
+     * relative paths and contents of all contained files (in a fixed order). Missing
+     * files are hashed as such.
+     *
+     * @param digest the digest to update
+     * @param path   a file or directory
+     * @throws IOException if reading a file fails
+     */
+    public void update(MessageDigest digest, Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            List<Path> files;
+            try (Stream<Path> stream = Files.walk(path)) {
+                files = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            }
+            digest.update(("dir:" + files.size() + "\n").getBytes(StandardCharsets.UTF_8));
+            for (Path file : files) {
+                digest.update((path.relativize(file) + ":" + hashFile(file) + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        } else if (Files.isRegularFile(path)) {
+            digest.update(("file:" + hashFile(path) + "\n").getBytes(StandardCharsets.UTF_8));
+        } else {
+            digest.update("missing\n".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * @param file a file
+     * @return the hex encoded hash of the file's content
+     * @throws IOException if reading the file fails
+     */
+    public String hashFile(Path file) throws IOException {
+        Path key = file.toAbsolutePath().normalize();
+        long size = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        CachedHash cached = cache.get(key);
+        if (cached != null && cached.size == size && cached.lastModified == lastModified) {
+            return cached.hash;
+        }
+
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream input = Files.newInputStream(file)) {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        String hash = toHex(digest.digest());
+        cache.put(key, new CachedHash(size, lastModified, hash));
+        return hash;
+    }
+
+}
@@ -0,0 +1,333 @@
+package se.de.hu_berlin.informatik.experiments.defects4j.scheduler;
+
+import se.de.hu_berlin.informatik.benchmark.api.BuggyFixedEntity;
+import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
+import se.de.hu_berlin.informatik.utils.processors.AbstractProcessor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Executes the stages of an experiment for a collection of bugs. Each combination of a bug and
+ * a stage is a task that may be executed as soon as the tasks of the stages that it depends on
+ * are finished for the same bug, so different stages of different bugs run in parallel.
+ * <p>
+ * The fingerprint of a task consists of the stage's configuration and the content hashes of
+ * the stage's input files. Successfully finished tasks are recorded with their fingerprints in
+ * a {@link TaskStateStore}. A task is skipped if its recorded fingerprint equals its current
+ * fingerprint and all of its output files exist. This way, an aborted run can be resumed, and
+ * after changing, e.g., the localizers, only the rankings are computed again.
+ * <p>
+ * Tasks take slots according to the weight of their stage's {@link ResourceClass}; there are as
+ * many slots as threads.
+ */
+public class ExperimentScheduler {
+
+    private enum Status {PENDING, FINISHED, SKIPPED, FAILED, CANCELLED}
+
+    private final int threadCount;
+    private final TaskStateStore stateStore;
+    private final ContentHashes contentHashes = new ContentHashes();
+    private final Map<String, ExperimentStage> stages = new LinkedHashMap<>();
+    private final Map<ResourceClass, Integer> weights = new EnumMap<>(ResourceClass.class);
+
+    /**
+     * @param threadCount the maximum number of tasks to execute in parallel
+     * @param stateFile   the file that records the finished tasks
+     */
+    public ExperimentScheduler(int threadCount, Path stateFile) {
+        this.threadCount = Math.max(1, threadCount);
+        this.stateStore = new TaskStateStore(stateFile);
+        for (ResourceClass resourceClass : ResourceClass.values()) {
+            weights.put(resourceClass, resourceClass.getDefaultWeight());
+        }
+    }
+
+    /**
+     * Adds a stage. Stages have to be added after the stages that they depend on.
+     *
+     * @param stage the stage
+     * @return this scheduler
+     */
+    public ExperimentScheduler addStage(ExperimentStage stage) {
+        if (stages.containsKey(stage.getName())) {
+            throw new IllegalArgumentException("Stage '" + stage.getName() + "' already exists.");
+        }
+        stages.put(stage.getName(), stage);
+        return this;
+    }
+
+    /**
+     * @param resourceClass a resource class
+     * @param weight        the number of slots that a task of the given class takes
+     * @return this scheduler
+     */
+    public ExperimentScheduler setWeight(ResourceClass resourceClass, int weight) {
+        weights.put(resourceClass, Math.max(1, weight));
+        return this;
+    }
+
+    private class Task {
+        private final BuggyFixedEntity<?> entity;
+        private final ExperimentStage stage;
+        private final String id;
+        private final List<Task> dependencies = new ArrayList<>();
+        private final List<Task> dependents = new ArrayList<>();
+        private boolean needsExecution;
+        private volatile Status status = Status.PENDING;
+
+        private Task(BuggyFixedEntity<?> entity, ExperimentStage stage) {
+            this.entity = entity;
+            this.stage = stage;
+            this.id = entity.getUniqueIdentifier() + "/" + stage.getName();
+        }
+    }
+
+    /**
+     * Executes all stages for all given bugs.
+     *
+     * @param entities the bugs
+     * @return the number of tasks that failed
+     */
+    public int run(Collection<BuggyFixedEntity<?>> entities) {
+        List<Task> tasks = createTasks(entities);
+        planExecution(tasks);
+
+        int planned = 0;
+        for (Task task : tasks) {
+            if (task.needsExecution) {
+                ++planned;
+            }
+        }
+        Log.out(this, "%d of %d tasks need to be executed.", planned, tasks.size());
+
+        Semaphore slots = new Semaphore(threadCount, true);
+        Map<String, ProcessorPool> pools = new HashMap<>();
+        for (ExperimentStage stage : stages.values()) {
+            pools.put(stage.getName(), new ProcessorPool(stage, threadCount));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            Map<Task, CompletableFuture<Void>> futures = new HashMap<>();
+            for (Task task : tasks) {
+                CompletableFuture<?>[] dependencies = task.dependencies.stream()
+                        .map(futures::get).toArray(CompletableFuture<?>[]::new);
+                futures.put(task, CompletableFuture.allOf(dependencies)
+                        .thenRunAsync(() -> execute(task, slots, pools.get(task.stage.getName())), executor));
+            }
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            executor.shutdown();
+        }
+
+        Map<Status, Integer> counts = new EnumMap<>(Status.class);
+        for (Task task : tasks) {
+            counts.merge(task.status, 1, Integer::sum);
+        }
+        Log.out(this, "Finished: %d, skipped (up to date): %d, failed: %d, cancelled: %d.",
+                counts.getOrDefault(Status.FINISHED, 0), counts.getOrDefault(Status.SKIPPED, 0),
+                counts.getOrDefault(Status.FAILED, 0), counts.getOrDefault(Status.CANCELLED, 0));
+        return counts.getOrDefault(Status.FAILED, 0);
+    }
+
+    private List<Task> createTasks(Collection<BuggyFixedEntity<?>> entities) {
+        List<Task> tasks = new ArrayList<>();
+        for (BuggyFixedEntity<?> entity : entities) {
+            Map<String, Task> entityTasks = new HashMap<>();
+            for (ExperimentStage stage : stages.values()) {
+                Task task = new Task(entity, stage);
+                for (String dependency : stage.getDependencies()) {
+                    Task dependencyTask = entityTasks.get(dependency);
+                    // dependencies that are not part of the experiment are assumed to be done
+                    if (dependencyTask != null) {
+                        task.dependencies.add(dependencyTask);
+                        dependencyTask.dependents.add(task);
+                    }
+                }
+                entityTasks.put(stage.getName(), task);
+                tasks.add(task);
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Decides which tasks have to be executed, based on the current state of the files. A task that
+     * depends on an executed task is executed, too, since its inputs may change. (It is skipped
+     * later on if they don't.) Prerequisites are only executed if a dependent task is executed
+     * (or if no dependent stage is part of the experiment).
+     */
+    private void planExecution(List<Task> tasks) {
+        // tasks are ordered such that dependencies come first
+        for (Task task : tasks) {
+            if (task.stage.isPrerequisite()) {
+                continue;
+            }
+            task.needsExecution = task.stage.isAlwaysExecuted() || !isUpToDate(task, computeFingerprint(task));
+            for (Task dependency : task.dependencies) {
+                task.needsExecution |= !dependency.stage.isPrerequisite() && dependency.needsExecution;
+            }
+        }
+        for (int i = tasks.size() - 1; i >= 0; --i) {
+            Task task = tasks.get(i);
+            if (task.stage.isPrerequisite()) {
+                // prerequisites without dependents are executed on their own
+                task.needsExecution = task.dependents.isEmpty();
+                for (Task dependent : task.dependents) {
+                    task.needsExecution |= dependent.needsExecution && !dependent.stage.isAlwaysExecuted();
+                }
+            }
+        }
+    }
+
+    private void execute(Task task, Semaphore slots, ProcessorPool pool) {
+        for (Task dependency : task.dependencies) {
+            if (dependency.status == Status.FAILED || dependency.status == Status.CANCELLED) {
+                task.status = Status.CANCELLED;
+                return;
+            }
+        }
+        if (!task.needsExecution) {
+            task.status = Status.SKIPPED;
+            return;
+        }
+
+        boolean recordState = !task.stage.isPrerequisite() && !task.stage.isAlwaysExecuted();
+        String fingerprint = null;
+        if (recordState) {
+            // the inputs may have been changed by the dependencies; stages without declared
+            // inputs can't tell, so they are executed again if a dependency was executed
+            fingerprint = computeFingerprint(task);
+            if (isUpToDate(task, fingerprint) && !(hasNoInputs(task) && anyDependencyFinished(task))) {
+                Log.out(this, "Task '%s' is up to date.", task.id);
+                task.status = Status.SKIPPED;
+                return;
+            }
+            stateStore.reset(task.id);
+        }
+
+        int weight = Math.min(weights.get(task.stage.getResourceClass()), threadCount);
+        BuggyFixedEntity<?> result = null;
+        try {
+            slots.acquire(weight);
+            try {
+                AbstractProcessor<BuggyFixedEntity<?>, BuggyFixedEntity<?>> processor = pool.acquire();
+                try {
+                    result = processor.processItem(task.entity);
+                } finally {
+                    pool.release(processor);
+                }
+            } finally {
+                slots.release(weight);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Log.err(this, e, "Interrupted while executing task '%s'.", task.id);
+        } catch (RuntimeException e) {
+            Log.err(this, e, "Task '%s' failed.", task.id);
+        }
+
+        if (result == null) {
+            task.status = Status.FAILED;
+            return;
+        }
+        task.status = Status.FINISHED;
+        if (recordState && fingerprint != null) {
+            stateStore.setFinished(task.id, fingerprint);
+        }
+    }
+
+    private static boolean hasNoInputs(Task task) {
+        return task.stage.getInputs(task.entity).isEmpty();
+    }
+
+    private static boolean anyDependencyFinished(Task task) {
+        for (Task dependency : task.dependencies) {
+            if (dependency.status == Status.FINISHED && !dependency.stage.isPrerequisite()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isUpToDate(Task task, String fingerprint) {
+        if (fingerprint == null || !fingerprint.equals(stateStore.getFingerprint(task.id))) {
+            return false;
+        }
+        for (Path output : task.stage.getOutputs(task.entity)) {
+            if (!Files.exists(output)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the fingerprint of the task's configuration and input files, or null if
+     * an input file could not be read
+     */
+    private String computeFingerprint(Task task) {
+        MessageDigest digest = ContentHashes.newDigest();
+        digest.update((task.stage.getName() + "\n" + task.stage.getConfiguration() + "\n")
+                .getBytes(StandardCharsets.UTF_8));
+        try {
+            for (Path input : task.stage.getInputs(task.entity)) {
+                digest.update((input.toAbsolutePath().normalize() + "\n").getBytes(StandardCharsets.UTF_8));
+                contentHashes.update(digest, input);
+            }
+        } catch (IOException e) {
+            Log.err(this, e, "Could not compute the fingerprint of task '%s'.", task.id);
+            return null;
+        }
+        return ContentHashes.toHex(digest.digest());
+    }
+
+    /**
+     * Reuses the processors of a stage. Processors are created lazily with consecutive indices.
+     */
+    private static class ProcessorPool {
+
+        private final ExperimentStage stage;
+        private final int maxSize;
+        private final Deque<AbstractProcessor<BuggyFixedEntity<?>, BuggyFixedEntity<?>>> idle = new ArrayDeque<>();
+        private int created = 0;
+
+        private ProcessorPool(ExperimentStage stage, int maxSize) {
+            this.stage = stage;
+            this.maxSize = maxSize;
+        }
+
+        private synchronized AbstractProcessor<BuggyFixedEntity<?>, BuggyFixedEntity<?>> acquire() throws InterruptedException {
+            while (idle.isEmpty() && created >= maxSize) {
+                wait();
+            }
+            if (!idle.isEmpty()) {
+                return idle.pop();
+            }
+            return stage.createProcessor(created++);
+        }
+
+        private synchronized void release(AbstractProcessor<BuggyFixedEntity<?>, BuggyFixedEntity<?>> processor) {
+            idle.push(processor);
+            notifyAll();
+        }
+    }
+
+}
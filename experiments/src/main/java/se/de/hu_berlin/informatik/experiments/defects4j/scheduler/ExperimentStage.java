@@ -0,0 +1,147 @@
+package se.de.hu_berlin.informatik.experiments.defects4j.scheduler;
+
+import se.de.hu_berlin.informatik.benchmark.api.BuggyFixedEntity;
+import se.de.hu_berlin.informatik.utils.processors.AbstractProcessor;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * A stage of an experiment (e.g., generating spectra or computing SBFL rankings) that is
+ * executed for each bug. A stage declares the stages it depends on as well as the files that
+ * it reads and writes for a bug, which the {@link ExperimentScheduler} uses to decide whether
+ * the stage has to be executed again.
+ */
+public class ExperimentStage {
+
+    private final String name;
+    private final ResourceClass resourceClass;
+    private final IntFunction<AbstractProcessor<BuggyFixedEntity<?>, BuggyFixedEntity<?>>> processorFactory;
+
+    private final List<String> dependencies = new ArrayList<>();
+    private Function<BuggyFixedEntity<?>, List<Path>> inputs = entity -> Collections.emptyList();
+    private Function<BuggyFixedEntity<?>, List<Path>> outputs = entity -> Collections.emptyList();
+    private String configuration = "";
+    private boolean prerequisite = false;
+    private boolean alwaysExecuted = false;
+
+    /**
+     * @param name             the name of the stage (unique in an experiment)
+     * @param resourceClass    the main resource that the stage uses
+     * @param processorFactory creates the processors that execute the stage for single bugs; gets the
+     *                         index of the processor (up to the number of threads), e.g., to assign ports
+     */
+    public ExperimentStage(String name, ResourceClass resourceClass,
+                           IntFunction<AbstractProcessor<BuggyFixedEntity<?>, BuggyFixedEntity<?>>> processorFactory) {
+        this.name = name;
+        this.resourceClass = resourceClass;
+        this.processorFactory = processorFactory;
+    }
+
+    /**
+     * @param stageNames stages that have to be finished for a bug before this stage may be
+     *                   executed for the bug (ignored if not part of the experiment)
+     * @return this stage
+     */
+    public ExperimentStage dependsOn(String... stageNames) {
+        dependencies.addAll(Arrays.asList(stageNames));
+        return this;
+    }
+
+    /**
+     * @param inputs the files or directories that the stage reads for a bug
+     * @return this stage
+     */
+    public ExperimentStage withInputs(Function<BuggyFixedEntity<?>, List<Path>> inputs) {
+        this.inputs = inputs;
+        return this;
+    }
+
+    /**
+     * @param outputs the files or directories that the stage writes for a bug
+     * @return this stage
+     */
+    public ExperimentStage withOutputs(Function<BuggyFixedEntity<?>, List<Path>> outputs) {
+        this.outputs = outputs;
+        return this;
+    }
+
+    /**
+     * @param configuration a description of all settings that influence the results of the stage
+     *                      (e.g., the used localizers); the stage is executed again if it changes
+     * @return this stage
+     */
+    public ExperimentStage withConfiguration(String configuration) {
+        this.configuration = configuration;
+        return this;
+    }
+
+    /**
+     * Marks the stage as a prerequisite that produces no results of its own (e.g., checking
+     * out a bug). It is only executed for a bug if a dependent stage is executed for the bug
+     * (or if no dependent stage is part of the experiment).
+     *
+     * @return this stage
+     */
+    public ExperimentStage asPrerequisite() {
+        this.prerequisite = true;
+        return this;
+    }
+
+    /**
+     * Marks the stage to be executed regardless of previous executions (e.g., cleaning up).
+     *
+     * @return this stage
+     */
+    public ExperimentStage alwaysExecuted() {
+        this.alwaysExecuted = true;
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ResourceClass getResourceClass() {
+        return resourceClass;
+    }
+
+    public List<String> getDependencies() {
+        return dependencies;
+    }
+
+    public List<Path> getInputs(BuggyFixedEntity<?> entity) {
+        return inputs.apply(entity);
+    }
+
+    public List<Path> getOutputs(BuggyFixedEntity<?> entity) {
+        return outputs.apply(entity);
+    }
+
+    public String getConfiguration() {
+        return configuration;
+    }
+
+    public boolean isPrerequisite() {
+        return prerequisite;
+    }
+
+    public boolean isAlwaysExecuted() {
+        return alwaysExecuted;
+    }
+
+    AbstractProcessor<BuggyFixedEntity<?>, BuggyFixedEntity<?>> createProcessor(int index) {
+        return processorFactory.apply(index);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
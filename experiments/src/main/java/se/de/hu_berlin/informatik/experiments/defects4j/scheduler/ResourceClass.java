@@ -0,0 +1,31 @@
+package se.de.hu_berlin.informatik.experiments.defects4j.scheduler;
+
+/**
+ * The main resource that a stage of an experiment uses. Tasks take a number of slots
+ * (their weight) from the slots that the {@link ExperimentScheduler} has available,
+ * so that, e.g., fewer memory-heavy tasks run in parallel than CPU-heavy ones.
+ */
+public enum ResourceClass {
+    /**
+     * mostly waits for the file system or external processes (e.g., checking out bugs)
+     */
+    IO(1),
+    /**
+     * CPU-heavy computations (e.g., computing rankings)
+     */
+    CPU(1),
+    /**
+     * needs a lot of memory (e.g., generating or loading spectra)
+     */
+    MEMORY(2);
+
+    private final int defaultWeight;
+
+    ResourceClass(int defaultWeight) {
+        this.defaultWeight = defaultWeight;
+    }
+
+    public int getDefaultWeight() {
+        return defaultWeight;
+    }
+}
@@ -0,0 +1,90 @@
+package se.de.hu_berlin.informatik.experiments.defects4j.scheduler;
+
+import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Stores the fingerprints of all successfully finished tasks in a file. The file is rewritten
+ * (atomically, if supported by the file system) after each finished task, so that a crashed
+ * or aborted run can be resumed without repeating finished tasks.
+ */
+public class TaskStateStore {
+
+    private final Path stateFile;
+    private final Properties fingerprints = new Properties();
+
+    /**
+     * Loads the state from the given file, if it exists.
+     *
+     * @param stateFile the state file
+     */
+    public TaskStateStore(Path stateFile) {
+        this.stateFile = stateFile;
+        if (Files.exists(stateFile)) {
+            try (Reader reader = Files.newBufferedReader(stateFile, StandardCharsets.UTF_8)) {
+                fingerprints.load(reader);
+            } catch (IOException e) {
+                Log.err(this, e, "Could not read task state file '%s'. All tasks will be executed.", stateFile);
+                fingerprints.clear();
+            }
+        }
+    }
+
+    /**
+     * @param taskId the id of a task
+     * @return the fingerprint of the task's last successful execution, or null if there is none
+     */
+    public synchronized String getFingerprint(String taskId) {
+        return fingerprints.getProperty(taskId);
+    }
+
+    /**
+     * Records the successful execution of a task and saves the state.
+     *
+     * @param taskId      the id of the task
+     * @param fingerprint the fingerprint of the task's inputs and configuration
+     */
+    public synchronized void setFinished(String taskId, String fingerprint) {
+        fingerprints.setProperty(taskId, fingerprint);
+        save();
+    }
+
+    /**
+     * Removes the record of a task (e.g., if its execution failed) and saves the state.
+     *
+     * @param taskId the id of the task
+     */
+    public synchronized void reset(String taskId) {
+        if (fingerprints.remove(taskId) != null) {
+            save();
+        }
+    }
+
+    private void save() {
+        Path parent = stateFile.toAbsolutePath().getParent();
+        try {
+            Files.createDirectories(parent);
+            Path tempFile = Files.createTempFile(parent, stateFile.getFileName().toString(), ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                fingerprints.store(writer, "fingerprints of finished experiment tasks");
+            }
+            try {
+                Files.move(tempFile, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, stateFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            Log.err(this, e, "Could not write task state file '%s'.", stateFile);
+        }
+    }
+
+}
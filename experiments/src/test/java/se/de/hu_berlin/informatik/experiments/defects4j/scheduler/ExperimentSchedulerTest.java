@@ -0,0 +1,271 @@
+package se.de.hu_berlin.informatik.experiments.defects4j.scheduler;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import se.de.hu_berlin.informatik.benchmark.api.BuggyFixedEntity;
+import se.de.hu_berlin.informatik.benchmark.api.Entity;
+import se.de.hu_berlin.informatik.benchmark.modification.Modification;
+import se.de.hu_berlin.informatik.utils.processors.AbstractProcessor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+public class ExperimentSchedulerTest {
+
+    private static final String CHECKOUT = "checkout";
+    private static final String GEN_SPECTRA = "genSpectra";
+    private static final String COMPUTE_SBFL = "computeSBFL";
+    private static final String QUERY = "query";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path stateFile;
+    private List<BuggyFixedEntity<?>> entities;
+
+    // the ids of the executed tasks (bug/stage) in the order of their execution
+    private final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+    // tasks that fail when executed
+    private final Set<String> failing = new HashSet<>();
+    private String localizers = "tarantula";
+    private String traceContent = "trace";
+
+    @Before
+    public void setUp() {
+        stateFile = folder.getRoot().toPath().resolve(".experiment_state");
+        entities = Arrays.asList(new StubEntity("Lang-1"), new StubEntity("Lang-2"));
+    }
+
+    @Test
+    public void upToDateTasksAreSkipped() throws Exception {
+        Assert.assertEquals(0, run());
+        Assert.assertEquals(8, executed.size());
+
+        Assert.assertEquals(0, run());
+        Assert.assertEquals(Collections.emptyList(), executed);
+
+        // a missing output is produced again; the unchanged result doesn't affect the next stage
+        Files.delete(getTraceFile(entities.get(0)));
+        Assert.assertEquals(0, run());
+        assertExecuted("Lang-1/" + CHECKOUT, "Lang-1/" + COMPUTE_SBFL);
+    }
+
+    @Test
+    public void configurationChangeOnlyRerunsAffectedStages() {
+        Assert.assertEquals(0, run());
+
+        // the rankings are computed again, but the trace files don't change
+        localizers = "ochiai";
+        Assert.assertEquals(0, run());
+        assertExecuted("Lang-1/" + CHECKOUT, "Lang-2/" + CHECKOUT, "Lang-1/" + COMPUTE_SBFL, "Lang-2/" + COMPUTE_SBFL);
+
+        Assert.assertEquals(0, run());
+        assertExecuted();
+
+        // now the trace files change, so the language models have to be queried again
+        localizers = "dstar";
+        traceContent = "other trace";
+        Assert.assertEquals(0, run());
+        assertExecuted("Lang-1/" + CHECKOUT, "Lang-2/" + CHECKOUT,
+                "Lang-1/" + COMPUTE_SBFL, "Lang-2/" + COMPUTE_SBFL, "Lang-1/" + QUERY, "Lang-2/" + QUERY);
+    }
+
+    @Test
+    public void failedRunIsResumed() {
+        failing.add("Lang-1/" + GEN_SPECTRA);
+        Assert.assertEquals(1, run());
+        assertExecuted("Lang-1/" + CHECKOUT, "Lang-1/" + GEN_SPECTRA,
+                "Lang-2/" + CHECKOUT, "Lang-2/" + GEN_SPECTRA, "Lang-2/" + COMPUTE_SBFL, "Lang-2/" + QUERY);
+
+        // only the tasks of the first bug are executed
+        failing.clear();
+        Assert.assertEquals(0, run());
+        assertExecuted("Lang-1/" + CHECKOUT, "Lang-1/" + GEN_SPECTRA, "Lang-1/" + COMPUTE_SBFL, "Lang-1/" + QUERY);
+
+        Assert.assertEquals(0, run());
+        assertExecuted();
+    }
+
+    @Test
+    public void dependentsOfFailedTasksAreCancelled() {
+        failing.add("Lang-1/" + COMPUTE_SBFL);
+        failing.add("Lang-2/" + CHECKOUT);
+        // cancelled tasks are not counted as failed
+        Assert.assertEquals(2, run());
+        assertExecuted("Lang-1/" + CHECKOUT, "Lang-1/" + GEN_SPECTRA, "Lang-1/" + COMPUTE_SBFL, "Lang-2/" + CHECKOUT);
+        Assert.assertFalse(Files.exists(getTraceFile(entities.get(0))));
+        Assert.assertFalse(Files.exists(getSpectraFile(entities.get(1))));
+
+        // the finished tasks are not executed again, but the first bug is checked out
+        // again for the remaining tasks
+        failing.clear();
+        Assert.assertEquals(0, run());
+        assertExecuted("Lang-1/" + CHECKOUT, "Lang-1/" + COMPUTE_SBFL, "Lang-1/" + QUERY,
+                "Lang-2/" + CHECKOUT, "Lang-2/" + GEN_SPECTRA, "Lang-2/" + COMPUTE_SBFL, "Lang-2/" + QUERY);
+    }
+
+    @Test
+    public void prerequisitesOnlyRunForExecutedDependents() throws Exception {
+        Assert.assertEquals(0, run());
+        for (BuggyFixedEntity<?> entity : entities) {
+            String id = entity.getUniqueIdentifier();
+            Assert.assertTrue(executed.indexOf(id + "/" + CHECKOUT) < executed.indexOf(id + "/" + GEN_SPECTRA));
+        }
+
+        // the bug is only checked out if the spectra have to be generated
+        Files.delete(getSpectraFile(entities.get(1)));
+        Assert.assertEquals(0, run());
+        assertExecuted("Lang-2/" + CHECKOUT, "Lang-2/" + GEN_SPECTRA);
+
+        // computing the rankings needs the checkout, too
+        localizers = "ochiai";
+        Assert.assertEquals(0, run());
+        assertExecuted("Lang-1/" + CHECKOUT, "Lang-2/" + CHECKOUT, "Lang-1/" + COMPUTE_SBFL, "Lang-2/" + COMPUTE_SBFL);
+
+        // prerequisites without dependent stages are always executed
+        executed.clear();
+        ExperimentScheduler scheduler = new ExperimentScheduler(2, stateFile)
+                .addStage(newStage(CHECKOUT, ResourceClass.IO, null, null).asPrerequisite());
+        Assert.assertEquals(0, scheduler.run(entities));
+        assertExecuted("Lang-1/" + CHECKOUT, "Lang-2/" + CHECKOUT);
+    }
+
+    /**
+     * Runs the experiment with the current settings and records the executed tasks.
+     *
+     * @return the number of failed tasks
+     */
+    private int run() {
+        executed.clear();
+        ExperimentScheduler scheduler = new ExperimentScheduler(2, stateFile)
+                .addStage(newStage(CHECKOUT, ResourceClass.IO, null, null)
+                        .asPrerequisite())
+                .addStage(newStage(GEN_SPECTRA, ResourceClass.MEMORY, this::getSpectraFile, entity -> "spectra")
+                        .dependsOn(CHECKOUT)
+                        .withOutputs(entity -> Collections.singletonList(getSpectraFile(entity)))
+                        .withConfiguration("tool=stub"))
+                .addStage(newStage(COMPUTE_SBFL, ResourceClass.CPU, this::getTraceFile, entity -> traceContent)
+                        .dependsOn(CHECKOUT, GEN_SPECTRA)
+                        .withInputs(entity -> Collections.singletonList(getSpectraFile(entity)))
+                        .withOutputs(entity -> Collections.singletonList(getTraceFile(entity)))
+                        .withConfiguration("localizers=" + localizers))
+                .addStage(newStage(QUERY, ResourceClass.CPU, this::getLMRankingFile, entity -> "lm ranking")
+                        .dependsOn(CHECKOUT, COMPUTE_SBFL)
+                        .withInputs(entity -> Collections.singletonList(getTraceFile(entity)))
+                        .withOutputs(entity -> Collections.singletonList(getLMRankingFile(entity))));
+        int failed = scheduler.run(entities);
+        assertCheckedOutBeforeUse();
+        return failed;
+    }
+
+    /**
+     * Checks that a bug has been checked out before the rankings are computed or queried,
+     * since both stages access the bug's working directory.
+     */
+    private void assertCheckedOutBeforeUse() {
+        List<String> tasks = new ArrayList<>(executed);
+        for (String task : tasks) {
+            if (task.endsWith("/" + COMPUTE_SBFL) || task.endsWith("/" + QUERY)) {
+                String checkout = task.substring(0, task.lastIndexOf('/') + 1) + CHECKOUT;
+                Assert.assertTrue(task + " without checkout", tasks.contains(checkout));
+                Assert.assertTrue(tasks.indexOf(checkout) < tasks.indexOf(task));
+            }
+        }
+    }
+
+    private ExperimentStage newStage(String name, ResourceClass resourceClass,
+                                     Function<BuggyFixedEntity<?>, Path> output,
+                                     Function<BuggyFixedEntity<?>, String> content) {
+        return new ExperimentStage(name, resourceClass, i -> new AbstractProcessor<BuggyFixedEntity<?>, BuggyFixedEntity<?>>() {
+            @Override
+            public BuggyFixedEntity<?> processItem(BuggyFixedEntity<?> entity) {
+                String id = entity.getUniqueIdentifier() + "/" + name;
+                executed.add(id);
+                if (failing.contains(id)) {
+                    throw new IllegalStateException("Task " + id + " failed.");
+                }
+                if (output != null) {
+                    write(output.apply(entity), content.apply(entity));
+                }
+                return entity;
+            }
+        });
+    }
+
+    private void assertExecuted(String... taskIds) {
+        Assert.assertEquals(new HashSet<>(Arrays.asList(taskIds)), new HashSet<>(executed));
+        Assert.assertEquals(taskIds.length, executed.size());
+    }
+
+    private Path getSpectraFile(BuggyFixedEntity<?> entity) {
+        return folder.getRoot().toPath().resolve(entity.getUniqueIdentifier()).resolve("spectraCompressed.zip");
+    }
+
+    private Path getTraceFile(BuggyFixedEntity<?> entity) {
+        return folder.getRoot().toPath().resolve(entity.getUniqueIdentifier()).resolve("ranking").resolve("trace");
+    }
+
+    private Path getLMRankingFile(BuggyFixedEntity<?> entity) {
+        return folder.getRoot().toPath().resolve(entity.getUniqueIdentifier()).resolve("ranking").resolve("lm");
+    }
+
+    private static void write(Path file, String content) {
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class StubEntity implements BuggyFixedEntity<Entity> {
+
+        private final String identifier;
+
+        StubEntity(String identifier) {
+            this.identifier = identifier;
+        }
+
+        @Override
+        public Entity getBuggyVersion() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Entity getFixedVersion() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<String, List<Modification>> getAllChanges(
+                boolean executionModeBug, boolean resetBug, boolean deleteBugAfterwards,
+                boolean executionModeFix, boolean resetFix, boolean deleteFixAfterwards) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<String> getModifiedClasses(boolean executionMode) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String getUniqueIdentifier() {
+            return identifier;
+        }
+    }
+
+}
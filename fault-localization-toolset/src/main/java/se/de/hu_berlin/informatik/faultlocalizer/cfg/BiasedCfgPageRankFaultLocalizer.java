@@ -1,9 +1,7 @@
 package se.de.hu_berlin.informatik.faultlocalizer.cfg;
 
 import java.io.File;
-import java.util.Collection;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.BitSet;
 
 import se.de.hu_berlin.informatik.faultlocalizer.IFaultLocalizer;
 import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractFaultLocalizer;
@@ -12,7 +10,7 @@ import se.de.hu_berlin.informatik.spectra.core.ComputationStrategies;
 import se.de.hu_berlin.informatik.spectra.core.INode;
 import se.de.hu_berlin.informatik.spectra.core.ISpectra;
 import se.de.hu_berlin.informatik.spectra.core.ITrace;
-import se.de.hu_berlin.informatik.spectra.core.cfg.Node;
+import se.de.hu_berlin.informatik.spectra.core.cfg.CompressedCFG;
 import se.de.hu_berlin.informatik.spectra.core.cfg.ScoredDynamicCFG;
 import se.de.hu_berlin.informatik.spectra.util.SpectraUtils;
 import se.de.hu_berlin.informatik.utils.experiments.ranking.Ranking;
@@ -56,29 +54,28 @@ public class BiasedCfgPageRankFaultLocalizer<T> extends AbstractFaultLocalizer<T
 		}
         
         // calculate scores with PageRank algorithm
-        Map<Integer, Double> pageRank = new BiasedPageRank<>(cfg, dampingFactor, iterations, reverse).calculate();
+        BiasedPageRank<T> pageRank = new BiasedPageRank<>(cfg, dampingFactor, iterations, reverse, true);
+        double[] scores = pageRank.calculateScores();
+        CompressedCFG compressedCFG = pageRank.getCompressedCFG();
         
         // ignore nodes from spectra that were only executed by successful test cases;
         // this will lead to the scores for the removed nodes not being added to the ranking;
         // filtering is necessary, due to how the algorithm works... :/
-        Collection<? extends ITrace<T>> failingTraces = spectra.getFailingTraces();
+        BitSet failingNodes = SpectraUtils.getNodesInvolvedInATrace(spectra.getFailingTraces());
 
         // generate ranking based on base ranking and PageRank algorithm
         final Ranking<INode<T>> ranking = new NodeRanking<>();
-        for (Entry<Integer, Node> entry : cfg.getNodes().entrySet()) {
-        	Node node = entry.getValue();
-			int index = node.getIndex();
-			Double score = pageRank.get(index);
+        for (int position = 0; position < compressedCFG.getNodeCount(); ++position) {
+			int index = compressedCFG.getNodeIndex(position);
+			double score = scores[position];
 
-			if (SpectraUtils.isNodeInvolvedInATrace(failingTraces, index)) {
+			if (failingNodes.get(index)) {
 				ranking.add(spectra.getNode(index), score);
 			}
 			
-			if (node.isMerged()) {
-				for (int i : node.getMergedIndices()) {
-					if (SpectraUtils.isNodeInvolvedInATrace(failingTraces, i)) {
-						ranking.add(spectra.getNode(i), score);
-					}
+			for (int i : compressedCFG.getMergedIndices(position)) {
+				if (failingNodes.get(i)) {
+					ranking.add(spectra.getNode(i), score);
 				}
 			}
 		}
@@ -2,83 +2,54 @@ package se.de.hu_berlin.informatik.faultlocalizer.cfg;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 
-import se.de.hu_berlin.informatik.spectra.core.cfg.Node;
+import se.de.hu_berlin.informatik.spectra.core.cfg.CompressedCFG;
 import se.de.hu_berlin.informatik.spectra.core.cfg.ScoredDynamicCFG;
 
 public class PageRank<T> {
 	
-	private static final int CONVERGENCE_MULTIPLICATOR = 1000000;
-
-	private final ScoredDynamicCFG<T> cfg;
-	private final double dampingFactor;
-	private final double offset;
-
-	private Map<Integer, Double> pageRank = new HashMap<>();
-	private Map<Integer, Double> old_pageRank;
-
-	private int iterations;
-
-	private boolean reverse;
+	private final CompressedCFG cfg;
+	private final double[] initialScores;
+	private final PageRankSolver solver;
 
 	public PageRank(ScoredDynamicCFG<T> cfg, double dampingFactor, int iterations, boolean reverse) {
+		this(cfg, dampingFactor, iterations, reverse, false);
+	}
 
-		this.cfg = cfg;
-		this.dampingFactor = dampingFactor;
-		this.iterations = iterations;
-		this.reverse = reverse;
-
-		// initialize the values
-		this.offset = (1 - dampingFactor) / cfg.getNodes().size();
-		
-		for (Entry<Integer, Node> entry : cfg.getNodes().entrySet()) {
-			Node node = entry.getValue();
-			Double score = cfg.getScore(node.getIndex());
-			this.pageRank.put(node.getIndex(), score);
-		}
-
+	/**
+	 * @param cfg           the CFG with the initial scores of the nodes
+	 * @param dampingFactor the damping factor
+	 * @param iterations    the maximum number of iterations (no limit if &lt;= 0)
+	 * @param reverse       whether scores are passed from successors to predecessors
+	 * @param parallel      whether to compute the scores in parallel over ranges of nodes
+	 */
+	public PageRank(ScoredDynamicCFG<T> cfg, double dampingFactor, int iterations, boolean reverse, boolean parallel) {
+		this.cfg = new CompressedCFG(cfg);
+		this.initialScores = cfg.getScores(this.cfg);
+		this.solver = new PageRankSolver(this.cfg, dampingFactor, iterations, reverse, parallel);
 	}
-	
-	public Map<Integer, Double> calculate() {
-		// loop until values converge or max iterations reached
-		int count = 0;
-		do {
-			//Calculate the page rank
-			calculatePageRank();
-			++count;
-		} while (!didConverge() && (iterations <= 0 || count < iterations));
 
-		return pageRank;
+	/**
+	 * @return the compressed CFG that defines the node positions of {@link #calculateScores()}
+	 */
+	public CompressedCFG getCompressedCFG() {
+		return cfg;
 	}
-	
+
 	/**
-	 * Calculate the page rank
+	 * @return the page rank of all nodes, by node position in {@link #getCompressedCFG()}
 	 */
-	private void calculatePageRank() {
-		Map<Integer, Double> newPageRankArray = new HashMap<>();
-		
-		for (Entry<Integer, Node> entry : cfg.getNodes().entrySet()) {
-			Node node = entry.getValue();
-			double sum = 0;
-			if (reverse) {
-				if (node.hasSuccessors()) {
-					for (int successor : node.getSuccessors()) {
-						sum += pageRank.get(successor) / cfg.getNode(successor).getPredecessorCount();
-					}
-				}
-			} else {
-				if (node.hasPredecessors()) {
-					for (int predecessor : node.getPredecessors()) {
-						sum += pageRank.get(predecessor) /  cfg.getNode(predecessor).getSuccessorCount();
-					}
-				}
-			}
-			newPageRankArray.put(node.getIndex(), offset + dampingFactor * sum);
+	public double[] calculateScores() {
+		return solver.solve(initialScores, null);
+	}
+	
+	public Map<Integer, Double> calculate() {
+		double[] scores = calculateScores();
+		Map<Integer, Double> pageRank = new HashMap<>();
+		for (int i = 0; i < scores.length; ++i) {
+			pageRank.put(cfg.getNodeIndex(i), scores[i]);
 		}
-		
-		old_pageRank = pageRank;
-		pageRank = newPageRankArray;
+		return pageRank;
 	}
 	
 	/**
@@ -86,13 +57,7 @@ public class PageRank<T> {
 	 * @return True if the converge is successful
 	 */
 	public boolean didConverge() {
-		for (Entry<Integer, Double> entry : pageRank.entrySet()) {
-			if ((int) Math.floor(entry.getValue() * CONVERGENCE_MULTIPLICATOR) != 
-					(int) Math.floor(old_pageRank.get(entry.getKey()) * CONVERGENCE_MULTIPLICATOR)) {
-				return false;
-			}
-		}
-		return true;
+		return solver.didConverge();
 	}
 	
-}
\ No newline at end of file
+}
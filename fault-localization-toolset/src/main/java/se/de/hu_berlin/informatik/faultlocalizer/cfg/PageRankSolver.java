@@ -0,0 +1,143 @@
+package se.de.hu_berlin.informatik.faultlocalizer.cfg;
+
+import java.util.stream.IntStream;
+
+import se.de.hu_berlin.informatik.spectra.core.cfg.CompressedCFG;
+
+/**
+ * Iterates the (biased) PageRank of all nodes of a {@link CompressedCFG} on primitive
+ * score vectors. Each iteration first computes the share that each node passes on to its
+ * neighbors and then sums up the shares of each node's neighbors, optionally in parallel
+ * over ranges of nodes. Convergence is checked while computing the new scores.
+ */
+final class PageRankSolver {
+
+	private static final int CONVERGENCE_MULTIPLICATOR = 1000000;
+
+	/**
+	 * the default number of nodes that are processed by a single parallel task
+	 */
+	private static final int NODE_RANGE_SIZE = 4096;
+
+	private final CompressedCFG cfg;
+	private final double dampingFactor;
+	private final int iterations;
+	private final boolean reverse;
+	private final boolean parallel;
+	private final int nodeRangeSize;
+
+	private boolean converged = false;
+
+	/**
+	 * @param cfg           the CFG
+	 * @param dampingFactor the damping factor
+	 * @param iterations    the maximum number of iterations (no limit if &lt;= 0)
+	 * @param reverse       whether scores are passed from successors to predecessors
+	 * @param parallel      whether to compute the scores in parallel over ranges of nodes
+	 */
+	PageRankSolver(CompressedCFG cfg, double dampingFactor, int iterations, boolean reverse, boolean parallel) {
+		this(cfg, dampingFactor, iterations, reverse, parallel, NODE_RANGE_SIZE);
+	}
+
+	/**
+	 * @param cfg           the CFG
+	 * @param dampingFactor the damping factor
+	 * @param iterations    the maximum number of iterations (no limit if &lt;= 0)
+	 * @param reverse       whether scores are passed from successors to predecessors
+	 * @param parallel      whether to compute the scores in parallel over ranges of nodes
+	 * @param nodeRangeSize the number of nodes that are processed by a single parallel task
+	 */
+	PageRankSolver(CompressedCFG cfg, double dampingFactor, int iterations, boolean reverse, boolean parallel,
+			int nodeRangeSize) {
+		this.cfg = cfg;
+		this.dampingFactor = dampingFactor;
+		this.iterations = iterations;
+		this.reverse = reverse;
+		this.parallel = parallel;
+		this.nodeRangeSize = nodeRangeSize;
+	}
+
+	/**
+	 * @param initialScores the initial scores, by node position
+	 * @param bias          constant values that are added to the scores in each iteration,
+	 *                      by node position, or null
+	 * @return the scores, by node position
+	 */
+	double[] solve(double[] initialScores, double[] bias) {
+		final int nodeCount = cfg.getNodeCount();
+		converged = false;
+		if (nodeCount == 0) {
+			converged = true;
+			return initialScores.clone();
+		}
+		final double offset = (1 - dampingFactor) / nodeCount;
+		final int[] offsets = reverse ? cfg.getSuccessorOffsets() : cfg.getPredecessorOffsets();
+		final int[] neighbors = reverse ? cfg.getSuccessors() : cfg.getPredecessors();
+		// each node passes its score on in equal shares
+		final int[] shareCounts = new int[nodeCount];
+		for (int i = 0; i < nodeCount; ++i) {
+			shareCounts[i] = reverse ? cfg.getPredecessorCount(i) : cfg.getSuccessorCount(i);
+		}
+
+		final int rangeCount = (nodeCount + nodeRangeSize - 1) / nodeRangeSize;
+		final boolean[] rangeChanged = new boolean[rangeCount];
+		final double[] shares = new double[nodeCount];
+		double[] scores = initialScores.clone();
+		double[] newScores = new double[nodeCount];
+
+		int count = 0;
+		do {
+			final double[] oldScores = scores;
+			final double[] result = newScores;
+			ranges(rangeCount).forEach(range -> {
+				final int end = Math.min(nodeCount, (range + 1) * nodeRangeSize);
+				for (int i = range * nodeRangeSize; i < end; ++i) {
+					shares[i] = shareCounts[i] == 0 ? 0 : oldScores[i] / shareCounts[i];
+				}
+			});
+			ranges(rangeCount).forEach(range -> {
+				final int end = Math.min(nodeCount, (range + 1) * nodeRangeSize);
+				boolean changed = false;
+				for (int i = range * nodeRangeSize; i < end; ++i) {
+					double sum = 0;
+					for (int j = offsets[i]; j < offsets[i + 1]; ++j) {
+						sum += shares[neighbors[j]];
+					}
+					result[i] = bias == null ? offset + dampingFactor * sum : bias[i] + offset + dampingFactor * sum;
+					changed |= (int) Math.floor(result[i] * CONVERGENCE_MULTIPLICATOR)
+							!= (int) Math.floor(oldScores[i] * CONVERGENCE_MULTIPLICATOR);
+				}
+				rangeChanged[range] = changed;
+			});
+			newScores = oldScores;
+			scores = result;
+			++count;
+
+			converged = true;
+			for (boolean changed : rangeChanged) {
+				if (changed) {
+					converged = false;
+					break;
+				}
+			}
+		} while (!converged && (iterations <= 0 || count < iterations));
+
+		return scores;
+	}
+
+	/**
+	 * @return whether the scores converged in the last call to {@link #solve(double[], double[])}
+	 */
+	boolean didConverge() {
+		return converged;
+	}
+
+	private IntStream ranges(int rangeCount) {
+		IntStream ranges = IntStream.range(0, rangeCount);
+		if (parallel && rangeCount > 1) {
+			ranges = ranges.parallel();
+		}
+		return ranges;
+	}
+
+}
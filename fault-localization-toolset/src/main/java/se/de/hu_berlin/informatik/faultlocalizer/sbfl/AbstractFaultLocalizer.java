@@ -28,6 +28,8 @@ public abstract class AbstractFaultLocalizer<T> implements IFaultLocalizer<T> {
      */
     @Override
     public Ranking<INode<T>> localize(final ISpectra<T, ? extends ITrace<T>> spectra, ComputationStrategies strategy) {
+        // compute EF, EP, NF and NP for all nodes in one pass
+        spectra.getLocalizer().computeAllValues(strategy);
         final Ranking<INode<T>> ranking = new NodeRanking<>();
         for (final INode<T> node : spectra.getNodes()) {
             final double suspiciousness = this.suspiciousness(node, strategy);
@@ -45,6 +47,8 @@ public abstract class AbstractFaultLocalizer<T> implements IFaultLocalizer<T> {
      */
     @Override
     public Ranking<INode<T>> localize(final ILocalizerCache<T> localizer, ComputationStrategies strategy) {
+        // compute EF, EP, NF and NP for all nodes in one pass
+        localizer.computeAllValues(strategy);
         final Ranking<INode<T>> ranking = new NodeRanking<>();
         for (final INode<T> node : localizer.getNodes()) {
             final double suspiciousness = this.suspiciousness(node, strategy);
@@ -0,0 +1,31 @@
+package se.de.hu_berlin.informatik.faultlocalizer.sbfl;
+
+import se.de.hu_berlin.informatik.spectra.core.ComputationStrategies;
+import se.de.hu_berlin.informatik.spectra.core.INode;
+
+/**
+ * Base class for (spectrum based) fault localizers whose suspiciousness only
+ * depends on the four values EF, EP, NF and NP of a node. Those formulas can
+ * be evaluated on primitive values, e.g. by the {@link BatchFaultLocalizer}.
+ *
+ * @param <T> type used to identify nodes in the system
+ */
+public abstract class AbstractSBFLFormula<T> extends AbstractFaultLocalizer<T> {
+
+    @Override
+    public double suspiciousness(final INode<T> node, ComputationStrategies strategy) {
+        return suspiciousness(node.getEF(strategy), node.getEP(strategy), node.getNF(strategy), node.getNP(strategy));
+    }
+
+    /**
+     * Computes the suspiciousness of a node.
+     *
+     * @param ef number of failing traces that executed the node
+     * @param ep number of passing traces that executed the node
+     * @param nf number of failing traces that did not execute the node
+     * @param np number of passing traces that did not execute the node
+     * @return the suspiciousness
+     */
+    public abstract double suspiciousness(double ef, double ep, double nf, double np);
+
+}
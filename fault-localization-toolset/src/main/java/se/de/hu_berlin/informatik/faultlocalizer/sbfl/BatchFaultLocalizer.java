@@ -0,0 +1,224 @@
+package se.de.hu_berlin.informatik.faultlocalizer.sbfl;
+
+import se.de.hu_berlin.informatik.faultlocalizer.IFaultLocalizer;
+import se.de.hu_berlin.informatik.faultlocalizer.sbfl.ranking.NodeRanking;
+import se.de.hu_berlin.informatik.spectra.core.ComputationStrategies;
+import se.de.hu_berlin.informatik.spectra.core.INode;
+import se.de.hu_berlin.informatik.spectra.core.ISpectra;
+import se.de.hu_berlin.informatik.spectra.core.ITrace;
+import se.de.hu_berlin.informatik.spectra.util.SpectraStream;
+import se.de.hu_berlin.informatik.utils.experiments.ranking.Ranking;
+import se.de.hu_berlin.informatik.utils.experiments.ranking.Ranking.RankingValueReplacementStrategy;
+import se.de.hu_berlin.informatik.utils.experiments.ranking.SimpleRanking;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Computes the rankings of multiple fault localizers at once.
+ * <p>
+ * The values EF, EP, NF and NP of all nodes are computed once and stored in a
+ * primitive table. All localizers that extend {@link AbstractSBFLFormula} are
+ * then evaluated together in a single pass over that table (optionally in parallel
+ * over ranges of nodes). Any other localizer is computed with its own
+ * {@link IFaultLocalizer#localize(ISpectra, ComputationStrategies)} method.
+ * <p>
+ * The formulas can also be evaluated on the counts of a {@link SpectraStream},
+ * without loading the spectra into memory.
+ *
+ * @param <T> type used to identify nodes in the system
+ */
+public class BatchFaultLocalizer<T> {
+
+    /**
+     * the number of nodes that are processed by a single parallel task
+     */
+    private static final int NODE_RANGE_SIZE = 1024;
+
+    final private List<IFaultLocalizer<T>> localizers;
+    final private boolean parallel;
+
+    /**
+     * @param parallel   whether to evaluate the formulas in parallel over ranges of nodes
+     * @param localizers the identifiers of the fault localizers, as accepted by
+     *                   {@link FaultLocalizerFactory#newInstance(String)}
+     * @throws IllegalArgumentException if a localizer can not be found
+     */
+    public BatchFaultLocalizer(final boolean parallel, final String... localizers) throws IllegalArgumentException {
+        this.parallel = parallel;
+        this.localizers = new ArrayList<>(localizers.length);
+        for (String localizer : localizers) {
+            this.localizers.add(FaultLocalizerFactory.newInstance(localizer));
+        }
+    }
+
+    /**
+     * @param parallel   whether to evaluate the formulas in parallel over ranges of nodes
+     * @param localizers the fault localizers
+     */
+    public BatchFaultLocalizer(final boolean parallel, final Collection<IFaultLocalizer<T>> localizers) {
+        this.parallel = parallel;
+        this.localizers = new ArrayList<>(localizers);
+    }
+
+    /**
+     * @return the fault localizers of this batch
+     */
+    public List<IFaultLocalizer<T>> getLocalizers() {
+        return localizers;
+    }
+
+    /**
+     * Computes the rankings of all fault localizers and passes each of them
+     * to the given consumer, in the order of the localizers.
+     *
+     * @param spectra  the spectra to perform the fault localization on
+     * @param strategy the strategy to use for computation of EF, EP, NF and NP
+     * @param consumer consumes each localizer together with its ranking
+     */
+    public void localize(final ISpectra<T, ? extends ITrace<T>> spectra, final ComputationStrategies strategy,
+                         final BiConsumer<IFaultLocalizer<T>, Ranking<INode<T>>> consumer) {
+        final List<AbstractSBFLFormula<T>> formulas = new ArrayList<>(localizers.size());
+        for (IFaultLocalizer<T> localizer : localizers) {
+            if (localizer instanceof AbstractSBFLFormula) {
+                formulas.add((AbstractSBFLFormula<T>) localizer);
+            }
+        }
+
+        double[][] scores = null;
+        List<INode<T>> nodes = null;
+        if (!formulas.isEmpty()) {
+            // compute EF, EP, NF and NP for all nodes in one pass
+            spectra.getLocalizer().computeAllValues(strategy);
+            nodes = new ArrayList<>(spectra.getNodes());
+            final int nodeCount = nodes.size();
+            final double[] ef = new double[nodeCount];
+            final double[] ep = new double[nodeCount];
+            final double[] nf = new double[nodeCount];
+            final double[] np = new double[nodeCount];
+            for (int i = 0; i < nodeCount; ++i) {
+                final INode<T> node = nodes.get(i);
+                ef[i] = node.getEF(strategy);
+                ep[i] = node.getEP(strategy);
+                nf[i] = node.getNF(strategy);
+                np[i] = node.getNP(strategy);
+            }
+            scores = computeScores(formulas, ef, ep, nf, np);
+        }
+
+        int formulaIndex = 0;
+        for (IFaultLocalizer<T> localizer : localizers) {
+            if (localizer instanceof AbstractSBFLFormula) {
+                consumer.accept(localizer, createRanking(new NodeRanking<>(), nodes, scores[formulaIndex]));
+                // release the scores as soon as the ranking is built
+                scores[formulaIndex++] = null;
+            } else {
+                consumer.accept(localizer, localizer.localize(spectra, strategy));
+            }
+        }
+    }
+
+    /**
+     * Computes the rankings of all fault localizers.
+     *
+     * @param spectra  the spectra to perform the fault localization on
+     * @param strategy the strategy to use for computation of EF, EP, NF and NP
+     * @return a map from each localizer to its ranking, in the order of the localizers
+     */
+    public Map<IFaultLocalizer<T>, Ranking<INode<T>>> localize(final ISpectra<T, ? extends ITrace<T>> spectra,
+                                                             final ComputationStrategies strategy) {
+        final Map<IFaultLocalizer<T>, Ranking<INode<T>>> rankings = new LinkedHashMap<>();
+        localize(spectra, strategy, rankings::put);
+        return rankings;
+    }
+
+    /**
+     * Computes the rankings of all fault localizers from the EF, EP, NF and NP values
+     * that were counted on a {@link SpectraStream} (see {@link SpectraStream#countInvolvement()}),
+     * and passes each of them to the given consumer, in the order of the localizers.
+     * The counts correspond to the {@link ComputationStrategies#STANDARD_SBFL} strategy.
+     * <p>
+     * The ranked identifiers may differ from the stream's node identifiers, e.g. if nodes
+     * were filtered out or combined to blocks. Each identifier is ranked with the counts
+     * of the node index that the given function returns for it.
+     *
+     * @param identifiers the identifiers of the nodes to rank
+     * @param nodeIndex   returns the index of each identifier in the counts
+     * @param counts      the counted EF, EP, NF and NP values
+     * @param consumer    consumes each localizer together with its ranking
+     * @throws UnsupportedOperationException if one of the localizers is not an SBFL formula
+     */
+    public void localize(final List<T> identifiers, final ToIntFunction<T> nodeIndex,
+                         final SpectraStream.InvolvementCounts counts,
+                         final BiConsumer<IFaultLocalizer<T>, Ranking<T>> consumer) throws UnsupportedOperationException {
+        final List<AbstractSBFLFormula<T>> formulas = new ArrayList<>(localizers.size());
+        for (IFaultLocalizer<T> localizer : localizers) {
+            if (!(localizer instanceof AbstractSBFLFormula)) {
+                throw new UnsupportedOperationException("Can not compute the ranking of '"
+                        + localizer.getName() + "' from involvement counts.");
+            }
+            formulas.add((AbstractSBFLFormula<T>) localizer);
+        }
+
+        final int nodeCount = identifiers.size();
+        final double[] ef = new double[nodeCount];
+        final double[] ep = new double[nodeCount];
+        final double[] nf = new double[nodeCount];
+        final double[] np = new double[nodeCount];
+        for (int i = 0; i < nodeCount; ++i) {
+            final int index = nodeIndex.applyAsInt(identifiers.get(i));
+            ef[i] = counts.getEF(index);
+            ep[i] = counts.getEP(index);
+            nf[i] = counts.getNF(index);
+            np[i] = counts.getNP(index);
+        }
+        final double[][] scores = computeScores(formulas, ef, ep, nf, np);
+
+        for (int f = 0; f < scores.length; ++f) {
+            consumer.accept(formulas.get(f), createRanking(new SimpleRanking<>(false), identifiers, scores[f]));
+            // release the scores as soon as the ranking is built
+            scores[f] = null;
+        }
+    }
+
+    private double[][] computeScores(final List<AbstractSBFLFormula<T>> formulas, final double[] ef,
+                                     final double[] ep, final double[] nf, final double[] np) {
+        final int nodeCount = ef.length;
+        final double[][] scores = new double[formulas.size()][nodeCount];
+        final int rangeCount = (nodeCount + NODE_RANGE_SIZE - 1) / NODE_RANGE_SIZE;
+        IntStream ranges = IntStream.range(0, rangeCount);
+        if (parallel) {
+            ranges = ranges.parallel();
+        }
+        ranges.forEach(range -> {
+            final int end = Math.min(nodeCount, (range + 1) * NODE_RANGE_SIZE);
+            for (int f = 0; f < scores.length; ++f) {
+                final AbstractSBFLFormula<T> formula = formulas.get(f);
+                final double[] result = scores[f];
+                for (int i = range * NODE_RANGE_SIZE; i < end; ++i) {
+                    result[i] = formula.suspiciousness(ef[i], ep[i], nf[i], np[i]);
+                }
+            }
+        });
+        return scores;
+    }
+
+    private static <E> Ranking<E> createRanking(final Ranking<E> ranking, final List<E> elements,
+                                                final double[] scores) {
+        for (int i = 0; i < scores.length; ++i) {
+            ranking.add(elements.get(i), scores[i]);
+        }
+
+        // treats NaN values as being negative infinity
+        return Ranking.getRankingWithStrategies(
+                ranking, RankingValueReplacementStrategy.NEGATIVE_INFINITY, RankingValueReplacementStrategy.INFINITY,
+                RankingValueReplacementStrategy.NEGATIVE_INFINITY);
+    }
+
+}
@@ -6,16 +6,14 @@
 
 package se.de.hu_berlin.informatik.faultlocalizer.sbfl.localizers;
 
-import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractFaultLocalizer;
-import se.de.hu_berlin.informatik.spectra.core.ComputationStrategies;
-import se.de.hu_berlin.informatik.spectra.core.INode;
+import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractSBFLFormula;
 
 /**
  * Ample fault localizer $\left|\frac{\EF}{\EF+\NF}-\frac{\EP}{\EP+\NP}\right|$
  *
  * @param <T> type used to identify nodes in the system
  */
-public class Ample<T> extends AbstractFaultLocalizer<T> {
+public class Ample<T> extends AbstractSBFLFormula<T> {
 
     /**
      * Create fault localizer
@@ -25,13 +23,13 @@ public class Ample<T> extends AbstractFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node, ComputationStrategies strategy) {
-        double left = node.getEF(strategy) / (node.getEF(strategy) + node.getNF(strategy));
-        if (node.getEF(strategy) == 0) {
+    public double suspiciousness(final double ef, final double ep, final double nf, final double np) {
+        double left = ef / (ef + nf);
+        if (ef == 0) {
             left = 0;
         }
-        double right = node.getEP(strategy) / (node.getEP(strategy) + node.getNP(strategy));
-        if (node.getEP(strategy) == 0) {
+        double right = ep / (ep + np);
+        if (ep == 0) {
             right = 0;
         }
         return Math.abs(left - right);
@@ -9,16 +9,14 @@
 
 package se.de.hu_berlin.informatik.faultlocalizer.sbfl.localizers;
 
-import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractFaultLocalizer;
-import se.de.hu_berlin.informatik.spectra.core.ComputationStrategies;
-import se.de.hu_berlin.informatik.spectra.core.INode;
+import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractSBFLFormula;
 
 /**
  * ArithmeticMean fault localizer $\frac{2\EF\NP - 2\NF\EP}{(\EF+\EP)\cdot(\NP+\NF)+(\EF+\NF)\cdot(\EP+\NP)}$
  *
  * @param <T> type used to identify nodes in the system
  */
-public class ArithmeticMean<T> extends AbstractFaultLocalizer<T> {
+public class ArithmeticMean<T> extends AbstractSBFLFormula<T> {
 
     /**
      * Create fault localizer
@@ -28,13 +26,13 @@ public class ArithmeticMean<T> extends AbstractFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node, ComputationStrategies strategy) {
-        final double enu1 = 2 * node.getEF(strategy) * node.getNP(strategy);
-        final double enu2 = 2 * node.getNF(strategy) * node.getEP(strategy);
+    public double suspiciousness(final double ef, final double ep, final double nf, final double np) {
+        final double enu1 = 2 * ef * np;
+        final double enu2 = 2 * nf * ep;
         final double enu = enu1 - enu2;
 
-        final double denom1 = (node.getEF(strategy) + node.getEP(strategy)) * (node.getNP(strategy) + node.getNF(strategy));
-        final double denom2 = (node.getEF(strategy) + node.getNF(strategy)) * (node.getEP(strategy) + node.getNP(strategy));
+        final double denom1 = (ef + ep) * (np + nf);
+        final double denom2 = (ef + nf) * (ep + np);
         final double denom = denom1 + denom2;
 
         if (enu == 0) {
@@ -9,16 +9,14 @@
 
 package se.de.hu_berlin.informatik.faultlocalizer.sbfl.localizers;
 
-import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractFaultLocalizer;
-import se.de.hu_berlin.informatik.spectra.core.ComputationStrategies;
-import se.de.hu_berlin.informatik.spectra.core.INode;
+import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractSBFLFormula;
 
 /**
  * Barinel fault localizer $1 -\frac{\EP}{\EP+\EF}$
  *
  * @param <T> type used to identify nodes in the system
  */
-public class Barinel<T> extends AbstractFaultLocalizer<T> {
+public class Barinel<T> extends AbstractSBFLFormula<T> {
 
     /**
      * Create fault localizer
@@ -28,8 +26,8 @@ public class Barinel<T> extends AbstractFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node, ComputationStrategies strategy) {
-        return 1.0 - node.getEP(strategy) / (node.getEP(strategy) + node.getEF(strategy));
+    public double suspiciousness(final double ef, final double ep, final double nf, final double np) {
+        return 1.0 - ep / (ep + ef);
     }
 
 }
@@ -9,16 +9,14 @@
 
 package se.de.hu_berlin.informatik.faultlocalizer.sbfl.localizers;
 
-import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractFaultLocalizer;
-import se.de.hu_berlin.informatik.spectra.core.ComputationStrategies;
-import se.de.hu_berlin.informatik.spectra.core.INode;
+import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractSBFLFormula;
 
 /**
  * DStar, D* (Wong) fault localizer $\frac{\EF^x}{\EP+\NF}$
  *
  * @param <T> type used to identify nodes in the system
  */
-public class DStar<T> extends AbstractFaultLocalizer<T> {
+public class DStar<T> extends AbstractSBFLFormula<T> {
 
     private final double star;
 
@@ -34,8 +32,8 @@ public class DStar<T> extends AbstractFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node, ComputationStrategies strategy) {
-        return Math.pow(node.getEF(strategy), star) / (node.getEP(strategy) + node.getNF(strategy));
+    public double suspiciousness(final double ef, final double ep, final double nf, final double np) {
+        return Math.pow(ef, star) / (ep + nf);
     }
 
 }
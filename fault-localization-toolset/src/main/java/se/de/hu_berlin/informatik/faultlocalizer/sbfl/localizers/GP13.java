@@ -9,16 +9,14 @@
 
 package se.de.hu_berlin.informatik.faultlocalizer.sbfl.localizers;
 
-import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractFaultLocalizer;
-import se.de.hu_berlin.informatik.spectra.core.ComputationStrategies;
-import se.de.hu_berlin.informatik.spectra.core.INode;
+import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractSBFLFormula;
 
 /**
  * GP13 (genetic algorithm derived formula) fault localizer $\EF \left(1+ \frac{1}{2\EP+\EF}\right)$
  *
  * @param <T> type used to identify nodes in the system
  */
-public class GP13<T> extends AbstractFaultLocalizer<T> {
+public class GP13<T> extends AbstractSBFLFormula<T> {
 
     /**
      * Create fault localizer
@@ -28,11 +26,11 @@ public class GP13<T> extends AbstractFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node, ComputationStrategies strategy) {
-        if (node.getEF(strategy) == 0) {
+    public double suspiciousness(final double ef, final double ep, final double nf, final double np) {
+        if (ef == 0) {
             return 0;
         }
-        return node.getEF(strategy) * (1.0 + 1.0 / (2 * node.getEP(strategy) + node.getEF(strategy)));
+        return ef * (1.0 + 1.0 / (2 * ep + ef));
     }
 
 }
@@ -9,16 +9,14 @@
 
 package se.de.hu_berlin.informatik.faultlocalizer.sbfl.localizers;
 
-import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractFaultLocalizer;
-import se.de.hu_berlin.informatik.spectra.core.ComputationStrategies;
-import se.de.hu_berlin.informatik.spectra.core.INode;
+import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractSBFLFormula;
 
 /**
  * Goodman fault localizer $\frac{2\EF-\NF-\EP}{2\EF+\NF+\EP}$
  *
  * @param <T> type used to identify nodes in the system
  */
-public class Goodman<T> extends AbstractFaultLocalizer<T> {
+public class Goodman<T> extends AbstractSBFLFormula<T> {
 
     /**
      * Create fault localizer
@@ -28,12 +26,12 @@ public class Goodman<T> extends AbstractFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node, ComputationStrategies strategy) {
-        double numerator = 2.0d * node.getEF(strategy) - node.getNF(strategy) - node.getEP(strategy);
+    public double suspiciousness(final double ef, final double ep, final double nf, final double np) {
+        double numerator = 2.0d * ef - nf - ep;
         if (numerator == 0) {
             return 0;
         }
-        return numerator / (2.0d * node.getEF(strategy) + node.getNF(strategy) + node.getEP(strategy));
+        return numerator / (2.0d * ef + nf + ep);
     }
 
 }
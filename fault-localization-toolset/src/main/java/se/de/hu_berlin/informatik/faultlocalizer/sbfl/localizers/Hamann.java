@@ -9,16 +9,14 @@
 
 package se.de.hu_berlin.informatik.faultlocalizer.sbfl.localizers;
 
-import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractFaultLocalizer;
-import se.de.hu_berlin.informatik.spectra.core.ComputationStrategies;
-import se.de.hu_berlin.informatik.spectra.core.INode;
+import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractSBFLFormula;
 
 /**
  * Hamann fault localizer $\frac{\EF+\NP-\NF-\EP}{\EF+\NF+\EP+\NP}$
  *
  * @param <T> type used to identify nodes in the system
  */
-public class Hamann<T> extends AbstractFaultLocalizer<T> {
+public class Hamann<T> extends AbstractSBFLFormula<T> {
 
     /**
      * Create fault localizer
@@ -28,12 +26,12 @@ public class Hamann<T> extends AbstractFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node, ComputationStrategies strategy) {
-        double numerator = node.getEF(strategy) + node.getNP(strategy) - node.getNF(strategy) - node.getEP(strategy);
+    public double suspiciousness(final double ef, final double ep, final double nf, final double np) {
+        double numerator = ef + np - nf - ep;
         if (numerator == 0) {
             return 0;
         }
-        return numerator / (node.getEF(strategy) + node.getNF(strategy) + node.getEP(strategy) + node.getNP(strategy));
+        return numerator / (ef + nf + ep + np);
     }
 
 }
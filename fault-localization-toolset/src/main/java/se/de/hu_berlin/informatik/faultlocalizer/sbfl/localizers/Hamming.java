@@ -9,16 +9,14 @@
 
 package se.de.hu_berlin.informatik.faultlocalizer.sbfl.localizers;
 
-import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractFaultLocalizer;
-import se.de.hu_berlin.informatik.spectra.core.ComputationStrategies;
-import se.de.hu_berlin.informatik.spectra.core.INode;
+import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractSBFLFormula;
 
 /**
  * Hamming fault localizer $\EF+\NP$
  *
  * @param <T> type used to identify nodes in the system
  */
-public class Hamming<T> extends AbstractFaultLocalizer<T> {
+public class Hamming<T> extends AbstractSBFLFormula<T> {
 
     /**
      * Create fault localizer
@@ -28,8 +26,8 @@ public class Hamming<T> extends AbstractFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node, ComputationStrategies strategy) {
-        return (node.getEF(strategy) + node.getNP(strategy));
+    public double suspiciousness(final double ef, final double ep, final double nf, final double np) {
+        return (ef + np);
     }
 
 }
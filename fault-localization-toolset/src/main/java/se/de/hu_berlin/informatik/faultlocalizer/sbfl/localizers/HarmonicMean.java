@@ -9,9 +9,7 @@
 
 package se.de.hu_berlin.informatik.faultlocalizer.sbfl.localizers;
 
-import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractFaultLocalizer;
-import se.de.hu_berlin.informatik.spectra.core.ComputationStrategies;
-import se.de.hu_berlin.informatik.spectra.core.INode;
+import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractSBFLFormula;
 
 /**
  * HarmonicMean fault localizer
@@ -20,7 +18,7 @@ import se.de.hu_berlin.informatik.spectra.core.INode;
  *
  * @param <T> type used to identify nodes in the system
  */
-public class HarmonicMean<T> extends AbstractFaultLocalizer<T> {
+public class HarmonicMean<T> extends AbstractSBFLFormula<T> {
 
     /**
      * Create fault localizer
@@ -30,16 +28,16 @@ public class HarmonicMean<T> extends AbstractFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node, ComputationStrategies strategy) {
-        final double enu1 = node.getEF(strategy) * node.getNP(strategy) - node.getNF(strategy) * node.getEP(strategy);
-        final double enu21 = (node.getEF(strategy) + node.getEP(strategy)) * (node.getNP(strategy) + node.getNF(strategy));
-        final double enu22 = (node.getEF(strategy) + node.getNF(strategy)) * (node.getEP(strategy) + node.getNP(strategy));
+    public double suspiciousness(final double ef, final double ep, final double nf, final double np) {
+        final double enu1 = ef * np - nf * ep;
+        final double enu21 = (ef + ep) * (np + nf);
+        final double enu22 = (ef + nf) * (ep + np);
         final double enu = enu1 * (enu21 + enu22);
 
-        final double denom1 = node.getEF(strategy) + node.getEP(strategy);
-        final double denom2 = node.getNP(strategy) + node.getNF(strategy);
-        final double denom3 = node.getEF(strategy) + node.getNF(strategy);
-        final double denom4 = node.getEP(strategy) + node.getNP(strategy);
+        final double denom1 = ef + ep;
+        final double denom2 = np + nf;
+        final double denom3 = ef + nf;
+        final double denom4 = ep + np;
         final double denom = denom1 * denom2 * denom3 * denom4;
 
         if (enu == 0) {
@@ -9,9 +9,7 @@
 
 package se.de.hu_berlin.informatik.faultlocalizer.sbfl.localizers;
 
-import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractFaultLocalizer;
-import se.de.hu_berlin.informatik.spectra.core.ComputationStrategies;
-import se.de.hu_berlin.informatik.spectra.core.INode;
+import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractSBFLFormula;
 
 /**
  * Hyperbolic function fault localizer $\frac{1}{K_1 + \frac{\NF}{\EF + \NF}} + \frac{K_3}{K_2 + \frac{\EP}{\EF + \EP}}$
@@ -21,7 +19,7 @@ import se.de.hu_berlin.informatik.spectra.core.INode;
  *
  * @param <T> type used to identify nodes in the system
  */
-public class Hyperbolic<T> extends AbstractFaultLocalizer<T> {
+public class Hyperbolic<T> extends AbstractSBFLFormula<T> {
 
     private static final double SMALL_DELTA = 1.0E-6;
     private final double k1;
@@ -43,9 +41,9 @@ public class Hyperbolic<T> extends AbstractFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node, ComputationStrategies strategy) {
-        return 1.0 / (k1 + SMALL_DELTA + (node.getNF(strategy) / (node.getEF(strategy) + node.getNF(strategy) + SMALL_DELTA))) +
-                k3 / (k2 + SMALL_DELTA + (node.getEP(strategy) / (node.getEF(strategy) + node.getEP(strategy) + SMALL_DELTA)));
+    public double suspiciousness(final double ef, final double ep, final double nf, final double np) {
+        return 1.0 / (k1 + SMALL_DELTA + (nf / (ef + nf + SMALL_DELTA))) +
+                k3 / (k2 + SMALL_DELTA + (ep / (ef + ep + SMALL_DELTA)));
     }
 
 }
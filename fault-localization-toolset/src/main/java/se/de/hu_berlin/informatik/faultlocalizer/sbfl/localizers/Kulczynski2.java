@@ -9,16 +9,14 @@
 
 package se.de.hu_berlin.informatik.faultlocalizer.sbfl.localizers;
 
-import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractFaultLocalizer;
-import se.de.hu_berlin.informatik.spectra.core.ComputationStrategies;
-import se.de.hu_berlin.informatik.spectra.core.INode;
+import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractSBFLFormula;
 
 /**
  * Kulczynski2 fault localizer $\frac{1}{2}\left(\frac{\EF}{\EF+\NF}+\frac{\EF}{\EF+\EP}\right)$
  *
  * @param <T> type used to identify nodes in the system
  */
-public class Kulczynski2<T> extends AbstractFaultLocalizer<T> {
+public class Kulczynski2<T> extends AbstractSBFLFormula<T> {
 
     /**
      * Create fault localizer
@@ -28,13 +26,13 @@ public class Kulczynski2<T> extends AbstractFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node, ComputationStrategies strategy) {
-        double left = node.getEF(strategy) / (node.getEF(strategy) + node.getNF(strategy));
-        if (node.getEF(strategy) == 0) {
+    public double suspiciousness(final double ef, final double ep, final double nf, final double np) {
+        double left = ef / (ef + nf);
+        if (ef == 0) {
             left = 0;
         }
-        double right = node.getEF(strategy) / (node.getEF(strategy) + node.getEP(strategy));
-        if (node.getEF(strategy) == 0) {
+        double right = ef / (ef + ep);
+        if (ef == 0) {
             right = 0;
         }
         return 0.5d * (left + right);
@@ -9,16 +9,14 @@
 
 package se.de.hu_berlin.informatik.faultlocalizer.sbfl.localizers;
 
-import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractFaultLocalizer;
-import se.de.hu_berlin.informatik.spectra.core.ComputationStrategies;
-import se.de.hu_berlin.informatik.spectra.core.INode;
+import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractSBFLFormula;
 
 /**
  * Ochiai2 fault localizer $\frac{\EF\NP}{\sqrt{(\EF+\EP)\cdot(\NP+\NF)\cdot(\EF+\NF)\cdot(\EP+\NP)}}$
  *
  * @param <T> type used to identify nodes in the system
  */
-public class Ochiai2<T> extends AbstractFaultLocalizer<T> {
+public class Ochiai2<T> extends AbstractSBFLFormula<T> {
 
     /**
      * Create fault localizer
@@ -28,13 +26,13 @@ public class Ochiai2<T> extends AbstractFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node, ComputationStrategies strategy) {
-        final double denom1 = node.getEF(strategy) + node.getEP(strategy);
-        final double denom2 = node.getNP(strategy) + node.getNF(strategy);
-        final double denom3 = node.getEF(strategy) + node.getNF(strategy);
-        final double denom4 = node.getEP(strategy) + node.getNP(strategy);
+    public double suspiciousness(final double ef, final double ep, final double nf, final double np) {
+        final double denom1 = ef + ep;
+        final double denom2 = np + nf;
+        final double denom3 = ef + nf;
+        final double denom4 = ep + np;
 
-        double numerator = node.getEF(strategy) * node.getNP(strategy);
+        double numerator = ef * np;
         if (numerator == 0) {
             return 0;
         }
@@ -9,16 +9,14 @@
 
 package se.de.hu_berlin.informatik.faultlocalizer.sbfl.localizers;
 
-import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractFaultLocalizer;
-import se.de.hu_berlin.informatik.spectra.core.ComputationStrategies;
-import se.de.hu_berlin.informatik.spectra.core.INode;
+import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractSBFLFormula;
 
 /**
  * Overlap fault localizer $\frac{\EF}{\min(\EF.\NF.\EP)}$
  *
  * @param <T> type used to identify nodes in the system
  */
-public class Overlap<T> extends AbstractFaultLocalizer<T> {
+public class Overlap<T> extends AbstractSBFLFormula<T> {
 
     /**
      * Create fault localizer
@@ -28,11 +26,11 @@ public class Overlap<T> extends AbstractFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node, ComputationStrategies strategy) {
-        if (node.getEF(strategy) == 0) {
+    public double suspiciousness(final double ef, final double ep, final double nf, final double np) {
+        if (ef == 0) {
             return 0;
         }
-        return node.getEF(strategy) / Math.min(node.getEF(strategy), Math.min(node.getNF(strategy), node.getEP(strategy)));
+        return ef / Math.min(ef, Math.min(nf, ep));
     }
 
 }
@@ -9,16 +9,14 @@
 
 package se.de.hu_berlin.informatik.faultlocalizer.sbfl.localizers;
 
-import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractFaultLocalizer;
-import se.de.hu_berlin.informatik.spectra.core.ComputationStrategies;
-import se.de.hu_berlin.informatik.spectra.core.INode;
+import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractSBFLFormula;
 
 /**
  * Rogot1 fault localizer $\frac{1}{2}\left(\frac{\EF}{2\EF+\NF+\EP}+\frac{\NP}{2\NP+\NF+\EP}\right)$
  *
  * @param <T> type used to identify nodes in the system
  */
-public class Rogot1<T> extends AbstractFaultLocalizer<T> {
+public class Rogot1<T> extends AbstractSBFLFormula<T> {
 
     /**
      * Create fault localizer
@@ -28,13 +26,13 @@ public class Rogot1<T> extends AbstractFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node, ComputationStrategies strategy) {
-        double left = node.getEF(strategy) / (2.0d * node.getEF(strategy) + node.getNF(strategy) + node.getEP(strategy));
-        if (node.getEF(strategy) == 0) {
+    public double suspiciousness(final double ef, final double ep, final double nf, final double np) {
+        double left = ef / (2.0d * ef + nf + ep);
+        if (ef == 0) {
             left = 0;
         }
-        double right = node.getNP(strategy) / (2.0d * node.getNP(strategy) + node.getNF(strategy) + node.getEP(strategy));
-        if (node.getNP(strategy) == 0) {
+        double right = np / (2.0d * np + nf + ep);
+        if (np == 0) {
             right = 0;
         }
         return 0.5d * (left + right);
@@ -9,16 +9,14 @@
 
 package se.de.hu_berlin.informatik.faultlocalizer.sbfl.localizers;
 
-import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractFaultLocalizer;
-import se.de.hu_berlin.informatik.spectra.core.ComputationStrategies;
-import se.de.hu_berlin.informatik.spectra.core.INode;
+import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractSBFLFormula;
 
 /**
  * Scott fault localizer $\frac{4\EF\NP - 4\NF\EP - (\NF-\EP)^2}{(2\EF+\NF+\EP)\cdot(2\NP+\NF+\EP)}$
  *
  * @param <T> type used to identify nodes in the system
  */
-public class Scott<T> extends AbstractFaultLocalizer<T> {
+public class Scott<T> extends AbstractSBFLFormula<T> {
 
     /**
      * Create fault localizer
@@ -28,14 +26,14 @@ public class Scott<T> extends AbstractFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node, ComputationStrategies strategy) {
-        final double enu1 = 4.0d * node.getEF(strategy) * node.getNP(strategy);
-        final double enu2 = 4.0d * node.getNF(strategy) * node.getEP(strategy);
-        final double enu3 = node.getNF(strategy) - node.getEP(strategy);
+    public double suspiciousness(final double ef, final double ep, final double nf, final double np) {
+        final double enu1 = 4.0d * ef * np;
+        final double enu2 = 4.0d * nf * ep;
+        final double enu3 = nf - ep;
         final double enu = enu1 - enu2 - (enu3 * enu3);
 
-        final double denom1 = 2.0d * node.getEF(strategy) + node.getNF(strategy) + node.getEP(strategy);
-        final double denom2 = 2.0d * node.getNP(strategy) + node.getNF(strategy) + node.getEP(strategy);
+        final double denom1 = 2.0d * ef + nf + ep;
+        final double denom2 = 2.0d * np + nf + ep;
         final double denom = denom1 * denom2;
 
         if (enu == 0) {
@@ -9,16 +9,14 @@
 
 package se.de.hu_berlin.informatik.faultlocalizer.sbfl.localizers;
 
-import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractFaultLocalizer;
-import se.de.hu_berlin.informatik.spectra.core.ComputationStrategies;
-import se.de.hu_berlin.informatik.spectra.core.INode;
+import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractSBFLFormula;
 
 /**
  * Tarantula fault localizer $\frac{\frac{\EF}{\EF+\NF}}{\frac{\EF}{\EF+\NF}+\frac{\EP}{\EP+\NP}}$
  *
  * @param <T> type used to identify nodes in the system
  */
-public class Tarantula<T> extends AbstractFaultLocalizer<T> {
+public class Tarantula<T> extends AbstractSBFLFormula<T> {
 
     /**
      * Create fault localizer
@@ -28,13 +26,13 @@ public class Tarantula<T> extends AbstractFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node, ComputationStrategies strategy) {
-        double part = node.getEF(strategy) / (node.getEF(strategy) + node.getNF(strategy));
-        if (node.getEF(strategy) == 0) {
+    public double suspiciousness(final double ef, final double ep, final double nf, final double np) {
+        double part = ef / (ef + nf);
+        if (ef == 0) {
             return 0;
         }
-        double part2 = node.getEP(strategy) / (node.getEP(strategy) + node.getNP(strategy));
-        if (node.getEP(strategy) == 0) {
+        double part2 = ep / (ep + np);
+        if (ep == 0) {
             part2 = 0;
         }
         return part / (part + part2);
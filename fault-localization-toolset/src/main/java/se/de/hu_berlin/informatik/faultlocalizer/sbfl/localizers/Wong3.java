@@ -9,9 +9,7 @@
 
 package se.de.hu_berlin.informatik.faultlocalizer.sbfl.localizers;
 
-import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractFaultLocalizer;
-import se.de.hu_berlin.informatik.spectra.core.ComputationStrategies;
-import se.de.hu_berlin.informatik.spectra.core.INode;
+import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractSBFLFormula;
 
 //			  $\begin{array}{rl}
 //            \EF - \EP & \text{ if } \EP\leq 2 \\
@@ -24,7 +22,7 @@ import se.de.hu_berlin.informatik.spectra.core.INode;
  *
  * @param <T> type used to identify nodes in the system
  */
-public class Wong3<T> extends AbstractFaultLocalizer<T> {
+public class Wong3<T> extends AbstractSBFLFormula<T> {
 
     /**
      * Create fault localizer
@@ -34,13 +32,13 @@ public class Wong3<T> extends AbstractFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node, ComputationStrategies strategy) {
-        if (node.getEP(strategy) <= 2) {
-            return node.getEF(strategy) - node.getEP(strategy);
-        } else if (node.getEP(strategy) <= 10) {
-            return node.getEF(strategy) - (2.0d + 0.1d * (node.getEP(strategy) - 2.0d));
+    public double suspiciousness(final double ef, final double ep, final double nf, final double np) {
+        if (ep <= 2) {
+            return ef - ep;
+        } else if (ep <= 10) {
+            return ef - (2.0d + 0.1d * (ep - 2.0d));
         } else {
-            return node.getEF(strategy) - (2.8d + 0.001d * (node.getEP(strategy) - 10.0d));
+            return ef - (2.8d + 0.001d * (ep - 10.0d));
         }
     }
 
@@ -9,16 +9,14 @@
 
 package se.de.hu_berlin.informatik.faultlocalizer.sbfl.localizers;
 
-import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractFaultLocalizer;
-import se.de.hu_berlin.informatik.spectra.core.ComputationStrategies;
-import se.de.hu_berlin.informatik.spectra.core.INode;
+import se.de.hu_berlin.informatik.faultlocalizer.sbfl.AbstractSBFLFormula;
 
 /**
  * Zoltar fault localizer $\frac{\EF}{\EF+\NF+\EP+\frac{10000\NF\EP}{\EF}}$
  *
  * @param <T> type used to identify nodes in the system
  */
-public class Zoltar<T> extends AbstractFaultLocalizer<T> {
+public class Zoltar<T> extends AbstractSBFLFormula<T> {
 
     /**
      * Create fault localizer
@@ -28,15 +26,15 @@ public class Zoltar<T> extends AbstractFaultLocalizer<T> {
     }
 
     @Override
-    public double suspiciousness(final INode<T> node, ComputationStrategies strategy) {
-        double denomPart = (10000d * node.getNF(strategy) * node.getEP(strategy)) / node.getEF(strategy);
-        if (node.getNF(strategy) * node.getEP(strategy) == 0) {
+    public double suspiciousness(final double ef, final double ep, final double nf, final double np) {
+        double denomPart = (10000d * nf * ep) / ef;
+        if (nf * ep == 0) {
             denomPart = 0;
         }
-        if (node.getEF(strategy) == 0) {
+        if (ef == 0) {
             return 0;
         }
-        return node.getEF(strategy) / (node.getEF(strategy) + node.getNF(strategy) + node.getEP(strategy) + denomPart);
+        return ef / (ef + nf + ep + denomPart);
     }
 
 }
@@ -0,0 +1,123 @@
+package se.de.hu_berlin.informatik.faultlocalizer.cfg;
+
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import se.de.hu_berlin.informatik.spectra.core.cfg.CompressedCFG;
+import se.de.hu_berlin.informatik.spectra.core.cfg.DynamicCFG;
+import se.de.hu_berlin.informatik.spectra.core.cfg.ScoredDynamicCFG;
+
+public class PageRankTest {
+
+	private final double smallDelta = 0.00001;
+
+	/**
+	 * CFG with edges 10 -&gt; 20, 10 -&gt; 30, 20 -&gt; 30 and 30 -&gt; 10.
+	 */
+	private ScoredDynamicCFG<String> getTestData() {
+		DynamicCFG<String> dynamicCFG = new DynamicCFG<>(null);
+		dynamicCFG.getOrCreateNode(10).connectTo(dynamicCFG.getOrCreateNode(20));
+		dynamicCFG.getOrCreateNode(10).connectTo(dynamicCFG.getOrCreateNode(30));
+		dynamicCFG.getOrCreateNode(20).connectTo(dynamicCFG.getOrCreateNode(30));
+		dynamicCFG.getOrCreateNode(30).connectTo(dynamicCFG.getOrCreateNode(10));
+
+		ScoredDynamicCFG<String> cfg = new ScoredDynamicCFG<>(dynamicCFG);
+		cfg.assignScore(10, 1);
+		cfg.assignScore(20, 0);
+		cfg.assignScore(30, 0.5);
+		return cfg;
+	}
+
+	@Test
+	public void compressedCFG() {
+		CompressedCFG cfg = new CompressedCFG(getTestData());
+
+		Assert.assertEquals(3, cfg.getNodeCount());
+		Assert.assertEquals(20, cfg.getNodeIndex(1));
+		Assert.assertEquals(2, cfg.getPosition(30));
+		Assert.assertTrue(cfg.getPosition(15) < 0);
+
+		Assert.assertArrayEquals(new int[] {0, 1, 2, 4}, cfg.getPredecessorOffsets());
+		Assert.assertArrayEquals(new int[] {2, 0, 0, 1}, cfg.getPredecessors());
+		Assert.assertArrayEquals(new int[] {0, 2, 3, 4}, cfg.getSuccessorOffsets());
+		Assert.assertArrayEquals(new int[] {1, 2, 2, 0}, cfg.getSuccessors());
+		Assert.assertEquals(2, cfg.getPredecessorCount(2));
+		Assert.assertEquals(2, cfg.getSuccessorCount(0));
+		Assert.assertEquals(0, cfg.getMergedIndices(0).length);
+	}
+
+	@Test
+	public void singleIteration() {
+		Map<Integer, Double> forward = new PageRank<>(getTestData(), 0.5, 1, false).calculate();
+		Assert.assertEquals(1.0 / 6 + 0.25, forward.get(10), smallDelta);
+		Assert.assertEquals(1.0 / 6 + 0.25, forward.get(20), smallDelta);
+		Assert.assertEquals(1.0 / 6 + 0.25, forward.get(30), smallDelta);
+
+		Map<Integer, Double> reverse = new PageRank<>(getTestData(), 0.5, 1, true).calculate();
+		Assert.assertEquals(1.0 / 6 + 0.125, reverse.get(10), smallDelta);
+		Assert.assertEquals(1.0 / 6 + 0.125, reverse.get(20), smallDelta);
+		Assert.assertEquals(1.0 / 6 + 0.5, reverse.get(30), smallDelta);
+
+		Map<Integer, Double> biased = new BiasedPageRank<>(getTestData(), 0.5, 1, false).calculate();
+		Assert.assertEquals(1.0 / 3 + 1.0 / 6 + 0.25, biased.get(10), smallDelta);
+		Assert.assertEquals(1.0 / 6 + 0.25, biased.get(20), smallDelta);
+		Assert.assertEquals(0.5 / 3 + 1.0 / 6 + 0.25, biased.get(30), smallDelta);
+	}
+
+	@Test
+	public void iterateUntilConvergence() {
+		PageRank<String> pageRank = new PageRank<>(getTestData(), 0.85, 0, false, true);
+		double[] scores = pageRank.calculateScores();
+		Assert.assertTrue(pageRank.didConverge());
+
+		// every node has a successor, so the scores converge to a probability distribution
+		double sum = 0;
+		for (double score : scores) {
+			sum += score;
+		}
+		Assert.assertEquals(1, sum, 0.0001);
+		Assert.assertArrayEquals(scores, new PageRank<>(getTestData(), 0.85, 0, false, false).calculateScores(), 0);
+	}
+
+	/**
+	 * CFG with 100 nodes, where each node i is connected to i + 1 and 7 * i (modulo 100).
+	 */
+	private ScoredDynamicCFG<String> getLargeTestData() {
+		DynamicCFG<String> dynamicCFG = new DynamicCFG<>(null);
+		for (int i = 0; i < 100; ++i) {
+			dynamicCFG.getOrCreateNode(i).connectTo(dynamicCFG.getOrCreateNode((i + 1) % 100));
+			dynamicCFG.getOrCreateNode(i).connectTo(dynamicCFG.getOrCreateNode(7 * i % 100));
+		}
+
+		ScoredDynamicCFG<String> cfg = new ScoredDynamicCFG<>(dynamicCFG);
+		for (int i = 0; i < 100; ++i) {
+			cfg.assignScore(i, i % 3 / 2.0);
+		}
+		return cfg;
+	}
+
+	@Test
+	public void parallelRanges() {
+		ScoredDynamicCFG<String> scoredCFG = getLargeTestData();
+		CompressedCFG cfg = new CompressedCFG(scoredCFG);
+		double[] initialScores = scoredCFG.getScores(cfg);
+
+		for (boolean reverse : new boolean[] {false, true}) {
+			// a single range with the default range size
+			PageRankSolver sequential = new PageRankSolver(cfg, 0.85, 0, reverse, false);
+			double[] expected = sequential.solve(initialScores, null);
+			Assert.assertTrue(sequential.didConverge());
+
+			// 100 nodes in ranges of 8 nodes are processed by 13 parallel tasks
+			PageRankSolver parallel = new PageRankSolver(cfg, 0.85, 0, reverse, true, 8);
+			Assert.assertArrayEquals(expected, parallel.solve(initialScores, null), 0);
+			Assert.assertTrue(parallel.didConverge());
+
+			Assert.assertArrayEquals(sequential.solve(initialScores, initialScores),
+					parallel.solve(initialScores, initialScores), 0);
+		}
+	}
+
+}
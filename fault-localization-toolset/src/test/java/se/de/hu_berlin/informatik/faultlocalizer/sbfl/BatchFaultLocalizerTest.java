@@ -0,0 +1,111 @@
+package se.de.hu_berlin.informatik.faultlocalizer.sbfl;
+
+import org.junit.Assert;
+import org.junit.Test;
+import se.de.hu_berlin.informatik.faultlocalizer.IFaultLocalizer;
+import se.de.hu_berlin.informatik.faultlocalizer.test.data.SimpleSpectraProvider;
+import se.de.hu_berlin.informatik.spectra.core.ComputationStrategies;
+import se.de.hu_berlin.informatik.spectra.core.INode;
+import se.de.hu_berlin.informatik.spectra.core.ISpectra;
+import se.de.hu_berlin.informatik.spectra.core.SourceCodeBlock;
+import se.de.hu_berlin.informatik.spectra.core.hit.HitSpectra;
+import se.de.hu_berlin.informatik.spectra.core.hit.HitTrace;
+import se.de.hu_berlin.informatik.spectra.core.manipulation.BuildBlockSpectraModule;
+import se.de.hu_berlin.informatik.spectra.provider.cobertura.CoberturaSpectraProviderFactory;
+import se.de.hu_berlin.informatik.spectra.provider.cobertura.xml.CoberturaXMLProvider;
+import se.de.hu_berlin.informatik.spectra.util.SpectraFileUtils;
+import se.de.hu_berlin.informatik.spectra.util.SpectraStream;
+import se.de.hu_berlin.informatik.utils.experiments.ranking.Ranking;
+import se.de.hu_berlin.informatik.utils.files.FileUtils;
+import se.de.hu_berlin.informatik.utils.miscellaneous.TestSettings;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+public class BatchFaultLocalizerTest extends TestSettings {
+
+    private final double smallDelta = 0.00001;
+
+    private void checkBatch(final boolean parallel) {
+        final HitSpectra<String> s = new SimpleSpectraProvider().loadHitSpectra();
+        final BatchFaultLocalizer<String> batch = new BatchFaultLocalizer<>(parallel,
+                "tarantula", "ochiai", "jaccard", "dstar", "op2", "zoltar", "wong2");
+        final Map<IFaultLocalizer<String>, Ranking<INode<String>>> rankings =
+                batch.localize(s, ComputationStrategies.STANDARD_SBFL);
+
+        Assert.assertEquals(batch.getLocalizers().size(), rankings.size());
+        for (Entry<IFaultLocalizer<String>, Ranking<INode<String>>> entry : rankings.entrySet()) {
+            final Ranking<INode<String>> expected = entry.getKey().localize(s, ComputationStrategies.STANDARD_SBFL);
+            for (final INode<String> node : s.getNodes()) {
+                Assert.assertEquals(entry.getKey().getName(),
+                        expected.getRankingValue(node), entry.getValue().getRankingValue(node), smallDelta);
+                Assert.assertEquals(expected.wastedEffort(node), entry.getValue().wastedEffort(node));
+            }
+        }
+    }
+
+    @Test
+    public void sequential() {
+        checkBatch(false);
+    }
+
+    @Test
+    public void parallel() {
+        checkBatch(true);
+    }
+
+    private Path saveStreamableSpectra(final String fileName) {
+        final CoberturaXMLProvider<HitTrace<SourceCodeBlock>> c = CoberturaSpectraProviderFactory.getHitSpectraFromXMLProvider(true);
+        c.addData(getStdResourcesDir() + "/fk/stardust/provider/large-coverage.xml", "large", true);
+        c.addData(getStdResourcesDir() + "/fk/stardust/provider/simple-coverage.xml", "simple", false);
+
+        final Path output = Paths.get(getStdTestDir(), fileName);
+        FileUtils.delete(output);
+        SpectraFileUtils.saveSpectraToZipFile(c.loadSpectra(), output, true, true, true);
+        return output;
+    }
+
+    private void checkStreamedBatch(final ISpectra<SourceCodeBlock, ?> spectra, final List<SourceCodeBlock> identifiers,
+                                    final SpectraStream<SourceCodeBlock> stream) {
+        final BatchFaultLocalizer<SourceCodeBlock> batch = new BatchFaultLocalizer<>(true,
+                "tarantula", "ochiai", "jaccard", "dstar", "op2", "zoltar", "wong2");
+        final Map<IFaultLocalizer<SourceCodeBlock>, Ranking<INode<SourceCodeBlock>>> expected =
+                batch.localize(spectra, ComputationStrategies.STANDARD_SBFL);
+
+        Assert.assertEquals(spectra.getNodes().size(), identifiers.size());
+        final int[] rankingCount = {0};
+        batch.localize(identifiers, stream::getNodeIndex, stream.countInvolvement(), (localizer, ranking) -> {
+            final Ranking<INode<SourceCodeBlock>> expectedRanking = expected.get(localizer);
+            for (final INode<SourceCodeBlock> node : spectra.getNodes()) {
+                Assert.assertEquals(localizer.getName(), expectedRanking.getRankingValue(node),
+                        ranking.getRankingValue(node.getIdentifier()), smallDelta);
+                Assert.assertEquals(expectedRanking.wastedEffort(node), ranking.wastedEffort(node.getIdentifier()));
+            }
+            ++rankingCount[0];
+        });
+        Assert.assertEquals(batch.getLocalizers().size(), rankingCount[0]);
+    }
+
+    @Test
+    public void fromStreamCounts() {
+        final Path output = saveStreamableSpectra("batch_stream.zip");
+        final SpectraStream<SourceCodeBlock> stream = SpectraFileUtils.streamBlockSpectraFromZipFile(output);
+
+        checkStreamedBatch(SpectraFileUtils.loadBlockSpectraFromZipFile(output), stream.getNodeIdentifiers(), stream);
+    }
+
+    @Test
+    public void fromStreamCountsOfBlocks() {
+        final Path output = saveStreamableSpectra("batch_stream_blocks.zip");
+        final SpectraStream<SourceCodeBlock> stream = SpectraFileUtils.streamBlockSpectraFromZipFile(output);
+        final ISpectra<SourceCodeBlock, ?> blockSpectra = new BuildBlockSpectraModule()
+                .submit(SpectraFileUtils.loadBlockSpectraFromZipFile(output)).getResult();
+
+        // each block is ranked with the counts of its first line
+        checkStreamedBatch(blockSpectra, BuildBlockSpectraModule.buildBlocks(stream), stream);
+    }
+
+}
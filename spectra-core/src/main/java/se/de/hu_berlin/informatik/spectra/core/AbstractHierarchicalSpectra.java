@@ -35,6 +35,21 @@ public abstract class AbstractHierarchicalSpectra<P, C, K extends ITrace<P>> ext
      */
     final Map<ITrace<C>, K> traceMap = new HashMap<>();
 
+    /**
+     * Holds the hierarchical traces in the order of their creation
+     */
+    private final List<K> traceList = new ArrayList<>();
+
+    /**
+     * is incremented whenever the parent->child node relation or the set of nodes changes
+     */
+    private volatile long structureVersion = 0;
+
+    /**
+     * for each child node index: the indices of the parent nodes; computed lazily
+     */
+    private volatile ParentIndices parentIndices = null;
+
 //    /**
 //     * Creates a new parent spectra object.
 //     *
@@ -76,7 +91,9 @@ public abstract class AbstractHierarchicalSpectra<P, C, K extends ITrace<P>> ext
      * @param childNode  the child node to be added under the parent node
      */
     public void setParent(final INode<P> parentNode, final INode<C> childNode) {
-        this.childrenOf(parentNode).add(childNode);
+        if (this.childrenOf(parentNode).add(childNode)) {
+            ++structureVersion;
+        }
     }
 
     /**
@@ -101,7 +118,12 @@ public abstract class AbstractHierarchicalSpectra<P, C, K extends ITrace<P>> ext
      * @return all children of the parent
      */
     public Set<INode<C>> getChildrenOf(final INode<P> parent) {
-        return Collections.unmodifiableSet(this.childrenOf(parent));
+        // do not modify the relation here, to allow concurrent reads
+        final Set<INode<C>> children = this.relation.get(parent);
+        if (children == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(children);
     }
 
     @Override
@@ -110,14 +132,95 @@ public abstract class AbstractHierarchicalSpectra<P, C, K extends ITrace<P>> ext
         if (this.traceMap.size() != this.childSpectra.getTraces().size()) {
             for (final ITrace<C> childTrace : this.childSpectra.getTraces()) {
                 if (!this.traceMap.containsKey(childTrace)) {
-                    this.traceMap.put(childTrace, createNewHierarchicalTrace(this, childTrace));
+                    K trace = createNewHierarchicalTrace(this, childTrace);
+                    this.traceMap.put(childTrace, trace);
+                    this.traceList.add(trace);
+                }
+            }
+        }
+
+        return Collections.unmodifiableList(this.traceList);
+    }
+
+    @Override
+    public void invalidateCachedValues() {
+        super.invalidateCachedValues();
+        // (called when nodes are removed)
+        ++structureVersion;
+    }
+
+    /**
+     * Returns a number that changes whenever the parent-&gt;child node relation or the
+     * set of nodes of this spectra changes.
+     *
+     * @return the structure version
+     */
+    public long getStructureVersion() {
+        return structureVersion;
+    }
+
+    /**
+     * Returns the indices of the parent nodes of each child node, i.e., the element at
+     * position i holds the indices of all (existing) parents of the child node with index i,
+     * or null if the child node has no parents. The returned arrays must not be modified.
+     *
+     * @return the parent node indices, by child node index
+     */
+    public int[][] getParentIndicesByChildIndex() {
+        ParentIndices indices = this.parentIndices;
+        long version = this.structureVersion;
+        if (indices == null || indices.version != version) {
+            indices = computeParentIndices(version);
+            this.parentIndices = indices;
+        }
+        return indices.parentsByChild;
+    }
+
+    private synchronized ParentIndices computeParentIndices(long version) {
+        ParentIndices indices = this.parentIndices;
+        if (indices != null && indices.version == version) {
+            return indices;
+        }
+        int childIndexBound = 0;
+        for (final Set<INode<C>> children : this.relation.values()) {
+            for (final INode<C> child : children) {
+                childIndexBound = Math.max(childIndexBound, child.getIndex() + 1);
+            }
+        }
+        int[] parentCounts = new int[childIndexBound];
+        List<INode<P>> parents = new ArrayList<>();
+        for (final Map.Entry<INode<P>, Set<INode<C>>> entry : this.relation.entrySet()) {
+            // ignore removed parent nodes
+            if (getNode(entry.getKey().getIndex()) != entry.getKey()) {
+                continue;
+            }
+            parents.add(entry.getKey());
+            for (final INode<C> child : entry.getValue()) {
+                ++parentCounts[child.getIndex()];
+            }
+        }
+        int[][] parentsByChild = new int[childIndexBound][];
+        for (final INode<P> parent : parents) {
+            for (final INode<C> child : this.relation.get(parent)) {
+                int childIndex = child.getIndex();
+                if (parentsByChild[childIndex] == null) {
+                    parentsByChild[childIndex] = new int[parentCounts[childIndex]];
+                    parentCounts[childIndex] = 0;
                 }
+                parentsByChild[childIndex][parentCounts[childIndex]++] = parent.getIndex();
             }
         }
+        return new ParentIndices(version, parentsByChild);
+    }
 
-        // Due to some reason no direct cast from Collection<HierarchicalTrace> to Collection<ITrace<P>> is possible
-        final Collection<K> hierarchicalTraces = new ArrayList<>(this.traceMap.values());
-        return hierarchicalTraces;
+    private static final class ParentIndices {
+        private final long version;
+        private final int[][] parentsByChild;
+
+        private ParentIndices(long version, int[][] parentsByChild) {
+            this.version = version;
+            this.parentsByChild = parentsByChild;
+        }
     }
 
     protected abstract K createNewHierarchicalTrace(AbstractHierarchicalSpectra<P, C, K> abstractHierarchicalSpectra,
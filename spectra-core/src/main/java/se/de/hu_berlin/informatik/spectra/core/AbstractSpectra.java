@@ -164,16 +164,30 @@ public abstract class AbstractSpectra<T, K extends ITrace<T>> implements Cloneab
             //remove node from index map
             nodesByIndex.remove(node.getIndex());
             //remove node from traces
-            for (K trace : traces.values()) {
-                trace.setInvolvement(node, false);
-                trace.sleep();
-            }
+            removeInvolvementOfNodes(Collections.singleton(node.getIndex()));
             removeNodeFromSequences(node);
         }
         invalidateCachedValues();
         return true;
     }
 
+    /**
+     * Removes the involvement of the given (removed) nodes from all traces, with a
+     * single pass over the traces. The cached values of the remaining nodes stay
+     * valid, since their involvement does not change.
+     *
+     * @param nodeIndices the indices of the removed nodes
+     */
+    protected void removeInvolvementOfNodes(final Set<Integer> nodeIndices) {
+        if (nodeIndices.isEmpty()) {
+            return;
+        }
+        for (K trace : traces.values()) {
+            trace.removeInvolvement(nodeIndices);
+            trace.sleep();
+        }
+    }
+
     private void removeNodeFromSequences(INode<T> node) {
         if (indexer != null) {
             indexer.removeFromSequences(node.getIndex());
@@ -190,10 +204,7 @@ public abstract class AbstractSpectra<T, K extends ITrace<T>> implements Cloneab
             //remove node from identifier map
             nodesByIdentifier.remove(node.getIdentifier());
             //remove node from traces
-            for (K trace : traces.values()) {
-                trace.setInvolvement(node, false);
-                trace.sleep();
-            }
+            removeInvolvementOfNodes(Collections.singleton(node.getIndex()));
             removeNodeFromSequences(node);
         }
         invalidateCachedValues();
@@ -205,20 +216,17 @@ public abstract class AbstractSpectra<T, K extends ITrace<T>> implements Cloneab
      */
     @Override
     public boolean removeNodes(final Collection<T> identifiers) {
-        Collection<Integer> nodesToRemove = new HashSet<>();
+        Set<Integer> nodesToRemove = new HashSet<>();
         for (T identifier : identifiers) {
             INode<T> node = nodesByIdentifier.remove(identifier);
             if (node != null) {
                 //remove node from index map
                 nodesByIndex.remove(node.getIndex());
-                //remove node from traces
-                for (K trace : traces.values()) {
-                    trace.setInvolvement(node, false);
-                    trace.sleep();
-                }
+                nodesToRemove.add(node.getIndex());
             }
-            nodesToRemove.add(node.getIndex());
         }
+        //remove nodes from traces
+        removeInvolvementOfNodes(nodesToRemove);
         removeNodesFromSequences(nodesToRemove);
         invalidateCachedValues();
         return true;
@@ -229,18 +237,17 @@ public abstract class AbstractSpectra<T, K extends ITrace<T>> implements Cloneab
      */
     @Override
     public boolean removeNodesByIndex(final Collection<Integer> indices) {
+        Set<Integer> nodesToRemove = new HashSet<>();
         for (Integer index : indices) {
             INode<T> node = nodesByIndex.remove(index);
             if (node != null) {
                 //remove node from index map
                 nodesByIdentifier.remove(node.getIdentifier());
-                //remove node from traces
-                for (K trace : traces.values()) {
-                    trace.setInvolvement(node, false);
-                    trace.sleep();
-                }
+                nodesToRemove.add(node.getIndex());
             }
         }
+        //remove nodes from traces
+        removeInvolvementOfNodes(nodesToRemove);
         removeNodesFromSequences(indices);
         invalidateCachedValues();
         return true;
@@ -307,6 +314,10 @@ public abstract class AbstractSpectra<T, K extends ITrace<T>> implements Cloneab
             final K trace = createNewTrace(identifier, traceIndex, successful);
             traces.put(identifier, trace);
             invalidateCachedValues();
+            //update the counts of the nodes instead of computing them again
+            if (localizer != null) {
+                localizer.traceAdded(trace);
+            }
             return trace;
         }
     }
@@ -404,13 +415,13 @@ public abstract class AbstractSpectra<T, K extends ITrace<T>> implements Cloneab
             for (final K trace : this.getTraces()) {
                 TraceInfo info = new TraceInfo();
 
-                int equallyInvolvedNodes = 0;
-                for (final int index : failingTrace.getInvolvedNodes()) {
+                int[] equallyInvolvedNodes = {0};
+                failingTrace.forEachInvolvedNode(index -> {
                     if (trace.isInvolved(index)) {
-                        ++equallyInvolvedNodes;
+                        ++equallyInvolvedNodes[0];
                     }
-                }
-                info.setSameHitCount(equallyInvolvedNodes);
+                });
+                info.setSameHitCount(equallyInvolvedNodes[0]);
                 similarityScores.put(trace, info);
             }
         }
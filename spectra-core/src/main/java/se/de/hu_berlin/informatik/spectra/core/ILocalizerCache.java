@@ -107,6 +107,38 @@ public interface ILocalizerCache<T> {
         return getEF(node, ComputationStrategies.STANDARD_SBFL);
     }
 
+    /**
+     * Computes the values (EF, EP, NF, NP) of all nodes at once, if supported.
+     * Subsequent calls to the getters are then simple lookups. Does nothing by default.
+     *
+     * @param strategy the strategy to use for computation
+     */
+    default public void computeAllValues(ComputationStrategies strategy) {
+        // nothing to do by default
+    }
+
+    /**
+     * Notifies the cache that a trace has been added to the spectra.
+     * Invalidates all cached values by default.
+     *
+     * @param trace the new trace
+     */
+    default public void traceAdded(ITrace<T> trace) {
+        invalidateCachedValues();
+    }
+
+    /**
+     * Notifies the cache that the involvement of a single node in a trace has changed.
+     * Invalidates all cached values by default.
+     *
+     * @param node     the node
+     * @param trace    the trace
+     * @param involved whether the node is involved in the trace, now
+     */
+    default public void involvementChanged(INode<T> node, ITrace<T> trace, boolean involved) {
+        invalidateCachedValues();
+    }
+
     /**
      * Invalidates any cached values that may have been stored.
      */
@@ -14,6 +14,8 @@ import se.de.hu_berlin.informatik.spectra.core.traces.ExecutionTrace;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.IntConsumer;
 import java.util.function.Supplier;
 
 /**
@@ -70,6 +72,15 @@ public interface ITrace<T> {
      */
     public abstract void setInvolvementForNodes(Map<INode<T>, Boolean> involvement);
 
+    /**
+     * Removes the involvement of all nodes with the given indices at once. Used
+     * when the nodes are removed from the spectra, so cached values of the
+     * remaining nodes are not affected.
+     *
+     * @param nodeIndices the indices of the removed nodes
+     */
+    public abstract void removeInvolvement(Set<Integer> nodeIndices);
+
     /**
      * Checks whether the given node is involved in the current trace.
      *
@@ -106,6 +117,19 @@ public interface ITrace<T> {
      */
     public Collection<Integer> getInvolvedNodes();
 
+    /**
+     * Applies the given consumer to the index of each involved node. Implementations
+     * that do not store the involvement as a collection of indices should override
+     * this to avoid boxing.
+     *
+     * @param consumer the consumer
+     */
+    default public void forEachInvolvedNode(IntConsumer consumer) {
+        for (int index : getInvolvedNodes()) {
+            consumer.accept(index);
+        }
+    }
+
     /**
      * @return a collection holding all execution traces for all threads
      */
@@ -6,16 +6,22 @@
 
 package se.de.hu_berlin.informatik.spectra.core;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.function.Predicate;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * @param <T> type used to identify nodes in the system.
  */
 public class LocalizerCache<T> implements ILocalizerCache<T> {
 
+    /**
+     * The minimum number of traces that are processed by a single task
+     */
+    private static final int MIN_TRACES_PER_TASK = 32;
+
     /**
      * The spectra this node belongs to
      */
@@ -27,23 +33,71 @@ public class LocalizerCache<T> implements ILocalizerCache<T> {
      */
     private int __cacheTraceCount = -1;
 
-    // TODO: arrays instead of maps
     /**
-     * cache EF
+     * Holds the cached values for all nodes (indexed by node index), or null if not computed
      */
-    private Map<Integer, Double> __cacheEF;
-    /**
-     * cache EP
-     */
-    private Map<Integer, Double> __cacheEP;
-    /**
-     * cache NF
-     */
-    private Map<Integer, Double> __cacheNF;
+    private volatile Counts __cache;
+
     /**
-     * cache NP
+     * The EF and EP values of all nodes, stored in arrays that are indexed by
+     * node index, together with the number of failing and successful traces.
+     * NF and NP are derived from these values. The counts are updated in place
+     * when traces are added or the involvement of nodes changes.
      */
-    private Map<Integer, Double> __cacheNP;
+    private static final class Counts {
+        final int[] ef;
+        final int[] ep;
+        volatile int failingCount;
+        volatile int successfulCount;
+
+        Counts(int[] ef, int[] ep, int failingCount, int successfulCount) {
+            this.ef = ef;
+            this.ep = ep;
+            this.failingCount = failingCount;
+            this.successfulCount = successfulCount;
+        }
+
+        int getNF(int index) {
+            return failingCount - ef[index];
+        }
+
+        int getNP(int index) {
+            return successfulCount - ep[index];
+        }
+
+        /**
+         * @return false if the node index is out of range
+         */
+        synchronized boolean update(int index, boolean successful, int delta) {
+            if (index >= ef.length) {
+                return false;
+            }
+            if (successful) {
+                ep[index] += delta;
+            } else {
+                ef[index] += delta;
+            }
+            return true;
+        }
+
+        /**
+         * @return false if the trace involves a node index that is out of range
+         */
+        synchronized boolean addTrace(ITrace<?> trace) {
+            boolean successful = trace.isSuccessful();
+            for (int index : trace.getInvolvedNodes()) {
+                if (!update(index, successful, 1)) {
+                    return false;
+                }
+            }
+            if (successful) {
+                ++successfulCount;
+            } else {
+                ++failingCount;
+            }
+            return true;
+        }
+    }
 
     /**
      * Constructs the localizer
@@ -54,99 +108,140 @@ public class LocalizerCache<T> implements ILocalizerCache<T> {
         this.spectra = spectra;
     }
 
-    private double computeValue(ComputationStrategies strategy, Predicate<? super ITrace<T>> predicate) {
+    /**
+     * Computes EF and EP for all nodes in a single pass over (a range of) the traces.
+     * The ranges are processed in parallel and the partial results are added up.
+     */
+    private static final class CountTask<T> extends RecursiveTask<int[][]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<? extends ITrace<T>> traces;
+        private final int from;
+        private final int to;
+        private final int arraySize;
+        private final int threshold;
+
+        CountTask(List<? extends ITrace<T>> traces, int from, int to, int arraySize, int threshold) {
+            this.traces = traces;
+            this.from = from;
+            this.to = to;
+            this.arraySize = arraySize;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected int[][] compute() {
+            if (to - from <= threshold) {
+                return computeDirectly();
+            }
+            int middle = (from + to) >>> 1;
+            CountTask<T> left = new CountTask<>(traces, from, middle, arraySize, threshold);
+            left.fork();
+            int[][] right = new CountTask<>(traces, middle, to, arraySize, threshold).compute();
+            int[][] result = left.join();
+            for (int i = 0; i < arraySize; ++i) {
+                result[0][i] += right[0][i];
+                result[1][i] += right[1][i];
+            }
+            return result;
+        }
+
+        @SuppressWarnings("unchecked")
+        private int[][] computeDirectly() {
+            // [0]: EF, [1]: EP
+            int[][] result = new int[2][arraySize];
+            for (int i = from; i < to; ++i) {
+                ITrace<T> trace = traces.get(i);
+                int[] counts = trace.isSuccessful() ? result[1] : result[0];
+                trace.forEachInvolvedNode(index -> {
+                    if (index < arraySize) {
+                        ++counts[index];
+                    }
+                });
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Computes EF, EP, NF and NP for all nodes in one pass over the traces.
+     * The traces are split into chunks that are processed in parallel.
+     *
+     * @param strategy the strategy to use for computation
+     */
+    @Override
+    public void computeAllValues(ComputationStrategies strategy) {
+        if (this.cacheOutdated()) {
+            resetCache();
+        }
+        if (__cache == null) {
+            __cache = computeCounts(strategy);
+        }
+    }
+
+    private synchronized Counts computeCounts(ComputationStrategies strategy) {
+        if (__cache != null) {
+            return __cache;
+        }
         switch (strategy) {
             case STANDARD_SBFL: {
-                int count = 0;
-                for (final ITrace<T> trace : this.spectra.getTraces()) {
-                    if (predicate.test(trace)) {
-                        ++count;
+                int arraySize = 0;
+                for (INode<T> node : this.spectra.getNodes()) {
+                    arraySize = Math.max(arraySize, node.getIndex() + 1);
+                }
+                List<ITrace<T>> traces = new ArrayList<>(this.spectra.getTraces());
+                int failingCount = 0;
+                for (ITrace<T> trace : traces) {
+                    if (!trace.isSuccessful()) {
+                        ++failingCount;
                     }
                 }
-                return count;
+                int threshold = Math.max(MIN_TRACES_PER_TASK,
+                        traces.size() / (4 * ForkJoinPool.getCommonPoolParallelism()) + 1);
+                int[][] result = ForkJoinPool.commonPool().invoke(
+                        new CountTask<>(traces, 0, traces.size(), arraySize, threshold));
+                return new Counts(result[0], result[1], failingCount, traces.size() - failingCount);
             }
-            case SIMILARITY_FL: {
+            case SIMILARITY_FL:
                 throw new UnsupportedOperationException();
-//			Collection<? extends ITrace<T>> failingTraces = this.spectra.getFailingTraces();
-//			int failingTracesCount = failingTraces.size();
-//			if (failingTracesCount == 0) {
-//				return 0; // reevaluate this
-//			}
-//
-//			double count = 0.0;
-//			// have to compute a value for each failing trace
-//			for (final ITrace<T> failingTrace : failingTraces) {
-//				for (final ITrace<T> trace : this.spectra.getTraces()) {
-//					if (predicate.test(trace)) {
-//						// get the similarity score (ranges from 0 to 1)
-//						TraceInfo similarityScore = this.spectra.getSimilarityMap(failingTrace).get(trace);
-//						if (similarityScore == null) {
-//							Log.abort(this, "Similarity Score is null.");
-//						}
-//						count += similarityScore;
-//					}
-//				}
-//			}
-//			// average over all failing traces
-//			count /= failingTracesCount;
-//
-//			return count;
-            }
             default:
                 throw new UnsupportedOperationException("Not yet implemented.");
         }
     }
 
-    @Override
-    public double getNP(INode<T> node, ComputationStrategies strategy) {
+    private Counts getCounts(INode<T> node, ComputationStrategies strategy) {
         if (this.cacheOutdated()) {
             resetCache();
         }
-        Double np = this.__cacheNP.get(node.getIndex());
-        if (np == null) {
-            np = computeValue(strategy, trace -> (trace.isSuccessful() && !trace.isInvolved(node)));
-            this.__cacheNP.put(node.getIndex(), np);
+        Counts counts = __cache;
+        if (counts == null || node.getIndex() >= counts.ef.length) {
+            // (node may have been added after computing the values)
+            __cache = null;
+            counts = computeCounts(strategy);
+            __cache = counts;
         }
-        return np;
+        return counts;
+    }
+
+    @Override
+    public double getNP(INode<T> node, ComputationStrategies strategy) {
+        return getCounts(node, strategy).getNP(node.getIndex());
     }
 
     @Override
     public double getNF(INode<T> node, ComputationStrategies strategy) {
-        if (this.cacheOutdated()) {
-            resetCache();
-        }
-        Double nf = this.__cacheNF.get(node.getIndex());
-        if (nf == null) {
-            nf = computeValue(strategy, trace -> (!trace.isSuccessful() && !trace.isInvolved(node)));
-            this.__cacheNF.put(node.getIndex(), nf);
-        }
-        return nf;
+        return getCounts(node, strategy).getNF(node.getIndex());
     }
 
     @Override
     public double getEP(INode<T> node, ComputationStrategies strategy) {
-        if (this.cacheOutdated()) {
-            resetCache();
-        }
-        Double ep = this.__cacheEP.get(node.getIndex());
-        if (ep == null) {
-            ep = computeValue(strategy, trace -> (trace.isSuccessful() && trace.isInvolved(node)));
-            this.__cacheEP.put(node.getIndex(), ep);
-        }
-        return ep;
+        return getCounts(node, strategy).ep[node.getIndex()];
     }
 
     @Override
     public double getEF(INode<T> node, ComputationStrategies strategy) {
-        if (this.cacheOutdated()) {
-            resetCache();
-        }
-        Double ef = this.__cacheEF.get(node.getIndex());
-        if (ef == null) {
-            ef = computeValue(strategy, trace -> (!trace.isSuccessful() && trace.isInvolved(node)));
-            this.__cacheEF.put(node.getIndex(), ef);
-        }
-        return ef;
+        return getCounts(node, strategy).ef[node.getIndex()];
     }
 
     /**
@@ -158,16 +253,45 @@ public class LocalizerCache<T> implements ILocalizerCache<T> {
         return this.__cacheTraceCount < 0 || this.__cacheTraceCount != this.spectra.getTraces().size();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Updates the cached values with the involvement of the new trace, in time
+     * linear to the number of nodes that are involved in the trace.
+     */
+    @Override
+    public void traceAdded(ITrace<T> trace) {
+        Counts counts = __cache;
+        int traceCount = this.spectra.getTraces().size();
+        if (counts != null && this.__cacheTraceCount + 1 == traceCount && counts.addTrace(trace)) {
+            this.__cacheTraceCount = traceCount;
+        } else {
+            // values are computed again when needed
+            resetCache();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Updates the cached values of the given node in constant time.
+     */
+    @Override
+    public void involvementChanged(INode<T> node, ITrace<T> trace, boolean involved) {
+        Counts counts = __cache;
+        if (counts != null && !counts.update(node.getIndex(), trace.isSuccessful(), involved ? 1 : -1)) {
+            // (node has been added after computing the values)
+            __cache = null;
+        }
+    }
+
     @Override
     public void invalidateCachedValues() {
         resetCache();
     }
 
     private void resetCache() {
-        this.__cacheEF = new HashMap<>();
-        this.__cacheEP = new HashMap<>();
-        this.__cacheNF = new HashMap<>();
-        this.__cacheNP = new HashMap<>();
+        this.__cache = null;
         this.__cacheTraceCount = this.spectra.getTraces().size();
     }
 
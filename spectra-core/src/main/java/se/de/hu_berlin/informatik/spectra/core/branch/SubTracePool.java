@@ -4,14 +4,13 @@ import se.de.hu_berlin.informatik.spectra.core.*;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.coveragedata.ClassData;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.coveragedata.ProjectData;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.CoberturaStatementEncoding;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.IntSequenceIndex;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.SingleLinkedIntArrayQueue;
 import se.de.hu_berlin.informatik.spectra.util.CachedIntArrayMap;
 import se.de.hu_berlin.informatik.spectra.util.CachedMap;
 import se.de.hu_berlin.informatik.spectra.util.SpectraFileUtils;
 
 import java.nio.file.Path;
-import java.util.HashMap;
-import java.util.Map;
 
 public class SubTracePool {
 
@@ -20,10 +19,14 @@ public class SubTracePool {
     public SubTracePool(Path tempOutputDir) {
         this.existingSubTraces = new CachedIntArrayMap(tempOutputDir.resolve("nodeIdSequences.zip"),
                 SpectraFileUtils.NODE_ID_SEQUENCES_DIR, true);
+        this.subTraceIndex = new IntSequenceIndex(tempOutputDir.resolve("subTraceIndex").toFile(),
+                "stPool", true);
     }
 
-    // maps encoded sub trace representations (long) to unique integer IDs
-    private final Map<Long, Integer> idToSubtraceIdMap = new HashMap<>();
+    // maps encoded sub traces to unique integer IDs, using their representations (long) as keys;
+    // sub traces with the same representation are distinguished by their statements;
+    // may be queried concurrently (see getExistingId(long, int[], int))
+    private final IntSequenceIndex subTraceIndex;
 
     // maps unique sub trace IDs (int) to sequences of spectra node IDs
     private final CachedMap<int[]> existingSubTraces;
@@ -33,39 +36,70 @@ public class SubTracePool {
     public int addSubTraceSequence(SingleLinkedIntArrayQueue subTraceToCheck, ISpectra<SourceCodeBlock, ?> lineSpectra) {
         // get a representation id for the subtrace (unique for sub traces that start and end within the same method!)
         long subTraceId = CoberturaStatementEncoding.generateRepresentationForSubTrace(subTraceToCheck);
-        Integer id = idToSubtraceIdMap.get(subTraceId);
+        int subTraceLength = subTraceToCheck.size();
+        // using integer arrays
+        int[] subTrace = new int[subTraceLength];
+        int j = 0;
+        while (!subTraceToCheck.isEmpty()) {
+            subTrace[j++] = subTraceToCheck.removeNoAutoBoxing();
+        }
+
+        int id = subTraceIndex.get(subTraceId, subTrace, subTraceLength);
+        if (id == 0) {
+            id = addSubTrace(subTraceId, subTrace, lineSpectra);
+        }
 
-        if (id == null) {
+        return id;
+    }
+
+    /**
+     * Returns the ID of the given sub trace, if it is already known.
+     * This may be called concurrently with other threads querying or adding sub traces.
+     *
+     * @param subTraceRepresentation the representation of the sub trace
+     * @param subTrace               an array holding the encoded statements of the sub trace
+     * @param length                 the number of statements in the sub trace
+     * @return the sub trace ID, or 0 if the sub trace is not known (yet)
+     */
+    public int getExistingId(long subTraceRepresentation, int[] subTrace, int length) {
+        return subTraceIndex.get(subTraceRepresentation, subTrace, length);
+    }
+
+    /**
+     * Adds the given sub trace with the given representation, if necessary. IDs are assigned
+     * in the order of the calls to this method.
+     *
+     * @param subTraceRepresentation the representation of the sub trace
+     * @param subTrace               the encoded statements of the sub trace
+     * @param lineSpectra            the spectra to obtain the node indices from
+     * @return the sub trace ID
+     */
+    public synchronized int addSubTrace(long subTraceRepresentation, int[] subTrace,
+                                        ISpectra<SourceCodeBlock, ?> lineSpectra) {
+        int id = subTraceIndex.get(subTraceRepresentation, subTrace, subTrace.length);
+
+        if (id == 0) {
             // first time seeing this sub trace!
             // starts with id 1
             id = ++currentId;
 
-            // add id to the map
-            idToSubtraceIdMap.put(subTraceId, id);
-
-            int subTraceLength = subTraceToCheck.size();
-            // using integer arrays
-            int[] subTrace = new int[subTraceLength];
-            int j = 0;
-            while (!subTraceToCheck.isEmpty()) {
+            int[] nodeIndices = new int[subTrace.length];
+            for (int j = 0; j < subTrace.length; ++j) {
                 // convert to the actual spectra node indices
-                subTrace[j++] = getNodeIndexForCounter(subTraceToCheck.removeNoAutoBoxing(), lineSpectra);
+                nodeIndices[j] = getNodeIndexForCounter(subTrace[j], lineSpectra);
             }
             // add sub trace to the list of existing sub traces (together with the id)
-            existingSubTraces.put(id, subTrace);
+            existingSubTraces.put(id, nodeIndices);
+
+            // add id to the index (after storing the sub trace, since the index is queried concurrently)
+            subTraceIndex.putIfAbsent(subTraceRepresentation, subTrace, subTrace.length, id);
         }
 
         return id;
     }
 
     public int getID(SingleLinkedIntArrayQueue subTrace, ISpectra<SourceCodeBlock, ?> lineSpectra) {
-        // get a representation id for the subtrace (unique for sub traces that start and end within the same method!)
-        long subTraceId = CoberturaStatementEncoding.generateRepresentationForSubTrace(subTrace);
-        Integer id = idToSubtraceIdMap.get(subTraceId);
-        if (id == null) {
-            id = addSubTraceSequence(subTrace, lineSpectra);
-        }
-        return id;
+        return addSubTraceSequence(subTrace, lineSpectra);
     }
 
 
@@ -0,0 +1,177 @@
+package se.de.hu_berlin.informatik.spectra.core.cfg;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * An immutable copy of the edges of a {@link CFG} in compressed sparse row (CSR) format.
+ * <p>
+ * The nodes are numbered densely from 0 to {@link #getNodeCount()} - 1, in ascending order of
+ * their indices. The predecessors of the node at position i are stored at the positions
+ * {@code getPredecessorOffsets()[i]} (inclusive) to {@code getPredecessorOffsets()[i+1]} (exclusive)
+ * of {@link #getPredecessors()}; the same holds for the successors. This allows to iterate over
+ * all edges in tight loops over primitive arrays, e.g., to compute the PageRank of all nodes.
+ */
+public class CompressedCFG {
+
+	private final int[] nodeIndices;
+	private final int[] mergedIndexOffsets;
+	private final int[] mergedIndices;
+
+	private final int[] predecessorOffsets;
+	private final int[] predecessors;
+	private final int[] predecessorCounts;
+
+	private final int[] successorOffsets;
+	private final int[] successors;
+	private final int[] successorCounts;
+
+	/**
+	 * Creates a copy of the current state of the given CFG. Later changes
+	 * to the CFG are not reflected by the copy.
+	 *
+	 * @param cfg the CFG
+	 */
+	public CompressedCFG(CFG<?> cfg) {
+		Map<Integer, Node> nodes = cfg.getNodes();
+		int nodeCount = nodes.size();
+		Node[] sortedNodes = new Node[nodeCount];
+		nodeIndices = new int[nodeCount];
+		int position = 0;
+		for (Node node : nodes.values()) {
+			sortedNodes[position++] = node;
+		}
+		Arrays.sort(sortedNodes, (a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+
+		predecessorOffsets = new int[nodeCount + 1];
+		successorOffsets = new int[nodeCount + 1];
+		mergedIndexOffsets = new int[nodeCount + 1];
+		predecessorCounts = new int[nodeCount];
+		successorCounts = new int[nodeCount];
+		for (int i = 0; i < nodeCount; ++i) {
+			Node node = sortedNodes[i];
+			nodeIndices[i] = node.getIndex();
+			predecessorCounts[i] = node.hasPredecessors() ? node.getPredecessorCount() : 0;
+			successorCounts[i] = node.hasSuccessors() ? node.getSuccessorCount() : 0;
+			predecessorOffsets[i + 1] = predecessorOffsets[i] + predecessorCounts[i];
+			successorOffsets[i + 1] = successorOffsets[i] + successorCounts[i];
+			mergedIndexOffsets[i + 1] = mergedIndexOffsets[i] + (node.isMerged() ? node.getMergedIndices().length : 0);
+		}
+
+		int[] predecessors = new int[predecessorOffsets[nodeCount]];
+		int[] successors = new int[successorOffsets[nodeCount]];
+		mergedIndices = new int[mergedIndexOffsets[nodeCount]];
+		int predecessorSize = 0;
+		int successorSize = 0;
+		for (int i = 0; i < nodeCount; ++i) {
+			Node node = sortedNodes[i];
+			// edges to nodes that are not part of the CFG (anymore) are dropped
+			int start = predecessorSize;
+			if (node.hasPredecessors()) {
+				for (int predecessor : node.getPredecessors()) {
+					int predecessorPosition = Arrays.binarySearch(nodeIndices, predecessor);
+					if (predecessorPosition >= 0) {
+						predecessors[predecessorSize++] = predecessorPosition;
+					}
+				}
+			}
+			predecessorOffsets[i] = start;
+			start = successorSize;
+			if (node.hasSuccessors()) {
+				for (int successor : node.getSuccessors()) {
+					int successorPosition = Arrays.binarySearch(nodeIndices, successor);
+					if (successorPosition >= 0) {
+						successors[successorSize++] = successorPosition;
+					}
+				}
+			}
+			successorOffsets[i] = start;
+			if (node.isMerged()) {
+				System.arraycopy(node.getMergedIndices(), 0,
+						mergedIndices, mergedIndexOffsets[i], node.getMergedIndices().length);
+			}
+		}
+		predecessorOffsets[nodeCount] = predecessorSize;
+		successorOffsets[nodeCount] = successorSize;
+		this.predecessors = predecessorSize == predecessors.length ? predecessors : Arrays.copyOf(predecessors, predecessorSize);
+		this.successors = successorSize == successors.length ? successors : Arrays.copyOf(successors, successorSize);
+	}
+
+	/**
+	 * @return the number of nodes
+	 */
+	public int getNodeCount() {
+		return nodeIndices.length;
+	}
+
+	/**
+	 * @param position the position of a node
+	 * @return the index of the node (in the spectra)
+	 */
+	public int getNodeIndex(int position) {
+		return nodeIndices[position];
+	}
+
+	/**
+	 * @param nodeIndex the index of a node (in the spectra)
+	 * @return the position of the node, or a negative value if the node is not part of the CFG
+	 */
+	public int getPosition(int nodeIndex) {
+		return Arrays.binarySearch(nodeIndices, nodeIndex);
+	}
+
+	/**
+	 * @param position the position of a node
+	 * @return the indices (in the spectra) of the nodes that were merged into the node
+	 */
+	public int[] getMergedIndices(int position) {
+		return Arrays.copyOfRange(mergedIndices, mergedIndexOffsets[position], mergedIndexOffsets[position + 1]);
+	}
+
+	/**
+	 * @return offsets into {@link #getPredecessors()}, by node position (with an additional end offset);
+	 * must not be modified
+	 */
+	public int[] getPredecessorOffsets() {
+		return predecessorOffsets;
+	}
+
+	/**
+	 * @return the positions of the predecessors of all nodes; must not be modified
+	 */
+	public int[] getPredecessors() {
+		return predecessors;
+	}
+
+	/**
+	 * @return offsets into {@link #getSuccessors()}, by node position (with an additional end offset);
+	 * must not be modified
+	 */
+	public int[] getSuccessorOffsets() {
+		return successorOffsets;
+	}
+
+	/**
+	 * @return the positions of the successors of all nodes; must not be modified
+	 */
+	public int[] getSuccessors() {
+		return successors;
+	}
+
+	/**
+	 * @param position the position of a node
+	 * @return the number of predecessors of the node (as given by {@link Node#getPredecessorCount()})
+	 */
+	public int getPredecessorCount(int position) {
+		return predecessorCounts[position];
+	}
+
+	/**
+	 * @param position the position of a node
+	 * @return the number of successors of the node (as given by {@link Node#getSuccessorCount()})
+	 */
+	public int getSuccessorCount(int position) {
+		return successorCounts[position];
+	}
+
+}
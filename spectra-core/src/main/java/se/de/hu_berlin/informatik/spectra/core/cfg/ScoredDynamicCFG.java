@@ -25,6 +25,20 @@ public class ScoredDynamicCFG<T> implements CFG<T> {
 	public Double getScore(int nodeIndex) {
 		return scores.get(nodeIndex);
 	}
+
+	/**
+	 * @param compressedCFG a compressed copy of this CFG
+	 * @return the scores of all nodes, by node position in the compressed CFG;
+	 * nodes without a score get a score of 0
+	 */
+	public double[] getScores(CompressedCFG compressedCFG) {
+		double[] result = new double[compressedCFG.getNodeCount()];
+		for (int i = 0; i < result.length; ++i) {
+			Double score = scores.get(compressedCFG.getNodeIndex(i));
+			result[i] = score == null ? 0 : score;
+		}
+		return result;
+	}
 	
 	@Override
 	public Map<Integer, Node> getNodes() {
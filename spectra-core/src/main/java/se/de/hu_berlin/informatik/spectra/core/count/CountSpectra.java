@@ -56,4 +56,14 @@ public class CountSpectra<T> extends AbstractSpectra<T, CountTrace<T>> {
         return new CountTrace<>(this, identifier, traceIndex, successful);
     }
 
+    /**
+     * Computes the sums, maxima and means of the hit counts of all nodes,
+     * separated by passing and failing traces, in a single pass over all traces.
+     *
+     * @return the hit count statistics
+     */
+    public CountStatistics computeHitCountStatistics() {
+        return CountStatistics.compute(this);
+    }
+
 }
@@ -0,0 +1,164 @@
+package se.de.hu_berlin.informatik.spectra.core.count;
+
+import se.de.hu_berlin.informatik.spectra.core.INode;
+import se.de.hu_berlin.informatik.spectra.core.ISpectra;
+
+/**
+ * Aggregated hit counts of all nodes of a count spectra, separated by passing and
+ * failing traces. The statistics are computed in a single pass over the hit counts of
+ * all traces, such that count-aware localizers don't have to query the hit count of
+ * each node in each trace. Values are stored in arrays that are indexed by node index.
+ * <p>
+ * The statistics are a snapshot; they are not updated if the spectra changes.
+ */
+public class CountStatistics {
+
+    private final int passingTraceCount;
+    private final int failingTraceCount;
+
+    private final long[] passingSum;
+    private final long[] failingSum;
+    private final int[] passingMax;
+    private final int[] failingMax;
+    private final int[] passingExecuted;
+    private final int[] failingExecuted;
+
+    private CountStatistics(int nodeIndexBound, int passingTraceCount, int failingTraceCount) {
+        this.passingTraceCount = passingTraceCount;
+        this.failingTraceCount = failingTraceCount;
+        this.passingSum = new long[nodeIndexBound];
+        this.failingSum = new long[nodeIndexBound];
+        this.passingMax = new int[nodeIndexBound];
+        this.failingMax = new int[nodeIndexBound];
+        this.passingExecuted = new int[nodeIndexBound];
+        this.failingExecuted = new int[nodeIndexBound];
+    }
+
+    /**
+     * Computes the hit count statistics of the given spectra.
+     *
+     * @param spectra a count spectra
+     * @param <T>     type used to identify nodes in the system
+     * @return the statistics
+     */
+    public static <T> CountStatistics compute(final ISpectra<T, ? extends CountTrace<T>> spectra) {
+        int nodeIndexBound = 0;
+        for (INode<T> node : spectra.getNodes()) {
+            nodeIndexBound = Math.max(nodeIndexBound, node.getIndex() + 1);
+        }
+        int passingTraceCount = 0;
+        int failingTraceCount = 0;
+        for (CountTrace<T> trace : spectra.getTraces()) {
+            if (trace.isSuccessful()) {
+                ++passingTraceCount;
+            } else {
+                ++failingTraceCount;
+            }
+        }
+
+        final CountStatistics statistics = new CountStatistics(nodeIndexBound, passingTraceCount, failingTraceCount);
+        for (CountTrace<T> trace : spectra.getTraces()) {
+            final long[] sum = trace.isSuccessful() ? statistics.passingSum : statistics.failingSum;
+            final int[] max = trace.isSuccessful() ? statistics.passingMax : statistics.failingMax;
+            final int[] executed = trace.isSuccessful() ? statistics.passingExecuted : statistics.failingExecuted;
+            trace.forEachHit((index, hits) -> {
+                // ignore nodes that were removed from the spectra
+                if (index < sum.length) {
+                    sum[index] += hits;
+                    if (hits > max[index]) {
+                        max[index] = hits;
+                    }
+                    ++executed[index];
+                }
+            });
+        }
+        return statistics;
+    }
+
+    /**
+     * @return the number of passing traces
+     */
+    public int getPassingTraceCount() {
+        return passingTraceCount;
+    }
+
+    /**
+     * @return the number of failing traces
+     */
+    public int getFailingTraceCount() {
+        return failingTraceCount;
+    }
+
+    /**
+     * @param nodeIndex the index of a node
+     * @return the sum of the hit counts of the node in all passing traces
+     */
+    public long getPassingHitSum(int nodeIndex) {
+        return isValid(nodeIndex) ? passingSum[nodeIndex] : 0;
+    }
+
+    /**
+     * @param nodeIndex the index of a node
+     * @return the sum of the hit counts of the node in all failing traces
+     */
+    public long getFailingHitSum(int nodeIndex) {
+        return isValid(nodeIndex) ? failingSum[nodeIndex] : 0;
+    }
+
+    /**
+     * @param nodeIndex the index of a node
+     * @return the maximum hit count of the node in a passing trace
+     */
+    public int getPassingMaxHits(int nodeIndex) {
+        return isValid(nodeIndex) ? passingMax[nodeIndex] : 0;
+    }
+
+    /**
+     * @param nodeIndex the index of a node
+     * @return the maximum hit count of the node in a failing trace
+     */
+    public int getFailingMaxHits(int nodeIndex) {
+        return isValid(nodeIndex) ? failingMax[nodeIndex] : 0;
+    }
+
+    /**
+     * @param nodeIndex the index of a node
+     * @return the number of passing traces that execute the node (EP)
+     */
+    public int getPassingExecutedCount(int nodeIndex) {
+        return isValid(nodeIndex) ? passingExecuted[nodeIndex] : 0;
+    }
+
+    /**
+     * @param nodeIndex the index of a node
+     * @return the number of failing traces that execute the node (EF)
+     */
+    public int getFailingExecutedCount(int nodeIndex) {
+        return isValid(nodeIndex) ? failingExecuted[nodeIndex] : 0;
+    }
+
+    /**
+     * @param nodeIndex the index of a node
+     * @return the mean hit count of the node in the passing traces that execute it,
+     * or 0 if no passing trace executes the node
+     */
+    public double getPassingMeanHits(int nodeIndex) {
+        int executed = getPassingExecutedCount(nodeIndex);
+        return executed == 0 ? 0 : (double) passingSum[nodeIndex] / executed;
+    }
+
+    /**
+     * @param nodeIndex the index of a node
+     * @return the mean hit count of the node in the failing traces that execute it,
+     * or 0 if no failing trace executes the node
+     */
+    public double getFailingMeanHits(int nodeIndex) {
+        int executed = getFailingExecutedCount(nodeIndex);
+        return executed == 0 ? 0 : (double) failingSum[nodeIndex] / executed;
+    }
+
+    private boolean isValid(int nodeIndex) {
+        return nodeIndex >= 0 && nodeIndex < passingSum.length;
+    }
+
+}
@@ -12,29 +12,36 @@ package se.de.hu_berlin.informatik.spectra.core.count;
 import se.de.hu_berlin.informatik.spectra.core.INode;
 import se.de.hu_berlin.informatik.spectra.core.ISpectra;
 import se.de.hu_berlin.informatik.spectra.core.hit.HitTrace;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
 
 /**
  * This class represents a single execution trace and its success state.
+ * The hit counts of the involved nodes are kept in sorted primitive arrays.
+ * A node is involved in the trace if and only if it has a hit count greater than 0.
  *
  * @param <T> type used to identify nodes in the system.
  */
 public class CountTrace<T> extends HitTrace<T> {
 
     /**
-     * a map that contains the hit counts of the different nodes
+     * the indices of all nodes with hit counts, in ascending order
      */
-    private final Map<Integer,Integer> hitCountMap;
-
-//    private static File tmpOutputDir = null;
-//
-//    private static File getTmpDir(Path alternatePath) {
-//        if (tmpOutputDir == null) {
-//            tmpOutputDir = SpectraFileUtils.getTemporaryOutputDir("hitCount_tmp", alternatePath);
-//        }
-//        return tmpOutputDir;
-//    }
+    private int[] hitIndices = new int[0];
+    /**
+     * the hit counts of the nodes at the same positions in {@link #hitIndices}
+     */
+    private int[] hitCounts = new int[0];
+    /**
+     * the number of used positions in the arrays
+     */
+    private int hitSize = 0;
 
     /**
      * Create a trace for a spectra.
@@ -47,12 +54,6 @@ public class CountTrace<T> extends HitTrace<T> {
     protected CountTrace(final ISpectra<T, ?> spectra, final String identifier,
                          final int traceIndex, final boolean successful) {
         super(spectra, identifier, traceIndex, successful);
-//        File outputDir = getTmpDir(spectra.getPathToSpectraZipFile() == null ? null :
-//                spectra.getPathToSpectraZipFile().getParent().resolve("execTraceTemp").toAbsolutePath());
-//
-//        this.hitCountMap = new BufferedMap<>(outputDir,
-//                "hitCount-" + UUID.randomUUID().toString(), 500000, true);
-        this.hitCountMap = new HashMap<>();
     }
 
     public void setHits(T identifier, long numberOfHits) {
@@ -63,14 +64,17 @@ public class CountTrace<T> extends HitTrace<T> {
         if (node == null) {
             return;
         }
-        if (numberOfHits > 0) {
-            super.setInvolvement(node, true);
-            hitCountMap.put(node.getIndex(), numberOfHits > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) numberOfHits);
+        boolean involved = numberOfHits > 0;
+        boolean changed;
+        if (involved) {
+            changed = putHits(node.getIndex(), numberOfHits > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) numberOfHits);
         } else {
-            super.setInvolvement(node, false);
-            hitCountMap.remove(node.getIndex());
+            changed = removeHits(node.getIndex());
+        }
+        if (changed) {
+            involvementModified();
+            spectra.getLocalizer().involvementChanged(node, this, involved);
         }
-
     }
 
     public void setHits(int index, long numberOfHits) {
@@ -95,17 +99,94 @@ public class CountTrace<T> extends HitTrace<T> {
         }
     }
 
+    /**
+     * Loads the involvement immediately, since it is stored together with the hit counts.
+     * The involved nodes get a hit count of 1.
+     *
+     * @param loader provides the indices of the involved nodes
+     */
+    @Override
+    public void setInvolvementLoader(Supplier<int[]> loader) {
+        for (int index : loader.get()) {
+            setHits(index, 1);
+        }
+    }
+
+    @Override
+    public void removeInvolvement(Set<Integer> nodeIndices) {
+        involvementModified();
+        int newSize = 0;
+        for (int i = 0; i < hitSize; ++i) {
+            if (!nodeIndices.contains(hitIndices[i])) {
+                hitIndices[newSize] = hitIndices[i];
+                hitCounts[newSize] = hitCounts[i];
+                ++newSize;
+            }
+        }
+        hitSize = newSize;
+    }
+
+    @Override
+    public boolean isInvolved(INode<T> node) {
+        return node != null && isInvolved(node.getIndex());
+    }
+
+    @Override
+    public boolean isInvolved(int index) {
+        return Arrays.binarySearch(hitIndices, 0, hitSize, index) >= 0;
+    }
+
+    @Override
+    public int involvedNodesCount() {
+        return hitSize;
+    }
+
+    /**
+     * @return a view of the indices of the involved nodes, in ascending order
+     */
+    @Override
+    public Collection<Integer> getInvolvedNodes() {
+        return new AbstractCollection<Integer>() {
+
+            @Override
+            public Iterator<Integer> iterator() {
+                return new Iterator<Integer>() {
+                    private int position = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return position < hitSize;
+                    }
+
+                    @Override
+                    public Integer next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return hitIndices[position++];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return hitSize;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Integer && isInvolved((Integer) o);
+            }
+        };
+    }
+
     public int getHits(T identifier) {
         return getHits(spectra.getNode(identifier));
     }
 
     public int getHits(int index) {
-        Integer hits = hitCountMap.get(index);
-        if (hits == null) {
-            return 0;
-        } else {
-            return hits;
-        }
+        int position = Arrays.binarySearch(hitIndices, 0, hitSize, index);
+        return position < 0 ? 0 : hitCounts[position];
     }
 
     public int getHits(INode<T> node) {
@@ -115,6 +196,74 @@ public class CountTrace<T> extends HitTrace<T> {
         return getHits(node.getIndex());
     }
 
+    /**
+     * @return the number of nodes with a hit count greater than 0
+     */
+    public int hitNodesCount() {
+        return hitSize;
+    }
+
+    /**
+     * Passes the index and the hit count of each node with a hit count
+     * greater than 0 to the given consumer, in ascending order of the node indices.
+     *
+     * @param consumer the consumer
+     */
+    public void forEachHit(final HitConsumer consumer) {
+        for (int i = 0; i < hitSize; ++i) {
+            consumer.accept(hitIndices[i], hitCounts[i]);
+        }
+    }
+
+    @Override
+    public void forEachInvolvedNode(final IntConsumer consumer) {
+        for (int i = 0; i < hitSize; ++i) {
+            consumer.accept(hitIndices[i]);
+        }
+    }
+
+    // returns true if the node was not involved before
+    private boolean putHits(int index, int hits) {
+        // nodes are usually added in ascending order
+        if (hitSize == 0 || hitIndices[hitSize - 1] < index) {
+            insertHits(hitSize, index, hits);
+            return true;
+        }
+        int position = Arrays.binarySearch(hitIndices, 0, hitSize, index);
+        if (position >= 0) {
+            hitCounts[position] = hits;
+            return false;
+        } else {
+            insertHits(-(position + 1), index, hits);
+            return true;
+        }
+    }
+
+    private void insertHits(int position, int index, int hits) {
+        if (hitSize == hitIndices.length) {
+            int newLength = Math.max(8, hitSize + (hitSize >> 1));
+            hitIndices = Arrays.copyOf(hitIndices, newLength);
+            hitCounts = Arrays.copyOf(hitCounts, newLength);
+        }
+        System.arraycopy(hitIndices, position, hitIndices, position + 1, hitSize - position);
+        System.arraycopy(hitCounts, position, hitCounts, position + 1, hitSize - position);
+        hitIndices[position] = index;
+        hitCounts[position] = hits;
+        ++hitSize;
+    }
+
+    // returns true if the node was involved before
+    private boolean removeHits(int index) {
+        int position = Arrays.binarySearch(hitIndices, 0, hitSize, index);
+        if (position >= 0) {
+            System.arraycopy(hitIndices, position + 1, hitIndices, position, hitSize - position - 1);
+            System.arraycopy(hitCounts, position + 1, hitCounts, position, hitSize - position - 1);
+            --hitSize;
+            return true;
+        }
+        return false;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj instanceof CountTrace) {
@@ -139,7 +288,24 @@ public class CountTrace<T> extends HitTrace<T> {
     @Override
     public void sleep() {
         super.sleep();
-//        hitCountMap.sleep();
+        // release unused capacity
+        if (hitIndices.length > hitSize) {
+            hitIndices = Arrays.copyOf(hitIndices, hitSize);
+            hitCounts = Arrays.copyOf(hitCounts, hitSize);
+        }
+    }
+
+    /**
+     * Consumes node indices together with their hit counts.
+     */
+    @FunctionalInterface
+    public interface HitConsumer {
+
+        /**
+         * @param nodeIndex the index of a node
+         * @param hits      the hit count of the node
+         */
+        void accept(int nodeIndex, int hits);
     }
 
 }
@@ -5,9 +5,12 @@ import se.de.hu_berlin.informatik.spectra.core.INode;
 import se.de.hu_berlin.informatik.spectra.core.ITrace;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.IntConsumer;
 
 /**
  * This trace implementation ensures the involvement of all child nodes of a
@@ -25,6 +28,11 @@ public class HierarchicalHitTrace<P, C> extends HitTrace<P> {
      */
     private final ITrace<C> childTrace;
 
+    /**
+     * Holds the materialized involvement of the parent nodes
+     */
+    private volatile Involvement parentInvolvement = null;
+
     /**
      * Proxy to parent constructor.
      *
@@ -38,45 +46,88 @@ public class HierarchicalHitTrace<P, C> extends HitTrace<P> {
         this.childTrace = childTrace;
     }
 
+    /**
+     * Returns the involvement of the parent nodes as a bit set over the parent node indices.
+     * The involvement is computed once from the involved nodes of the child trace and
+     * computed again only if the hierarchy or the involvement of the child trace changes.
+     *
+     * @return the involvement
+     */
+    private Involvement getParentInvolvement() {
+        long modificationCount = getModificationCount();
+        Involvement involvement = this.parentInvolvement;
+        if (involvement == null || modificationCount < 0 || involvement.modificationCount != modificationCount) {
+            involvement = new Involvement(modificationCount, computeParentInvolvement());
+            this.parentInvolvement = involvement;
+        }
+        return involvement;
+    }
+
+    private long[] computeParentInvolvement() {
+        final int[][] parentsByChild = spectra.getParentIndicesByChildIndex();
+        final ParentBits bits = new ParentBits();
+        childTrace.forEachInvolvedNode(index -> bits.setParentsOf(parentsByChild, index));
+        return bits.words;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The modification count of a hierarchical trace changes if the hierarchy or
+     * the involvement of the child trace changes.
+     */
     @Override
-    public boolean isInvolved(final INode<P> node) {
-        for (final INode<C> childNode : spectra.getChildrenOf(node)) {
-            if (this.childTrace.isInvolved(childNode)) {
-                return true;
-            }
+    public long getModificationCount() {
+        if (!(childTrace instanceof HitTrace)) {
+            return -1;
         }
-        return false;
+        long childModificationCount = ((HitTrace<C>) childTrace).getModificationCount();
+        if (childModificationCount < 0) {
+            return -1;
+        }
+        // both values only increase
+        return spectra.getStructureVersion() + childModificationCount;
+    }
+
+    @Override
+    public boolean isInvolved(final INode<P> node) {
+        return node != null && isInvolved(node.getIndex());
+    }
+
+    @Override
+    public boolean isInvolved(final int index) {
+        long[] words = getParentInvolvement().words;
+        int word = index >>> 6;
+        return index >= 0 && word < words.length && (words[word] & (1L << index)) != 0;
     }
 
     @Override
     public boolean isInvolved(P identifier) {
-        if (spectra.hasNode(identifier)) {
-            return isInvolved(spectra.getOrCreateNode(identifier));
-        } else {
-            return false;
-        }
+        return isInvolved(spectra.getNode(identifier));
     }
 
     @Override
     public int involvedNodesCount() {
-        int involvedCount = 0;
-        for (INode<P> node : spectra.getNodes()) {
-            if (isInvolved(node)) {
-                ++involvedCount;
-            }
-        }
-        return involvedCount;
+        return getParentInvolvement().cardinality;
     }
 
     @Override
     public Collection<Integer> getInvolvedNodes() {
         List<Integer> nodes = new ArrayList<>();
-        for (INode<P> node : spectra.getNodes()) {
-            if (isInvolved(node)) {
-                nodes.add(node.getIndex());
+        forEachInvolvedNode(nodes::add);
+        return nodes;
+    }
+
+    @Override
+    public void forEachInvolvedNode(final IntConsumer consumer) {
+        long[] words = getParentInvolvement().words;
+        for (int i = 0; i < words.length; ++i) {
+            long word = words[i];
+            while (word != 0) {
+                consumer.accept((i << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
             }
         }
-        return nodes;
     }
 
     @Override
@@ -99,4 +150,42 @@ public class HierarchicalHitTrace<P, C> extends HitTrace<P> {
         throw new UnsupportedOperationException("Not able to set involvement in hierarchical spectra.");
     }
 
+    @Override
+    public void removeInvolvement(Set<Integer> nodeIndices) {
+        // involvement is computed from the child trace
+    }
+
+    private static final class Involvement {
+        private final long modificationCount;
+        private final long[] words;
+        private final int cardinality;
+
+        private Involvement(long modificationCount, long[] words) {
+            this.modificationCount = modificationCount;
+            this.words = words;
+            int cardinality = 0;
+            for (long word : words) {
+                cardinality += Long.bitCount(word);
+            }
+            this.cardinality = cardinality;
+        }
+    }
+
+    private static final class ParentBits {
+        private long[] words = new long[0];
+
+        private void setParentsOf(int[][] parentsByChild, int childIndex) {
+            if (childIndex >= parentsByChild.length || parentsByChild[childIndex] == null) {
+                return;
+            }
+            for (int parentIndex : parentsByChild[childIndex]) {
+                int word = parentIndex >>> 6;
+                if (word >= words.length) {
+                    words = Arrays.copyOf(words, Math.max(word + 1, 2 * words.length));
+                }
+                words[word] |= 1L << parentIndex;
+            }
+        }
+    }
+
 }
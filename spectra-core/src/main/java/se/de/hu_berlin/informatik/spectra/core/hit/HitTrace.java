@@ -6,6 +6,7 @@
 
 package se.de.hu_berlin.informatik.spectra.core.hit;
 
+import se.de.hu_berlin.informatik.spectra.core.ILocalizerCache;
 import se.de.hu_berlin.informatik.spectra.core.INode;
 import se.de.hu_berlin.informatik.spectra.core.ISpectra;
 import se.de.hu_berlin.informatik.spectra.core.ITrace;
@@ -46,15 +47,26 @@ public class HitTrace<T> implements ITrace<T> {
 
     /**
      * Stores the involvement of all nodes for this trace. Use
-     * {@link HitSpectra#getNodes()} to get all nodes.
+     * {@link HitSpectra#getNodes()} to get all nodes. Is allocated on first
+     * write, since subclasses may store the involvement differently.
      */
-    private final Set<Integer> involvement = new HashSet<>();
+    private Set<Integer> involvement;
 
     /**
      * Holds all execution traces for all threads separately. (Lists of node IDs)
      */
     private Collection<ExecutionTrace> executionTraces;
 
+    /**
+     * Provides the indices of the involved nodes, if the involvement has not been loaded, yet.
+     */
+    private volatile Supplier<int[]> involvementLoader;
+
+    /**
+     * is incremented whenever the involvement changes
+     */
+    private volatile long modificationCount = 0;
+
     /**
      * Create a trace for a spectra.
      *
@@ -95,13 +107,15 @@ public class HitTrace<T> implements ITrace<T> {
         if (node == null) {
             return;
         }
+        loadInvolvement();
         if (involved) {
-            if (involvement.add(node.getIndex())) {
-                node.invalidateCachedValues();
+            if (getOrCreateInvolvement().add(node.getIndex())) {
+                involvementModified();
+                spectra.getLocalizer().involvementChanged(node, this, true);
             }
-        } else if (involvement.contains(node.getIndex())) {
-            involvement.remove(node.getIndex());
-            node.invalidateCachedValues();
+        } else if (involvement != null && involvement.remove(node.getIndex())) {
+            involvementModified();
+            spectra.getLocalizer().involvementChanged(node, this, false);
         }
     }
 
@@ -133,13 +147,37 @@ public class HitTrace<T> implements ITrace<T> {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeInvolvement(final Set<Integer> nodeIndices) {
+        involvementModified();
+        if (involvementLoader != null) {
+            synchronized (this) {
+                Supplier<int[]> loader = involvementLoader;
+                if (loader != null) {
+                    // no need to load the involvement, yet
+                    involvementLoader = () -> Arrays.stream(loader.get())
+                            .filter(index -> !nodeIndices.contains(index))
+                            .toArray();
+                    return;
+                }
+            }
+        }
+        if (involvement != null) {
+            involvement.removeAll(nodeIndices);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public boolean isInvolved(final INode<T> node) {
         if (node != null) {
-            return involvement.contains(node.getIndex());
+            loadInvolvement();
+            return involvement != null && involvement.contains(node.getIndex());
         } else {
             return false;
         }
@@ -158,7 +196,8 @@ public class HitTrace<T> implements ITrace<T> {
      */
     @Override
     public boolean isInvolved(final int index) {
-        return involvement.contains(index);
+        loadInvolvement();
+        return involvement != null && involvement.contains(index);
     }
 
     @Override
@@ -173,11 +212,75 @@ public class HitTrace<T> implements ITrace<T> {
 
     @Override
     public int involvedNodesCount() {
-        return involvement.size();
+        loadInvolvement();
+        return involvement == null ? 0 : involvement.size();
     }
 
     @Override
     public Collection<Integer> getInvolvedNodes() {
+        loadInvolvement();
+        return involvement == null ? Collections.emptySet() : involvement;
+    }
+
+    /**
+     * Defers loading the involvement of this trace until it is accessed for the
+     * first time. The given loader has to provide the indices of all involved nodes.
+     * The nodes have to exist in the spectra.
+     *
+     * @param loader provides the indices of the involved nodes
+     */
+    public void setInvolvementLoader(final Supplier<int[]> loader) {
+        this.involvementLoader = loader;
+        involvementModified();
+    }
+
+    /**
+     * Returns a number that changes whenever the involvement of this trace changes.
+     * Can be used to check whether values that were computed from the involvement
+     * (e.g., the involvement of parent nodes) are still valid.
+     *
+     * @return the modification count, or -1 if modifications are not tracked
+     */
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * Has to be called whenever the involvement of this trace changes.
+     */
+    protected void involvementModified() {
+        ++modificationCount;
+    }
+
+    /**
+     * Loads the involvement of this trace, if it has been deferred.
+     */
+    protected void loadInvolvement() {
+        if (involvementLoader != null) {
+            synchronized (this) {
+                Supplier<int[]> loader = involvementLoader;
+                if (loader != null) {
+                    // cached values may have been computed before the involvement was loaded
+                    ILocalizerCache<T> localizer = spectra.getLocalizer();
+                    Set<Integer> involvement = getOrCreateInvolvement();
+                    for (int index : loader.get()) {
+                        if (involvement.add(index)) {
+                            INode<T> node = spectra.getNode(index);
+                            if (node != null) {
+                                localizer.involvementChanged(node, this, true);
+                            }
+                        }
+                    }
+                    involvementLoader = null;
+                }
+            }
+        }
+    }
+
+    private Set<Integer> getOrCreateInvolvement() {
+        if (involvement == null) {
+            involvement = new HashSet<>();
+        }
         return involvement;
     }
 
@@ -0,0 +1,426 @@
+package se.de.hu_berlin.informatik.spectra.core.hit;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.IntConsumer;
+
+/**
+ * A packed bit matrix that stores the involvement of nodes in traces.
+ * <p>
+ * Each trace owns one row of the matrix, stored as a {@code long[]} where bit
+ * {@code i} denotes the involvement of the node with index {@code i}. A transposed
+ * (per-node) column view is computed lazily when needed. Single bit changes are
+ * applied to the column view in place, while bulk changes and changes outside of
+ * its bounds discard it.
+ * <pre>
+ *  row (trace) | word 0 (nodes 0-63) | word 1 (nodes 64-127) | ...
+ *  ------------|---------------------|-----------------------|-----
+ *  0           | 0b...0110           | 0b...0000             | ...
+ *  1           | 0b...0011           | 0b...1000             | ...
+ * </pre>
+ * Additionally, the matrix holds a successful and a failing mask over all rows, so
+ * that the number of passing/failing traces that executed a node can be computed
+ * by counting the bits of {@code column & mask}.
+ * <p>
+ * All changes to the matrix are synchronized on the matrix, since they may update
+ * the shared column view.
+ */
+public class InvolvementMatrix {
+
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+    private static final int INITIAL_ROW_CAPACITY = 16;
+
+    /**
+     * Holds the rows of the matrix (one per trace)
+     */
+    private volatile long[][] rows = new long[INITIAL_ROW_CAPACITY][];
+    private int rowCount = 0;
+
+    /**
+     * bit i is set if row i belongs to a successful trace
+     */
+    private long[] successfulMask = new long[1];
+    /**
+     * bit i is set if row i belongs to a failing trace
+     */
+    private long[] failingMask = new long[1];
+
+    /**
+     * the number of words needed to store the largest node index seen so far
+     */
+    private int wordsPerRow = 0;
+
+    /**
+     * transposed view; columns[node] holds a bit for each row; null if outdated
+     */
+    private volatile long[][] columns = null;
+
+    private static int wordIndex(int bitIndex) {
+        return bitIndex >> ADDRESS_BITS_PER_WORD;
+    }
+
+    /**
+     * Adds a new (empty) row to the matrix.
+     *
+     * @param successful whether the row belongs to a successful trace
+     * @return the index of the new row
+     */
+    public synchronized int addRow(boolean successful) {
+        int row = rowCount;
+        long[][] rows = this.rows;
+        if (row >= rows.length) {
+            rows = Arrays.copyOf(rows, rows.length + (rows.length >> 1));
+        }
+        rows[row] = new long[wordsPerRow];
+        int word = wordIndex(row);
+        if (word >= successfulMask.length) {
+            successfulMask = Arrays.copyOf(successfulMask, word + 1);
+            failingMask = Arrays.copyOf(failingMask, word + 1);
+        }
+        if (successful) {
+            successfulMask[word] |= 1L << row;
+        } else {
+            failingMask[word] |= 1L << row;
+        }
+        this.rows = rows;
+        ++rowCount;
+        // the new row is empty, so the columns only need to be recomputed if they are too short
+        long[][] columns = this.columns;
+        if (columns != null && (columns.length == 0 || word >= columns[0].length)) {
+            this.columns = null;
+        }
+        return row;
+    }
+
+    /**
+     * @return the number of rows (traces) in this matrix
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return the number of nodes that can be addressed without growing the rows
+     */
+    public int getNodeCapacity() {
+        return wordsPerRow << ADDRESS_BITS_PER_WORD;
+    }
+
+    private synchronized long[] ensureCapacity(int row, int word) {
+        long[] bits = rows[row];
+        if (word < bits.length) {
+            return bits;
+        }
+        if (word >= wordsPerRow) {
+            wordsPerRow = word + 1;
+        }
+        bits = Arrays.copyOf(bits, Math.max(word + 1, bits.length + (bits.length >> 1)));
+        rows[row] = bits;
+        return bits;
+    }
+
+    /**
+     * Sets the involvement of a node in the given row.
+     *
+     * @param row      the row index
+     * @param node     the node index
+     * @param involved whether the node is involved
+     * @return true if the involvement changed, false otherwise
+     */
+    public synchronized boolean set(int row, int node, boolean involved) {
+        int word = wordIndex(node);
+        long mask = 1L << node;
+        long[] bits = rows[row];
+        if (involved) {
+            if (word >= bits.length) {
+                bits = ensureCapacity(row, word);
+            } else if ((bits[word] & mask) != 0) {
+                return false;
+            }
+            bits[word] |= mask;
+        } else {
+            if (word >= bits.length || (bits[word] & mask) == 0) {
+                return false;
+            }
+            bits[word] &= ~mask;
+        }
+        updateColumn(row, node, involved);
+        return true;
+    }
+
+    /**
+     * Applies a single bit change to the cached column view, if there is one.
+     * Discards the column view if it does not cover the given position.
+     */
+    private void updateColumn(int row, int node, boolean involved) {
+        long[][] columns = this.columns;
+        if (columns == null) {
+            return;
+        }
+        int rowWord = wordIndex(row);
+        if (node < columns.length && rowWord < columns[node].length) {
+            if (involved) {
+                columns[node][rowWord] |= 1L << row;
+            } else {
+                columns[node][rowWord] &= ~(1L << row);
+            }
+        } else {
+            this.columns = null;
+        }
+    }
+
+    /**
+     * Sets the involvement of all nodes in the given row from a byte array
+     * that contains a flag (1 or 0) for each node, starting with node index 0
+     * at the given offset.
+     *
+     * @param row    the row index
+     * @param flags  the involvement flags
+     * @param offset the position of the flag for the node with index 0
+     */
+    public synchronized void setFromFlags(int row, byte[] flags, int offset) {
+        int nodeCount = flags.length - offset;
+        if (nodeCount <= 0) {
+            return;
+        }
+        long[] bits = ensureCapacity(row, wordIndex(nodeCount - 1));
+        for (int i = 0; i < nodeCount; ++i) {
+            if (flags[offset + i] == 1) {
+                bits[wordIndex(i)] |= 1L << i;
+            }
+        }
+        columns = null;
+    }
+
+    /**
+     * Marks the given node indices as involved in the given row.
+     *
+     * @param row     the row index
+     * @param indices the node indices (need not be sorted)
+     */
+    public synchronized void setAll(int row, int[] indices) {
+        int max = -1;
+        for (int index : indices) {
+            max = Math.max(max, index);
+        }
+        if (max < 0) {
+            return;
+        }
+        long[] bits = ensureCapacity(row, wordIndex(max));
+        for (int index : indices) {
+            bits[wordIndex(index)] |= 1L << index;
+        }
+        columns = null;
+    }
+
+    /**
+     * @param row  the row index
+     * @param node the node index
+     * @return whether the node is involved in the given row
+     */
+    public boolean get(int row, int node) {
+        if (node < 0) {
+            return false;
+        }
+        long[] bits = rows[row];
+        int word = wordIndex(node);
+        return word < bits.length && (bits[word] & (1L << node)) != 0;
+    }
+
+    /**
+     * @param row the row index
+     * @return the number of involved nodes in the given row
+     */
+    public int cardinality(int row) {
+        int count = 0;
+        for (long word : rows[row]) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * @param row       the row index
+     * @param fromIndex the node index to start from (inclusive)
+     * @return the index of the next involved node, or -1 if there is none
+     */
+    public int nextSetBit(int row, int fromIndex) {
+        long[] bits = rows[row];
+        int word = wordIndex(fromIndex);
+        if (word >= bits.length) {
+            return -1;
+        }
+        long current = bits[word] & (-1L << fromIndex);
+        while (true) {
+            if (current != 0) {
+                return (word << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(current);
+            }
+            if (++word >= bits.length) {
+                return -1;
+            }
+            current = bits[word];
+        }
+    }
+
+    /**
+     * Applies the given consumer to the index of each involved node in the given row.
+     *
+     * @param row      the row index
+     * @param consumer the consumer
+     */
+    public void forEachSetBit(int row, IntConsumer consumer) {
+        long[] bits = rows[row];
+        for (int word = 0; word < bits.length; ++word) {
+            long current = bits[word];
+            while (current != 0) {
+                consumer.accept((word << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(current));
+                current &= current - 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the row with the given index. The returned array is the internal
+     * storage and must not be modified. Its length may be smaller than needed for
+     * all nodes; missing words are to be treated as zero.
+     *
+     * @param row the row index
+     * @return the row's bits
+     */
+    public long[] getRow(int row) {
+        return rows[row];
+    }
+
+    /**
+     * Returns the column of the given node, with bit {@code i} set if the node is
+     * involved in row {@code i}. The returned array must not be modified.
+     *
+     * @param node the node index
+     * @return the node's column (may be empty if the node is not involved anywhere)
+     */
+    public long[] getColumn(int node) {
+        long[][] columns = getColumns();
+        if (node < 0 || node >= columns.length) {
+            return new long[0];
+        }
+        return columns[node];
+    }
+
+    private long[][] getColumns() {
+        long[][] result = columns;
+        if (result == null) {
+            synchronized (this) {
+                result = columns;
+                if (result == null) {
+                    result = transpose();
+                    columns = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private long[][] transpose() {
+        int nodeCapacity = getNodeCapacity();
+        int rowWords = wordIndex(Math.max(rowCount - 1, 0)) + 1;
+        long[][] result = new long[nodeCapacity][rowWords];
+        for (int row = 0; row < rowCount; ++row) {
+            long[] bits = rows[row];
+            long rowMask = 1L << row;
+            int rowWord = wordIndex(row);
+            for (int word = 0; word < bits.length; ++word) {
+                long current = bits[word];
+                while (current != 0) {
+                    int node = (word << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(current);
+                    result[node][rowWord] |= rowMask;
+                    current &= current - 1;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Counts the rows that involve the given node and have the given success state.
+     *
+     * @param node       the node index
+     * @param successful whether to count successful or failing rows
+     * @return the number of matching rows
+     */
+    public int countInvolved(int node, boolean successful) {
+        long[] column = getColumn(node);
+        long[] mask = successful ? successfulMask : failingMask;
+        int count = 0;
+        for (int i = 0; i < column.length && i < mask.length; ++i) {
+            count += Long.bitCount(column[i] & mask[i]);
+        }
+        return count;
+    }
+
+    /**
+     * @param successful whether to count successful or failing rows
+     * @return the number of rows with the given success state
+     */
+    public int countRows(boolean successful) {
+        long[] mask = successful ? successfulMask : failingMask;
+        int count = 0;
+        for (long word : mask) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Removes the given nodes from the given row.
+     *
+     * @param row   the row index
+     * @param nodes the node indices
+     */
+    public synchronized void clearAll(int row, Collection<Integer> nodes) {
+        long[] bits = rows[row];
+        for (int node : nodes) {
+            int word = wordIndex(node);
+            if (word < bits.length && (bits[word] & (1L << node)) != 0) {
+                bits[word] &= ~(1L << node);
+                updateColumn(row, node, false);
+            }
+        }
+    }
+
+    /**
+     * Removes the given nodes from all rows, with a single pass over the rows.
+     *
+     * @param nodes the node indices
+     */
+    public synchronized void clearColumns(Collection<Integer> nodes) {
+        long[] mask = new long[wordsPerRow];
+        for (int node : nodes) {
+            int word = wordIndex(node);
+            if (word < mask.length) {
+                mask[word] |= 1L << node;
+            }
+        }
+        for (int row = 0; row < rowCount; ++row) {
+            long[] bits = rows[row];
+            for (int word = 0; word < bits.length && word < mask.length; ++word) {
+                bits[word] &= ~mask[word];
+            }
+        }
+        columns = null;
+    }
+
+    /**
+     * Removes the given node from all rows.
+     *
+     * @param node the node index
+     * @return true if the node was involved in any row
+     */
+    public synchronized boolean clearColumn(int node) {
+        boolean changed = false;
+        for (int row = 0; row < rowCount; ++row) {
+            changed |= set(row, node, false);
+        }
+        return changed;
+    }
+
+}
@@ -0,0 +1,65 @@
+package se.de.hu_berlin.informatik.spectra.core.hit;
+
+import se.de.hu_berlin.informatik.spectra.core.INode;
+
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * A hit spectra that stores the involvement of all traces in a single
+ * {@link InvolvementMatrix} instead of a set of node indices per trace.
+ * <p>
+ * Each trace is a row of packed bits, and the matrix provides a transposed
+ * (per-node) column view, so that the number of passing and failing traces
+ * that executed a node can be counted without iterating over all traces.
+ *
+ * @param <T> type used to identify nodes in the system.
+ */
+public class PackedHitSpectra<T> extends HitSpectra<T> {
+
+    /**
+     * Holds the involvement of all traces
+     */
+    private final InvolvementMatrix matrix = new InvolvementMatrix();
+
+    public PackedHitSpectra(Path spectraZipFile) {
+        super(spectraZipFile);
+    }
+
+    @Override
+    protected HitTrace<T> createNewTrace(String identifier, int traceIndex, boolean successful) {
+        return new PackedHitTrace<>(this, identifier, traceIndex, successful);
+    }
+
+    /**
+     * @return the matrix that holds the involvement of all traces
+     */
+    public InvolvementMatrix getInvolvementMatrix() {
+        return matrix;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Clears the columns of the removed nodes in the involvement matrix at once.
+     */
+    @Override
+    protected void removeInvolvementOfNodes(Set<Integer> nodeIndices) {
+        if (!nodeIndices.isEmpty()) {
+            matrix.clearColumns(nodeIndices);
+        }
+    }
+
+    /**
+     * Returns the number of traces with the given success state that
+     * executed the given node.
+     *
+     * @param node       the node
+     * @param successful whether to count successful or failing traces
+     * @return the number of traces
+     */
+    public int getInvolvedTraceCount(INode<T> node, boolean successful) {
+        return matrix.countInvolved(node.getIndex(), successful);
+    }
+
+}
@@ -0,0 +1,182 @@
+package se.de.hu_berlin.informatik.spectra.core.hit;
+
+import se.de.hu_berlin.informatik.spectra.core.INode;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * A hit trace that stores its involvement as a row of the
+ * {@link InvolvementMatrix} of the {@link PackedHitSpectra} it belongs to.
+ *
+ * @param <T> type used to identify nodes in the system.
+ */
+public class PackedHitTrace<T> extends HitTrace<T> {
+
+    /**
+     * Holds the involvement matrix of the spectra this trace belongs to
+     */
+    private final InvolvementMatrix matrix;
+
+    /**
+     * Holds the row of this trace in the involvement matrix
+     */
+    private final int row;
+
+    /**
+     * Create a trace for a spectra.
+     *
+     * @param spectra    the spectra that the trace belongs to
+     * @param identifier the identifier of the trace (usually the test case name)
+     * @param traceIndex the integer index of the trace
+     * @param successful true if the trace originates from a successful execution, false otherwise
+     */
+    protected PackedHitTrace(final PackedHitSpectra<T> spectra, final String identifier,
+                             final int traceIndex, final boolean successful) {
+        super(spectra, identifier, traceIndex, successful);
+        this.matrix = spectra.getInvolvementMatrix();
+        this.row = matrix.addRow(successful);
+    }
+
+    /**
+     * @return the row of this trace in the involvement matrix
+     */
+    public int getRow() {
+        return row;
+    }
+
+    @Override
+    public void setInvolvement(final INode<T> node, final boolean involved) {
+        if (node == null) {
+            return;
+        }
+        if (matrix.set(row, node.getIndex(), involved)) {
+            involvementModified();
+            spectra.getLocalizer().involvementChanged(node, this, involved);
+        }
+    }
+
+    @Override
+    public void removeInvolvement(final Set<Integer> nodeIndices) {
+        matrix.clearAll(row, nodeIndices);
+        involvementModified();
+    }
+
+    /**
+     * Sets the involvement of all nodes from a byte array that contains a flag
+     * (1 or 0) for each node index, starting with node index 0 at the given offset.
+     * The nodes have to exist in the spectra.
+     *
+     * @param flags  the involvement flags
+     * @param offset the position of the flag for the node with index 0
+     */
+    public void setInvolvementFromFlags(final byte[] flags, final int offset) {
+        matrix.setFromFlags(row, flags, offset);
+        involvementModified();
+        spectra.getLocalizer().invalidateCachedValues();
+    }
+
+    /**
+     * Marks all nodes with the given indices as involved. The nodes have to
+     * exist in the spectra.
+     *
+     * @param indices the node indices
+     */
+    public void setInvolvedNodes(final int[] indices) {
+        matrix.setAll(row, indices);
+        involvementModified();
+        spectra.getLocalizer().invalidateCachedValues();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The involvement is loaded immediately, since the involvement matrix
+     * may be accessed directly (e.g., by {@link PackedHitSpectra#getInvolvedTraceCount(INode, boolean)}).
+     */
+    @Override
+    public void setInvolvementLoader(final Supplier<int[]> loader) {
+        setInvolvedNodes(loader.get());
+    }
+
+    @Override
+    public boolean isInvolved(final INode<T> node) {
+        return node != null && matrix.get(row, node.getIndex());
+    }
+
+    @Override
+    public boolean isInvolved(final int index) {
+        return matrix.get(row, index);
+    }
+
+    @Override
+    public int involvedNodesCount() {
+        return matrix.cardinality(row);
+    }
+
+    @Override
+    public void forEachInvolvedNode(final IntConsumer consumer) {
+        matrix.forEachSetBit(row, consumer);
+    }
+
+    /**
+     * @return the indices of all involved nodes, in ascending order
+     */
+    public int[] getInvolvedNodeIndices() {
+        int[] indices = new int[matrix.cardinality(row)];
+        int[] position = {0};
+        matrix.forEachSetBit(row, index -> indices[position[0]++] = index);
+        return indices;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The returned collection is a read-only view on the involvement matrix.
+     * Use {@link #forEachInvolvedNode(IntConsumer)} or {@link #getInvolvedNodeIndices()}
+     * to iterate over the involved nodes without boxing.
+     */
+    @Override
+    public Collection<Integer> getInvolvedNodes() {
+        return new AbstractCollection<Integer>() {
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Integer && matrix.get(row, (Integer) o);
+            }
+
+            @Override
+            public Iterator<Integer> iterator() {
+                return new Iterator<Integer>() {
+                    private int next = matrix.nextSetBit(row, 0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return next >= 0;
+                    }
+
+                    @Override
+                    public Integer next() {
+                        if (next < 0) {
+                            throw new NoSuchElementException();
+                        }
+                        int current = next;
+                        next = matrix.nextSetBit(row, current + 1);
+                        return current;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return matrix.cardinality(row);
+            }
+        };
+    }
+
+}
@@ -5,10 +5,14 @@ import se.de.hu_berlin.informatik.spectra.core.ISpectra;
 import se.de.hu_berlin.informatik.spectra.core.ITrace;
 import se.de.hu_berlin.informatik.spectra.core.Node.NodeType;
 import se.de.hu_berlin.informatik.spectra.core.SourceCodeBlock;
+import se.de.hu_berlin.informatik.spectra.util.SpectraStream;
 import se.de.hu_berlin.informatik.utils.processors.AbstractProcessor;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Reads a Spectra object and combines sequences of nodes to larger blocks based
@@ -89,4 +93,61 @@ public class BuildBlockSpectraModule extends AbstractProcessor<ISpectra<SourceCo
         return input;
     }
 
+    /**
+     * Computes the blocks that this module would build, with a single pass over the
+     * traces of the given stream, without loading the spectra into memory.
+     *
+     * <p> The stream's node identifiers are left untouched. Each block is a new
+     * identifier that is equal to the first line of the block, so
+     * {@link SpectraStream#getNodeIndex} returns the index of that line for it.
+     *
+     * @param spectra a stream over the traces of a spectra
+     * @return the identifiers of the remaining nodes (the blocks), in sorted order
+     */
+    public static List<SourceCodeBlock> buildBlocks(final SpectraStream<SourceCodeBlock> spectra) {
+        //get lines in the spectra and sort them
+        List<SourceCodeBlock> nodes = spectra.getNodeIdentifiers();
+        SourceCodeBlock[] array = nodes.toArray(new SourceCodeBlock[nodes.size()]);
+        Arrays.sort(array);
+        int[] indices = new int[array.length];
+        for (int i = 0; i < array.length; ++i) {
+            indices[i] = spectra.getNodeIndex(array[i]);
+        }
+
+        //a line may only be merged with the previous line if it is a normal node
+        //inside the same method in the same package...
+        BitSet mergeable = new BitSet(array.length);
+        for (int i = 1; i < array.length; ++i) {
+            if (array[i].getNodeType().equals(NodeType.NORMAL)
+                    && array[i].getMethodName().equals(array[i - 1].getMethodName())
+                    && array[i].getFilePath().equals(array[i - 1].getFilePath())) {
+                mergeable.set(i);
+            }
+        }
+
+        //...and if both are involved in the same traces
+        for (ITrace<SourceCodeBlock> trace : spectra) {
+            for (int i = mergeable.nextSetBit(0); i >= 0; i = mergeable.nextSetBit(i + 1)) {
+                if (trace.isInvolved(indices[i]) != trace.isInvolved(indices[i - 1])) {
+                    mergeable.clear(i);
+                }
+            }
+        }
+
+        List<SourceCodeBlock> blocks = new ArrayList<>();
+        for (int i = 0; i < array.length; ) {
+            SourceCodeBlock first = array[i];
+            //extend the block up to the last line that can be merged into it
+            int last = i;
+            while (last + 1 < array.length && mergeable.get(last + 1)) {
+                ++last;
+            }
+            blocks.add(new SourceCodeBlock(first.getPackageName(), first.getFilePath(), first.getMethodName(),
+                    first.getStartLineNumber(), array[last].getEndLineNumber(), first.getNodeType()));
+            i = last + 1;
+        }
+
+        return blocks;
+    }
+
 }
@@ -2,9 +2,13 @@ package se.de.hu_berlin.informatik.spectra.core.manipulation;
 
 import se.de.hu_berlin.informatik.spectra.core.INode;
 import se.de.hu_berlin.informatik.spectra.core.ISpectra;
+import se.de.hu_berlin.informatik.spectra.util.Indexable;
+import se.de.hu_berlin.informatik.spectra.util.SpectraStream;
 import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
 import se.de.hu_berlin.informatik.utils.processors.AbstractProcessor;
 
+import java.util.List;
+
 /**
  * Reads a Spectra object and filters out all nodes that haven't been touched by
  * any failing trace. (EF == 0)
@@ -30,4 +34,20 @@ public class FilterSpectraModule<T> extends AbstractProcessor<ISpectra<T, ?>, IS
         return input.removeNodesWithCoverageType(coverageType);
     }
 
+    /**
+     * Computes the nodes that would be filtered out, with a single pass over the
+     * traces of the given stream, without loading the spectra into memory.
+     * The stream itself is not changed.
+     *
+     * @param spectra      a stream over the traces of a spectra
+     * @param coverageType the type of the nodes to filter out
+     * @param <T>          the type of nodes in the spectra
+     * @return the identifiers of the nodes to filter out, ordered by node index
+     */
+    public static <T extends Indexable<T>> List<T> getNodesToRemove(SpectraStream<T> spectra,
+                                                                    INode.CoverageType coverageType) {
+        Log.out(FilterSpectraModule.class, "Filtering spectra...");
+        return spectra.getNodesWithCoverageType(coverageType);
+    }
+
 }
@@ -4,6 +4,7 @@ import se.de.hu_berlin.informatik.spectra.core.branch.SubTracePool;
 import se.de.hu_berlin.informatik.spectra.core.branch.SubTraceSequencePool;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.SequiturUtils;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.input.SharedInputGrammar;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output.SharedCompactOutputGrammar;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output.SharedOutputGrammar;
 import se.de.hu_berlin.informatik.spectra.util.CachedMap;
 import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
@@ -53,7 +54,7 @@ public class SimpleIntIndexerCompressed implements SequenceIndexerCompressed {
     }
 
     // constructor used before storing in zip file
-    public SimpleIntIndexerCompressed(SharedOutputGrammar executionTraceGrammar,
+    public SimpleIntIndexerCompressed(SharedCompactOutputGrammar executionTraceGrammar,
                                       SubTracePool subTracePool,
                                       SubTraceSequencePool subTraceSequencePool) throws IOException {
         //		System.out.println(String.format(
@@ -2,9 +2,53 @@ package se.de.hu_berlin.informatik.spectra.provider.loader;
 
 import se.de.hu_berlin.informatik.spectra.core.ISpectra;
 import se.de.hu_berlin.informatik.spectra.core.ITrace;
+import se.de.hu_berlin.informatik.spectra.core.Node.NodeType;
+import se.de.hu_berlin.informatik.spectra.provider.loader.LineNodeCache.LineNode;
+import se.de.hu_berlin.informatik.spectra.provider.loader.LineNodeCache.MethodLines;
 
 public abstract class AbstractCoverageDataLoader<T, K extends ITrace<T>, D> implements ICoverageDataLoader<T, K, D> {
 
+    private LineNodeCache<T> lineNodeCache;
+
+    /**
+     * Returns the cached lines of the given method in the given spectra. The cache is reset
+     * if coverage data is loaded into another spectra.
+     *
+     * @param lineSpectra      the spectra that is loaded
+     * @param className        the name (or source file path) of a class
+     * @param methodNameAndSig a method name and signature
+     * @return the cached lines of the method
+     */
+    protected MethodLines<T> getMethodLines(ISpectra<T, K> lineSpectra, String className, String methodNameAndSig) {
+        if (lineNodeCache == null || lineNodeCache.getSpectra() != lineSpectra) {
+            lineNodeCache = new LineNodeCache<>(lineSpectra);
+        }
+        return lineNodeCache.getMethod(className, methodNameAndSig);
+    }
+
+    /**
+     * Returns the cached line with the given line number and node type. The identifier of
+     * the line is only created (see {@link #getIdentifier(String, String, String, int, NodeType)})
+     * if the line is not cached, yet.
+     *
+     * @param methodLines      the cached lines of the method that contains the line
+     * @param packageName      a package name
+     * @param sourceFilePath   a source file path
+     * @param methodNameAndSig a method name and signature
+     * @param lineNumber       a line number
+     * @param nodeType         the type of the node
+     * @return the cached line
+     */
+    protected LineNode<T> getLine(MethodLines<T> methodLines, String packageName, String sourceFilePath,
+                                  String methodNameAndSig, int lineNumber, NodeType nodeType) {
+        LineNode<T> line = methodLines.get(lineNumber, nodeType);
+        if (line == null) {
+            line = methodLines.add(lineNumber, nodeType,
+                    getIdentifier(packageName, sourceFilePath, methodNameAndSig, lineNumber, nodeType));
+        }
+        return line;
+    }
+
     protected void onNewPackage(String packageName, K currentTrace) {
         // nothing to do
     }
@@ -17,12 +61,12 @@ public abstract class AbstractCoverageDataLoader<T, K extends ITrace<T>, D> impl
         // nothing to do
     }
 
-    protected void onNewLine(String packageName, String classFilePath, String methodName, T lineIdentifier,
+    protected void onNewLine(String packageName, String classFilePath, String methodName, LineNode<T> line,
                              ISpectra<T, K> lineSpectra, K currentTrace, boolean fullSpectra, long numberOfHits) {
         if (numberOfHits > 0) {
-            currentTrace.setInvolvement(lineIdentifier, true);
+            currentTrace.setInvolvement(line.getNode(), true);
         } else if (fullSpectra) {
-            lineSpectra.getOrCreateNode(lineIdentifier);
+            line.getNode();
         }
     }
 
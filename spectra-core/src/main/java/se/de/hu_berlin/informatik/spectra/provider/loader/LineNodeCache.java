@@ -0,0 +1,186 @@
+package se.de.hu_berlin.informatik.spectra.provider.loader;
+
+import se.de.hu_berlin.informatik.spectra.core.INode;
+import se.de.hu_berlin.informatik.spectra.core.ISpectra;
+import se.de.hu_berlin.informatik.spectra.core.Node.NodeType;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Caches the line identifiers and nodes of a spectra by method, line number and node type.
+ * Coverage data of different traces mostly contains the same classes, so after the first
+ * trace was loaded, the lines of further traces directly map to their nodes, without creating
+ * new identifiers and without looking up the nodes by their identifiers.
+ * <p>
+ * The cache is only valid as long as no nodes are removed from the spectra.
+ *
+ * @param <T> the type of node identifiers
+ */
+public class LineNodeCache<T> {
+
+    private final ISpectra<T, ?> spectra;
+    // class -> method name and signature -> lines
+    private final Map<String, Map<String, MethodLines<T>>> methods = new HashMap<>();
+
+    public LineNodeCache(ISpectra<T, ?> spectra) {
+        this.spectra = spectra;
+    }
+
+    public ISpectra<T, ?> getSpectra() {
+        return spectra;
+    }
+
+    /**
+     * @param className        the name (or source file path) of a class
+     * @param methodNameAndSig a method name and signature
+     * @return the cached lines of the method
+     */
+    public MethodLines<T> getMethod(String className, String methodNameAndSig) {
+        Map<String, MethodLines<T>> classMethods = methods.get(className);
+        if (classMethods == null) {
+            classMethods = new HashMap<>();
+            methods.put(className, classMethods);
+        }
+        MethodLines<T> lines = classMethods.get(methodNameAndSig);
+        if (lines == null) {
+            lines = new MethodLines<>(spectra, className + ":" + methodNameAndSig);
+            classMethods.put(methodNameAndSig, lines);
+        }
+        return lines;
+    }
+
+    /**
+     * The lines of a single method, in a hash table with open addressing that is keyed by
+     * the (non-negative) line number and the node type.
+     *
+     * @param <T> the type of node identifiers
+     */
+    public static class MethodLines<T> {
+
+        private static final int NODE_TYPE_COUNT = NodeType.values().length;
+
+        private final ISpectra<T, ?> spectra;
+        private final String methodIdentifier;
+        // keys are positive, 0 marks an empty slot
+        private int[] keys = new int[8];
+        private LineNode<?>[] lines = new LineNode<?>[8];
+        private int size = 0;
+
+        private MethodLines(ISpectra<T, ?> spectra, String methodIdentifier) {
+            this.spectra = spectra;
+            this.methodIdentifier = methodIdentifier;
+        }
+
+        /**
+         * @return the identifier of the method ('class:methodNameAndSig')
+         */
+        public String getMethodIdentifier() {
+            return methodIdentifier;
+        }
+
+        /**
+         * @param lineNumber a line number
+         * @param nodeType   the type of the node
+         * @return the cached line, or null if the line is not cached, yet
+         */
+        @SuppressWarnings("unchecked")
+        public LineNode<T> get(int lineNumber, NodeType nodeType) {
+            int key = key(lineNumber, nodeType);
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return (LineNode<T>) lines[slot];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Adds a line to the cache. The line must not be cached already.
+         *
+         * @param lineNumber a line number
+         * @param nodeType   the type of the node
+         * @param identifier the identifier of the line
+         * @return the cached line
+         */
+        public LineNode<T> add(int lineNumber, NodeType nodeType, T identifier) {
+            if (size + 1 > keys.length / 2) {
+                grow();
+            }
+            LineNode<T> line = new LineNode<>(spectra, identifier);
+            insert(key(lineNumber, nodeType), line);
+            ++size;
+            return line;
+        }
+
+        private void insert(int key, LineNode<?> line) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            lines[slot] = line;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            LineNode<?>[] oldLines = lines;
+            keys = new int[2 * oldKeys.length];
+            lines = new LineNode<?>[keys.length];
+            for (int i = 0; i < oldKeys.length; ++i) {
+                if (oldKeys[i] != 0) {
+                    insert(oldKeys[i], oldLines[i]);
+                }
+            }
+        }
+
+        private static int key(int lineNumber, NodeType nodeType) {
+            return lineNumber * NODE_TYPE_COUNT + nodeType.ordinal() + 1;
+        }
+
+        private static int hash(int key) {
+            int hash = key * 0x9E3779B9;
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    /**
+     * The identifier of a line and its node in the spectra. The node is only created when it
+     * is requested for the first time.
+     *
+     * @param <T> the type of node identifiers
+     */
+    public static class LineNode<T> {
+
+        private final ISpectra<T, ?> spectra;
+        private final T identifier;
+        private INode<T> node;
+
+        private LineNode(ISpectra<T, ?> spectra, T identifier) {
+            this.spectra = spectra;
+            this.identifier = identifier;
+        }
+
+        public T getIdentifier() {
+            return identifier;
+        }
+
+        /**
+         * @return the node of the line; the node is created if it doesn't exist, yet
+         */
+        public INode<T> getNode() {
+            if (node == null) {
+                node = spectra.getOrCreateNode(identifier);
+            }
+            return node;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(identifier);
+        }
+    }
+
+}
@@ -8,19 +8,20 @@ package se.de.hu_berlin.informatik.spectra.provider.loader.cobertura.report;
 
 import se.de.hu_berlin.informatik.spectra.core.ISpectra;
 import se.de.hu_berlin.informatik.spectra.core.count.CountTrace;
+import se.de.hu_berlin.informatik.spectra.provider.loader.LineNodeCache.LineNode;
 
 public abstract class CoberturaCountReportLoader<T, K extends CountTrace<T>> extends CoberturaReportLoader<T, K> {
 
     @Override
-    protected void onNewLine(String packageName, String classFilePath, String methodName, T lineIdentifier,
+    protected void onNewLine(String packageName, String classFilePath, String methodName, LineNode<T> line,
                              ISpectra<T, K> lineSpectra, K currentTrace, boolean fullSpectra, long numberOfHits) {
         super.onNewLine(
-                packageName, classFilePath, methodName, lineIdentifier, lineSpectra, currentTrace, fullSpectra,
+                packageName, classFilePath, methodName, line, lineSpectra, currentTrace, fullSpectra,
                 numberOfHits);
         if (numberOfHits > 0) {
-            currentTrace.setHits(lineIdentifier, numberOfHits);
+            currentTrace.setHits(line.getNode(), numberOfHits);
         } else if (fullSpectra) {
-            lineSpectra.getOrCreateNode(lineIdentifier);
+            line.getNode();
         }
     }
 
@@ -11,6 +11,8 @@ import se.de.hu_berlin.informatik.spectra.core.ITrace;
 import se.de.hu_berlin.informatik.spectra.core.Node.NodeType;
 import se.de.hu_berlin.informatik.spectra.provider.cobertura.report.CoberturaReportWrapper;
 import se.de.hu_berlin.informatik.spectra.provider.loader.AbstractCoverageDataLoader;
+import se.de.hu_berlin.informatik.spectra.provider.loader.LineNodeCache.LineNode;
+import se.de.hu_berlin.informatik.spectra.provider.loader.LineNodeCache.MethodLines;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.coveragedata.*;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.data.CoverageData;
 
@@ -65,7 +67,8 @@ public abstract class CoberturaReportLoader<T, K extends ITrace<T>>
                         // String signature =
                         // methodNameAndSig.substring(methodNameAndSig.indexOf('('));
 
-                        final String methodIdentifier = String.format("%s:%s", actualClassName, methodNameAndSig);
+                        final MethodLines<T> methodLines = getMethodLines(lineSpectra, actualClassName, methodNameAndSig);
+                        final String methodIdentifier = methodLines.getMethodIdentifier();
 
                         onNewMethod(packageName, sourceFilePath, methodIdentifier, trace);
 
@@ -77,11 +80,11 @@ public abstract class CoberturaReportLoader<T, K extends ITrace<T>>
                             LineData lineData = (LineData) coverageData;
 
                             // set node involvement
-                            T lineIdentifier = getIdentifier(
-                                    packageName, sourceFilePath, methodNameAndSig, lineData.getLineNumber(), NodeType.NORMAL);
+                            LineNode<T> line = getLine(
+                                    methodLines, packageName, sourceFilePath, methodNameAndSig, lineData.getLineNumber(), NodeType.NORMAL);
 
                             onNewLine(
-                                    packageName, sourceFilePath, methodIdentifier, lineIdentifier, lineSpectra, trace,
+                                    packageName, sourceFilePath, methodIdentifier, line, lineSpectra, trace,
                                     fullSpectra, lineData.getHits());
                         }
 
@@ -9,6 +9,7 @@ package se.de.hu_berlin.informatik.spectra.provider.loader.cobertura.report;
 import se.de.hu_berlin.informatik.spectra.core.ISpectra;
 import se.de.hu_berlin.informatik.spectra.core.ITrace;
 import se.de.hu_berlin.informatik.spectra.core.hit.HierarchicalHitSpectra;
+import se.de.hu_berlin.informatik.spectra.provider.loader.LineNodeCache.LineNode;
 
 public abstract class HierarchicalCoberturaReportLoader<T, K extends ITrace<T>> extends CoberturaReportLoader<T, K> {
 
@@ -36,12 +37,12 @@ public abstract class HierarchicalCoberturaReportLoader<T, K extends ITrace<T>>
     }
 
     @Override
-    protected void onNewLine(String packageName, String classFilePath, String methodName, T lineIdentifier,
+    protected void onNewLine(String packageName, String classFilePath, String methodName, LineNode<T> line,
                              ISpectra<T, K> lineSpectra, K currentTrace, boolean fullSpectra, long numberOfHits) {
         super.onNewLine(
-                packageName, classFilePath, methodName, lineIdentifier, lineSpectra, currentTrace, fullSpectra,
+                packageName, classFilePath, methodName, line, lineSpectra, currentTrace, fullSpectra,
                 numberOfHits);
-        methodSpectra.setParent(methodName, lineIdentifier);
+        methodSpectra.setParent(methodName, line.getIdentifier());
     }
 
 }
@@ -6,114 +6,173 @@
 
 package se.de.hu_berlin.informatik.spectra.provider.loader.cobertura.xml;
 
-import org.jdom.Document;
-import org.jdom.Element;
-import org.jdom.JDOMException;
-import org.jdom.input.SAXBuilder;
 import se.de.hu_berlin.informatik.spectra.core.ISpectra;
 import se.de.hu_berlin.informatik.spectra.core.ITrace;
 import se.de.hu_berlin.informatik.spectra.core.Node.NodeType;
 import se.de.hu_berlin.informatik.spectra.provider.cobertura.xml.CoberturaCoverageWrapper;
 import se.de.hu_berlin.informatik.spectra.provider.loader.AbstractCoverageDataLoader;
+import se.de.hu_berlin.informatik.spectra.provider.loader.LineNodeCache.LineNode;
+import se.de.hu_berlin.informatik.spectra.provider.loader.LineNodeCache.MethodLines;
 import se.de.hu_berlin.informatik.utils.files.FileUtils;
 import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.io.StringReader;
+import java.io.InputStream;
 import java.nio.file.Files;
-
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Loads Cobertura XML coverage reports. The reports are streamed, i.e., lines are processed
+ * while they are read, without building a document of the whole report. Package, file and
+ * method identifiers are shared across all loaded traces, and lines that were not executed
+ * are skipped without creating identifiers, unless they are needed (see
+ * {@link #processesUncoveredLines()}).
+ */
 public abstract class CoberturaXMLLoader<T, K extends ITrace<T>>
         extends AbstractCoverageDataLoader<T, K, CoberturaCoverageWrapper> {
 
     int traceCount = 0;
 
+    private final XMLInputFactory inputFactory = createInputFactory();
+
+    // names that occur in (almost) every trace
+    private final Map<String, String> names = new HashMap<>();
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        // ignore coverage dtd file (unnecessary http requests, possibly failing
+        // if server is down...)
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * @return whether lines that were not executed have to be passed to
+     * {@link #onNewLine(String, String, String, LineNode, ISpectra, ITrace, boolean, long)}
+     * even if no full spectra are loaded
+     */
+    protected boolean processesUncoveredLines() {
+        return false;
+    }
+
     @Override
     public boolean loadSingleCoverageData(ISpectra<T, K> lineSpectra, final CoberturaCoverageWrapper traceFile,
                                           final boolean fullSpectra) {
-        // ignore coverage dtd file (unnecessary http requests, possibly failing
-        // if server is down...)
-        String fileWithoutDTD = null;
+        InputStream inputStream;
         try {
-            fileWithoutDTD = new String(Files.readAllBytes(traceFile.getXmlCoverageFile().toPath()));
+            inputStream = new BufferedInputStream(Files.newInputStream(traceFile.getXmlCoverageFile().toPath()));
         } catch (IOException e) {
             Log.err(this, "Could not read coverage xml file '%s'.", traceFile.getXmlCoverageFile());
             return false;
         }
-        int pos = fileWithoutDTD.indexOf("<!DOCTYPE coverage");
-        if (pos != -1) {
-            int pos2 = fileWithoutDTD.indexOf('>', pos);
-            if (pos2 != -1) {
-                fileWithoutDTD = fileWithoutDTD.substring(0, pos) + fileWithoutDTD.substring(pos2 + 1);
-            }
-        }
-
-        final K trace;
-        if (traceFile.getIdentifier() == null) {
-            trace = lineSpectra.addTrace(
-                    FileUtils.getFileNameWithoutExtension(traceFile.getXmlCoverageFile().toString()),
-                    ++traceCount,
-                    traceFile.isSuccessful());
-        } else {
-            trace = lineSpectra.addTrace(traceFile.getIdentifier(), ++traceCount, traceFile.isSuccessful());
-        }
 
-        Document doc = null;
         try {
-            doc = new SAXBuilder().build(new StringReader(fileWithoutDTD));
-        } catch (JDOMException e) {
-            Log.err(this, e, "JDOMException in coverage xml file '%s'.", traceFile.getXmlCoverageFile());
-            return false;
-        } catch (IOException e) {
+            final K trace;
+            if (traceFile.getIdentifier() == null) {
+                trace = lineSpectra.addTrace(
+                        FileUtils.getFileNameWithoutExtension(traceFile.getXmlCoverageFile().toString()),
+                        ++traceCount,
+                        traceFile.isSuccessful());
+            } else {
+                trace = lineSpectra.addTrace(traceFile.getIdentifier(), ++traceCount, traceFile.isSuccessful());
+            }
+
+            XMLStreamReader reader = inputFactory.createXMLStreamReader(inputStream);
+            try {
+                processReport(reader, lineSpectra, trace, fullSpectra || processesUncoveredLines(), fullSpectra);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException | NumberFormatException e) {
             Log.err(this, e, "Could not parse coverage xml file '%s'.", traceFile.getXmlCoverageFile());
             return false;
+        } finally {
+            try {
+                inputStream.close();
+            } catch (IOException e) {
+                // nothing to do
+            }
         }
+        return true;
+    }
 
-        // loop over all packages of the trace file
-        for (final Object pckgObj : doc.getRootElement().getChild("packages").getChildren()) {
-            final Element pckg = (Element) pckgObj;
-            final String packageName = pckg.getAttributeValue("name");
-
-            onNewPackage(packageName, trace);
-
-            // loop over all classes of the package
-            for (final Object clssObj : pckg.getChild("classes").getChildren()) {
-                final Element clss = (Element) clssObj;
-                final String sourceFilePath = clss.getAttributeValue("filename");
-
-                onNewClass(packageName, sourceFilePath, trace);
-
-                // loop over all methods of the class
-                for (final Object mthdObj : clss.getChild("methods").getChildren()) {
-                    final Element method = (Element) mthdObj;
-                    final String methodName = method.getAttributeValue("name") + method.getAttributeValue("signature");
-                    final String methodIdentifier = String.format("%s:%s", sourceFilePath, methodName);
-
-                    onNewMethod(packageName, sourceFilePath, methodIdentifier, trace);
-
-                    // loop over all lines of the method
-                    for (final Object lineObj : method.getChild("lines").getChildren()) {
-                        final Element line = (Element) lineObj;
-
-                        // set node involvement
-                        final T lineIdentifier = getIdentifier(
-                                packageName, sourceFilePath, methodName,
-                                Integer.valueOf(line.getAttributeValue("number")), NodeType.NORMAL);
-
-                        onNewLine(
-                                packageName, sourceFilePath, methodIdentifier, lineIdentifier, lineSpectra, trace,
-                                fullSpectra, Long.parseLong(line.getAttributeValue("hits")));
-
-                    }
-
-                    onLeavingMethod(packageName, sourceFilePath, methodIdentifier, lineSpectra, trace);
+    private void processReport(XMLStreamReader reader, ISpectra<T, K> lineSpectra, K trace,
+                               boolean processUncoveredLines, boolean fullSpectra) throws XMLStreamException {
+        String packageName = null;
+        String sourceFilePath = null;
+        String methodName = null;
+        MethodLines<T> methodLines = null;
+        String methodIdentifier = null;
+        // lines are also listed directly in the classes; only the lines of methods are loaded
+        boolean inMethod = false;
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "line":
+                        if (inMethod) {
+                            long hits = Long.parseLong(reader.getAttributeValue(null, "hits"));
+                            if (hits > 0 || processUncoveredLines) {
+                                // set node involvement
+                                final LineNode<T> line = getLine(
+                                        methodLines, packageName, sourceFilePath, methodName,
+                                        Integer.parseInt(reader.getAttributeValue(null, "number")), NodeType.NORMAL);
+
+                                onNewLine(
+                                        packageName, sourceFilePath, methodIdentifier, line, lineSpectra,
+                                        trace, fullSpectra, hits);
+                            }
+                        }
+                        break;
+                    case "method":
+                        methodName = intern(reader.getAttributeValue(null, "name")
+                                + reader.getAttributeValue(null, "signature"));
+                        methodLines = getMethodLines(lineSpectra, sourceFilePath, methodName);
+                        methodIdentifier = methodLines.getMethodIdentifier();
+                        inMethod = true;
+                        onNewMethod(packageName, sourceFilePath, methodIdentifier, trace);
+                        break;
+                    case "class":
+                        sourceFilePath = intern(reader.getAttributeValue(null, "filename"));
+                        onNewClass(packageName, sourceFilePath, trace);
+                        break;
+                    case "package":
+                        packageName = intern(reader.getAttributeValue(null, "name"));
+                        onNewPackage(packageName, trace);
+                        break;
+                    default:
+                        break;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "method":
+                        inMethod = false;
+                        onLeavingMethod(packageName, sourceFilePath, methodIdentifier, lineSpectra, trace);
+                        break;
+                    case "class":
+                        onLeavingClass(packageName, sourceFilePath, lineSpectra, trace);
+                        break;
+                    case "package":
+                        onLeavingPackage(packageName, lineSpectra, trace);
+                        break;
+                    default:
+                        break;
                 }
-
-                onLeavingClass(packageName, sourceFilePath, lineSpectra, trace);
             }
-
-            onLeavingPackage(packageName, lineSpectra, trace);
         }
-        return true;
+    }
+
+    private String intern(String name) {
+        String existing = names.putIfAbsent(name, name);
+        return existing == null ? name : existing;
     }
 
 }
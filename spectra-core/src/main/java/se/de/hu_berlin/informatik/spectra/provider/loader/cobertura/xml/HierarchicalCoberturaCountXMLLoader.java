@@ -9,6 +9,7 @@ package se.de.hu_berlin.informatik.spectra.provider.loader.cobertura.xml;
 import se.de.hu_berlin.informatik.spectra.core.ISpectra;
 import se.de.hu_berlin.informatik.spectra.core.count.CountTrace;
 import se.de.hu_berlin.informatik.spectra.core.hit.HierarchicalHitSpectra;
+import se.de.hu_berlin.informatik.spectra.provider.loader.LineNodeCache.LineNode;
 
 public abstract class HierarchicalCoberturaCountXMLLoader<T, K extends CountTrace<T>>
         extends CoberturaCountXMLLoader<T, K> {
@@ -24,6 +25,12 @@ public abstract class HierarchicalCoberturaCountXMLLoader<T, K extends CountTrac
         this.packageSpectra = packageSpectra;
     }
 
+    @Override
+    protected boolean processesUncoveredLines() {
+        // the hierarchy contains all lines of the methods
+        return true;
+    }
+
     @Override
     protected void onNewClass(String packageName, String classFilePath, K currentTrace) {
         super.onNewClass(packageName, classFilePath, currentTrace);
@@ -37,12 +44,12 @@ public abstract class HierarchicalCoberturaCountXMLLoader<T, K extends CountTrac
     }
 
     @Override
-    protected void onNewLine(String packageName, String classFilePath, String methodName, T lineIdentifier,
+    protected void onNewLine(String packageName, String classFilePath, String methodName, LineNode<T> line,
                              ISpectra<T, K> lineSpectra, K currentTrace, boolean fullSpectra, long numberOfHits) {
         super.onNewLine(
-                packageName, classFilePath, methodName, lineIdentifier, lineSpectra, currentTrace, fullSpectra,
+                packageName, classFilePath, methodName, line, lineSpectra, currentTrace, fullSpectra,
                 numberOfHits);
-        methodSpectra.setParent(methodName, lineIdentifier);
+        methodSpectra.setParent(methodName, line.getIdentifier());
     }
 
 }
@@ -12,6 +12,8 @@ import se.de.hu_berlin.informatik.spectra.core.ITrace;
 import se.de.hu_berlin.informatik.spectra.core.Node.NodeType;
 import se.de.hu_berlin.informatik.spectra.provider.jacoco.report.JaCoCoReportWrapper;
 import se.de.hu_berlin.informatik.spectra.provider.loader.AbstractCoverageDataLoader;
+import se.de.hu_berlin.informatik.spectra.provider.loader.LineNodeCache.LineNode;
+import se.de.hu_berlin.informatik.spectra.provider.loader.LineNodeCache.MethodLines;
 
 public abstract class JaCoCoReportLoader<T, K extends ITrace<T>>
         extends AbstractCoverageDataLoader<T, K, JaCoCoReportWrapper> {
@@ -77,7 +79,8 @@ public abstract class JaCoCoReportLoader<T, K extends ITrace<T>>
                             // method.getSignature());
                             method.getDesc();
 
-                    final String methodIdentifier = String.format("%s:%s", actualClassPath, methodNameAndSig);
+                    final MethodLines<T> methodLines = getMethodLines(lineSpectra, actualClassPath, methodNameAndSig);
+                    final String methodIdentifier = methodLines.getMethodIdentifier();
 
                     onNewMethod(packageName, sourceFilePath, methodIdentifier, trace);
 
@@ -88,10 +91,10 @@ public abstract class JaCoCoReportLoader<T, K extends ITrace<T>>
                         final int status = line.getStatus();
                         if (status != ICounter.EMPTY) {
                             // set node involvement
-                            final T lineIdentifier = getIdentifier(packageName, sourceFilePath, methodNameAndSig, i, NodeType.NORMAL);
+                            final LineNode<T> line = getLine(methodLines, packageName, sourceFilePath, methodNameAndSig, i, NodeType.NORMAL);
 
                             onNewLine(
-                                    packageName, sourceFilePath, methodIdentifier, lineIdentifier, lineSpectra, trace,
+                                    packageName, sourceFilePath, methodIdentifier, line, lineSpectra, trace,
                                     fullSpectra, status == ICounter.NOT_COVERED ? 0 : 1);
                         }
                     }
@@ -0,0 +1,261 @@
+package se.de.hu_berlin.informatik.spectra.provider.loader.tracecobertura.report;
+
+import se.de.hu_berlin.informatik.spectra.core.ISpectra;
+import se.de.hu_berlin.informatik.spectra.core.SourceCodeBlock;
+import se.de.hu_berlin.informatik.spectra.core.branch.SubTracePool;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.coveragedata.AbstractCodeProvider;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.coveragedata.ClassData;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.coveragedata.ExecutionTraceCollector;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.coveragedata.ProjectData;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.CoberturaStatementEncoding;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.SingleLinkedIntArrayQueue;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.SequiturUtils;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.input.InputSequence.TraceIterator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Decodes a single (thread's) execution trace and splits it into sub traces. This does not
+ * modify any shared state, so multiple traces can be split concurrently.
+ *
+ * <p>Sub traces that are already known to the given {@link SubTracePool} are stored with their
+ * ID. New sub traces are stored with a (negative) local index, and their IDs have to be assigned
+ * afterwards with {@link Result#resolveId(int, SubTracePool, ISpectra)},
+ * processing the traces in their original order. This way, the assigned IDs do not depend on
+ * the order in which the traces were split.
+ */
+class ExecutionTraceSplitter implements Callable<ExecutionTraceSplitter.Result> {
+
+    // marks the end of a sequence of sub traces (sub trace IDs start with 1)
+    static final int SEQUENCE_END = 0;
+
+    private final byte[] trace;
+    private final ProjectData projectData;
+    private final SubTracePool subTracePool;
+
+    ExecutionTraceSplitter(byte[] trace, ProjectData projectData, SubTracePool subTracePool) {
+        this.trace = trace;
+        this.projectData = projectData;
+        this.subTracePool = subTracePool;
+    }
+
+    @Override
+    public Result call() throws Exception {
+        Result result = new Result();
+        TraceIterator traceIterator = SequiturUtils.getInputSequenceFromByteArray(trace).iterator();
+
+        SingleLinkedIntArrayQueue currentSubTrace = new SingleLinkedIntArrayQueue(15);
+        int lastMethod = -1;
+        int lastClass = -1;
+        int lastNodeType = CoberturaStatementEncoding.NORMAL_ID;
+        while (traceIterator.hasNext()) {
+            int statement = traceIterator.next();
+
+            // check if the current statement indicates the start of a new sub trace;
+            // this is currently done when entering a catch block or entering a method
+            if (statement == ExecutionTraceCollector.NEW_SUBTRACE_ID) {
+                // cut the trace **before** each catch block entry or new method start
+                if (!currentSubTrace.isEmpty()) {
+                    result.addSubTrace(currentSubTrace, lastNodeType, subTracePool);
+                }
+
+                while (statement == ExecutionTraceCollector.NEW_SUBTRACE_ID) {
+                    // skip the indicator
+                    if (traceIterator.hasNext()) {
+                        statement = traceIterator.next();
+                    } else {
+                        break;
+                    }
+                }
+
+                if (statement == ExecutionTraceCollector.NEW_SUBTRACE_ID) {
+                    // we're at the end of the trace!
+                    break;
+                }
+            }
+
+            int classId = CoberturaStatementEncoding.getClassId(statement);
+            int counterId = CoberturaStatementEncoding.getCounterId(statement);
+
+            ClassData classData = projectData.getClassData(classId);
+
+            if (classData != null) {
+
+                if (counterId == AbstractCodeProvider.FAKE_COUNTER_ID) {
+                    // this marks a fake jump! we should not be here...
+                    throw new IllegalStateException("Illegal counter ID 0 in class " + classId + ". (" + classData.getName() + ")");
+                }
+
+                int[] lineNumber = classData.getCounterId2LineNumbers()[counterId];
+
+                // check if we switched to a different class than before
+                if (classId == lastClass) {
+                    // check if we switched to a different method than we were in before;
+                    // this should allow for the sub traces to be uniquely determined by first and last statement
+                    int currentMethod = lineNumber[2] < 0 ? lastMethod : lineNumber[2];
+                    if (currentMethod != lastMethod && !currentSubTrace.isEmpty()) {
+                        // cut the trace after each change in methods
+                        result.addSubTrace(currentSubTrace, lastNodeType, subTracePool);
+                    }
+                    lastMethod = currentMethod;
+                } else {
+                    // change in classes!
+                    if (!currentSubTrace.isEmpty()) {
+                        // cut the trace after each change in classes
+                        result.addSubTrace(currentSubTrace, lastNodeType, subTracePool);
+                    }
+                    lastMethod = lineNumber[2];
+                    lastClass = classId;
+                }
+
+                // add the current statement to the current sub trace
+                currentSubTrace.addNoAutoBoxing(statement);
+
+                lastNodeType = lineNumber[1];
+
+                if (lastNodeType != CoberturaStatementEncoding.NORMAL_ID) {
+                    // cut the trace after each branching statement
+                    result.addSubTrace(currentSubTrace, lastNodeType, subTracePool);
+                }
+
+            } else {
+                throw new IllegalStateException("Class data for class '" + classId + "' not found.");
+            }
+        }
+
+        // process any remaining statements
+        if (!currentSubTrace.isEmpty()) {
+            result.addSubTrace(currentSubTrace, lastNodeType, subTracePool);
+        }
+
+        return result;
+    }
+
+    /**
+     * A trace, split into sub traces. Contains a sequence of entries which are either
+     * a sub trace ID (positive), a local index of a new sub trace (negative) or
+     * {@link #SEQUENCE_END}.
+     */
+    static final class Result {
+
+        private final SingleLinkedIntArrayQueue entries = new SingleLinkedIntArrayQueue(1000);
+        private long subTraceCount = 0;
+
+        // sub traces that were not known to the pool while splitting the trace;
+        // maps representations to the local indices of all new sub traces with that representation
+        private final Map<Long, int[]> newSubTraceIndices = new HashMap<>();
+        private long[] newSubTraceRepresentations = new long[16];
+        private final List<int[]> newSubTraces = new ArrayList<>();
+        private int[] resolvedIds;
+
+        // holds the statements of the current sub trace
+        private int[] statements = new int[64];
+
+        private void addSubTrace(SingleLinkedIntArrayQueue subTrace, int lastNodeType, SubTracePool subTracePool) {
+            ++subTraceCount;
+            long representation = CoberturaStatementEncoding.generateRepresentationForSubTrace(subTrace);
+            int length = subTrace.size();
+            if (length > statements.length) {
+                statements = new int[Math.max(length, 2 * statements.length)];
+            }
+            int j = 0;
+            for (SingleLinkedIntArrayQueue.MyIterator iterator = subTrace.iterator2(); iterator.hasNext(); ) {
+                statements[j++] = iterator.nextNoAutoBoxing();
+            }
+
+            int id = subTracePool.getExistingId(representation, statements, length);
+            if (id == 0) {
+                id = -getLocalIndex(representation, length) - 1;
+            }
+            entries.addNoAutoBoxing(id);
+
+            if (lastNodeType != CoberturaStatementEncoding.NORMAL_ID) {
+                // the branching statement starts the next sub trace
+                int lastExecutedStatement = subTrace.peekLastNoCheck();
+                subTrace.clear();
+                subTrace.addNoAutoBoxing(lastExecutedStatement);
+                // after a branch, the current sequence of sub traces ends
+                entries.addNoAutoBoxing(SEQUENCE_END);
+            } else {
+                subTrace.clear();
+            }
+        }
+
+        private int getLocalIndex(long representation, int length) {
+            int[] indices = newSubTraceIndices.get(representation);
+            if (indices != null) {
+                for (int index : indices) {
+                    if (hasCurrentStatements(newSubTraces.get(index), length)) {
+                        return index;
+                    }
+                }
+            }
+            int index = newSubTraces.size();
+            if (indices == null) {
+                newSubTraceIndices.put(representation, new int[]{index});
+            } else {
+                indices = Arrays.copyOf(indices, indices.length + 1);
+                indices[indices.length - 1] = index;
+                newSubTraceIndices.put(representation, indices);
+            }
+            if (index == newSubTraceRepresentations.length) {
+                newSubTraceRepresentations = Arrays.copyOf(newSubTraceRepresentations, 2 * index);
+            }
+            newSubTraceRepresentations[index] = representation;
+            newSubTraces.add(Arrays.copyOf(statements, length));
+            return index;
+        }
+
+        private boolean hasCurrentStatements(int[] subTrace, int length) {
+            if (subTrace.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; ++i) {
+                if (subTrace[i] != statements[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        SingleLinkedIntArrayQueue getEntries() {
+            return entries;
+        }
+
+        long getSubTraceCount() {
+            return subTraceCount;
+        }
+
+        /**
+         * Returns the sub trace ID for the given entry, adding new sub traces to the pool.
+         * Has to be called in the order of the entries (and of the traces).
+         *
+         * @param entry        an entry which is not {@link #SEQUENCE_END}
+         * @param subTracePool the sub trace pool
+         * @param lineSpectra  the spectra to obtain the node indices from
+         * @return the sub trace ID
+         */
+        int resolveId(int entry, SubTracePool subTracePool, ISpectra<SourceCodeBlock, ?> lineSpectra) {
+            if (entry > 0) {
+                return entry;
+            }
+            int index = -entry - 1;
+            if (resolvedIds == null) {
+                resolvedIds = new int[newSubTraces.size()];
+            }
+            if (resolvedIds[index] == 0) {
+                resolvedIds[index] = subTracePool.addSubTrace(
+                        newSubTraceRepresentations[index], newSubTraces.get(index), lineSpectra);
+                // not needed anymore
+                newSubTraces.set(index, null);
+            }
+            return resolvedIds[index];
+        }
+    }
+
+}
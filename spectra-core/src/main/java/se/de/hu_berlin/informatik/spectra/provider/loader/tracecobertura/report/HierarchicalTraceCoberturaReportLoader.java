@@ -10,6 +10,7 @@ import se.de.hu_berlin.informatik.spectra.core.ISpectra;
 import se.de.hu_berlin.informatik.spectra.core.ITrace;
 import se.de.hu_berlin.informatik.spectra.core.SourceCodeBlock;
 import se.de.hu_berlin.informatik.spectra.core.hit.HierarchicalHitSpectra;
+import se.de.hu_berlin.informatik.spectra.provider.loader.LineNodeCache.LineNode;
 
 import java.nio.file.Path;
 
@@ -41,12 +42,12 @@ public abstract class HierarchicalTraceCoberturaReportLoader<K extends ITrace<So
     }
 
     @Override
-    protected void onNewLine(String packageName, String classFilePath, String methodName, SourceCodeBlock lineIdentifier,
+    protected void onNewLine(String packageName, String classFilePath, String methodName, LineNode<SourceCodeBlock> line,
                              ISpectra<SourceCodeBlock, K> lineSpectra, K currentTrace, boolean fullSpectra, long numberOfHits) {
         super.onNewLine(
-                packageName, classFilePath, methodName, lineIdentifier, lineSpectra, currentTrace, fullSpectra,
+                packageName, classFilePath, methodName, line, lineSpectra, currentTrace, fullSpectra,
                 numberOfHits);
-        methodSpectra.setParent(methodName, lineIdentifier);
+        methodSpectra.setParent(methodName, line.getIdentifier());
     }
 
 }
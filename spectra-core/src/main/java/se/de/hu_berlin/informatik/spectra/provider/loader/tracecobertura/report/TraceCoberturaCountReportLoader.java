@@ -9,6 +9,7 @@ package se.de.hu_berlin.informatik.spectra.provider.loader.tracecobertura.report
 import se.de.hu_berlin.informatik.spectra.core.ISpectra;
 import se.de.hu_berlin.informatik.spectra.core.SourceCodeBlock;
 import se.de.hu_berlin.informatik.spectra.core.count.CountTrace;
+import se.de.hu_berlin.informatik.spectra.provider.loader.LineNodeCache.LineNode;
 
 import java.nio.file.Path;
 
@@ -19,15 +20,15 @@ public abstract class TraceCoberturaCountReportLoader<K extends CountTrace<Sourc
     }
 
     @Override
-    protected void onNewLine(String packageName, String classFilePath, String methodName, SourceCodeBlock lineIdentifier,
+    protected void onNewLine(String packageName, String classFilePath, String methodName, LineNode<SourceCodeBlock> line,
                              ISpectra<SourceCodeBlock, K> lineSpectra, K currentTrace, boolean fullSpectra, long numberOfHits) {
         super.onNewLine(
-                packageName, classFilePath, methodName, lineIdentifier, lineSpectra, currentTrace, fullSpectra,
+                packageName, classFilePath, methodName, line, lineSpectra, currentTrace, fullSpectra,
                 numberOfHits);
         if (numberOfHits > 0) {
-            currentTrace.setHits(lineIdentifier, numberOfHits);
+            currentTrace.setHits(line.getNode(), numberOfHits);
         } else if (fullSpectra) {
-            lineSpectra.getOrCreateNode(lineIdentifier);
+            line.getNode();
         }
     }
 
@@ -15,6 +15,8 @@ import se.de.hu_berlin.informatik.spectra.core.branch.SubTraceSequencePool;
 import se.de.hu_berlin.informatik.spectra.core.traces.RawIntTraceCollector;
 import se.de.hu_berlin.informatik.spectra.core.traces.SimpleIntIndexerCompressed;
 import se.de.hu_berlin.informatik.spectra.provider.loader.AbstractCoverageDataLoader;
+import se.de.hu_berlin.informatik.spectra.provider.loader.LineNodeCache.LineNode;
+import se.de.hu_berlin.informatik.spectra.provider.loader.LineNodeCache.MethodLines;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.coveragedata.*;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.data.CoverageData;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.CoberturaStatementEncoding;
@@ -23,8 +25,8 @@ import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.input.InputSequence;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.input.InputSequence.TraceIterator;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.input.SharedInputGrammar;
-import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output.OutputSequence;
-import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output.SharedOutputGrammar;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output.CompactOutputSequence;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output.SharedCompactOutputGrammar;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.report.TraceCoberturaReportWrapper;
 import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
 
@@ -34,6 +36,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public abstract class TraceCoberturaReportLoader<K extends ITrace<SourceCodeBlock>>
         extends AbstractCoverageDataLoader<SourceCodeBlock, K, TraceCoberturaReportWrapper> {
@@ -60,12 +66,15 @@ public abstract class TraceCoberturaReportLoader<K extends ITrace<SourceCodeBloc
 
     private int traceCount = 0;
 
-    SharedOutputGrammar sharedExecutionTraceGrammar = new SharedOutputGrammar();
-    SharedOutputGrammar sharedSubTraceGrammar = new SharedOutputGrammar();
+    SharedCompactOutputGrammar sharedExecutionTraceGrammar = new SharedCompactOutputGrammar();
+    SharedCompactOutputGrammar sharedSubTraceGrammar = new SharedCompactOutputGrammar();
 
     private final boolean sharedExe = true;
 //	private final boolean sharedSub = false;
 
+    // the maximum number of threads that split the thread traces of a test into sub traces
+    private int numberOfSplitThreads = Runtime.getRuntime().availableProcessors();
+
 
     @Override
     public boolean loadSingleCoverageData(ISpectra<SourceCodeBlock, K> lineSpectra, final TraceCoberturaReportWrapper reportWrapper,
@@ -81,8 +90,7 @@ public abstract class TraceCoberturaReportLoader<K extends ITrace<SourceCodeBloc
         if (projectData == null) {
             return false;
         } else if (this.projectData == null) {
-            this.projectData = projectData;
-            this.subTracePool.setProjectData(projectData);
+            setProjectData(projectData);
         }
 
         String testId;
@@ -131,7 +139,8 @@ public abstract class TraceCoberturaReportLoader<K extends ITrace<SourceCodeBloc
                             // String signature =
                             // methodNameAndSig.substring(methodNameAndSig.indexOf('('));
 
-                            final String methodIdentifier = String.format("%s:%s", actualClassName, methodNameAndSig);
+                            final MethodLines<SourceCodeBlock> methodLines = getMethodLines(lineSpectra, actualClassName, methodNameAndSig);
+                            final String methodIdentifier = methodLines.getMethodIdentifier();
 
                             onNewMethod(packageName, sourceFilePath, methodIdentifier, trace);
 
@@ -143,15 +152,15 @@ public abstract class TraceCoberturaReportLoader<K extends ITrace<SourceCodeBloc
                                 LineData lineData = (LineData) coverageData;
 
                                 // set node involvement
-                                SourceCodeBlock lineIdentifier = getIdentifier(
-                                        packageName, sourceFilePath, methodNameAndSig, lineData.getLineNumber(), NodeType.NORMAL);
+                                LineNode<SourceCodeBlock> line = getLine(
+                                        methodLines, packageName, sourceFilePath, methodNameAndSig, lineData.getLineNumber(), NodeType.NORMAL);
 
                                 long hits = lineData.getHits();
                                 if (hits > 0) {
                                     coveredLines = true;
                                 }
                                 onNewLine(
-                                        packageName, sourceFilePath, methodIdentifier, lineIdentifier, lineSpectra, trace,
+                                        packageName, sourceFilePath, methodIdentifier, line, lineSpectra, trace,
                                         fullSpectra, hits);
 
                                 if (lineData.hasBranch()) {
@@ -164,26 +173,26 @@ public abstract class TraceCoberturaReportLoader<K extends ITrace<SourceCodeBloc
                                             JumpData jumpData = (JumpData) branchData;
 
                                             // add nodes for false branches (the counters point at the "wrong" boolean)
-                                            SourceCodeBlock lineIdentifier2 = getIdentifier(
-                                                    packageName, sourceFilePath, methodNameAndSig, lineData.getLineNumber(), NodeType.FALSE_BRANCH);
+                                            LineNode<SourceCodeBlock> line2 = getLine(
+                                                    methodLines, packageName, sourceFilePath, methodNameAndSig, lineData.getLineNumber(), NodeType.FALSE_BRANCH);
 //										Log.out(this, "%s, F: %d", lineIdentifier.toString(), jumpData.getTrueHits());
                                             onNewLine(
-                                                    packageName, sourceFilePath, methodIdentifier, lineIdentifier2, lineSpectra, trace,
+                                                    packageName, sourceFilePath, methodIdentifier, line2, lineSpectra, trace,
                                                     fullSpectra, jumpData.getTrueHits());
 
                                             // add nodes for true branches (the counters point at the "wrong" boolean)
-                                            SourceCodeBlock lineIdentifier3 = getIdentifier(
-                                                    packageName, sourceFilePath, methodNameAndSig, lineData.getLineNumber(), NodeType.TRUE_BRANCH);
+                                            LineNode<SourceCodeBlock> line3 = getLine(
+                                                    methodLines, packageName, sourceFilePath, methodNameAndSig, lineData.getLineNumber(), NodeType.TRUE_BRANCH);
 //										Log.out(this, "%s, T: %d", lineIdentifier.toString(), jumpData.getFalseHits());
                                             onNewLine(
-                                                    packageName, sourceFilePath, methodIdentifier, lineIdentifier3, lineSpectra, trace,
+                                                    packageName, sourceFilePath, methodIdentifier, line3, lineSpectra, trace,
                                                     fullSpectra, jumpData.getFalseHits());
                                         } else if (branchData instanceof SwitchData) {
                                             SwitchData switchData = (SwitchData) branchData;
 
                                             // add nodes for default branch of switch statements
-                                            SourceCodeBlock lineIdentifier4 = getIdentifier(
-                                                    packageName, sourceFilePath, methodNameAndSig, lineData.getLineNumber(), NodeType.SWITCH_BRANCH);
+                                            LineNode<SourceCodeBlock> line4 = getLine(
+                                                    methodLines, packageName, sourceFilePath, methodNameAndSig, lineData.getLineNumber(), NodeType.SWITCH_BRANCH);
 //										Log.out(this, "%s, SD: %d", lineIdentifier.toString(), switchData.getDefaultHits());
 //										onNewLine(
 //												packageName, sourceFilePath, methodIdentifier, lineIdentifier, lineSpectra, trace,
@@ -203,7 +212,7 @@ public abstract class TraceCoberturaReportLoader<K extends ITrace<SourceCodeBloc
 //												fullSpectra, switchBranchHits);
 
                                             onNewLine(
-                                                    packageName, sourceFilePath, methodIdentifier, lineIdentifier4, lineSpectra, trace,
+                                                    packageName, sourceFilePath, methodIdentifier, line4, lineSpectra, trace,
                                                     fullSpectra, switchBranchHits + switchData.getDefaultHits());
                                         }
                                     }
@@ -252,17 +261,7 @@ public abstract class TraceCoberturaReportLoader<K extends ITrace<SourceCodeBloc
 
 //            	SharedInputGrammar sharedInputGrammar = SequiturUtils.getInputGrammarFromByteArray(projectData.getExecutionTraces().getSecond());
                 // convert execution traces from statement sequences to sequences of sub traces
-            	List<Pair<Long, byte[]>> executionTracesWithSubTraces = new ArrayList<>(projectData.getExecutionTraces().size());
-                for (Iterator<Pair<Long, byte[]>> iterator = projectData.getExecutionTraces().iterator(); iterator.hasNext(); ) {
-                    Pair<Long, byte[]> entry = iterator.next();
-                    iterator.remove();
-
-                    byte[] mappedExecutionTrace = generateSubTraceExecutionTrace(entry.getSecond(), projectData, lineSpectra);
-
-//				System.out.println(String.format("grammar size: %,d", SpectraFileUtils.convertToByteArray(sharedExecutionTraceGrammar).length/4));
-
-                    executionTracesWithSubTraces.add(new Pair<>(entry.getFirst(), mappedExecutionTrace));
-                }
+            	List<Pair<Long, byte[]>> executionTracesWithSubTraces = generateSubTraceExecutionTraces(projectData, lineSpectra);
                 projectData.addExecutionTraces(executionTracesWithSubTraces);
 
 
@@ -438,140 +437,117 @@ public abstract class TraceCoberturaReportLoader<K extends ITrace<SourceCodeBloc
         }
     }
 
-    private byte[] generateSubTraceExecutionTrace(byte[] trace, ProjectData projectData, 
-    		ISpectra<SourceCodeBlock, K> lineSpectra) throws ClassNotFoundException, IOException {
-        OutputSequence resultTrace = sharedExe ? new OutputSequence(sharedExecutionTraceGrammar) : new OutputSequence();
-        String[] idToClassNameMap = projectData.getIdToClassNameMap();
-        // iterate over trace and generate new trace based on seen sub traces
-        // iterate over executed statements in the trace
-
-        TraceIterator traceIterator = SequiturUtils.getInputSequenceFromByteArray(trace).iterator();
-
-        SingleLinkedIntArrayQueue currentSubTrace = new SingleLinkedIntArrayQueue(15);
-        int lastMethod = -1;
-        int lastClass = -1;
-        int lastNodeType = CoberturaStatementEncoding.NORMAL_ID;
-        long counter = 0;
-        while (traceIterator.hasNext()) {
-//			++counter;
-//			if (counter % 100000 == 0)
-//				System.out.print('.');
-//			if (counter % 10000000 == 0)
-//				System.out.println(String.format("%,d", counter));
-
-            int statement = traceIterator.next();
-
-            // check if the current statement indicates the start of a new sub trace;
-            // this is currently done when entering a catch block or entering a method
-            if (statement == ExecutionTraceCollector.NEW_SUBTRACE_ID) {
-                // cut the trace **before** each catch block entry or new method start
-                if (!currentSubTrace.isEmpty()) {
-                    currentSubTrace = processLastSubTrace(resultTrace, currentSubTrace, lastNodeType, idToClassNameMap, lineSpectra);
-
-                    if (++counter % SMALL_STEP == 0) {
-                        System.out.print('.');
-                        if (counter % LARGE_STEP == 0)
-                            System.out.println(String.format("%,d", counter));
-                    }
-                }
-
-                while (statement == ExecutionTraceCollector.NEW_SUBTRACE_ID) {
-                    // skip the indicator
-                    if (traceIterator.hasNext()) {
-                        statement = traceIterator.next();
-                    } else {
-                        break;
-                    }
-                }
+    void setProjectData(ProjectData projectData) {
+        this.projectData = projectData;
+        this.subTracePool.setProjectData(projectData);
+    }
 
-                if (statement == ExecutionTraceCollector.NEW_SUBTRACE_ID) {
-                    // we're at the end of the trace!
-                    break;
-                }
-            }
+    /**
+     * Sets the maximum number of threads that split the thread traces of a test into sub traces.
+     * The resulting sub trace IDs do not depend on the number of threads.
+     *
+     * @param numberOfSplitThreads the maximum number of threads; 1 splits the traces sequentially
+     */
+    public void setNumberOfSplitThreads(int numberOfSplitThreads) {
+        this.numberOfSplitThreads = Math.max(1, numberOfSplitThreads);
+    }
 
-//			Log.out(true, this, "statement: " + Arrays.toString(statement));
-            // TODO store the class names with '.' from the beginning, or use the '/' version?
-            int classId = CoberturaStatementEncoding.getClassId(statement);
-            int counterId = CoberturaStatementEncoding.getCounterId(statement);
+    SubTracePool getSubTracePool() {
+        return subTracePool;
+    }
 
-            ClassData classData = projectData.getClassData(classId);
+    SubTraceSequencePool getSubTraceSequencePool() {
+        return subTraceSequencePool;
+    }
 
-            if (classData != null) {
+    List<Pair<Long, byte[]>> generateSubTraceExecutionTraces(ProjectData projectData,
+    		ISpectra<SourceCodeBlock, K> lineSpectra) throws Exception {
+        List<Pair<Long, byte[]>> executionTraces = new ArrayList<>(projectData.getExecutionTraces().size());
+        List<Long> threadIds = new ArrayList<>(projectData.getExecutionTraces().size());
+        List<ExecutionTraceSplitter> splitters = new ArrayList<>(projectData.getExecutionTraces().size());
+        for (Iterator<Pair<Long, byte[]>> iterator = projectData.getExecutionTraces().iterator(); iterator.hasNext(); ) {
+            Pair<Long, byte[]> entry = iterator.next();
+            iterator.remove();
+            threadIds.add(entry.getFirst());
+            splitters.add(new ExecutionTraceSplitter(entry.getSecond(), projectData, subTracePool));
+        }
 
-                if (counterId == AbstractCodeProvider.FAKE_COUNTER_ID) {
-                    // this marks a fake jump! we should not be here...
-                    throw new IllegalStateException("Illegal counter ID 0 in class " + classId + ". (" + classData.getName() + ")");
-                }
+        int numberOfThreads = Math.min(splitters.size(), numberOfSplitThreads);
+        if (numberOfThreads <= 1) {
+            for (int i = 0; i < splitters.size(); ++i) {
+                byte[] mappedExecutionTrace = generateSubTraceExecutionTrace(splitters.get(i).call(), lineSpectra);
+                executionTraces.add(new Pair<>(threadIds.get(i), mappedExecutionTrace));
+            }
+            return executionTraces;
+        }
 
-                int[] lineNumber = classData.getCounterId2LineNumbers()[counterId];
-
-                // check if we switched to a different class than before
-                if (classId == lastClass) {
-                    // check if we switched to a different method than we were in before;
-                    // this should allow for the sub traces to be uniquely determined by first and last statement
-                    int currentMethod = lineNumber[2] < 0 ? lastMethod : lineNumber[2];
-                    if (currentMethod != lastMethod && !currentSubTrace.isEmpty()) {
-                        // cut the trace after each change in methods
-                        currentSubTrace = processLastSubTrace(resultTrace, currentSubTrace, lastNodeType, idToClassNameMap, lineSpectra);
-
-                        if (++counter % SMALL_STEP == 0) {
-                            System.out.print('.');
-                            if (counter % LARGE_STEP == 0)
-                                System.out.println(String.format("%,d", counter));
-                        }
-                    }
-                    lastMethod = currentMethod;
-                } else {
-                    // change in classes!
-                    if (!currentSubTrace.isEmpty()) {
-                        // cut the trace after each change in classes
-                        currentSubTrace = processLastSubTrace(resultTrace, currentSubTrace, lastNodeType, idToClassNameMap, lineSpectra);
-
-                        if (++counter % SMALL_STEP == 0) {
-                            System.out.print('.');
-                            if (counter % LARGE_STEP == 0)
-                                System.out.println(String.format("%,d", counter));
-                        }
-                    }
-                    lastMethod = lineNumber[2];
-                    lastClass = classId;
+        // decode and split the traces concurrently, but assign new IDs in the order of the traces;
+        // this way, the IDs are the same as if all traces were processed sequentially
+        ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+        try {
+            List<Future<ExecutionTraceSplitter.Result>> results = new ArrayList<>(splitters.size());
+            for (ExecutionTraceSplitter splitter : splitters) {
+                results.add(executorService.submit(splitter));
+            }
+            splitters.clear();
+            for (int i = 0; i < results.size(); ++i) {
+                ExecutionTraceSplitter.Result result;
+                try {
+                    result = results.get(i).get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
                 }
+                // allow the result to be garbage collected when done
+                results.set(i, null);
+                byte[] mappedExecutionTrace = generateSubTraceExecutionTrace(result, lineSpectra);
+                executionTraces.add(new Pair<>(threadIds.get(i), mappedExecutionTrace));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        return executionTraces;
+    }
 
-                // add the current statement to the current sub trace
-                currentSubTrace.addNoAutoBoxing(statement);
-
-
-                lastNodeType = lineNumber[1];
+    private byte[] generateSubTraceExecutionTrace(ExecutionTraceSplitter.Result splitTrace,
+    		ISpectra<SourceCodeBlock, K> lineSpectra) throws IOException {
+        CompactOutputSequence resultTrace = sharedExe ? new CompactOutputSequence(sharedExecutionTraceGrammar) : new CompactOutputSequence();
 
-                if (lastNodeType != CoberturaStatementEncoding.NORMAL_ID && !currentSubTrace.isEmpty()) {
-                    // cut the trace after each branching statement
-                    currentSubTrace = processLastSubTrace(resultTrace, currentSubTrace, lastNodeType, idToClassNameMap, lineSpectra);
+        // generate new trace based on seen sub traces and sequences of sub traces
+        SingleLinkedIntArrayQueue currentSubTraceSequence = null;
+        long counter = 0;
+        for (SingleLinkedIntArrayQueue.MyIterator iterator = splitTrace.getEntries().iterator2(); iterator.hasNext(); ) {
+            int entry = iterator.nextNoAutoBoxing();
+            if (entry == ExecutionTraceSplitter.SEQUENCE_END) {
+                // after a branch, add the current sequence ID to the execution trace!
+                addSubTraceSequenceToTrace(resultTrace, currentSubTraceSequence);
+                currentSubTraceSequence = null;
+                continue;
+            }
 
-                    if (++counter % SMALL_STEP == 0) {
-                        System.out.print('.');
-                        if (counter % LARGE_STEP == 0)
-                            System.out.println(String.format("%,d", counter));
-                    }
-                }
+            // add current sub trace to pool, if necessary;
+            // otherwise just gets the respective sub trace id!
+            int id = splitTrace.resolveId(entry, subTracePool, lineSpectra);
 
-            } else {
-                throw new IllegalStateException("Class data for class '" + classId + "' not found.");
+            // we'll add the current sub trace id to the current sequence of sub traces;
+            // if there is none, we have to create a new one!
+            if (currentSubTraceSequence == null) {
+                currentSubTraceSequence = new SingleLinkedIntArrayQueue(30);
             }
-        }
+            currentSubTraceSequence.add(id);
 
-        // process any remaining statements
-        if (!currentSubTrace.isEmpty()) {
-            currentSubTrace = processLastSubTrace(resultTrace, currentSubTrace, lastNodeType, idToClassNameMap, lineSpectra);
-            currentSubTrace.clear();
+            if (++counter % SMALL_STEP == 0) {
+                System.out.print('.');
+                if (counter % LARGE_STEP == 0)
+                    System.out.println(String.format("%,d", counter));
+            }
         }
 
         // process remaining sub trace sequence
         if (currentSubTraceSequence != null) {
-            addCurrentSubTraceSequenceToTrace(resultTrace);
+            addSubTraceSequenceToTrace(resultTrace, currentSubTraceSequence);
         }
 
-        byte[] bytes = SequiturUtils.convertToByteArray(resultTrace, !sharedExe);
+        byte[] bytes = SequiturUtils.convertToByteArray(resultTrace, !sharedExe, SequiturUtils.Format.COMPACT);
 
         if (!sharedExe) {
             System.out.println(String.format("%n#sub traces: %,d -> %,d (%.2f%%)",
@@ -581,52 +557,11 @@ public abstract class TraceCoberturaReportLoader<K extends ITrace<SourceCodeBloc
         return bytes;
     }
 
-    SingleLinkedIntArrayQueue currentSubTraceSequence = null;
-
-    private SingleLinkedIntArrayQueue processLastSubTrace(
-            OutputSequence resultTrace, SingleLinkedIntArrayQueue currentSubTrace,
-            int lastNodeType, String[] idToClassNameMap, ISpectra<SourceCodeBlock, K> lineSpectra) {
-        Integer lastExecutedStatement = null;
-        // remember a directly preceding branch, if any
-        if (lastNodeType != CoberturaStatementEncoding.NORMAL_ID) {
-            // last processed statement was some sort of branch
-            lastExecutedStatement = currentSubTrace.peekLastNoCheck();
-        }
-
-        // add current sub trace to pool, if necessary;
-        // otherwise just gets the respective sub trace id!
-        int id = subTracePool.addSubTraceSequence(currentSubTrace, lineSpectra);
-        // reuse the sub trace; the sub trace pool should keep no reference!
-        currentSubTrace.clear();
-
-        // we'll add the current sub trace id to the current sequence of sub traces;
-        // if there is none, we have to create a new one!
-        if (currentSubTraceSequence == null) {
-            currentSubTraceSequence = new SingleLinkedIntArrayQueue(30);
-        }
-        // add the sub trace id to sub trace sequence
-        currentSubTraceSequence.add(id);
-
-        if (lastExecutedStatement != null) {
-            // add the last executed statement (some branch)
-            // to the new sub trace
-            currentSubTrace.add(lastExecutedStatement);
-
-            // after a branch, add the current sequence ID to the execution trace!
-            addCurrentSubTraceSequenceToTrace(resultTrace);
-        }
-
-        // return sub trace for reuse (wouldn't be really necessary)
-        return currentSubTrace;
-    }
-
-    private void addCurrentSubTraceSequenceToTrace(OutputSequence resultTrace) {
+    private void addSubTraceSequenceToTrace(CompactOutputSequence resultTrace, SingleLinkedIntArrayQueue subTraceSequence) {
         // since the last statement was a branch, this ends the current sequence of sub traces, too
-        int sequenceId = subTraceSequencePool.addSubTraceSequence(currentSubTraceSequence);
+        int sequenceId = subTraceSequencePool.addSubTraceSequence(subTraceSequence);
         // add the sequence ID to the execution trace!
         resultTrace.append(sequenceId);
-        // reset the current sequence
-        currentSubTraceSequence = null;
     }
 
 
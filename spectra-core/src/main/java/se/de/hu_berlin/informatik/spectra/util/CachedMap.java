@@ -5,6 +5,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -12,10 +13,15 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.zip.ZipException;
 
-import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.SingleLinkedIntArrayQueue;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.input.DataInput;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output.DataOutput;
 import se.de.hu_berlin.informatik.utils.compression.ziputils.MoveNamedByteArraysBetweenZipFilesProcessor;
@@ -30,16 +36,51 @@ public abstract class CachedMap<T> implements Map<Integer, T> {
 	private static final String MAP_EXTENSION = ".map";
 	private static final int DEFAULT_ENTRY_FILE_SIZE = 10000;
 	private static final int DEFAULT_CACHE_SIZE = 10000;
+	public static final int DEFAULT_PREFETCH_SIZE = 1000;
 //    private static final String INDEX_EXTENSION = ".idx";
 
+	/**
+	 * Determines which cached values are evicted if the cache is full.
+	 */
+	public enum EvictionPolicy {
+		/** evicts the value that was loaded first */
+		FIFO,
+		/** evicts the least recently used value */
+		LRU,
+		/** keeps values that are accessed frequently and rejects new values that are accessed rarely */
+		W_TINY_LFU
+	}
+
+	// the executor is shared among all maps; it only runs loads in advance
+	private static ExecutorService prefetchExecutor;
+
     private Map<Integer, CachemapFileEntry> storedEntries = new HashMap<>();
     private Map<Integer, T> newEntries = new HashMap<>();
     
-    private Map<Integer, T> cache = new HashMap<>();
-    private SingleLinkedIntArrayQueue cacheOrder = new SingleLinkedIntArrayQueue(100);
+    private EvictionPolicy evictionPolicy = EvictionPolicy.FIFO;
+    private EvictingCache<T> cache;
     private int cacheSize;
 
+    // stored keys for each file index, sorted by offset (computed on demand)
+    private Map<Integer, int[]> keysByOffset;
+    // values that were loaded in advance by the prefetcher, but not requested, yet
+    private final Map<Integer, T> prefetched = new ConcurrentHashMap<>();
+    private Future<?> prefetchTask;
+    // the entries that are loaded by the current task (file index and offsets)
+    private int prefetchFileIndex;
+    private long prefetchStart;
+    private long prefetchEnd;
+    private int lastPrefetchedKey;
+    private int prefetchSize = 0;
+
+    // may be updated by several threads
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder prefetchHits = new LongAdder();
+
     private AtomicInteger idGen = new AtomicInteger(0);
+    // the wrapper is shared by all users of the same zip file (including the prefetchers of
+    // other maps), so all accesses to the zip file are synchronized on the wrapper itself
     private final ZipFileWrapper zipFile;
     private String directory;
 	private final int zipEntryFileSize;
@@ -49,12 +90,15 @@ public abstract class CachedMap<T> implements Map<Integer, T> {
 	public CachedMap(Path zipFilePath, int cacheSize, int entryFileSize, String id, boolean deleteAtShutdown) {
 		this.zipEntryFileSize = entryFileSize;
         this.cacheSize = cacheSize;
+        this.cache = EvictingCache.create(evictionPolicy, cacheSize);
         this.directory = id;
         this.zipFile = ZipFileWrapper.getZipFileWrapper(zipFilePath);
 
         if (zipFilePath.toFile().exists()) {
             // (try to) load map contents from existing zip file
-            tryToLoadMapContents();
+            synchronized (zipFile) {
+                tryToLoadMapContents();
+            }
         }
 
         if (deleteAtShutdown) {
@@ -77,11 +121,66 @@ public abstract class CachedMap<T> implements Map<Integer, T> {
     
     public void setCacheSize(int size) {
     	this.cacheSize = size;
-    	while (cache.size() > cacheSize) {
-    		cache.remove(cacheOrder.remove());
+    	cache.setCapacity(size);
+    }
+
+    /**
+     * Sets the eviction policy of the cache. Discards all cached values.
+     *
+     * @param evictionPolicy the eviction policy
+     */
+    public void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+    	this.evictionPolicy = evictionPolicy;
+    	this.cache = EvictingCache.create(evictionPolicy, cacheSize);
+    }
+
+    public EvictionPolicy getEvictionPolicy() {
+    	return evictionPolicy;
+    }
+
+    /**
+     * Sets the number of entries to load in advance (in a background thread) if a stored
+     * entry is requested that is not cached. Entries are loaded in the order in which they
+     * are stored in the zip file, starting after the requested entry. This speeds up
+     * iterating over entries in the order in which they were added to the map.
+     *
+     * @param prefetchSize the number of entries to load in advance; 0 disables prefetching
+     */
+    public void setPrefetchSize(int prefetchSize) {
+    	this.prefetchSize = prefetchSize;
+    	if (prefetchSize <= 0) {
+    		discardPrefetchedEntries();
     	}
     }
 
+    public long getHits() {
+    	return hits.sum();
+    }
+
+    public long getMisses() {
+    	return misses.sum();
+    }
+
+    public long getPrefetchHits() {
+    	return prefetchHits.sum();
+    }
+
+    public void resetStats() {
+    	hits.reset();
+    	misses.reset();
+    	prefetchHits.reset();
+    }
+
+    public String getStats() {
+    	long hits = getHits();
+    	long misses = getMisses();
+    	long prefetchHits = getPrefetchHits();
+    	long requests = hits + misses + prefetchHits;
+    	return String.format("%s cache (%,d entries): %,d hits, %,d prefetched, %,d misses (%.2f%% hit rate)",
+    			evictionPolicy, cache.size(), hits, prefetchHits, misses,
+    			requests == 0 ? 0.0 : 100.0 * (hits + prefetchHits) / requests);
+    }
+
     private void tryToLoadMapContents() {
         try {
         	int highestUsedIndex = -1;
@@ -127,7 +226,10 @@ public abstract class CachedMap<T> implements Map<Integer, T> {
     }
 
 	private void loadEntryInfoFromIndexFile(String fileName, Integer fileIndex, Map<Integer, CachemapFileEntry> storedEntries) throws ZipException, IOException {
-		byte[] indexFile = zipFile.uncheckedGet(fileName);
+		byte[] indexFile;
+		synchronized (zipFile) {
+			indexFile = zipFile.uncheckedGet(fileName);
+		}
 		// index should contain a list of keys and where to find the values (key, offset, length)
 		ByteArrayInputStream byteIn = new ByteArrayInputStream(indexFile);
 		
@@ -169,6 +271,7 @@ public abstract class CachedMap<T> implements Map<Integer, T> {
     }
 
     public boolean moveMapContentsTo(Path otherZipFile, String directory) {
+    	discardPrefetchedEntries();
     	storeNewEntries(zipFile, this.directory, idGen, storedEntries, newEntries);
     	if (oldFormat) {
     		AtomicInteger idGen = new AtomicInteger(0);
@@ -185,10 +288,12 @@ public abstract class CachedMap<T> implements Map<Integer, T> {
     				new MoveNamedByteArraysBetweenZipFilesProcessor(zipFile.getzipFilePath(), otherZipFile);
 
     		boolean result = true;
-    		for (int i = 0; i < idGen.get(); ++i) {
-//    			System.err.println("moving: " + getFileName(i, directory));
-    			result &= mover.submit(new Pair<>(getIndexFileName(i, this.directory), getIndexFileName(i, directory))).getResult();
-    			result &= mover.submit(new Pair<>(getFileName(i, this.directory), getFileName(i, directory))).getResult();
+    		synchronized (zipFile) {
+    			for (int i = 0; i < idGen.get(); ++i) {
+//    				System.err.println("moving: " + getFileName(i, directory));
+    				result &= mover.submit(new Pair<>(getIndexFileName(i, this.directory), getIndexFileName(i, directory))).getResult();
+    				result &= mover.submit(new Pair<>(getFileName(i, this.directory), getFileName(i, directory))).getResult();
+    			}
     		}
 
     		return result;
@@ -216,6 +321,7 @@ public abstract class CachedMap<T> implements Map<Integer, T> {
 
     				if (storedEntries != null) {
     					storedEntries.put(entry.getKey(), new CachemapFileEntry(nextIndex, offset, array.length));
+    					keysByOffset = null;
     				}
     				offset += array.length;
 
@@ -228,11 +334,13 @@ public abstract class CachedMap<T> implements Map<Integer, T> {
 
     			// store in zip file
 				byte[] byteArray = byteOutIndex.toByteArray();
-//				System.err.println("byteArray length: " + byteArray.length);
-				zipFile.addArray(byteArray, getIndexFileName(nextIndex, directory));
 				byte[] byteArray2 = byteOut.toByteArray();
-//				System.err.println("byteArray2 length: " + byteArray2.length);
-				zipFile.addArray(byteArray2, getFileName(nextIndex, directory));
+				synchronized (zipFile) {
+//					System.err.println("byteArray length: " + byteArray.length);
+					zipFile.addArray(byteArray, getIndexFileName(nextIndex, directory));
+//					System.err.println("byteArray2 length: " + byteArray2.length);
+					zipFile.addArray(byteArray2, getFileName(nextIndex, directory));
+				}
     		}catch (Exception e) {
 				throw new IllegalStateException(e);
 			}
@@ -249,7 +357,11 @@ public abstract class CachedMap<T> implements Map<Integer, T> {
         }
 		try {
 //        	System.err.println("loading zip entry: " + getFileName(key, directory) + ", " + fileEntry.offset + ", " + fileEntry.length);
-            return fromByteArray(zipFile.uncheckedGet(fileName, fileEntry.offset, fileEntry.length));
+            byte[] bytes;
+            synchronized (zipFile) {
+            	bytes = zipFile.uncheckedGet(fileName, fileEntry.offset, fileEntry.length);
+            }
+            return fromByteArray(bytes);
         } catch (ZipException e) {
             e.printStackTrace();
             throw new IllegalStateException("Could not get zip entry: " + zipFile.getzipFilePath() + "/" + fileName);
@@ -283,19 +395,38 @@ public abstract class CachedMap<T> implements Map<Integer, T> {
     @Override
     public T get(Object key) {
         if (containsKey(key)) {
-            if (cache.containsKey(key)) {
-                return cache.get(key);
+            T value = cache.get((Integer) key);
+            if (value != null) {
+                hits.increment();
+                return value;
             }
             if (newEntries.containsKey(key)) {
+                // values that were not stored, yet, are held in memory, too
+                hits.increment();
                 return newEntries.get(key);
             }
 
-            // load from zip file, if not cached
-            T value = load((Integer) key);
-            // put in cache
-            if (cacheSize > 0) {
-                putInCache((Integer) key, value);
+            value = prefetched.remove(key);
+            if (value == null && isBeingPrefetched((Integer) key)) {
+                awaitPrefetch();
+                value = prefetched.remove(key);
             }
+            if (value != null) {
+                prefetchHits.increment();
+                if (prefetched.size() <= prefetchSize / 2 && isPrefetchDone()) {
+                    // continue loading in advance
+                    prefetch(lastPrefetchedKey);
+                }
+            } else {
+                // load from zip file, if not cached
+                misses.increment();
+                value = load((Integer) key);
+                if (prefetchSize > 0 && isPrefetchDone()) {
+                    prefetch((Integer) key);
+                }
+            }
+            // put in cache
+            cache.put((Integer) key, value);
 
             return value;
         } else {
@@ -303,12 +434,130 @@ public abstract class CachedMap<T> implements Map<Integer, T> {
         }
     }
 
-    private void putInCache(int key, T value) {
-        if (cache.size() >= cacheSize) {
-            cache.remove(cacheOrder.remove());
+    private boolean isPrefetchDone() {
+        return prefetchTask == null || prefetchTask.isDone();
+    }
+
+    private boolean isBeingPrefetched(int key) {
+        if (isPrefetchDone()) {
+            return false;
         }
-        cache.put(key, value);
-        cacheOrder.addNoAutoBoxing(key);
+        CachemapFileEntry fileEntry = storedEntries.get(key);
+        return fileEntry.fileIndex == prefetchFileIndex
+                && fileEntry.offset >= prefetchStart && fileEntry.offset < prefetchEnd;
+    }
+
+    // loads the entries that are stored after the given key in the background
+    private void prefetch(int key) {
+        if (oldFormat || prefetchSize <= 0) {
+            return;
+        }
+        CachemapFileEntry fileEntry = storedEntries.get(key);
+        if (fileEntry == null) {
+            return;
+        }
+        if (prefetched.size() > 2 * prefetchSize) {
+            // the prefetched entries are not used; start over
+            prefetched.clear();
+        }
+        int[] keys = getKeysByOffset(fileEntry.fileIndex);
+        int position = binarySearchByOffset(keys, fileEntry.offset);
+        int from = position + 1;
+        int to = Math.min(keys.length, from + prefetchSize);
+        if (from >= to) {
+            return;
+        }
+
+        final int[] prefetchKeys = Arrays.copyOfRange(keys, from, to);
+        final long start = storedEntries.get(prefetchKeys[0]).offset;
+        final long[] offsets = new long[prefetchKeys.length + 1];
+        for (int i = 0; i < prefetchKeys.length; ++i) {
+            offsets[i] = storedEntries.get(prefetchKeys[i]).offset - start;
+        }
+        CachemapFileEntry lastEntry = storedEntries.get(prefetchKeys[prefetchKeys.length - 1]);
+        offsets[prefetchKeys.length] = lastEntry.offset + lastEntry.length - start;
+        final String fileName = getFileName(fileEntry.fileIndex, directory);
+        lastPrefetchedKey = prefetchKeys[prefetchKeys.length - 1];
+        prefetchFileIndex = fileEntry.fileIndex;
+        prefetchStart = start;
+        prefetchEnd = start + offsets[prefetchKeys.length];
+
+        prefetchTask = getPrefetchExecutor().submit(() -> {
+            // the entries in a file are stored consecutively, so they can be read in one go
+            byte[] bytes;
+            synchronized (zipFile) {
+                bytes = zipFile.uncheckedGet(fileName, start, (int) offsets[prefetchKeys.length]);
+            }
+            for (int i = 0; i < prefetchKeys.length; ++i) {
+                prefetched.put(prefetchKeys[i], fromByteArray(
+                        Arrays.copyOfRange(bytes, (int) offsets[i], (int) offsets[i + 1])));
+            }
+            return null;
+        });
+    }
+
+    private int[] getKeysByOffset(int fileIndex) {
+        if (keysByOffset == null) {
+            Map<Integer, List<Integer>> keysPerFile = new HashMap<>();
+            for (Entry<Integer, CachemapFileEntry> entry : storedEntries.entrySet()) {
+                keysPerFile.computeIfAbsent(entry.getValue().fileIndex, k -> new ArrayList<>()).add(entry.getKey());
+            }
+            keysByOffset = new HashMap<>();
+            for (Entry<Integer, List<Integer>> entry : keysPerFile.entrySet()) {
+                keysByOffset.put(entry.getKey(), entry.getValue().stream()
+                        .sorted((a, b) -> Long.compare(storedEntries.get(a).offset, storedEntries.get(b).offset))
+                        .mapToInt(i -> i).toArray());
+            }
+        }
+        return keysByOffset.getOrDefault(fileIndex, new int[0]);
+    }
+
+    // finds the position of the key with the given offset in the given keys, which are sorted by their offsets
+    private int binarySearchByOffset(int[] keys, long offset) {
+        int low = 0;
+        int high = keys.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midOffset = storedEntries.get(keys[mid]).offset;
+            if (midOffset < offset) {
+                low = mid + 1;
+            } else if (midOffset > offset) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return keys.length;
+    }
+
+    private void awaitPrefetch() {
+        if (prefetchTask != null) {
+            try {
+                prefetchTask.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // entries will be loaded on request
+            }
+            prefetchTask = null;
+        }
+    }
+
+    // waits for a running prefetch task and discards all prefetched values
+    private void discardPrefetchedEntries() {
+        awaitPrefetch();
+        prefetched.clear();
+    }
+
+    private static synchronized ExecutorService getPrefetchExecutor() {
+        if (prefetchExecutor == null) {
+            prefetchExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "CachedMap-prefetcher");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return prefetchExecutor;
     }
 
     @Override
@@ -331,6 +580,8 @@ public abstract class CachedMap<T> implements Map<Integer, T> {
     
     // this rewrites the entire zip archive... avoid, if possible!
     private T replaceStoredEntry(Integer key, T value) {
+    	discardPrefetchedEntries();
+    	cache.remove(key);
 		// removes the files associated with the entry from the zip file and stores new entries
     	CachemapFileEntry fileEntry = storedEntries.get(key);
 //    	System.err.println("replacing key " + key + " in zip entry " + getFileName(fileEntry.fileIndex, directory));
@@ -350,6 +601,7 @@ public abstract class CachedMap<T> implements Map<Integer, T> {
     	
     	if (value == null) {
     		storedEntries.remove(key);
+    		keysByOffset = null;
     	}
     	
     	// return previous entry
@@ -363,7 +615,9 @@ public abstract class CachedMap<T> implements Map<Integer, T> {
     		toDelete.add(getFileName(fileIndex, directory));
     		toDelete.add(getIndexFileName(fileIndex, directory));
     	}
-    	zipFile.removeEntries(toDelete);
+    	synchronized (zipFile) {
+    		zipFile.removeEntries(toDelete);
+    	}
 	}
 	
 	private void removeFileEntriesFromZipFile(Collection<Integer> fileIndices) {
@@ -373,7 +627,9 @@ public abstract class CachedMap<T> implements Map<Integer, T> {
     		toDelete.add(getFileName(fileIndex, directory));
     		toDelete.add(getIndexFileName(fileIndex, directory));
     	}
-    	zipFile.removeEntries(toDelete);
+    	synchronized (zipFile) {
+    		zipFile.removeEntries(toDelete);
+    	}
 	}
 
 	private void loadFileEntries(int fileIndex, Map<Integer, T> map) {
@@ -387,7 +643,11 @@ public abstract class CachedMap<T> implements Map<Integer, T> {
     		}
     	} else {
     		try {
-    			if (!zipFile.exists(getIndexFileName(fileIndex, directory))) {
+    			boolean exists;
+    			synchronized (zipFile) {
+    				exists = zipFile.exists(getIndexFileName(fileIndex, directory));
+    			}
+    			if (!exists) {
     				return;
     			}
     			Map<Integer, CachemapFileEntry> entryInfo = new HashMap<>();
@@ -417,7 +677,10 @@ public abstract class CachedMap<T> implements Map<Integer, T> {
         }
 		try {
 //        	System.err.println("loading " + chunkLengths.size() + " zip entries from: " + fileName);
-        	List<byte[]> chunks = zipFile.uncheckedGet(fileName, chunkLengths);
+        	List<byte[]> chunks;
+        	synchronized (zipFile) {
+        		chunks = zipFile.uncheckedGet(fileName, chunkLengths);
+        	}
         	Iterator<byte[]> chunkIterator = chunks.iterator();
         	for (Entry<Integer, CachemapFileEntry> entry : sortedInfo.entrySet()) {
         		newEntries.put(entry.getKey(), fromByteArray(chunkIterator.next()));
@@ -465,7 +728,7 @@ public abstract class CachedMap<T> implements Map<Integer, T> {
 		if (!seenFiles.isEmpty()) {
 			// invalidate cached values
 			cache.clear();
-			cacheOrder.clear();
+			discardPrefetchedEntries();
 			
 			// remove old entries for all changed files
 			removeFileEntriesFromZipFile(seenFiles.keySet());
@@ -482,6 +745,7 @@ public abstract class CachedMap<T> implements Map<Integer, T> {
 					storedEntries.remove(entry.getKey());
 				}
 			}
+			keysByOffset = null;
 		}
 		
 	}
@@ -493,9 +757,6 @@ public abstract class CachedMap<T> implements Map<Integer, T> {
 		if (newEntries.containsKey(key)) {
 			return newEntries.remove(key);
 		} else if (storedEntries.containsKey(key)) {
-			if (cache.containsKey(key)) {
-                cache.remove(key);
-            }
 			return replaceStoredEntry((Integer) key, null);
 		} else {
 			return null;
@@ -509,16 +770,19 @@ public abstract class CachedMap<T> implements Map<Integer, T> {
 
     @Override
     public void clear() {
+        discardPrefetchedEntries();
         Set<String> toRemove = new HashSet<>();
         for (Entry<Integer, CachemapFileEntry> entry : storedEntries.entrySet()) {
             toRemove.add(getFileName(entry.getValue().fileIndex, directory));
             toRemove.add(getIndexFileName(entry.getValue().fileIndex, directory));
         }
-        zipFile.removeEntries(toRemove);
+        synchronized (zipFile) {
+            zipFile.removeEntries(toRemove);
+        }
         newEntries.clear();
         storedEntries.clear();
+        keysByOffset = null;
         cache.clear();
-        cacheOrder.clear();
     }
 
     @Override
@@ -582,7 +846,10 @@ public abstract class CachedMap<T> implements Map<Integer, T> {
 	}
 	
 	public void close() {
+		discardPrefetchedEntries();
 		store();
-		zipFile.close();
+		synchronized (zipFile) {
+			zipFile.close();
+		}
 	}
 }
@@ -0,0 +1,194 @@
+package se.de.hu_berlin.informatik.spectra.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Binary representation of the involvement table of a hit spectra that allows
+ * random access to the involvement of single traces.
+ * <pre>
+ *  header  | magic (int) | version (int) | #nodes (int) | #traces (int)
+ *  flags   | one byte per trace (1 -&gt; successful, 0 -&gt; failing)
+ *  index   | offset (int) of each trace block relative to the start of the data + end offset
+ *  data    | one block per trace: encoding (byte), #entries (int), entries
+ * </pre>
+ * Each trace block either contains the sorted indices of the involved nodes
+ * ({@link #ENCODING_ARRAY}) or a bit set over all nodes ({@link #ENCODING_BITSET}),
+ * whichever needs less space.
+ */
+public class ColumnarInvolvementBlock {
+
+    private static final int MAGIC = 0x53504331; // "SPC1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+
+    /**
+     * trace block contains the (sorted) indices of all involved nodes
+     */
+    public static final byte ENCODING_ARRAY = 0;
+    /**
+     * trace block contains a bit set with one bit per node
+     */
+    public static final byte ENCODING_BITSET = 1;
+
+    private final ByteBuffer buffer;
+    private final int nodeCount;
+    private final int traceCount;
+    private final int indexStart;
+    private final int dataStart;
+
+    /**
+     * @param buffer a buffer that holds a block that was created with a {@link Writer}
+     * @throws IllegalArgumentException if the buffer does not contain a valid block
+     */
+    public ColumnarInvolvementBlock(ByteBuffer buffer) throws IllegalArgumentException {
+        this.buffer = buffer;
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a columnar involvement block.");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported version: " + buffer.getInt(4));
+        }
+        this.nodeCount = buffer.getInt(8);
+        this.traceCount = buffer.getInt(12);
+        this.indexStart = HEADER_SIZE + traceCount;
+        this.dataStart = indexStart + 4 * (traceCount + 1);
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getTraceCount() {
+        return traceCount;
+    }
+
+    /**
+     * @param trace the index of the trace (starting at 0)
+     * @return whether the trace is successful
+     */
+    public boolean isSuccessful(int trace) {
+        return buffer.get(HEADER_SIZE + checkTrace(trace)) == 1;
+    }
+
+    /**
+     * Decodes the involvement of a single trace without touching the other traces.
+     * Safe to be called concurrently.
+     *
+     * @param trace the index of the trace (starting at 0)
+     * @return the sorted indices of all nodes that are involved in the trace
+     */
+    public int[] getInvolvedNodes(int trace) {
+        int position = dataStart + buffer.getInt(indexStart + 4 * checkTrace(trace));
+        byte encoding = buffer.get(position);
+        int count = buffer.getInt(position + 1);
+        position += 5;
+        if (encoding == ENCODING_ARRAY) {
+            int[] indices = new int[count];
+            for (int i = 0; i < count; ++i) {
+                indices[i] = buffer.getInt(position);
+                position += 4;
+            }
+            return indices;
+        } else if (encoding == ENCODING_BITSET) {
+            int[] indices = new int[nodeCount];
+            int size = 0;
+            for (int i = 0; i < count; ++i) {
+                long word = buffer.getLong(position);
+                position += 8;
+                while (word != 0) {
+                    indices[size++] = (i << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            return Arrays.copyOf(indices, size);
+        } else {
+            throw new IllegalStateException("Unknown encoding: " + encoding);
+        }
+    }
+
+    private int checkTrace(int trace) {
+        if (trace < 0 || trace >= traceCount) {
+            throw new IndexOutOfBoundsException("Trace: " + trace + ", trace count: " + traceCount);
+        }
+        return trace;
+    }
+
+    /**
+     * Creates a columnar involvement block, trace by trace.
+     */
+    public static class Writer {
+
+        private final int nodeCount;
+        private final int wordCount;
+        private final ByteArrayOutputStream flags = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        private int[] offsets = new int[16];
+        private int traceCount = 0;
+
+        /**
+         * @param nodeCount the number of nodes in the spectra
+         */
+        public Writer(int nodeCount) {
+            this.nodeCount = nodeCount;
+            this.wordCount = (nodeCount + 63) >>> 6;
+        }
+
+        /**
+         * Adds the next trace.
+         *
+         * @param successful      whether the trace is successful
+         * @param involvedNodes   the sorted indices of the involved nodes
+         * @param involvedCount   the number of valid entries in {@code involvedNodes}
+         */
+        public void addTrace(boolean successful, int[] involvedNodes, int involvedCount) {
+            if (traceCount + 1 >= offsets.length) {
+                offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+            }
+            offsets[traceCount] = data.size();
+            ++traceCount;
+            flags.write(successful ? 1 : 0);
+
+            ByteBuffer block;
+            if (4L * involvedCount <= 8L * wordCount) {
+                block = ByteBuffer.allocate(5 + 4 * involvedCount);
+                block.put(ENCODING_ARRAY).putInt(involvedCount);
+                for (int i = 0; i < involvedCount; ++i) {
+                    block.putInt(involvedNodes[i]);
+                }
+            } else {
+                long[] words = new long[wordCount];
+                for (int i = 0; i < involvedCount; ++i) {
+                    int node = involvedNodes[i];
+                    if (node < 0 || node >= nodeCount) {
+                        throw new IndexOutOfBoundsException("Node: " + node + ", node count: " + nodeCount);
+                    }
+                    words[node >>> 6] |= 1L << node;
+                }
+                block = ByteBuffer.allocate(5 + 8 * wordCount);
+                block.put(ENCODING_BITSET).putInt(wordCount);
+                for (long word : words) {
+                    block.putLong(word);
+                }
+            }
+            data.write(block.array(), 0, block.position());
+        }
+
+        /**
+         * @return the complete block
+         */
+        public byte[] toByteArray() {
+            offsets[traceCount] = data.size();
+            ByteBuffer result = ByteBuffer.allocate(HEADER_SIZE + traceCount + 4 * (traceCount + 1) + data.size());
+            result.putInt(MAGIC).putInt(VERSION).putInt(nodeCount).putInt(traceCount);
+            result.put(flags.toByteArray());
+            for (int i = 0; i <= traceCount; ++i) {
+                result.putInt(offsets[i]);
+            }
+            result.put(data.toByteArray());
+            return result.array();
+        }
+    }
+
+}
@@ -0,0 +1,291 @@
+package se.de.hu_berlin.informatik.spectra.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Bounded cache for the values of a {@link CachedMap}. Implementations differ in which entries
+ * are evicted (and admitted) if the cache is full.
+ *
+ * @param <T> the type of the cached values
+ */
+abstract class EvictingCache<T> {
+
+    protected int capacity;
+
+    EvictingCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    static <T> EvictingCache<T> create(CachedMap.EvictionPolicy policy, int capacity) {
+        switch (policy) {
+            case FIFO:
+                return new LinkedCache<>(capacity, false);
+            case LRU:
+                return new LinkedCache<>(capacity, true);
+            case W_TINY_LFU:
+                return new WindowTinyLfuCache<>(capacity);
+            default:
+                throw new UnsupportedOperationException("Unknown eviction policy: " + policy);
+        }
+    }
+
+    /**
+     * @param key the key
+     * @return the cached value, or null if not cached
+     */
+    abstract T get(int key);
+
+    /**
+     * Adds a value to the cache (after a miss). May evict other values or reject the new value.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    abstract void put(int key, T value);
+
+    abstract void remove(int key);
+
+    abstract void clear();
+
+    abstract int size();
+
+    void setCapacity(int capacity) {
+        this.capacity = capacity;
+        shrink();
+    }
+
+    abstract void shrink();
+
+    /**
+     * Evicts entries in insertion order (FIFO) or in access order (LRU).
+     */
+    private static class LinkedCache<T> extends EvictingCache<T> {
+
+        private final LinkedHashMap<Integer, T> map;
+
+        LinkedCache(int capacity, boolean accessOrder) {
+            super(capacity);
+            this.map = new LinkedHashMap<>(16, 0.75f, accessOrder);
+        }
+
+        @Override
+        T get(int key) {
+            return map.get(key);
+        }
+
+        @Override
+        void put(int key, T value) {
+            if (capacity <= 0) {
+                return;
+            }
+            map.put(key, value);
+            shrink();
+        }
+
+        @Override
+        void remove(int key) {
+            map.remove(key);
+        }
+
+        @Override
+        void clear() {
+            map.clear();
+        }
+
+        @Override
+        int size() {
+            return map.size();
+        }
+
+        @Override
+        void shrink() {
+            removeEldest(map, map.size() - Math.max(capacity, 0));
+        }
+    }
+
+    /**
+     * Window TinyLFU: new entries enter a small LRU window. Entries that drop out of the window
+     * are only admitted to the main (segmented LRU) cache if they were accessed more frequently
+     * than the entry that would have to be evicted for them. Access frequencies are estimated
+     * with a count-min sketch that is aged periodically. This keeps frequently used entries
+     * in the cache while scanning over many entries that are used once.
+     */
+    private static class WindowTinyLfuCache<T> extends EvictingCache<T> {
+
+        private final LinkedHashMap<Integer, T> window = new LinkedHashMap<>(16, 0.75f, true);
+        // main cache: entries that were accessed once in the main cache are on probation
+        private final LinkedHashMap<Integer, T> probation = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashMap<Integer, T> protectedEntries = new LinkedHashMap<>(16, 0.75f, true);
+        private final FrequencySketch sketch;
+
+        WindowTinyLfuCache(int capacity) {
+            super(capacity);
+            this.sketch = new FrequencySketch(capacity);
+        }
+
+        private int windowCapacity() {
+            return Math.max(1, capacity / 100);
+        }
+
+        private int mainCapacity() {
+            return Math.max(0, capacity - windowCapacity());
+        }
+
+        private int protectedCapacity() {
+            return mainCapacity() * 4 / 5;
+        }
+
+        @Override
+        T get(int key) {
+            sketch.increment(key);
+            T value = window.get(key);
+            if (value != null) {
+                return value;
+            }
+            value = protectedEntries.get(key);
+            if (value != null) {
+                return value;
+            }
+            value = probation.remove(key);
+            if (value != null) {
+                // second access in the main cache
+                protectedEntries.put(key, value);
+                if (protectedEntries.size() > protectedCapacity()) {
+                    Iterator<Entry<Integer, T>> iterator = protectedEntries.entrySet().iterator();
+                    Entry<Integer, T> demoted = iterator.next();
+                    iterator.remove();
+                    probation.put(demoted.getKey(), demoted.getValue());
+                }
+            }
+            return value;
+        }
+
+        @Override
+        void put(int key, T value) {
+            if (capacity <= 0) {
+                return;
+            }
+            window.put(key, value);
+            shrink();
+        }
+
+        @Override
+        void shrink() {
+            while (window.size() > windowCapacity()) {
+                Iterator<Entry<Integer, T>> iterator = window.entrySet().iterator();
+                Entry<Integer, T> candidate = iterator.next();
+                iterator.remove();
+                admit(candidate.getKey(), candidate.getValue());
+            }
+            // only needed if the capacity was reduced
+            removeEldest(protectedEntries, protectedEntries.size() - protectedCapacity());
+            removeEldest(probation, probation.size() + protectedEntries.size() - mainCapacity());
+        }
+
+        private void admit(int key, T value) {
+            if (probation.size() + protectedEntries.size() < mainCapacity()) {
+                probation.put(key, value);
+                return;
+            }
+            LinkedHashMap<Integer, T> victimMap = probation.isEmpty() ? protectedEntries : probation;
+            if (victimMap.isEmpty()) {
+                return;
+            }
+            int victim = victimMap.keySet().iterator().next();
+            if (sketch.frequency(key) > sketch.frequency(victim)) {
+                victimMap.remove(victim);
+                probation.put(key, value);
+            }
+        }
+
+        @Override
+        void remove(int key) {
+            if (window.remove(key) == null && probation.remove(key) == null) {
+                protectedEntries.remove(key);
+            }
+        }
+
+        @Override
+        void clear() {
+            window.clear();
+            probation.clear();
+            protectedEntries.clear();
+        }
+
+        @Override
+        int size() {
+            return window.size() + probation.size() + protectedEntries.size();
+        }
+    }
+
+    private static <T> void removeEldest(Map<Integer, T> map, int count) {
+        Iterator<Entry<Integer, T>> iterator = map.entrySet().iterator();
+        for (int i = 0; i < count && iterator.hasNext(); ++i) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Count-min sketch with four saturating 4 bit counters per key. All counters are halved
+     * after a number of increments that depends on the cache size, so that old accesses
+     * lose their weight over time.
+     */
+    static class FrequencySketch {
+
+        private static final int MAX_COUNT = 15;
+        private static final long[] SEEDS = {
+                0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+
+        private final byte[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions = 0;
+
+        FrequencySketch(int capacity) {
+            int size = Integer.highestOneBit(Math.max(16, Math.min(capacity, 1 << 24)) * 2 - 1);
+            this.table = new byte[size];
+            this.mask = size - 1;
+            this.sampleSize = 10 * size;
+        }
+
+        int frequency(int key) {
+            int frequency = MAX_COUNT;
+            for (long seed : SEEDS) {
+                frequency = Math.min(frequency, table[index(key, seed)]);
+            }
+            return frequency;
+        }
+
+        void increment(int key) {
+            boolean added = false;
+            for (long seed : SEEDS) {
+                int index = index(key, seed);
+                if (table[index] < MAX_COUNT) {
+                    ++table[index];
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; ++i) {
+                table[i] >>= 1;
+            }
+            additions /= 2;
+        }
+
+        private int index(int key, long seed) {
+            long hash = (key + seed) * seed;
+            hash ^= hash >>> 32;
+            return (int) hash & mask;
+        }
+    }
+
+}
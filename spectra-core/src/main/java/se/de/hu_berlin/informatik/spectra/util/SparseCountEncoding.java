@@ -0,0 +1,121 @@
+package se.de.hu_berlin.informatik.spectra.util;
+
+import java.util.Arrays;
+
+/**
+ * Binary representation of the hit counts of a single trace of a count spectra.
+ * <pre>
+ *  flag    | 1 -&gt; successful, 0 -&gt; failing (varint)
+ *  size    | number of entries (varint)
+ *  entries | per node with a hit count greater than 0 (in ascending order of the
+ *          | stored node IDs): difference to the previous node ID (varint), hit count (varint)
+ * </pre>
+ * Nodes without hits are not stored, and small node ID differences and hit counts
+ * need only a single byte each.
+ */
+final class SparseCountEncoding {
+
+    private SparseCountEncoding() {
+    }
+
+    /**
+     * Consumes the decoded entries of a trace.
+     */
+    @FunctionalInterface
+    interface EntryConsumer {
+        void accept(int nodeId, int hits);
+    }
+
+    /**
+     * @param successful whether the trace is successful
+     * @param nodeIds    the stored IDs of the nodes (will be sorted, together with the hit counts)
+     * @param hits       the hit counts (greater than 0)
+     * @param size       the number of entries
+     * @return the encoded trace
+     */
+    static byte[] encode(boolean successful, int[] nodeIds, int[] hits, int size) {
+        sortByNodeId(nodeIds, hits, size);
+        // flag + size + entries of at most 5 bytes per varint
+        byte[] result = new byte[1 + 5 + 10 * size];
+        int position = 0;
+        result[position++] = (byte) (successful ? 1 : 0);
+        position = writeVarInt(result, position, size);
+        int previous = 0;
+        for (int i = 0; i < size; ++i) {
+            position = writeVarInt(result, position, nodeIds[i] - previous);
+            position = writeVarInt(result, position, hits[i]);
+            previous = nodeIds[i];
+        }
+        return Arrays.copyOf(result, position);
+    }
+
+    /**
+     * @param data an encoded trace
+     * @return whether the trace is successful
+     * @throws IllegalArgumentException if the data is empty
+     */
+    static boolean isSuccessful(byte[] data) throws IllegalArgumentException {
+        return readVarInt(data, new int[]{0}) == 1;
+    }
+
+    /**
+     * @param data     an encoded trace
+     * @param consumer consumes each entry (in ascending order of the node IDs)
+     * @return whether the trace is successful
+     * @throws IllegalArgumentException if the data is truncated
+     */
+    static boolean decode(byte[] data, EntryConsumer consumer) throws IllegalArgumentException {
+        int[] position = {0};
+        boolean successful = readVarInt(data, position) == 1;
+        int size = readVarInt(data, position);
+        int nodeId = 0;
+        for (int i = 0; i < size; ++i) {
+            nodeId += readVarInt(data, position);
+            consumer.accept(nodeId, readVarInt(data, position));
+        }
+        return successful;
+    }
+
+    private static void sortByNodeId(int[] nodeIds, int[] hits, int size) {
+        for (int i = 1; i < size; ++i) {
+            if (nodeIds[i - 1] > nodeIds[i]) {
+                // the counts are positive, so they can be packed in the lower bits
+                long[] entries = new long[size];
+                for (int j = 0; j < size; ++j) {
+                    entries[j] = ((long) nodeIds[j] << 32) | hits[j];
+                }
+                Arrays.sort(entries);
+                for (int j = 0; j < size; ++j) {
+                    nodeIds[j] = (int) (entries[j] >>> 32);
+                    hits[j] = (int) entries[j];
+                }
+                return;
+            }
+        }
+    }
+
+    static int writeVarInt(byte[] buffer, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    static int readVarInt(byte[] buffer, int[] position) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (position[0] >= buffer.length) {
+                throw new IllegalArgumentException("Truncated trace data.");
+            }
+            byte b = buffer[position[0]++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in trace data.");
+    }
+
+}
@@ -0,0 +1,68 @@
+package se.de.hu_berlin.informatik.spectra.util;
+
+import java.util.Arrays;
+
+/**
+ * Binary representation of the involvement of a single trace of a hit spectra.
+ * <pre>
+ *  flag    | 1 -&gt; successful, 0 -&gt; failing (varint)
+ *  size    | number of involved nodes (varint)
+ *  entries | per involved node (in ascending order of the stored node IDs):
+ *          | difference to the previous node ID (varint)
+ * </pre>
+ * In contrast to the compressed integer sequences of {@link SpectraFileUtils#STATUS_SPARSE},
+ * the node IDs can be decoded directly into a primitive array.
+ */
+final class SparseInvolvementEncoding {
+
+    private SparseInvolvementEncoding() {
+    }
+
+    /**
+     * @param successful whether the trace is successful
+     * @param nodeIds    the stored IDs of the involved nodes, in ascending order
+     * @param size       the number of involved nodes
+     * @return the encoded trace
+     */
+    static byte[] encode(boolean successful, int[] nodeIds, int size) {
+        // flag + size + entries of at most 5 bytes per varint
+        byte[] result = new byte[1 + 5 + 5 * size];
+        int position = 0;
+        result[position++] = (byte) (successful ? 1 : 0);
+        position = SparseCountEncoding.writeVarInt(result, position, size);
+        int previous = 0;
+        for (int i = 0; i < size; ++i) {
+            position = SparseCountEncoding.writeVarInt(result, position, nodeIds[i] - previous);
+            previous = nodeIds[i];
+        }
+        return Arrays.copyOf(result, position);
+    }
+
+    /**
+     * @param data an encoded trace
+     * @return whether the trace is successful
+     * @throws IllegalArgumentException if the data is empty
+     */
+    static boolean isSuccessful(byte[] data) throws IllegalArgumentException {
+        return SparseCountEncoding.isSuccessful(data);
+    }
+
+    /**
+     * @param data an encoded trace
+     * @return the stored IDs of the involved nodes, in ascending order
+     * @throws IllegalArgumentException if the data is truncated
+     */
+    static int[] decode(byte[] data) throws IllegalArgumentException {
+        int[] position = {0};
+        // skip the flag
+        SparseCountEncoding.readVarInt(data, position);
+        int[] nodeIds = new int[SparseCountEncoding.readVarInt(data, position)];
+        int nodeId = 0;
+        for (int i = 0; i < nodeIds.length; ++i) {
+            nodeId += SparseCountEncoding.readVarInt(data, position);
+            nodeIds[i] = nodeId;
+        }
+        return nodeIds;
+    }
+
+}
@@ -12,6 +12,8 @@ import se.de.hu_berlin.informatik.spectra.core.count.CountSpectra;
 import se.de.hu_berlin.informatik.spectra.core.count.CountTrace;
 import se.de.hu_berlin.informatik.spectra.core.hit.HitSpectra;
 import se.de.hu_berlin.informatik.spectra.core.hit.HitTrace;
+import se.de.hu_berlin.informatik.spectra.core.hit.PackedHitSpectra;
+import se.de.hu_berlin.informatik.spectra.core.hit.PackedHitTrace;
 import se.de.hu_berlin.informatik.spectra.core.traces.ExecutionTrace;
 import se.de.hu_berlin.informatik.spectra.core.traces.SequenceIndexerCompressed;
 import se.de.hu_berlin.informatik.spectra.core.traces.SimpleIntIndexerCompressed;
@@ -37,6 +39,7 @@ import se.de.hu_berlin.informatik.utils.tracking.ProgressTracker;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -66,7 +69,7 @@ public class SpectraFileUtils {
 
     private static final String NODE_IDENTIFIER_FILE_INDEX = "0.bin";
     private static final String TRACE_IDENTIFIER_FILE_INDEX = "1.bin";
-    private static final String INVOLVEMENT_TABLE_FILE_INDEX = "2.bin";
+    static final String INVOLVEMENT_TABLE_FILE_INDEX = "2.bin";
     private static final String STATUS_FILE_INDEX = "3.bin";
     private static final String INDEX_FILE_INDEX = "4.bin";
 
@@ -74,8 +77,9 @@ public class SpectraFileUtils {
     private static final String TRACE_IDENTIFIER_FILE_NAME = ".traceIDs";
     private static final String STATUS_FILE_NAME = ".status";
     private static final String INDEX_FILE_NAME = ".index";
+    static final String COLUMNS_FILE_NAME = ".columns";
 
-    private static final String TRACE_FILE_EXTENSION = ".trc";
+    static final String TRACE_FILE_EXTENSION = ".trc";
     public static final String EXECUTION_TRACE_FILE_EXTENSION = ".flw";
     public static final String EXECUTION_TRACE_REPETITIONS_FILE_EXTENSION = ".rflw";
     public static final String EXECUTION_TRACE_GRAMMAR_FILE = ".eGrammar";
@@ -97,6 +101,19 @@ public class SpectraFileUtils {
     public static final byte STATUS_COMPRESSED_COUNT = 6;
     public static final byte STATUS_COMPRESSED_INDEXED_COUNT = 7;
 
+    // involvement of all traces is stored in a single, randomly accessible block (see ColumnarInvolvementBlock)
+    public static final byte STATUS_COLUMNAR = 8;
+    public static final byte STATUS_COLUMNAR_INDEXED = 9;
+
+    // hit counts of each trace are stored as varint encoded (node ID, count) pairs (see SparseCountEncoding)
+    public static final byte STATUS_SPARSE_COUNT = 10;
+    public static final byte STATUS_SPARSE_INDEXED_COUNT = 11;
+
+    // involved nodes of each trace are stored as varint encoded node ID differences (see SparseInvolvementEncoding);
+    // has to be requested explicitly when saving, since older versions can not read it
+    public static final byte STATUS_SPARSE_DELTA = 12;
+    public static final byte STATUS_SPARSE_DELTA_INDEXED = 13;
+
     public static final String NODE_ID_SEQUENCES_DIR = "nodeSeqs";
     public static final String SUB_TRACE_ID_SEQUENCES_DIR = "subTraceSeqs";
     public static final String SUB_TRACE_ID_SEQUENCE_TREES_DIR = "subTraceTreeSeqs";
@@ -137,7 +154,7 @@ public class SpectraFileUtils {
 
         String traceIdentifiers = getTraceIdentifierListString(spectra.getTraces());
 
-        saveSpectraToZipFile(spectra, output, compress, sparse, false, nodes, null, nodeIdentifiers, traceIdentifiers);
+        saveSpectraToZipFile(spectra, output, compress, sparse, false, false, false, nodes, null, nodeIdentifiers, traceIdentifiers);
 
         ZipFileWrapper.getZipFileWrapper(output).close();
     }
@@ -196,6 +213,50 @@ public class SpectraFileUtils {
      */
     public static <T> void saveSpectraToZipFile(ISpectra<T, ?> spectra, Path output,
                                                 boolean compress, boolean sparse, boolean index) {
+        saveSpectraToZipFile(spectra, output, compress, sparse, index, false);
+    }
+
+    /**
+     * Saves a Spectra object to hard drive.
+     *
+     * @param spectra  the Spectra object to save
+     * @param output   the output path to the zip file to be created
+     * @param compress whether or not to use an additional compression procedure apart from
+     *                 zipping
+     * @param sparse   whether or not to use a sparse matrix representation (less space needed
+     *                 for storage)
+     * @param index    whether to index the identifiers to minimize the needed storage space
+     * @param columnar whether to store the involvement of all traces in a single block with
+     *                 random access to single traces (only for hit spectra; overrides
+     *                 {@code compress} and {@code sparse})
+     * @param <T>      the type of nodes in the spectra
+     */
+    public static <T> void saveSpectraToZipFile(ISpectra<T, ?> spectra, Path output,
+                                                boolean compress, boolean sparse, boolean index, boolean columnar) {
+        saveSpectraToZipFile(spectra, output, compress, sparse, index, columnar, false);
+    }
+
+    /**
+     * Saves a Spectra object to hard drive.
+     *
+     * @param spectra      the Spectra object to save
+     * @param output       the output path to the zip file to be created
+     * @param compress     whether or not to use an additional compression procedure apart from
+     *                     zipping
+     * @param sparse       whether or not to use a sparse matrix representation (less space needed
+     *                     for storage)
+     * @param index        whether to index the identifiers to minimize the needed storage space
+     * @param columnar     whether to store the involvement of all traces in a single block with
+     *                     random access to single traces (only for hit spectra; overrides
+     *                     {@code compress} and {@code sparse})
+     * @param deltaEncoded whether to store sparse hit traces as varint encoded node ID differences
+     *                     (faster to load, but can not be read by older versions; only used together
+     *                     with {@code sparse})
+     * @param <T>          the type of nodes in the spectra
+     */
+    public static <T> void saveSpectraToZipFile(ISpectra<T, ?> spectra, Path output,
+                                                boolean compress, boolean sparse, boolean index, boolean columnar,
+                                                boolean deltaEncoded) {
 
     	if (output.toFile().exists()) {
     		Log.abort(SpectraFileUtils.class, "File '%s' already exists.", output);
@@ -231,7 +292,7 @@ public class SpectraFileUtils {
             String nodeIdentifiers = getIdentifierString((Indexable<T>) identifier, index, nodes, map);
             String traceIdentifiers = getTraceIdentifierListString(spectra.getTraces());
 
-            saveSpectraToZipFile(spectra, output, compress, sparse, index, nodes, map, nodeIdentifiers, traceIdentifiers);
+            saveSpectraToZipFile(spectra, output, compress, sparse, index, columnar, deltaEncoded, nodes, map, nodeIdentifiers, traceIdentifiers);
         } else {
             saveSpectraToZipFile(spectra, output, compress, sparse);
         }
@@ -272,8 +333,8 @@ public class SpectraFileUtils {
 
     @SuppressWarnings("unchecked")
     private static <T, K extends ITrace<T>> void saveSpectraToZipFile(ISpectra<T, K> spectra, Path output,
-                                                                      boolean compress, boolean sparse, boolean index, 
-                                                                      Collection<INode<T>> nodes, Map<String, Integer> map,
+                                                                      boolean compress, boolean sparse, boolean index, boolean columnar,
+                                                                      boolean deltaEncoded, Collection<INode<T>> nodes, Map<String, Integer> map,
                                                                       String nodeIdentifiers, String traceIdentifiers) {
     	// should not exist, anyway...
         FileUtils.delete(output);
@@ -293,8 +354,10 @@ public class SpectraFileUtils {
             saveInvolvementArrayForCountSpectra(
                     (ISpectra<T, ? extends CountTrace<T>>) spectra, nodes, index,
                     status, nodeIndexToStoreIdMap, output);
+        } else if (columnar) {
+            saveInvolvementColumns(spectra, nodes, index, status, output);
         } else {
-            saveInvolvementArray(spectra, nodes, sparse, compress, index,
+            saveInvolvementArray(spectra, nodes, sparse, deltaEncoded, compress, index,
                     status, nodeIndexToStoreIdMap, output);
         }
 
@@ -351,11 +414,39 @@ public class SpectraFileUtils {
 	}
 
     private static <T> void saveInvolvementArray(ISpectra<T, ?> spectra, Collection<INode<T>> nodes, boolean sparse,
-                                                 boolean compress, boolean index, byte[] status,
+                                                 boolean deltaEncoded, boolean compress, boolean index, byte[] status,
                                                  Map<Integer, Integer> nodeIndexToStoreIdMap, Path outputFile) {
         int traceCount = 0;
 
-        if (sparse) {
+        if (sparse && deltaEncoded) {
+            Module<Pair<String, byte[]>, byte[]> zipModule = new AddNamedByteArrayToZipFileProcessor(outputFile, false).asModule();
+            int[] involvedNodes = new int[nodes.size()];
+            // iterate through the traces
+            for (ITrace<T> trace : spectra.getTraces()) {
+                ++traceCount;
+                int involvedCount = 0;
+                int nodeCounter = -1;
+                // stored node IDs correspond to the position in the node list
+                for (INode<T> node : nodes) {
+                    ++nodeCounter;
+                    if (trace.isInvolved(node)) {
+                        involvedNodes[involvedCount++] = nodeCounter;
+                    }
+                }
+                trace.sleep();
+
+                byte[] involvement = SparseInvolvementEncoding.encode(trace.isSuccessful(), involvedNodes, involvedCount);
+
+                // store each trace separately
+                zipModule.submit(new Pair<>(traceCount + TRACE_FILE_EXTENSION, involvement));
+            }
+
+            if (index) {
+                status[0] = STATUS_SPARSE_DELTA_INDEXED;
+            } else {
+                status[0] = STATUS_SPARSE_DELTA;
+            }
+        } else if (sparse) {
             Module<Pair<String, byte[]>, byte[]> zipModule = new AddNamedByteArrayToZipFileProcessor(outputFile, false).asModule();
             IntSequenceToCompressedByteArrayProcessor module = new IntSequenceToCompressedByteArrayProcessor();
             // iterate through the traces
@@ -438,6 +529,36 @@ public class SpectraFileUtils {
 
     }
 
+    private static <T> void saveInvolvementColumns(ISpectra<T, ?> spectra, Collection<INode<T>> nodes,
+                                                   boolean index, byte[] status, Path outputFile) {
+        ColumnarInvolvementBlock.Writer writer = new ColumnarInvolvementBlock.Writer(nodes.size());
+        int[] involvedNodes = new int[nodes.size()];
+        // iterate through the traces
+        for (ITrace<T> trace : spectra.getTraces()) {
+            int involvedCount = 0;
+            int nodeCounter = -1;
+            // stored node IDs correspond to the position in the node list
+            for (INode<T> node : nodes) {
+                ++nodeCounter;
+                if (trace.isInvolved(node)) {
+                    involvedNodes[involvedCount++] = nodeCounter;
+                }
+            }
+            trace.sleep();
+
+            writer.addTrace(trace.isSuccessful(), involvedNodes, involvedCount);
+        }
+
+        new AddNamedByteArrayToZipFileProcessor(outputFile, false).asModule()
+                .submit(new Pair<>(COLUMNS_FILE_NAME, writer.toByteArray()));
+
+        if (index) {
+            status[0] = STATUS_COLUMNAR_INDEXED;
+        } else {
+            status[0] = STATUS_COLUMNAR;
+        }
+    }
+
     private static class TraceFileNameSupplier implements Supplier<String> {
 
         int threadId = -1;
@@ -569,41 +690,50 @@ public class SpectraFileUtils {
                                                                                          Collection<INode<T>> nodes, boolean index, byte[] status,
                                                                                          Map<Integer, Integer> nodeIndexToStoreIdMap, Path outputFile) {
         Module<Pair<String, byte[]>, byte[]> zipModule = new AddNamedByteArrayToZipFileProcessor(outputFile, false).asModule();
-        IntSequenceToCompressedByteArrayProcessor module = new IntSequenceToCompressedByteArrayProcessor();
+        // map node indices to store IDs without boxing (stored node IDs start at 0)
+        int nodeIndexBound = 0;
+        for (INode<T> node : nodes) {
+            nodeIndexBound = Math.max(nodeIndexBound, node.getIndex() + 1);
+        }
+        final int[] storeIds = new int[nodeIndexBound];
+        Arrays.fill(storeIds, -1);
+        for (INode<T> node : nodes) {
+            storeIds[node.getIndex()] = nodeIndexToStoreIdMap.get(node.getIndex());
+        }
+
         int traceCount = 0;
+        int[] nodeIds = new int[16];
+        int[] hits = new int[16];
         // iterate through the traces
         for (K trace : spectra.getTraces()) {
             ++traceCount;
-            List<Integer> traceHits = new ArrayList<>(nodes.size() + 1);
-            // the first element is a flag that marks successful traces with '1'
-            if (trace.isSuccessful()) {
-                traceHits.add(1);
-            } else {
-                traceHits.add(0);
+            if (nodeIds.length < trace.hitNodesCount()) {
+                nodeIds = new int[trace.hitNodesCount()];
+                hits = new int[trace.hitNodesCount()];
             }
-            // the following elements are the hit counts
-            for (INode<T> node : nodes) {
-                if (trace.isInvolved(node)) {
-                    int hits = trace.getHits(node);
-                    traceHits.add(hits);
-                } else {
-                    traceHits.add(0);
+            final int[] traceNodeIds = nodeIds;
+            final int[] traceHits = hits;
+            final int[] size = {0};
+            trace.forEachHit((nodeIndex, nodeHits) -> {
+                // nodes that are not stored are skipped
+                if (nodeIndex < storeIds.length && storeIds[nodeIndex] >= 0) {
+                    traceNodeIds[size[0]] = storeIds[nodeIndex];
+                    traceHits[size[0]] = nodeHits;
+                    ++size[0];
                 }
-            }
+            });
             trace.sleep();
 
-            byte[] involvement = module.submit(traceHits).getResult();
+            byte[] involvement = SparseCountEncoding.encode(trace.isSuccessful(), traceNodeIds, traceHits, size[0]);
             // store each trace separately
             zipModule.submit(new Pair<>(traceCount + TRACE_FILE_EXTENSION, involvement));
         }
 
         if (index) {
-            status[0] = STATUS_COMPRESSED_INDEXED_COUNT;
+            status[0] = STATUS_SPARSE_INDEXED_COUNT;
         } else {
-            status[0] = STATUS_COMPRESSED_COUNT;
+            status[0] = STATUS_SPARSE_COUNT;
         }
-
-        
     }
 
 
@@ -629,6 +759,35 @@ public class SpectraFileUtils {
         return loadSpectraFromZipFile(zip, status, dummy);
     }
 
+    public static ISpectra<SourceCodeBlock, ?> loadPackedBlockSpectraFromZipFile(Path zipFilePath) {
+        return loadPackedSpectraFromZipFile(SourceCodeBlock.DUMMY, zipFilePath);
+    }
+
+    /**
+     * Loads a Spectra object from a zip file. Hit spectra are loaded as
+     * {@link PackedHitSpectra}, storing the involvement in a packed bit matrix.
+     * Count spectra and branch spectra are loaded as usual.
+     *
+     * @param dummy       a dummy object of type T that is used for obtaining indexed identifiers
+     * @param zipFilePath the path to the zip file containing the Spectra object
+     * @param <T>         the type of nodes in the spectra
+     * @return the loaded Spectra object
+     * @throws NullPointerException if dummy is null
+     */
+    public static <T extends Indexable<T>> ISpectra<T, ?> loadPackedSpectraFromZipFile(T dummy, Path zipFilePath)
+            throws NullPointerException {
+        if (dummy instanceof ProgramBranch) {
+            return loadSpectraFromZipFile(dummy, zipFilePath);
+        }
+        ZipFileWrapper zip = ZipFileWrapper.getZipFileWrapper(zipFilePath);
+
+        byte[] status = getStatusByte(zip);
+
+        return loadWithSpectraTypes(zip, status, dummy,
+                () -> new PackedHitSpectra<>(zip.getzipFilePath()),
+                () -> new CountSpectra<>(zip.getzipFilePath()));
+    }
+
     public static CountSpectra<SourceCodeBlock> loadBlockCountSpectraFromZipFile(Path zipFilePath) {
         return loadCountSpectraFromZipFile(SourceCodeBlock.DUMMY, zipFilePath);
     }
@@ -651,9 +810,29 @@ public class SpectraFileUtils {
         return loadCountSpectraFromZipFile(zip, status, dummy);
     }
 
-    private static byte[] getStatusByte(ZipFileWrapper zip) {
+    public static SpectraStream<SourceCodeBlock> streamBlockSpectraFromZipFile(Path zipFilePath) {
+        return streamSpectraFromZipFile(SourceCodeBlock.DUMMY, zipFilePath);
+    }
+
+    /**
+     * Opens a spectra zip file for reading its traces one at a time, without
+     * loading the complete spectra into memory.
+     *
+     * @param dummy       a dummy object of type T that is used for obtaining indexed identifiers
+     * @param zipFilePath the path to the zip file containing the Spectra object
+     * @param <T>         the type of nodes in the spectra
+     * @return a stream over the traces of the spectra
+     * @throws NullPointerException          if dummy is null
+     * @throws UnsupportedOperationException if the spectra can not be streamed (branch spectra, old file format)
+     */
+    public static <T extends Indexable<T>> SpectraStream<T> streamSpectraFromZipFile(T dummy, Path zipFilePath)
+            throws NullPointerException, UnsupportedOperationException {
+        return new SpectraStream<>(dummy, zipFilePath);
+    }
+
+    static byte[] getStatusByte(ZipFileWrapper zip) {
         // parse the status byte (0 -> uncompressed, 1 -> compressed)
-        byte[] status = zip.tryGetFromOneOf(STATUS_FILE_NAME, STATUS_FILE_INDEX);
+        byte[] status = getZipEntryFromOneOf(zip, STATUS_FILE_NAME, STATUS_FILE_INDEX);
         if (status == null) {
             Log.warn(
                     SpectraFileUtils.class,
@@ -685,7 +864,7 @@ public class SpectraFileUtils {
         D result = null;
 
         // parse the file containing the involvement table
-        byte[] involvementTable = zip.get(INVOLVEMENT_TABLE_FILE_INDEX, false);
+        byte[] involvementTable = getZipEntry(zip, INVOLVEMENT_TABLE_FILE_INDEX);
         if (involvementTable != null) {
             result = loadFromOldSpectraFileFormat(
                     zip, involvementTable, status, dummy, hitSpectraSupplier, countSpectraSupplier);
@@ -802,7 +981,9 @@ public class SpectraFileUtils {
         // get the trace identifiers
         String[] traceIdentifiers = getRawTraceIdentifiersFromZipFile(zip);
 
-        if (isSparse(status)) {
+        if (isColumnar(status)) {
+            result = loadFromColumnarBlock(zip, status, dummy, hitSpectraSupplier, traceIdentifiers);
+        } else if (isSparse(status) || isSparseDelta(status)) {
             D spectra = hitSpectraSupplier.get();
 
             List<T> lineArray = getNodeIdentifiersFromZipFile(dummy, zip, status, spectra);
@@ -819,31 +1000,26 @@ public class SpectraFileUtils {
             int traceCounter = 0;
             // iterate over the trace files and fill the spectra object
             byte[] traceInvolvement;
-            while ((traceInvolvement = zip.get((++traceCounter) + TRACE_FILE_EXTENSION, false)) != null) {
-                List<Integer> involvedNodes = processor.submit(traceInvolvement).getResult();
-
-                // the first element is always the 'successful' flag
-                ITrace<T> trace = spectra.addTrace(
-                        traceIdentifiers[traceCounter - 1], traceCounter, involvedNodes.get(0) == 1);
-                int nodeIndex = 1;
-                int node;
-                if (nodeIndex < involvedNodes.size()) {
-                    node = involvedNodes.get(nodeIndex);
+            while ((traceInvolvement = getZipEntry(zip, (++traceCounter) + TRACE_FILE_EXTENSION)) != null) {
+                boolean successful;
+                int[] indices;
+                if (isSparseDelta(status)) {
+                    successful = SparseInvolvementEncoding.isSuccessful(traceInvolvement);
+                    indices = SparseInvolvementEncoding.decode(traceInvolvement);
                 } else {
-                    node = -1;
-                }
-                for (int i = 0; i < lineArray.size(); ++i) {
-                    if (i + 1 == node) {
-                        trace.setInvolvement(i, true);
-                        ++nodeIndex;
-                        if (nodeIndex < involvedNodes.size()) {
-                            node = involvedNodes.get(nodeIndex);
-                        } else {
-                            node = -1;
-                        }
+                    // older files can only be decoded into boxed integers
+                    List<Integer> involvedNodes = processor.submit(traceInvolvement).getResult();
+                    // the first element is always the 'successful' flag; stored node IDs start at 1
+                    successful = involvedNodes.get(0) == 1;
+                    indices = new int[involvedNodes.size() - 1];
+                    for (int i = 1; i < involvedNodes.size(); ++i) {
+                        indices[i - 1] = involvedNodes.get(i) - 1;
                     }
                 }
 
+                ITrace<T> trace = spectra.addTrace(traceIdentifiers[traceCounter - 1], traceCounter, successful);
+                setInvolvedNodes(trace, indices);
+
                 loadExecutionTraces(zip, traceCounter, trace);
                 trace.sleep();
             }
@@ -866,22 +1042,27 @@ public class SpectraFileUtils {
             int traceCounter = 0;
             // iterate over the trace files and fill the spectra object
             byte[] traceInvolvement;
-            while ((traceInvolvement = zip.get((++traceCounter) + TRACE_FILE_EXTENSION, false)) != null) {
-                List<Integer> hits = processor.submit(traceInvolvement).getResult();
-
-                Iterator<Integer> iterator = hits.iterator();
-                // the first element is always the 'successful' flag
-                CountTrace<T> trace = spectra.addTrace(
-                        traceIdentifiers[traceCounter - 1], traceCounter, iterator.next() == 1);
-
-                int i = -1;
-                while (iterator.hasNext()) {
-                    Integer next = iterator.next();
-                    if (next > 0) {
-                    	trace.setHits(++i, next);
-                    } else {
-						++i;
-					}
+            while ((traceInvolvement = getZipEntry(zip, (++traceCounter) + TRACE_FILE_EXTENSION)) != null) {
+                CountTrace<T> trace;
+                if (isSparseCount(status)) {
+                    trace = loadSparseCountTrace(spectra, traceIdentifiers[traceCounter - 1], traceCounter, traceInvolvement);
+                } else {
+                    List<Integer> hits = processor.submit(traceInvolvement).getResult();
+
+                    Iterator<Integer> iterator = hits.iterator();
+                    // the first element is always the 'successful' flag
+                    trace = spectra.addTrace(
+                            traceIdentifiers[traceCounter - 1], traceCounter, iterator.next() == 1);
+
+                    int i = -1;
+                    while (iterator.hasNext()) {
+                        Integer next = iterator.next();
+                        if (next > 0) {
+                            trace.setHits(++i, next);
+                        } else {
+                            ++i;
+                        }
+                    }
                 }
 
                 loadExecutionTraces(zip, traceCounter, trace);
@@ -906,7 +1087,7 @@ public class SpectraFileUtils {
             int traceCounter = 0;
             // iterate over the trace files and fill the spectra object
             byte[] traceInvolvement;
-            while ((traceInvolvement = zip.get((++traceCounter) + TRACE_FILE_EXTENSION, false)) != null) {
+            while ((traceInvolvement = getZipEntry(zip, (++traceCounter) + TRACE_FILE_EXTENSION)) != null) {
 
                 // check if we have a compressed byte array at hand
                 if (isCompressed(status)) {
@@ -917,10 +1098,15 @@ public class SpectraFileUtils {
                 ITrace<T> trace = spectra.addTrace(
                         traceIdentifiers[traceCounter - 1], traceCounter, traceInvolvement[0] == 1);
 
-                for (int i = 0; i < lineArray.size(); ++i) {
-                	if (traceInvolvement[i + 1] == 1) {
-                		trace.setInvolvement(i, true);
-                	}
+                if (trace instanceof PackedHitTrace) {
+                    // set the bits directly
+                    ((PackedHitTrace<T>) trace).setInvolvementFromFlags(traceInvolvement, 1);
+                } else {
+                    for (int i = 0; i < lineArray.size(); ++i) {
+                        if (traceInvolvement[i + 1] == 1) {
+                            trace.setInvolvement(i, true);
+                        }
+                    }
                 }
 
                 loadExecutionTraces(zip, traceCounter, trace);
@@ -942,6 +1128,71 @@ public class SpectraFileUtils {
         return result;
     }
 
+    private static <T extends Indexable<T>, D extends ISpectra<T, ?>> D loadFromColumnarBlock(ZipFileWrapper zip, byte[] status,
+                                                                         T dummy, Supplier<D> hitSpectraSupplier,
+                                                                         String[] traceIdentifiers) throws ZipException {
+        D spectra = hitSpectraSupplier.get();
+
+        List<T> lineArray = getNodeIdentifiersFromZipFile(dummy, zip, status, spectra);
+
+        // add the nodes in the correct order
+        for (T t : lineArray) {
+            spectra.getOrCreateNode(t);
+        }
+
+        Log.out(SpectraFileUtils.class, "Loaded %,d nodes...", lineArray.size());
+
+        // the block is only decompressed once; single traces are decoded on demand
+        byte[] columns = getZipEntry(zip, COLUMNS_FILE_NAME);
+        if (columns == null) {
+            throw new ZipException("Could not find involvement block '" + COLUMNS_FILE_NAME + "'.");
+        }
+        final ColumnarInvolvementBlock block = new ColumnarInvolvementBlock(ByteBuffer.wrap(columns));
+        if (block.getNodeCount() != lineArray.size()) {
+            throw new ZipException("Number of nodes does not match: " + block.getNodeCount() + " != " + lineArray.size());
+        }
+
+        List<ITrace<T>> traces = new ArrayList<>(block.getTraceCount());
+        for (int i = 0; i < block.getTraceCount(); ++i) {
+            traces.add(spectra.addTrace(traceIdentifiers[i], i + 1, block.isSuccessful(i)));
+        }
+
+        // load the failing traces first...
+        for (ITrace<T> trace : traces) {
+            if (!trace.isSuccessful()) {
+                setInvolvedNodes(trace, block.getInvolvedNodes(trace.getIndex() - 1));
+            }
+        }
+
+        // ...and the successful traces when they are needed
+        for (ITrace<T> trace : traces) {
+            if (trace.isSuccessful()) {
+                final int traceIndex = trace.getIndex() - 1;
+                if (trace instanceof HitTrace) {
+                    ((HitTrace<T>) trace).setInvolvementLoader(() -> block.getInvolvedNodes(traceIndex));
+                } else {
+                    setInvolvedNodes(trace, block.getInvolvedNodes(traceIndex));
+                }
+            }
+
+            loadExecutionTraces(zip, trace.getIndex(), trace);
+            trace.sleep();
+        }
+        Log.out(SpectraFileUtils.class, "Loaded %,d test cases...", traces.size());
+        return spectra;
+    }
+
+    private static <T> void setInvolvedNodes(ITrace<T> trace, int[] involvedNodes) {
+        if (trace instanceof PackedHitTrace) {
+            // set the bits directly
+            ((PackedHitTrace<T>) trace).setInvolvedNodes(involvedNodes);
+        } else {
+            for (int index : involvedNodes) {
+                trace.setInvolvement(index, true);
+            }
+        }
+    }
+
     private static void loadAdditionalDataForBranchSpectra(ProgramBranchSpectra<?> branchSpectra, ZipFileWrapper zip) {
     	try {
     		branchSpectra.setStatementMap(loadBranchStatementIdentifierMap(zip));
@@ -967,6 +1218,7 @@ public class SpectraFileUtils {
         // TODO what is a good cache size here?
         CachedMap<int[]> map = new CachedIntArrayMap(zip.getzipFilePath(),
                 BRANCH_NODE_ID_SEQUENCES_DIR, false);
+        configureSequenceCache(map);
 
         Log.out(SpectraFileUtils.class, "Branch spectra: Loaded %,d sub traces from zip file!", map.size() - 1);
         return map;
@@ -977,6 +1229,7 @@ public class SpectraFileUtils {
         // TODO what is a good cache size here?
         CachedMap<int[]> map = new CachedIntArrayMap(zip.getzipFilePath(),
                 BRANCH_SUB_TRACE_ID_SEQUENCES_DIR, false);
+        configureSequenceCache(map);
 
         if (map.isEmpty()) {
             return null;
@@ -992,7 +1245,7 @@ public class SpectraFileUtils {
         int threadIndex = -1;
         while (true) {
             String file = (traceCounter) + "-" + (++threadIndex) + SpectraFileUtils.EXECUTION_TRACE_FILE_EXTENSION;
-            if (zip.exists(file)) {
+            if (zipEntryExists(zip, file)) {
                 ExecutionTrace e = loadExecutionTraceFromZipFile(zip, file, spectra);
 
                 traces.add(e);
@@ -1010,8 +1263,8 @@ public class SpectraFileUtils {
         // the stored IDs have to match the IDs of the node identifiers in the line array
         int threadIndex = -1;
         byte[] executionTraceThreadInvolvement;
-        while ((executionTraceThreadInvolvement = zip.get((traceCounter) + "-" + (++threadIndex)
-                + SpectraFileUtils.EXECUTION_TRACE_FILE_EXTENSION, false)) != null) {
+        while ((executionTraceThreadInvolvement = getZipEntry(zip, (traceCounter) + "-" + (++threadIndex)
+                + SpectraFileUtils.EXECUTION_TRACE_FILE_EXTENSION)) != null) {
 
             traces.add(executionTraceThreadInvolvement);
 
@@ -1037,12 +1290,15 @@ public class SpectraFileUtils {
         int threadIndex = -1;
         while (true) {
             String traceFile = (traceCounter) + "-" + (++threadIndex) + SpectraFileUtils.EXECUTION_TRACE_FILE_EXTENSION;
-            if (zip.exists(traceFile)) {
+            if (zipEntryExists(zip, traceFile)) {
 //				Log.out(SpectraFileUtils.class, "Moving '%s' from %s to %s", traceFile, zip.getzipFilePath(), outputFile);
                 String traceFileTarget = traceFileNameSupplier.get();
 
                 // move trace file
-                boolean successful = module.submit(new Pair<>(traceFile, traceFileTarget)).getResult();
+                boolean successful;
+                synchronized (zip) {
+                    successful = module.submit(new Pair<>(traceFile, traceFileTarget)).getResult();
+                }
 
                 if (!successful) {
                     Log.abort(SpectraFileUtils.class, "Could not move trace file.");
@@ -1102,12 +1358,70 @@ public class SpectraFileUtils {
 
     // for loading traces with shared grammar
     public static ExecutionTrace loadExecutionTraceFromZipFile(ZipFileWrapper zipFileWrapper, String compressedTraceFile, ISpectra<?, ?> spectra) throws ZipException {
-        return new ExecutionTrace(zipFileWrapper.uncheckedGet(compressedTraceFile), spectra.getIndexer());
+        return new ExecutionTrace(uncheckedGetZipEntry(zipFileWrapper, compressedTraceFile), spectra.getIndexer());
     }
 
     // for loading traces with included grammar
     public static ExecutionTrace loadExecutionTraceFromZipFile(ZipFileWrapper zipFileWrapper, String compressedTraceFile) throws ZipException {
-        return new ExecutionTrace(zipFileWrapper.uncheckedGet(compressedTraceFile));
+        return new ExecutionTrace(uncheckedGetZipEntry(zipFileWrapper, compressedTraceFile));
+    }
+
+    /*
+     * Zip file wrappers are shared by all users of the same zip file path. This includes
+     * the background prefetchers of the sequence maps (see configureSequenceCache(CachedMap)),
+     * so every access to a spectra zip file synchronizes on its wrapper.
+     */
+
+    /**
+     * Reads an entry of the given zip file.
+     *
+     * @param zip      the zip file
+     * @param fileName the name of the entry
+     * @return the entry's contents, or null if the entry does not exist
+     */
+    public static byte[] getZipEntry(ZipFileWrapper zip, String fileName) {
+        synchronized (zip) {
+            return zip.get(fileName, false);
+        }
+    }
+
+    /**
+     * Reads an entry of the given zip file.
+     *
+     * @param zip      the zip file
+     * @param fileName the name of the entry
+     * @return the entry's contents
+     * @throws ZipException if the entry can not be read
+     */
+    public static byte[] uncheckedGetZipEntry(ZipFileWrapper zip, String fileName) throws ZipException {
+        synchronized (zip) {
+            return zip.uncheckedGet(fileName);
+        }
+    }
+
+    /**
+     * Reads the first existing entry of the given zip file.
+     *
+     * @param zip             the zip file
+     * @param fileName        the name of the entry
+     * @param alternativeName the name of the entry to read if the first one does not exist
+     * @return the entry's contents, or null if none of the entries exists
+     */
+    public static byte[] getZipEntryFromOneOf(ZipFileWrapper zip, String fileName, String alternativeName) {
+        synchronized (zip) {
+            return zip.tryGetFromOneOf(fileName, alternativeName);
+        }
+    }
+
+    /**
+     * @param zip      the zip file
+     * @param fileName the name of the entry
+     * @return whether the entry exists in the given zip file
+     */
+    public static boolean zipEntryExists(ZipFileWrapper zip, String fileName) {
+        synchronized (zip) {
+            return zip.exists(fileName);
+        }
     }
 
 
@@ -1147,7 +1461,7 @@ public class SpectraFileUtils {
     public static <T> SequenceIndexerCompressed loadSequenceIndexer(ZipFileWrapper zip) throws ClassNotFoundException, IOException {
         Log.out(SpectraFileUtils.class, "Loading sequence indexer from zip file...");
 
-        byte[] grammarByteArray = zip.get(EXECUTION_TRACE_GRAMMAR_FILE, false);
+        byte[] grammarByteArray = getZipEntry(zip, EXECUTION_TRACE_GRAMMAR_FILE);
         CachedMap<int[]> nodeIdSequences = loadNodeIdSequences(zip);
         CachedMap<int[]> subTraceIdSequences = loadSubTraceIdSequences(zip);
 
@@ -1169,6 +1483,7 @@ public class SpectraFileUtils {
         // TODO what is a good cache size here?
         CachedMap<int[]> map = new CachedIntArrayMap(zip.getzipFilePath(),
                 NODE_ID_SEQUENCES_DIR, false);
+        configureSequenceCache(map);
 
         Log.out(SpectraFileUtils.class, "Loaded %,d sub traces from zip file!", map.size() - 1);
         return map;
@@ -1179,6 +1494,7 @@ public class SpectraFileUtils {
         // TODO what is a good cache size here?
         CachedMap<int[]> map = new CachedIntArrayMap(zip.getzipFilePath(),
                 SUB_TRACE_ID_SEQUENCES_DIR, false);
+        configureSequenceCache(map);
 
         if (map.isEmpty()) {
             return null;
@@ -1187,6 +1503,12 @@ public class SpectraFileUtils {
         return map;
     }
 
+    private static void configureSequenceCache(CachedMap<?> map) {
+        // execution traces request the sequences mostly in the order in which they were stored
+        map.setEvictionPolicy(CachedMap.EvictionPolicy.W_TINY_LFU);
+        map.setPrefetchSize(CachedMap.DEFAULT_PREFETCH_SIZE);
+    }
+
     public static File getTemporaryOutputDir(String dirNamePrefix, Path alternatePath) {
         String tmpDir = System.getProperty("tmp_dir");
         if (tmpDir != null) {
@@ -1213,22 +1535,48 @@ public class SpectraFileUtils {
     }
 
 
-    private static boolean isCountSpectra(byte[] status) {
-        return status[0] == STATUS_COMPRESSED_COUNT || status[0] == STATUS_COMPRESSED_INDEXED_COUNT;
+    private static <T> CountTrace<T> loadSparseCountTrace(CountSpectra<T> spectra, String identifier,
+                                                          int traceIndex, byte[] traceData) throws ZipException {
+        try {
+            CountTrace<T> trace = spectra.addTrace(identifier, traceIndex, SparseCountEncoding.isSuccessful(traceData));
+            SparseCountEncoding.decode(traceData, trace::setHits);
+            return trace;
+        } catch (IllegalArgumentException e) {
+            throw new ZipException("Could not decode hit counts of trace " + traceIndex + ": " + e.getMessage());
+        }
+    }
+
+    static boolean isCountSpectra(byte[] status) {
+        return status[0] == STATUS_COMPRESSED_COUNT || status[0] == STATUS_COMPRESSED_INDEXED_COUNT
+                || isSparseCount(status);
+    }
+
+    static boolean isSparseCount(byte[] status) {
+        return status[0] == STATUS_SPARSE_COUNT || status[0] == STATUS_SPARSE_INDEXED_COUNT;
+    }
+
+    static boolean isSparseDelta(byte[] status) {
+        return status[0] == STATUS_SPARSE_DELTA || status[0] == STATUS_SPARSE_DELTA_INDEXED;
     }
 
-    private static boolean isCompressed(byte[] status) {
+    static boolean isCompressed(byte[] status) {
         return status[0] == STATUS_COMPRESSED || status[0] == STATUS_COMPRESSED_INDEXED
                 || status[0] == STATUS_COMPRESSED_COUNT || status[0] == STATUS_COMPRESSED_INDEXED_COUNT;
     }
 
-    private static boolean isSparse(byte[] status) {
+    static boolean isSparse(byte[] status) {
         return status[0] == STATUS_SPARSE || status[0] == STATUS_SPARSE_INDEXED;
     }
 
+    static boolean isColumnar(byte[] status) {
+        return status[0] == STATUS_COLUMNAR || status[0] == STATUS_COLUMNAR_INDEXED;
+    }
+
     private static boolean isIndexed(byte[] status) {
         return status[0] == STATUS_UNCOMPRESSED_INDEXED || status[0] == STATUS_COMPRESSED_INDEXED
-                || status[0] == STATUS_SPARSE_INDEXED || status[0] == STATUS_COMPRESSED_INDEXED_COUNT;
+                || status[0] == STATUS_SPARSE_INDEXED || status[0] == STATUS_COMPRESSED_INDEXED_COUNT
+                || status[0] == STATUS_COLUMNAR_INDEXED || status[0] == STATUS_SPARSE_INDEXED_COUNT
+                || status[0] == STATUS_SPARSE_DELTA_INDEXED;
     }
 
 //    /**
@@ -1247,7 +1595,7 @@ public class SpectraFileUtils {
 //        return getNodeIdentifiersFromZipFile(dummy, zip, status);
 //    }
 
-    private static <T extends Indexable<T>, D extends ISpectra<T, ?>> List<T> getNodeIdentifiersFromZipFile(T dummy, ZipFileWrapper zip,
+    static <T extends Indexable<T>, D extends ISpectra<T, ?>> List<T> getNodeIdentifiersFromZipFile(T dummy, ZipFileWrapper zip,
                                                                                   byte[] status, D spectra) throws NullPointerException {
         Objects.requireNonNull(dummy);
         String[] rawIdentifiers = getRawNodeIdentifiersFromZipFile(zip);
@@ -1256,7 +1604,7 @@ public class SpectraFileUtils {
         if (isIndexed(status)) {
             // parse the file containing the identifier names
             byte[] bytes = Objects
-                    .requireNonNull(zip.tryGetFromOneOf(INDEX_FILE_NAME, INDEX_FILE_INDEX), "Index file not found.");
+                    .requireNonNull(getZipEntryFromOneOf(zip, INDEX_FILE_NAME, INDEX_FILE_INDEX), "Index file not found.");
             String[] identifierNames = new String(bytes).split(IDENTIFIER_DELIMITER);
             Map<Integer, String> map = new HashMap<>();
             int index = 0;
@@ -1329,7 +1677,7 @@ public class SpectraFileUtils {
 
     private static String[] getRawNodeIdentifiersFromZipFile(ZipFileWrapper zip) {
         byte[] bytes = Objects.requireNonNull(
-                zip.tryGetFromOneOf(NODE_IDENTIFIER_FILE_NAME, NODE_IDENTIFIER_FILE_INDEX),
+                getZipEntryFromOneOf(zip, NODE_IDENTIFIER_FILE_NAME, NODE_IDENTIFIER_FILE_INDEX),
                 "Node identifier names file not found.");
         String[] split = new String(bytes).split(IDENTIFIER_DELIMITER);
         if (split.length == 1 && split[0].isEmpty()) {
@@ -1339,9 +1687,9 @@ public class SpectraFileUtils {
         }
     }
 
-    private static String[] getRawTraceIdentifiersFromZipFile(ZipFileWrapper zip) {
+    static String[] getRawTraceIdentifiersFromZipFile(ZipFileWrapper zip) {
         byte[] bytes = Objects.requireNonNull(
-                zip.tryGetFromOneOf(TRACE_IDENTIFIER_FILE_NAME, TRACE_IDENTIFIER_FILE_INDEX),
+                getZipEntryFromOneOf(zip, TRACE_IDENTIFIER_FILE_NAME, TRACE_IDENTIFIER_FILE_INDEX),
                 "Trace identifier names file not found.");
         String[] split = new String(bytes).split(IDENTIFIER_DELIMITER);
         if (split.length == 1 && split[0].isEmpty()) {
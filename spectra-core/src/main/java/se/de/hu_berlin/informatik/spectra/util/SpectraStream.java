@@ -0,0 +1,531 @@
+package se.de.hu_berlin.informatik.spectra.util;
+
+import se.de.hu_berlin.informatik.spectra.core.INode;
+import se.de.hu_berlin.informatik.spectra.core.ITrace;
+import se.de.hu_berlin.informatik.spectra.core.branch.ProgramBranch;
+import se.de.hu_berlin.informatik.spectra.core.traces.ExecutionTrace;
+import se.de.hu_berlin.informatik.spectra.core.traces.SequenceIndexerCompressed;
+import se.de.hu_berlin.informatik.utils.compression.single.CompressedByteArrayToByteArrayProcessor;
+import se.de.hu_berlin.informatik.utils.compression.single.CompressedByteArrayToIntSequenceProcessor;
+import se.de.hu_berlin.informatik.utils.compression.ziputils.ZipFileWrapper;
+import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.zip.ZipException;
+
+/**
+ * Provides read-only access to the traces of a spectra zip file, one trace at a time,
+ * without creating a spectra object. Only the node and trace identifiers are held in
+ * memory. The traces are decoded from the archive while iterating, and each iteration
+ * starts at the first trace again.
+ *
+ * <p> Execution traces are only loaded if they are accessed. The sequence indexer
+ * that is needed for decoding them is loaded on the first access.
+ *
+ * <p> Branch spectra and spectra files in the old format are not supported.
+ *
+ * @param <T> the type of nodes in the spectra
+ */
+public class SpectraStream<T extends Indexable<T>> implements Iterable<SpectraStream.StreamedTrace<T>> {
+
+    private final ZipFileWrapper zip;
+    private final byte[] status;
+    private final List<T> nodeIdentifiers;
+    private final String[] traceIdentifiers;
+    private final Map<T, Integer> nodeIndices;
+
+    private SequenceIndexerCompressed indexer;
+    private boolean indexerLoaded = false;
+
+    /**
+     * @param dummy       a dummy object of type T that is used for obtaining indexed identifiers
+     * @param zipFilePath the path to the zip file containing the spectra
+     * @throws NullPointerException          if dummy is null
+     * @throws UnsupportedOperationException if the spectra can not be streamed
+     */
+    SpectraStream(T dummy, Path zipFilePath) throws NullPointerException, UnsupportedOperationException {
+        if (Objects.requireNonNull(dummy) instanceof ProgramBranch) {
+            throw new UnsupportedOperationException("Can not stream branch spectra.");
+        }
+        this.zip = ZipFileWrapper.getZipFileWrapper(zipFilePath);
+        if (SpectraFileUtils.zipEntryExists(zip, SpectraFileUtils.INVOLVEMENT_TABLE_FILE_INDEX)) {
+            throw new UnsupportedOperationException("Can not stream spectra files in the old format.");
+        }
+        this.status = SpectraFileUtils.getStatusByte(zip);
+        this.nodeIdentifiers = Collections.unmodifiableList(
+                SpectraFileUtils.getNodeIdentifiersFromZipFile(dummy, zip, status, null));
+        this.traceIdentifiers = SpectraFileUtils.getRawTraceIdentifiersFromZipFile(zip);
+
+        this.nodeIndices = new HashMap<>(nodeIdentifiers.size() * 4 / 3 + 1);
+        for (int i = 0; i < nodeIdentifiers.size(); ++i) {
+            nodeIndices.put(nodeIdentifiers.get(i), i);
+        }
+    }
+
+    /**
+     * @return the identifiers of all nodes, ordered by node index
+     */
+    public List<T> getNodeIdentifiers() {
+        return nodeIdentifiers;
+    }
+
+    /**
+     * @return the number of nodes in the spectra
+     */
+    public int getNodeCount() {
+        return nodeIdentifiers.size();
+    }
+
+    /**
+     * @return the number of traces in the spectra
+     */
+    public int getTraceCount() {
+        return traceIdentifiers.length;
+    }
+
+    /**
+     * @return whether the traces hold hit counts
+     */
+    public boolean isCountSpectra() {
+        return SpectraFileUtils.isCountSpectra(status);
+    }
+
+    /**
+     * @param identifier a node identifier
+     * @return the index of the node with the given identifier, or -1 if no such node exists
+     */
+    public int getNodeIndex(T identifier) {
+        Integer index = nodeIndices.get(identifier);
+        return index == null ? -1 : index;
+    }
+
+    @Override
+    public Iterator<StreamedTrace<T>> iterator() {
+        if (SpectraFileUtils.isColumnar(status)) {
+            return new ColumnarTraceIterator();
+        } else {
+            return new TraceFileIterator();
+        }
+    }
+
+    /**
+     * Folds over all traces. Only the current trace is held in memory.
+     *
+     * @param identity    the initial value
+     * @param accumulator combines the current value with the next trace
+     * @param <R>         the type of the result
+     * @return the result
+     */
+    public <R> R fold(R identity, BiFunction<R, ? super StreamedTrace<T>, R> accumulator) {
+        R result = identity;
+        for (StreamedTrace<T> trace : this) {
+            result = accumulator.apply(result, trace);
+        }
+        return result;
+    }
+
+    /**
+     * Computes the EF, EP, NF and NP values of all nodes with a single pass over the traces.
+     *
+     * @return the computed counts
+     */
+    public InvolvementCounts countInvolvement() {
+        InvolvementCounts counts = new InvolvementCounts(getNodeCount());
+        for (StreamedTrace<T> trace : this) {
+            counts.add(trace);
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the identifiers of all nodes with the given coverage type. These are
+     * the nodes that would be removed from a loaded spectra by calling
+     * {@link se.de.hu_berlin.informatik.spectra.core.ISpectra#removeNodesWithCoverageType(INode.CoverageType)}.
+     *
+     * @param coverageType the coverage type
+     * @return the identifiers of the matching nodes, ordered by node index
+     */
+    public List<T> getNodesWithCoverageType(INode.CoverageType coverageType) {
+        InvolvementCounts counts = countInvolvement();
+        List<T> result = new ArrayList<>();
+        for (int i = 0; i < getNodeCount(); ++i) {
+            if (counts.hasCoverageType(i, coverageType)) {
+                result.add(nodeIdentifiers.get(i));
+            }
+        }
+        return result;
+    }
+
+    private synchronized SequenceIndexerCompressed getIndexer() {
+        if (!indexerLoaded) {
+            try {
+                indexer = SpectraFileUtils.loadSequenceIndexer(zip);
+            } catch (ClassNotFoundException | IOException e) {
+                Log.abort(SpectraStream.class, e, "Error loading the sequence indexer!");
+            }
+            indexerLoaded = true;
+        }
+        return indexer;
+    }
+
+    private Collection<ExecutionTrace> loadExecutionTraces(int traceIndex) {
+        List<ExecutionTrace> traces = new ArrayList<>(1);
+        // we assume a file name like 1-2.flw, where 1 is the trace id and 2 is a thread id
+        int threadIndex = -1;
+        while (true) {
+            String file = traceIndex + "-" + (++threadIndex) + SpectraFileUtils.EXECUTION_TRACE_FILE_EXTENSION;
+            if (!SpectraFileUtils.zipEntryExists(zip, file)) {
+                break;
+            }
+            try {
+                traces.add(new ExecutionTrace(SpectraFileUtils.uncheckedGetZipEntry(zip, file), getIndexer()));
+            } catch (ZipException e) {
+                Log.abort(SpectraStream.class, e, "Could not load execution trace '%s'.", file);
+            }
+        }
+        return traces;
+    }
+
+    private StreamedTrace<T> createTrace(int traceIndex, boolean successful, BitSet involvement, int[] hits) {
+        return new StreamedTrace<>(this, traceIdentifiers[traceIndex - 1], traceIndex, successful, involvement, hits);
+    }
+
+    private class TraceFileIterator implements Iterator<StreamedTrace<T>> {
+
+        private final CompressedByteArrayToIntSequenceProcessor intProcessor = new CompressedByteArrayToIntSequenceProcessor();
+        private final CompressedByteArrayToByteArrayProcessor byteProcessor = new CompressedByteArrayToByteArrayProcessor();
+
+        private int traceCounter = 0;
+        private byte[] next = null;
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = SpectraFileUtils.getZipEntry(zip, (traceCounter + 1) + SpectraFileUtils.TRACE_FILE_EXTENSION);
+            }
+            return next != null;
+        }
+
+        @Override
+        public StreamedTrace<T> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            byte[] traceInvolvement = next;
+            next = null;
+            ++traceCounter;
+
+            BitSet involvement = new BitSet(getNodeCount());
+            if (SpectraFileUtils.isSparse(status)) {
+                List<Integer> involvedNodes = intProcessor.submit(traceInvolvement).getResult();
+                // the first element is always the 'successful' flag; stored node IDs start at 1
+                for (int i = 1; i < involvedNodes.size(); ++i) {
+                    involvement.set(involvedNodes.get(i) - 1);
+                }
+                return createTrace(traceCounter, involvedNodes.get(0) == 1, involvement, null);
+            } else if (SpectraFileUtils.isSparseDelta(status)) {
+                for (int nodeId : SparseInvolvementEncoding.decode(traceInvolvement)) {
+                    involvement.set(nodeId);
+                }
+                return createTrace(traceCounter, SparseInvolvementEncoding.isSuccessful(traceInvolvement), involvement, null);
+            } else if (SpectraFileUtils.isSparseCount(status)) {
+                int[] hits = new int[getNodeCount()];
+                boolean successful = SparseCountEncoding.decode(traceInvolvement, (nodeId, nodeHits) -> {
+                    hits[nodeId] = nodeHits;
+                    involvement.set(nodeId);
+                });
+                return createTrace(traceCounter, successful, involvement, hits);
+            } else if (SpectraFileUtils.isCountSpectra(status)) {
+                List<Integer> traceData = intProcessor.submit(traceInvolvement).getResult();
+                // the first element is always the 'successful' flag
+                int[] hits = new int[getNodeCount()];
+                for (int i = 1; i < traceData.size(); ++i) {
+                    hits[i - 1] = traceData.get(i);
+                    if (hits[i - 1] > 0) {
+                        involvement.set(i - 1);
+                    }
+                }
+                return createTrace(traceCounter, traceData.get(0) == 1, involvement, hits);
+            } else {
+                if (SpectraFileUtils.isCompressed(status)) {
+                    traceInvolvement = byteProcessor.submit(traceInvolvement).getResult();
+                }
+                // the first element is always the 'successful' flag
+                for (int i = 0; i < getNodeCount(); ++i) {
+                    if (traceInvolvement[i + 1] == 1) {
+                        involvement.set(i);
+                    }
+                }
+                return createTrace(traceCounter, traceInvolvement[0] == 1, involvement, null);
+            }
+        }
+    }
+
+    private class ColumnarTraceIterator implements Iterator<StreamedTrace<T>> {
+
+        private final ColumnarInvolvementBlock block;
+        private int traceCounter = 0;
+
+        private ColumnarTraceIterator() {
+            byte[] columns = SpectraFileUtils.getZipEntry(zip, SpectraFileUtils.COLUMNS_FILE_NAME);
+            if (columns == null) {
+                Log.abort(SpectraStream.class, "Could not find involvement block '%s'.", SpectraFileUtils.COLUMNS_FILE_NAME);
+            }
+            block = new ColumnarInvolvementBlock(ByteBuffer.wrap(columns));
+        }
+
+        @Override
+        public boolean hasNext() {
+            return traceCounter < block.getTraceCount();
+        }
+
+        @Override
+        public StreamedTrace<T> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            BitSet involvement = new BitSet(getNodeCount());
+            for (int index : block.getInvolvedNodes(traceCounter)) {
+                involvement.set(index);
+            }
+            ++traceCounter;
+            return createTrace(traceCounter, block.isSuccessful(traceCounter - 1), involvement, null);
+        }
+    }
+
+    /**
+     * A read-only view on a single trace of a {@link SpectraStream}.
+     * Node indices refer to the node order of the stream.
+     *
+     * @param <T> the type of nodes in the spectra
+     */
+    public static class StreamedTrace<T extends Indexable<T>> implements ITrace<T> {
+
+        private final SpectraStream<T> stream;
+        private final String identifier;
+        private final int index;
+        private final boolean successful;
+        private final BitSet involvement;
+        private final int[] hits;
+
+        private StreamedTrace(SpectraStream<T> stream, String identifier, int index,
+                              boolean successful, BitSet involvement, int[] hits) {
+            this.stream = stream;
+            this.identifier = identifier;
+            this.index = index;
+            this.successful = successful;
+            this.involvement = involvement;
+            this.hits = hits;
+        }
+
+        @Override
+        public boolean isSuccessful() {
+            return successful;
+        }
+
+        @Override
+        public boolean isInvolved(INode<T> node) {
+            return isInvolved(node.getIdentifier());
+        }
+
+        @Override
+        public boolean isInvolved(T identifier) {
+            return isInvolved(stream.getNodeIndex(identifier));
+        }
+
+        @Override
+        public boolean isInvolved(int index) {
+            return index >= 0 && involvement.get(index);
+        }
+
+        /**
+         * @param index the index of a node
+         * @return the number of hits of the node (1 or 0 if the spectra holds no hit counts)
+         */
+        public int getHits(int index) {
+            if (hits == null) {
+                return isInvolved(index) ? 1 : 0;
+            }
+            return index >= 0 && index < hits.length ? hits[index] : 0;
+        }
+
+        @Override
+        public int involvedNodesCount() {
+            return involvement.cardinality();
+        }
+
+        @Override
+        public Collection<Integer> getInvolvedNodes() {
+            List<Integer> result = new ArrayList<>(involvement.cardinality());
+            for (int i = involvement.nextSetBit(0); i >= 0; i = involvement.nextSetBit(i + 1)) {
+                result.add(i);
+            }
+            return result;
+        }
+
+        /**
+         * @return the involvement of all nodes, indexed by node index
+         */
+        public BitSet getInvolvement() {
+            return (BitSet) involvement.clone();
+        }
+
+        @Override
+        public Collection<ExecutionTrace> getExecutionTraces() {
+            return stream.loadExecutionTraces(index);
+        }
+
+        @Override
+        public String getIdentifier() {
+            return identifier;
+        }
+
+        @Override
+        public int getIndex() {
+            return index;
+        }
+
+        @Override
+        public void sleep() {
+            // nothing to free
+        }
+
+        @Override
+        public void setInvolvement(T identifier, boolean involved) {
+            throw new UnsupportedOperationException("Streamed traces are read-only.");
+        }
+
+        @Override
+        public void setInvolvement(INode<T> node, boolean involved) {
+            throw new UnsupportedOperationException("Streamed traces are read-only.");
+        }
+
+        @Override
+        public void setInvolvement(int index, boolean involved) {
+            throw new UnsupportedOperationException("Streamed traces are read-only.");
+        }
+
+        @Override
+        public void setInvolvementForIdentifiers(Map<T, Boolean> involvement) {
+            throw new UnsupportedOperationException("Streamed traces are read-only.");
+        }
+
+        @Override
+        public void setInvolvementForNodes(Map<INode<T>, Boolean> involvement) {
+            throw new UnsupportedOperationException("Streamed traces are read-only.");
+        }
+
+        @Override
+        public void removeInvolvement(Set<Integer> nodeIndices) {
+            throw new UnsupportedOperationException("Streamed traces are read-only.");
+        }
+
+        @Override
+        public void addExecutionTrace(ExecutionTrace executionTrace) {
+            throw new UnsupportedOperationException("Streamed traces are read-only.");
+        }
+
+        @Override
+        public boolean storeExecutionTracesInZipFile(Path outputFile, Supplier<String> traceFileNameSupplier) {
+            throw new UnsupportedOperationException("Streamed traces are read-only.");
+        }
+
+        @Override
+        public String toString() {
+            return identifier;
+        }
+    }
+
+    /**
+     * Holds the EF, EP, NF and NP values of all nodes of a streamed spectra.
+     */
+    public static class InvolvementCounts {
+
+        private final int[] ef;
+        private final int[] ep;
+        private int failingTraces = 0;
+        private int successfulTraces = 0;
+
+        private InvolvementCounts(int nodeCount) {
+            this.ef = new int[nodeCount];
+            this.ep = new int[nodeCount];
+        }
+
+        private void add(StreamedTrace<?> trace) {
+            int[] counter;
+            if (trace.isSuccessful()) {
+                ++successfulTraces;
+                counter = ep;
+            } else {
+                ++failingTraces;
+                counter = ef;
+            }
+            BitSet involvement = trace.involvement;
+            for (int i = involvement.nextSetBit(0); i >= 0; i = involvement.nextSetBit(i + 1)) {
+                ++counter[i];
+            }
+        }
+
+        public int getFailingTraceCount() {
+            return failingTraces;
+        }
+
+        public int getSuccessfulTraceCount() {
+            return successfulTraces;
+        }
+
+        public int getEF(int index) {
+            return ef[index];
+        }
+
+        public int getEP(int index) {
+            return ep[index];
+        }
+
+        public int getNF(int index) {
+            return failingTraces - ef[index];
+        }
+
+        public int getNP(int index) {
+            return successfulTraces - ep[index];
+        }
+
+        /**
+         * @param index        the index of a node
+         * @param coverageType a coverage type
+         * @return whether the node with the given index has the given coverage type
+         */
+        public boolean hasCoverageType(int index, INode.CoverageType coverageType) {
+            switch (coverageType) {
+                case NOT_EXECUTED:
+                    return getEP(index) + getEF(index) == 0;
+                case EXECUTED:
+                    return getEP(index) + getEF(index) > 0;
+                case EP_EQUALS_ZERO:
+                    return getEP(index) == 0;
+                case EP_GT_ZERO:
+                    return getEP(index) > 0;
+                case EF_EQUALS_ZERO:
+                    return getEF(index) == 0;
+                case EF_GT_ZERO:
+                    return getEF(index) > 0;
+                case NP_EQUALS_ZERO:
+                    return getNP(index) == 0;
+                case NP_GT_ZERO:
+                    return getNP(index) > 0;
+                case NF_EQUALS_ZERO:
+                    return getNF(index) == 0;
+                case NF_GT_ZERO:
+                    return getNF(index) > 0;
+                default:
+                    throw new UnsupportedOperationException("Not implemented.");
+            }
+        }
+    }
+
+}
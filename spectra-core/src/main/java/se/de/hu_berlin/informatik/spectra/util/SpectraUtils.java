@@ -250,6 +250,23 @@ public class SpectraUtils {
         return false;
     }
 
+    /**
+     * Collects the indices of all nodes that are involved in at least one of the given
+     * traces, with a single pass over each trace's involved nodes.
+     *
+     * @param traces the traces
+     * @param <T>    the type of node identifiers
+     * @return a bit set that contains the indices of the involved nodes
+     */
+    public static <T> BitSet getNodesInvolvedInATrace(Collection<? extends ITrace<T>> traces) {
+        BitSet involvedNodes = new BitSet();
+        for (ITrace<T> trace : traces) {
+            trace.forEachInvolvedNode(involvedNodes::set);
+            trace.sleep();
+        }
+        return involvedNodes;
+    }
+
     public static <T> boolean isNodeNotInvolvedInATrace(Collection<? extends ITrace<T>> traces, int nodeIndex) {
         for (ITrace<T> trace : traces) {
             if (!trace.isInvolved(nodeIndex)) {
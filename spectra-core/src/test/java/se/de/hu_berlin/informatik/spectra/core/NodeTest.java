@@ -49,6 +49,57 @@ public class NodeTest {
         Assert.assertEquals(s.getOrCreateNode("S3").getEF(ComputationStrategies.STANDARD_SBFL), 1, smallDelta);
     }
 
+    @Test
+    public void computeAllValuesAfterModification() {
+        final HitSpectra<String> s = new SimpleSpectraProvider().loadHitSpectra();
+        s.getLocalizer().computeAllValues(ComputationStrategies.STANDARD_SBFL);
+
+        Assert.assertEquals(s.getOrCreateNode("S2").getEF(ComputationStrategies.STANDARD_SBFL), 2, smallDelta);
+        Assert.assertEquals(s.getOrCreateNode("S2").getNF(ComputationStrategies.STANDARD_SBFL), 0, smallDelta);
+
+        // modifications have to invalidate the computed values
+        s.getTrace("t1").setInvolvement("S2", false);
+        Assert.assertEquals(s.getOrCreateNode("S2").getEF(ComputationStrategies.STANDARD_SBFL), 1, smallDelta);
+        Assert.assertEquals(s.getOrCreateNode("S2").getNF(ComputationStrategies.STANDARD_SBFL), 1, smallDelta);
+
+        // nodes added after the computation
+        final INode<String> n = s.getOrCreateNode("S4");
+        Assert.assertEquals(n.getEF(ComputationStrategies.STANDARD_SBFL), 0, smallDelta);
+        Assert.assertEquals(n.getNF(ComputationStrategies.STANDARD_SBFL), 2, smallDelta);
+        Assert.assertEquals(n.getNP(ComputationStrategies.STANDARD_SBFL), 3, smallDelta);
+    }
+
+    @Test
+    public void computedValuesAreUpdatedIncrementally() {
+        final HitSpectra<String> s = new SimpleSpectraProvider().loadHitSpectra();
+        s.getLocalizer().computeAllValues(ComputationStrategies.STANDARD_SBFL);
+
+        // adding a trace only updates the counts of the involved nodes
+        final ITrace<String> t6 = s.addTrace("t6", 6, false);
+        t6.setInvolvement("S1", true);
+        t6.setInvolvement("S3", true);
+
+        Assert.assertEquals(s.getOrCreateNode("S1").getEF(ComputationStrategies.STANDARD_SBFL), 2, smallDelta);
+        Assert.assertEquals(s.getOrCreateNode("S1").getNF(ComputationStrategies.STANDARD_SBFL), 1, smallDelta);
+        Assert.assertEquals(s.getOrCreateNode("S1").getEP(ComputationStrategies.STANDARD_SBFL), 3, smallDelta);
+        Assert.assertEquals(s.getOrCreateNode("S1").getNP(ComputationStrategies.STANDARD_SBFL), 0, smallDelta);
+
+        Assert.assertEquals(s.getOrCreateNode("S2").getEF(ComputationStrategies.STANDARD_SBFL), 2, smallDelta);
+        Assert.assertEquals(s.getOrCreateNode("S2").getNF(ComputationStrategies.STANDARD_SBFL), 1, smallDelta);
+
+        Assert.assertEquals(s.getOrCreateNode("S3").getEF(ComputationStrategies.STANDARD_SBFL), 2, smallDelta);
+        Assert.assertEquals(s.getOrCreateNode("S3").getNF(ComputationStrategies.STANDARD_SBFL), 1, smallDelta);
+        Assert.assertEquals(s.getOrCreateNode("S3").getEP(ComputationStrategies.STANDARD_SBFL), 2, smallDelta);
+        Assert.assertEquals(s.getOrCreateNode("S3").getNP(ComputationStrategies.STANDARD_SBFL), 1, smallDelta);
+
+        // removing a node does not affect the remaining nodes
+        s.removeNode("S2");
+        Assert.assertEquals(s.getOrCreateNode("S1").getEF(ComputationStrategies.STANDARD_SBFL), 2, smallDelta);
+        Assert.assertEquals(s.getOrCreateNode("S1").getEP(ComputationStrategies.STANDARD_SBFL), 3, smallDelta);
+        Assert.assertEquals(s.getOrCreateNode("S3").getEF(ComputationStrategies.STANDARD_SBFL), 2, smallDelta);
+        Assert.assertEquals(s.getOrCreateNode("S3").getNP(ComputationStrategies.STANDARD_SBFL), 1, smallDelta);
+    }
+
     @Test
     public void computeForSpectraWithoutTraces() {
         final HitSpectra<String> s = new HitSpectra<>(null);
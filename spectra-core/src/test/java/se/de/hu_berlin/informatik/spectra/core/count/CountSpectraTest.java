@@ -0,0 +1,146 @@
+package se.de.hu_berlin.informatik.spectra.core.count;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+public class CountSpectraTest {
+
+    private final double smallDelta = 0.00001;
+
+    private CountSpectra<String> getTestData() {
+        final CountSpectra<String> s = new CountSpectra<>(null);
+        // create the nodes in a fixed order
+        s.getOrCreateNode("S1");
+        s.getOrCreateNode("S2");
+        s.getOrCreateNode("S3");
+
+        final CountTrace<String> t1 = s.addTrace("t1", 1, false);
+        t1.setHits("S3", 4);
+        t1.setHits("S1", 2);
+
+        final CountTrace<String> t2 = s.addTrace("t2", 2, false);
+        t2.setHits("S1", 6);
+
+        final CountTrace<String> t3 = s.addTrace("t3", 3, true);
+        t3.setHits("S1", 1);
+        t3.setHits("S2", 10);
+
+        final CountTrace<String> t4 = s.addTrace("t4", 4, true);
+        t4.setHits("S2", 20);
+        t4.setHits("S3", 3);
+
+        return s;
+    }
+
+    @Test
+    public void hitsAreKeptInNodeOrder() {
+        final CountSpectra<String> s = getTestData();
+        final CountTrace<String> t1 = s.getTrace("t1");
+
+        Assert.assertEquals(2, t1.getHits("S1"));
+        Assert.assertEquals(0, t1.getHits("S2"));
+        Assert.assertEquals(4, t1.getHits("S3"));
+        Assert.assertEquals(2, t1.hitNodesCount());
+
+        final List<Integer> indices = new ArrayList<>();
+        t1.forEachHit((index, hits) -> indices.add(index));
+        Assert.assertEquals(Arrays.asList(s.getNode("S1").getIndex(), s.getNode("S3").getIndex()), indices);
+    }
+
+    @Test
+    public void setHitsUpdatesInvolvement() {
+        final CountSpectra<String> s = getTestData();
+        final CountTrace<String> t1 = s.getTrace("t1");
+
+        t1.setHits("S2", 5);
+        t1.setHits("S1", 7);
+        Assert.assertEquals(7, t1.getHits("S1"));
+        Assert.assertEquals(5, t1.getHits("S2"));
+        Assert.assertEquals(3, t1.involvedNodesCount());
+
+        t1.setHits("S3", 0);
+        Assert.assertEquals(0, t1.getHits("S3"));
+        Assert.assertFalse(t1.isInvolved("S3"));
+        Assert.assertEquals(2, t1.hitNodesCount());
+
+        t1.setInvolvement("S3", true);
+        Assert.assertEquals(1, t1.getHits("S3"));
+
+        t1.sleep();
+        t1.setHits("S3", Long.MAX_VALUE);
+        Assert.assertEquals(Integer.MAX_VALUE, t1.getHits("S3"));
+    }
+
+    @Test
+    public void involvementIsDerivedFromHits() {
+        final CountSpectra<String> s = getTestData();
+        final CountTrace<String> t4 = s.getTrace("t4");
+        final int s1 = s.getNode("S1").getIndex();
+        final int s2 = s.getNode("S2").getIndex();
+        final int s3 = s.getNode("S3").getIndex();
+
+        Assert.assertFalse(t4.isInvolved(s1));
+        Assert.assertTrue(t4.isInvolved(s2));
+        Assert.assertTrue(t4.isInvolved(s.getNode("S3")));
+        Assert.assertEquals(2, t4.involvedNodesCount());
+        Assert.assertEquals(Arrays.asList(s2, s3), new ArrayList<>(t4.getInvolvedNodes()));
+        Assert.assertTrue(t4.getInvolvedNodes().contains(s3));
+        Assert.assertFalse(t4.getInvolvedNodes().contains(s1));
+
+        final List<Integer> indices = new ArrayList<>();
+        t4.forEachInvolvedNode(indices::add);
+        Assert.assertEquals(Arrays.asList(s2, s3), indices);
+
+        // changing the hit count of an involved node does not change the involvement
+        final long modificationCount = t4.getModificationCount();
+        Assert.assertEquals(1, s.getNode("S1").getEP(), smallDelta);
+        t4.setHits("S2", 21);
+        Assert.assertEquals(modificationCount, t4.getModificationCount());
+        t4.setHits("S1", 1);
+        Assert.assertNotEquals(modificationCount, t4.getModificationCount());
+        Assert.assertEquals(2, s.getNode("S1").getEP(), smallDelta);
+
+        t4.removeInvolvement(new HashSet<>(Arrays.asList(s1, s3)));
+        Assert.assertEquals(Arrays.asList(s2), new ArrayList<>(t4.getInvolvedNodes()));
+        Assert.assertEquals(0, t4.getHits("S3"));
+        Assert.assertFalse(t4.isInvolved("S1"));
+    }
+
+    @Test
+    public void hitCountStatistics() {
+        final CountSpectra<String> s = getTestData();
+        final CountStatistics statistics = s.computeHitCountStatistics();
+        final int s1 = s.getNode("S1").getIndex();
+        final int s2 = s.getNode("S2").getIndex();
+        final int s3 = s.getNode("S3").getIndex();
+
+        Assert.assertEquals(2, statistics.getPassingTraceCount());
+        Assert.assertEquals(2, statistics.getFailingTraceCount());
+
+        Assert.assertEquals(8, statistics.getFailingHitSum(s1));
+        Assert.assertEquals(6, statistics.getFailingMaxHits(s1));
+        Assert.assertEquals(2, statistics.getFailingExecutedCount(s1));
+        Assert.assertEquals(4, statistics.getFailingMeanHits(s1), smallDelta);
+        Assert.assertEquals(1, statistics.getPassingHitSum(s1));
+        Assert.assertEquals(1, statistics.getPassingExecutedCount(s1));
+
+        Assert.assertEquals(0, statistics.getFailingHitSum(s2));
+        Assert.assertEquals(0, statistics.getFailingMeanHits(s2), smallDelta);
+        Assert.assertEquals(30, statistics.getPassingHitSum(s2));
+        Assert.assertEquals(20, statistics.getPassingMaxHits(s2));
+        Assert.assertEquals(15, statistics.getPassingMeanHits(s2), smallDelta);
+
+        Assert.assertEquals(4, statistics.getFailingMaxHits(s3));
+        Assert.assertEquals(3, statistics.getPassingMaxHits(s3));
+
+        // unknown nodes
+        Assert.assertEquals(0, statistics.getPassingHitSum(-1));
+        Assert.assertEquals(0, statistics.getFailingExecutedCount(100));
+    }
+
+}
@@ -12,8 +12,14 @@ package se.de.hu_berlin.informatik.spectra.core.hit;
 import org.junit.Assert;
 import org.junit.Test;
 import se.de.hu_berlin.informatik.spectra.core.ComputationStrategies;
+import se.de.hu_berlin.informatik.spectra.core.ITrace;
 import se.de.hu_berlin.informatik.spectra.test.data.SimpleSpectraProvider;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class HierarchicalHitSpectraTest {
 
     private final double smallDelta = 0.00001;
@@ -191,4 +197,155 @@ public class HierarchicalHitSpectraTest {
         Assert.assertEquals(one.getOrCreateNode("P2").getEP(), 3, smallDelta); // one more
         Assert.assertEquals(one.getOrCreateNode("P2").getEF(), 2, smallDelta);
     }
+
+    @Test
+    public void setParentAfterInvolvementWasMaterialized() {
+        final HitSpectra<String> bottom = this.getTestData();
+
+        final HierarchicalHitSpectra<String, String> one = new HierarchicalHitSpectra<>(bottom, null);
+        one.setParent("P1", "S1");
+        one.setParent("P2", "S2");
+
+        // t2 involves S2 and S3
+        final ITrace<String> trace = one.getTrace("t2");
+        Assert.assertFalse(trace.isInvolved("P1"));
+        Assert.assertTrue(trace.isInvolved("P2"));
+        Assert.assertEquals(1, trace.involvedNodesCount());
+
+        // new parent node
+        one.setParent("P3", "S3");
+        Assert.assertTrue(trace.isInvolved("P3"));
+        Assert.assertEquals(2, trace.involvedNodesCount());
+
+        // new child of an existing parent node
+        one.setParent("P1", "S3");
+        Assert.assertTrue(trace.isInvolved("P1"));
+        Assert.assertEquals(3, trace.involvedNodesCount());
+        Assert.assertEquals(indicesOf(one, "P1", "P2", "P3"), new HashSet<>(trace.getInvolvedNodes()));
+
+        Assert.assertEquals(one.getOrCreateNode("P1").getNP(), 0, smallDelta);
+        Assert.assertEquals(one.getOrCreateNode("P1").getNF(), 0, smallDelta);
+        Assert.assertEquals(one.getOrCreateNode("P1").getEP(), 3, smallDelta);
+        Assert.assertEquals(one.getOrCreateNode("P1").getEF(), 2, smallDelta);
+    }
+
+    @Test
+    public void parentNodeRemoval() {
+        final HitSpectra<String> bottom = this.getTestData();
+
+        final HierarchicalHitSpectra<String, String> one = new HierarchicalHitSpectra<>(bottom, null);
+        one.setParent("P1", "S1");
+        one.setParent("P2", "S2");
+        one.setParent("P2", "S3");
+
+        final ITrace<String> trace = one.getTrace("t2");
+        Assert.assertTrue(trace.isInvolved("P2"));
+        final int removedIndex = one.getNode("P2").getIndex();
+        Assert.assertTrue(trace.isInvolved(removedIndex));
+
+        one.removeNode("P2");
+        Assert.assertFalse(one.hasNode("P2"));
+        for (final ITrace<String> hierarchicalTrace : one.getTraces()) {
+            Assert.assertFalse(hierarchicalTrace.isInvolved("P2"));
+            Assert.assertFalse(hierarchicalTrace.isInvolved(removedIndex));
+            Assert.assertFalse(hierarchicalTrace.getInvolvedNodes().contains(removedIndex));
+        }
+        Assert.assertEquals(0, trace.involvedNodesCount());
+        Assert.assertEquals(1, one.getTrace("t1").involvedNodesCount());
+
+        Assert.assertEquals(one.getOrCreateNode("P1").getNP(), 0, smallDelta);
+        Assert.assertEquals(one.getOrCreateNode("P1").getNF(), 1, smallDelta);
+        Assert.assertEquals(one.getOrCreateNode("P1").getEP(), 3, smallDelta);
+        Assert.assertEquals(one.getOrCreateNode("P1").getEF(), 1, smallDelta);
+
+        // a new parent node with the same identifier gets a new index
+        one.setParent("P2", "S3");
+        Assert.assertNotEquals(removedIndex, one.getNode("P2").getIndex());
+        Assert.assertTrue(trace.isInvolved("P2"));
+        Assert.assertFalse(trace.isInvolved(removedIndex));
+        Assert.assertFalse(one.getTrace("t1").isInvolved("P2"));
+    }
+
+    @Test
+    public void childRemoveInvolvement() {
+        final HitSpectra<String> bottom = this.getTestData();
+
+        final HierarchicalHitSpectra<String, String> one = new HierarchicalHitSpectra<>(bottom, null);
+        one.setParent("P1", "S1");
+        one.setParent("P2", "S2");
+        one.setParent("P2", "S3");
+
+        // t4 involves S1, S2 and S3
+        final ITrace<String> trace = one.getTrace("t4");
+        Assert.assertEquals(2, trace.involvedNodesCount());
+
+        // P2 is still involved through S3
+        bottom.getTrace("t4").removeInvolvement(Collections.singleton(bottom.getNode("S2").getIndex()));
+        Assert.assertTrue(trace.isInvolved("P2"));
+        Assert.assertEquals(2, trace.involvedNodesCount());
+
+        bottom.getTrace("t4").removeInvolvement(Collections.singleton(bottom.getNode("S3").getIndex()));
+        Assert.assertTrue(trace.isInvolved("P1"));
+        Assert.assertFalse(trace.isInvolved("P2"));
+        Assert.assertEquals(1, trace.involvedNodesCount());
+        Assert.assertEquals(indicesOf(one, "P1"), new HashSet<>(trace.getInvolvedNodes()));
+
+        // removing a child node removes its involvement from all child traces
+        bottom.removeNode("S1");
+        for (final ITrace<String> hierarchicalTrace : one.getTraces()) {
+            Assert.assertFalse(hierarchicalTrace.isInvolved("P1"));
+        }
+        Assert.assertEquals(0, trace.involvedNodesCount());
+        Assert.assertEquals(one.getOrCreateNode("P1").getEP(), 0, smallDelta);
+        Assert.assertEquals(one.getOrCreateNode("P1").getEF(), 0, smallDelta);
+    }
+
+    @Test
+    public void lazilyLoadedChildTrace() {
+        final HitSpectra<String> bottom = this.getTestData();
+
+        final HierarchicalHitSpectra<String, String> one = new HierarchicalHitSpectra<>(bottom, null);
+        one.setParent("P1", "S1");
+        one.setParent("P2", "S2");
+        one.setParent("P2", "S3");
+
+        final HitTrace<String> lazyTrace = bottom.addTrace("lazy", 6, false);
+        final ITrace<String> trace = one.getTrace("lazy");
+        Assert.assertEquals(0, trace.involvedNodesCount());
+
+        // the involvement of the child trace is set after the parent involvement was materialized
+        final AtomicInteger loadCount = new AtomicInteger();
+        lazyTrace.setInvolvementLoader(() -> {
+            loadCount.incrementAndGet();
+            return new int[]{bottom.getNode("S1").getIndex(), bottom.getNode("S3").getIndex()};
+        });
+        Assert.assertEquals(0, loadCount.get());
+
+        Assert.assertTrue(trace.isInvolved("P1"));
+        Assert.assertTrue(trace.isInvolved("P2"));
+        Assert.assertEquals(2, trace.involvedNodesCount());
+        Assert.assertEquals(indicesOf(one, "P1", "P2"), new HashSet<>(trace.getInvolvedNodes()));
+        Assert.assertEquals(1, loadCount.get());
+
+        Assert.assertEquals(one.getOrCreateNode("P1").getNF(), 1, smallDelta);
+        Assert.assertEquals(one.getOrCreateNode("P1").getEF(), 2, smallDelta); // one more
+        Assert.assertEquals(one.getOrCreateNode("P2").getNF(), 0, smallDelta);
+        Assert.assertEquals(one.getOrCreateNode("P2").getEF(), 3, smallDelta); // one more
+        Assert.assertEquals(1, loadCount.get());
+
+        // changes of the loaded involvement are reflected, too
+        lazyTrace.setInvolvement("S2", true);
+        Assert.assertEquals(2, trace.involvedNodesCount());
+        lazyTrace.setInvolvement("S1", false);
+        Assert.assertFalse(trace.isInvolved("P1"));
+        Assert.assertEquals(1, trace.involvedNodesCount());
+    }
+
+    private static Set<Integer> indicesOf(final HierarchicalHitSpectra<String, String> spectra, final String... identifiers) {
+        final Set<Integer> indices = new HashSet<>();
+        for (final String identifier : identifiers) {
+            indices.add(spectra.getNode(identifier).getIndex());
+        }
+        return indices;
+    }
 }
@@ -0,0 +1,223 @@
+package se.de.hu_berlin.informatik.spectra.core.hit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import se.de.hu_berlin.informatik.spectra.core.ComputationStrategies;
+import se.de.hu_berlin.informatik.spectra.core.INode;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+public class PackedHitSpectraTest {
+
+    private final double smallDelta = 0.00001;
+
+    /**
+     * Same data as in the SimpleSpectraProvider.
+     */
+    private PackedHitSpectra<String> getTestData() {
+        final PackedHitSpectra<String> s = new PackedHitSpectra<>(null);
+
+        final HitTrace<String> t1 = s.addTrace("t1", 1, false);
+        t1.setInvolvement("S1", true);
+        t1.setInvolvement("S2", true);
+
+        final HitTrace<String> t2 = s.addTrace("t2", 2, false);
+        t2.setInvolvement("S2", true);
+        t2.setInvolvement("S3", true);
+
+        final HitTrace<String> t3 = s.addTrace("t3", 3, true);
+        t3.setInvolvement("S1", true);
+
+        final HitTrace<String> t4 = s.addTrace("t4", 4, true);
+        t4.setInvolvement("S1", true);
+        t4.setInvolvement("S2", true);
+        t4.setInvolvement("S3", true);
+
+        final HitTrace<String> t5 = s.addTrace("t5", 5, true);
+        t5.setInvolvement("S1", true);
+        t5.setInvolvement("S3", true);
+
+        return s;
+    }
+
+    @Test
+    public void computeMetrics() {
+        final PackedHitSpectra<String> s = getTestData();
+
+        Assert.assertEquals(s.getOrCreateNode("S1").getNP(ComputationStrategies.STANDARD_SBFL), 0, smallDelta);
+        Assert.assertEquals(s.getOrCreateNode("S1").getNF(ComputationStrategies.STANDARD_SBFL), 1, smallDelta);
+        Assert.assertEquals(s.getOrCreateNode("S1").getEP(ComputationStrategies.STANDARD_SBFL), 3, smallDelta);
+        Assert.assertEquals(s.getOrCreateNode("S1").getEF(ComputationStrategies.STANDARD_SBFL), 1, smallDelta);
+
+        Assert.assertEquals(s.getOrCreateNode("S2").getNP(ComputationStrategies.STANDARD_SBFL), 2, smallDelta);
+        Assert.assertEquals(s.getOrCreateNode("S2").getNF(ComputationStrategies.STANDARD_SBFL), 0, smallDelta);
+        Assert.assertEquals(s.getOrCreateNode("S2").getEP(ComputationStrategies.STANDARD_SBFL), 1, smallDelta);
+        Assert.assertEquals(s.getOrCreateNode("S2").getEF(ComputationStrategies.STANDARD_SBFL), 2, smallDelta);
+
+        Assert.assertEquals(s.getOrCreateNode("S3").getNP(ComputationStrategies.STANDARD_SBFL), 1, smallDelta);
+        Assert.assertEquals(s.getOrCreateNode("S3").getNF(ComputationStrategies.STANDARD_SBFL), 1, smallDelta);
+        Assert.assertEquals(s.getOrCreateNode("S3").getEP(ComputationStrategies.STANDARD_SBFL), 2, smallDelta);
+        Assert.assertEquals(s.getOrCreateNode("S3").getEF(ComputationStrategies.STANDARD_SBFL), 1, smallDelta);
+    }
+
+    @Test
+    public void columnCountsMatchTraces() {
+        final PackedHitSpectra<String> s = getTestData();
+
+        for (INode<String> node : s.getNodes()) {
+            Assert.assertEquals(node.getEF(), s.getInvolvedTraceCount(node, false), smallDelta);
+            Assert.assertEquals(node.getEP(), s.getInvolvedTraceCount(node, true), smallDelta);
+        }
+
+        // changes have to be reflected in the column view
+        final INode<String> s2 = s.getNode("S2");
+        s.getTrace("t1").setInvolvement(s2, false);
+        Assert.assertEquals(1, s.getInvolvedTraceCount(s2, false));
+        Assert.assertEquals(1, s2.getEF(), smallDelta);
+    }
+
+    @Test
+    public void involvedNodes() {
+        final PackedHitSpectra<String> s = getTestData();
+        final HitTrace<String> t4 = s.getTrace("t4");
+
+        Assert.assertEquals(3, t4.involvedNodesCount());
+        Assert.assertEquals(new HashSet<>(Arrays.asList(
+                s.getNode("S1").getIndex(), s.getNode("S2").getIndex(), s.getNode("S3").getIndex())),
+                new HashSet<>(t4.getInvolvedNodes()));
+
+        t4.setInvolvement("S2", false);
+        Assert.assertEquals(2, t4.involvedNodesCount());
+        Assert.assertFalse(t4.isInvolved("S2"));
+        Assert.assertFalse(t4.getInvolvedNodes().contains(s.getNode("S2").getIndex()));
+
+        s.removeNode("S1");
+        Assert.assertEquals(1, t4.involvedNodesCount());
+        Assert.assertTrue(t4.isInvolved("S3"));
+    }
+
+    @Test
+    public void interleavedWritesUpdateColumnsInPlace() {
+        final InvolvementMatrix matrix = new InvolvementMatrix();
+        final int rows = 70;
+        final int nodes = 130;
+        final boolean[][] expected = new boolean[rows][nodes];
+        for (int row = 0; row < rows; ++row) {
+            Assert.assertEquals(row, matrix.addRow(row % 3 == 0));
+        }
+        matrix.set(0, nodes - 1, true);
+        expected[0][nodes - 1] = true;
+
+        final long[] column = matrix.getColumn(5);
+        final Random random = new Random(42);
+        for (int i = 0; i < 5000; ++i) {
+            int row = random.nextInt(rows);
+            int node = random.nextInt(nodes);
+            boolean involved = random.nextBoolean();
+            Assert.assertEquals(expected[row][node] != involved, matrix.set(row, node, involved));
+            expected[row][node] = involved;
+
+            int successful = 0;
+            int failing = 0;
+            for (int r = 0; r < rows; ++r) {
+                if (expected[r][node]) {
+                    if (r % 3 == 0) {
+                        ++successful;
+                    } else {
+                        ++failing;
+                    }
+                }
+            }
+            Assert.assertEquals(successful, matrix.countInvolved(node, true));
+            Assert.assertEquals(failing, matrix.countInvolved(node, false));
+        }
+        // the column view has not been recomputed
+        Assert.assertSame(column, matrix.getColumn(5));
+    }
+
+    @Test
+    public void concurrentWritesKeepColumnsConsistent() throws InterruptedException {
+        final InvolvementMatrix matrix = new InvolvementMatrix();
+        final int threadCount = 8;
+        final int rowsPerThread = 8;
+        final int nodes = 128;
+        for (int row = 0; row < threadCount * rowsPerThread; ++row) {
+            matrix.addRow(row % 2 == 0);
+        }
+        for (int row = 0; row < threadCount * rowsPerThread; ++row) {
+            matrix.set(row, nodes - 1, true);
+        }
+        // all rows share the same column words, which are updated in place
+        final long[] column = matrix.getColumn(0);
+
+        final Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; ++t) {
+            final int firstRow = t * rowsPerThread;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; ++i) {
+                    for (int row = firstRow; row < firstRow + rowsPerThread; ++row) {
+                        for (int node = 0; node < nodes - 1; ++node) {
+                            matrix.set(row, node, true);
+                        }
+                        matrix.clearAll(row, Arrays.asList(1, 2, 3));
+                        for (int node = 0; node < nodes - 1; ++node) {
+                            matrix.set(row, node, false);
+                        }
+                    }
+                }
+                for (int row = firstRow; row < firstRow + rowsPerThread; ++row) {
+                    matrix.set(row, row, true);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertSame(column, matrix.getColumn(0));
+        for (int node = 0; node < nodes - 1; ++node) {
+            int expected = node < threadCount * rowsPerThread ? 1 : 0;
+            Assert.assertEquals(node % 2 == 0 ? expected : 0, matrix.countInvolved(node, true));
+            Assert.assertEquals(node % 2 == 0 ? 0 : expected, matrix.countInvolved(node, false));
+        }
+        Assert.assertEquals(threadCount * rowsPerThread / 2, matrix.countInvolved(nodes - 1, true));
+        Assert.assertEquals(threadCount * rowsPerThread / 2, matrix.countInvolved(nodes - 1, false));
+    }
+
+    @Test
+    public void involvedNodeIndices() {
+        final PackedHitSpectra<String> s = getTestData();
+        final PackedHitTrace<String> t4 = (PackedHitTrace<String>) s.getTrace("t4");
+
+        int[] expected = {s.getNode("S1").getIndex(), s.getNode("S2").getIndex(), s.getNode("S3").getIndex()};
+        Arrays.sort(expected);
+        Assert.assertArrayEquals(expected, t4.getInvolvedNodeIndices());
+
+        final HashSet<Integer> visited = new HashSet<>();
+        t4.forEachInvolvedNode(visited::add);
+        Assert.assertEquals(new HashSet<>(t4.getInvolvedNodes()), visited);
+    }
+
+    @Test
+    public void removeNodesClearsColumns() {
+        final PackedHitSpectra<String> s = getTestData();
+        final INode<String> s1 = s.getNode("S1");
+        final INode<String> s3 = s.getNode("S3");
+        s.getLocalizer().computeAllValues(ComputationStrategies.STANDARD_SBFL);
+
+        s.removeNodes(Arrays.asList("S1", "S2"));
+        Assert.assertEquals(0, s.getInvolvedTraceCount(s1, false));
+        Assert.assertEquals(0, s.getInvolvedTraceCount(s1, true));
+        Assert.assertEquals(1, s.getTrace("t4").involvedNodesCount());
+        Assert.assertEquals(0, s.getTrace("t3").involvedNodesCount());
+
+        Assert.assertEquals(1, s3.getEF(), smallDelta);
+        Assert.assertEquals(2, s3.getEP(), smallDelta);
+        Assert.assertEquals(1, s3.getNF(), smallDelta);
+        Assert.assertEquals(1, s3.getNP(), smallDelta);
+    }
+
+}
@@ -84,4 +84,34 @@ public class CoberturaProviderTest {
         }
         Assert.assertEquals(count, 3563);
     }
+
+    @Test
+    public void loadLargeCoverageWithoutUncoveredLines() {
+        final CoberturaXMLProvider<HitTrace<SourceCodeBlock>> c = CoberturaSpectraProviderFactory.getHitSpectraFromXMLProvider(false);
+        c.addData("src/test/resources/fk/stardust/provider/large-coverage.xml", "large", true);
+        final ISpectra<SourceCodeBlock, ? super HitTrace<SourceCodeBlock>> s = c.loadSpectra();
+
+        // only the involved nodes are loaded
+        Assert.assertEquals(3563, s.getNodes().size());
+        Assert.assertEquals(1, s.getTraces().size());
+        final ITrace<SourceCodeBlock> t = s.getTraces().iterator().next();
+        for (final INode<SourceCodeBlock> node : s.getNodes()) {
+            Assert.assertTrue(t.isInvolved(node));
+        }
+    }
+
+    @Test
+    public void loadSameCoverageTwice() {
+        final CoberturaXMLProvider<HitTrace<SourceCodeBlock>> c = CoberturaSpectraProviderFactory.getHitSpectraFromXMLProvider(true);
+        c.addData("src/test/resources/fk/stardust/provider/large-coverage.xml", "large1", true);
+        c.addData("src/test/resources/fk/stardust/provider/large-coverage.xml", "large2", false);
+        final ISpectra<SourceCodeBlock, ? super HitTrace<SourceCodeBlock>> s = c.loadSpectra();
+
+        // the second trace maps to the nodes of the first trace
+        Assert.assertEquals(16245, s.getNodes().size());
+        Assert.assertEquals(2, s.getTraces().size());
+        for (final ITrace<SourceCodeBlock> t : s.getTraces()) {
+            Assert.assertEquals(3563, t.involvedNodesCount());
+        }
+    }
 }
@@ -0,0 +1,374 @@
+/**
+ *
+ */
+package se.de.hu_berlin.informatik.spectra.provider.loader.tracecobertura.report;
+
+import org.junit.*;
+import se.de.hu_berlin.informatik.spectra.core.INode;
+import se.de.hu_berlin.informatik.spectra.core.ISpectra;
+import se.de.hu_berlin.informatik.spectra.core.Node.NodeType;
+import se.de.hu_berlin.informatik.spectra.core.SourceCodeBlock;
+import se.de.hu_berlin.informatik.spectra.core.branch.SubTracePool;
+import se.de.hu_berlin.informatik.spectra.core.branch.SubTraceSequencePool;
+import se.de.hu_berlin.informatik.spectra.core.hit.HitSpectra;
+import se.de.hu_berlin.informatik.spectra.core.hit.HitTrace;
+import se.de.hu_berlin.informatik.spectra.core.traces.ExecutionTrace;
+import se.de.hu_berlin.informatik.spectra.core.traces.SimpleIntIndexerCompressed;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.coveragedata.ClassData;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.coveragedata.ExecutionTraceCollector;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.coveragedata.Pair;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.coveragedata.ProjectData;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.CoberturaStatementEncoding;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.SingleLinkedIntArrayQueue;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.SequiturUtils;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.input.InputSequence.TraceIterator;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output.CompactOutputSequence;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output.SharedCompactOutputGrammar;
+import se.de.hu_berlin.informatik.utils.files.FileUtils;
+import se.de.hu_berlin.informatik.utils.miscellaneous.TestSettings;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * @author Simon
+ *
+ */
+public class TraceCoberturaReportLoaderTest extends TestSettings {
+
+    private static final String[] CLASS_NAMES = {"pkg.A", "pkg.B"};
+    private static final int COUNTER_COUNT = 40;
+
+    private ProjectData projectData;
+    private ISpectra<SourceCodeBlock, HitTrace<SourceCodeBlock>> lineSpectra;
+    private List<List<Pair<Long, byte[]>>> testTraces;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @AfterClass
+    public static void tearDownAfterClass() throws Exception {
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        projectData = new ProjectData();
+        lineSpectra = new HitSpectra<>(null);
+        for (int c = 0; c < CLASS_NAMES.length; ++c) {
+            ClassData classData = projectData.getOrCreateClassData(CLASS_NAMES[c], c + 1);
+            int[][] counterId2LineNumbers = new int[COUNTER_COUNT + 1][];
+            // counter ID 0 is the fake counter
+            counterId2LineNumbers[0] = new int[]{-1, CoberturaStatementEncoding.NORMAL_ID, -1};
+            for (int counterId = 1; counterId <= COUNTER_COUNT; ++counterId) {
+                int nodeTypeId = getNodeTypeId(counterId);
+                // some counters are not assigned to a method
+                int methodId = counterId % 9 == 4 ? -1 : counterId / 10;
+                counterId2LineNumbers[counterId] = new int[]{10 + counterId, nodeTypeId, methodId};
+                lineSpectra.getOrCreateNode(new SourceCodeBlock(null, classData.getSourceFileName(), null,
+                        10 + counterId, getNodeType(nodeTypeId)));
+            }
+            classData.setCounterId2LineNumbers(counterId2LineNumbers);
+        }
+        projectData.generateClassIdToClassNameMap();
+
+        // traces of multiple threads of two tests, with recurring parts
+        Random rand = new Random(4711);
+        List<int[]> patterns = new ArrayList<>();
+        for (int i = 0; i < 25; ++i) {
+            int[] pattern = new int[rand.nextInt(8) + 1];
+            int classId = rand.nextInt(CLASS_NAMES.length) + 1;
+            for (int j = 0; j < pattern.length; ++j) {
+                if (rand.nextInt(5) == 0) {
+                    classId = rand.nextInt(CLASS_NAMES.length) + 1;
+                }
+                pattern[j] = CoberturaStatementEncoding.generateUniqueRepresentationForStatement(
+                        classId, rand.nextInt(COUNTER_COUNT) + 1);
+            }
+            patterns.add(pattern);
+        }
+        testTraces = new ArrayList<>();
+        for (int test = 0; test < 2; ++test) {
+            List<Pair<Long, byte[]>> traces = new ArrayList<>();
+            for (long threadId = 0; threadId < 6; ++threadId) {
+                CompactOutputSequence trace = new CompactOutputSequence();
+                for (int i = 0; i < 200; ++i) {
+                    while (rand.nextInt(10) == 0) {
+                        trace.append(ExecutionTraceCollector.NEW_SUBTRACE_ID);
+                    }
+                    for (int statement : patterns.get(rand.nextInt(patterns.size()))) {
+                        trace.append(statement);
+                    }
+                }
+                traces.add(new Pair<>(threadId, SequiturUtils.convertToByteArray(trace, true, SequiturUtils.Format.COMPACT)));
+            }
+            testTraces.add(traces);
+        }
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @After
+    public void tearDown() throws Exception {
+    }
+
+    @Test
+    public void parallelSplittingMatchesSequentialSplitting() throws Exception {
+        SplitResult expected = splitSequentially();
+        SplitResult sequential = splitWithLoader(1);
+        SplitResult parallel = splitWithLoader(4);
+
+        assertTrue(expected.subTraces.size() > 10);
+        assertTrue(expected.subTraceSequences.size() > 10);
+
+        assertSameResult(expected, sequential);
+        assertSameResult(expected, parallel);
+    }
+
+    private void assertSameResult(SplitResult expected, SplitResult actual) {
+        assertEquals(expected.subTraces.size(), actual.subTraces.size());
+        for (int i = 0; i < expected.subTraces.size(); ++i) {
+            assertArrayEquals("sub trace " + i, expected.subTraces.get(i), actual.subTraces.get(i));
+        }
+        assertEquals(expected.subTraceSequences.size(), actual.subTraceSequences.size());
+        for (int i = 0; i < expected.subTraceSequences.size(); ++i) {
+            assertArrayEquals("sub trace sequence " + i,
+                    expected.subTraceSequences.get(i), actual.subTraceSequences.get(i));
+        }
+        assertEquals(expected.executionTraces.size(), actual.executionTraces.size());
+        for (int i = 0; i < expected.executionTraces.size(); ++i) {
+            assertArrayEquals("execution trace " + i,
+                    expected.executionTraces.get(i), actual.executionTraces.get(i));
+            assertArrayEquals("mapped execution trace " + i,
+                    expected.mappedExecutionTraces.get(i), actual.mappedExecutionTraces.get(i));
+        }
+    }
+
+    private SplitResult splitWithLoader(int numberOfThreads) throws Exception {
+        Path tempDir = Paths.get(getStdTestDir(), "traceSplitting", "threads" + numberOfThreads);
+        FileUtils.delete(tempDir);
+
+        TraceCoberturaReportLoader<HitTrace<SourceCodeBlock>> loader =
+                new TraceCoberturaReportLoader<HitTrace<SourceCodeBlock>>(tempDir) {
+
+                    @Override
+                    public SourceCodeBlock getIdentifier(String packageName, String sourceFilePath,
+                                                         String methodNameAndSig, int lineNumber, NodeType nodeType) {
+                        return new SourceCodeBlock(packageName, sourceFilePath, methodNameAndSig, lineNumber, nodeType);
+                    }
+
+                    @Override
+                    public int getNodeIndex(String sourceFilePath, int lineNumber, NodeType nodeType) {
+                        INode<SourceCodeBlock> node = lineSpectra.getNode(
+                                new SourceCodeBlock(null, sourceFilePath, null, lineNumber, nodeType));
+                        return node == null ? -1 : node.getIndex();
+                    }
+
+                };
+        loader.setProjectData(projectData);
+        loader.setNumberOfSplitThreads(numberOfThreads);
+
+        List<byte[]> mappedTraces = new ArrayList<>();
+        for (List<Pair<Long, byte[]>> traces : testTraces) {
+            // the loader consumes the traces
+            projectData.addExecutionTraces(new ArrayList<>(traces));
+            List<Pair<Long, byte[]>> result = loader.generateSubTraceExecutionTraces(projectData, lineSpectra);
+            assertEquals(traces.size(), result.size());
+            for (int i = 0; i < traces.size(); ++i) {
+                assertEquals(traces.get(i).getFirst(), result.get(i).getFirst());
+                mappedTraces.add(result.get(i).getSecond());
+            }
+        }
+
+        return new SplitResult(new SimpleIntIndexerCompressed(loader.sharedExecutionTraceGrammar,
+                loader.getSubTracePool(), loader.getSubTraceSequencePool()), mappedTraces);
+    }
+
+    // splits the traces like the loader did before splitting was parallelized
+    private SplitResult splitSequentially() throws Exception {
+        Path tempDir = Paths.get(getStdTestDir(), "traceSplitting", "sequential");
+        FileUtils.delete(tempDir);
+
+        SubTracePool subTracePool = new SubTracePool(tempDir);
+        subTracePool.setProjectData(projectData);
+        SubTraceSequencePool subTraceSequencePool = new SubTraceSequencePool(tempDir);
+        SharedCompactOutputGrammar grammar = new SharedCompactOutputGrammar();
+
+        List<byte[]> mappedTraces = new ArrayList<>();
+        for (List<Pair<Long, byte[]>> traces : testTraces) {
+            for (Pair<Long, byte[]> trace : traces) {
+                CompactOutputSequence resultTrace = new CompactOutputSequence(grammar);
+                new SequentialSplitter(subTracePool, subTraceSequencePool, resultTrace).split(trace.getSecond());
+                mappedTraces.add(SequiturUtils.convertToByteArray(resultTrace, false, SequiturUtils.Format.COMPACT));
+            }
+        }
+
+        return new SplitResult(new SimpleIntIndexerCompressed(grammar, subTracePool, subTraceSequencePool), mappedTraces);
+    }
+
+    private class SequentialSplitter {
+
+        private final SubTracePool subTracePool;
+        private final SubTraceSequencePool subTraceSequencePool;
+        private final CompactOutputSequence resultTrace;
+        private SingleLinkedIntArrayQueue currentSubTraceSequence = null;
+
+        private SequentialSplitter(SubTracePool subTracePool, SubTraceSequencePool subTraceSequencePool,
+                                   CompactOutputSequence resultTrace) {
+            this.subTracePool = subTracePool;
+            this.subTraceSequencePool = subTraceSequencePool;
+            this.resultTrace = resultTrace;
+        }
+
+        private void split(byte[] trace) throws Exception {
+            TraceIterator traceIterator = SequiturUtils.getInputSequenceFromByteArray(trace).iterator();
+
+            SingleLinkedIntArrayQueue currentSubTrace = new SingleLinkedIntArrayQueue(15);
+            int lastMethod = -1;
+            int lastClass = -1;
+            int lastNodeType = CoberturaStatementEncoding.NORMAL_ID;
+            while (traceIterator.hasNext()) {
+                int statement = traceIterator.next();
+
+                if (statement == ExecutionTraceCollector.NEW_SUBTRACE_ID) {
+                    if (!currentSubTrace.isEmpty()) {
+                        processLastSubTrace(currentSubTrace, lastNodeType);
+                    }
+                    while (statement == ExecutionTraceCollector.NEW_SUBTRACE_ID && traceIterator.hasNext()) {
+                        statement = traceIterator.next();
+                    }
+                    if (statement == ExecutionTraceCollector.NEW_SUBTRACE_ID) {
+                        break;
+                    }
+                }
+
+                int classId = CoberturaStatementEncoding.getClassId(statement);
+                int counterId = CoberturaStatementEncoding.getCounterId(statement);
+                int[] lineNumber = projectData.getClassData(classId).getCounterId2LineNumbers()[counterId];
+
+                if (classId == lastClass) {
+                    int currentMethod = lineNumber[2] < 0 ? lastMethod : lineNumber[2];
+                    if (currentMethod != lastMethod && !currentSubTrace.isEmpty()) {
+                        processLastSubTrace(currentSubTrace, lastNodeType);
+                    }
+                    lastMethod = currentMethod;
+                } else {
+                    if (!currentSubTrace.isEmpty()) {
+                        processLastSubTrace(currentSubTrace, lastNodeType);
+                    }
+                    lastMethod = lineNumber[2];
+                    lastClass = classId;
+                }
+
+                currentSubTrace.addNoAutoBoxing(statement);
+
+                lastNodeType = lineNumber[1];
+                if (lastNodeType != CoberturaStatementEncoding.NORMAL_ID) {
+                    processLastSubTrace(currentSubTrace, lastNodeType);
+                }
+            }
+
+            if (!currentSubTrace.isEmpty()) {
+                processLastSubTrace(currentSubTrace, lastNodeType);
+            }
+            if (currentSubTraceSequence != null) {
+                addCurrentSubTraceSequenceToTrace();
+            }
+        }
+
+        private void processLastSubTrace(SingleLinkedIntArrayQueue currentSubTrace, int lastNodeType) {
+            Integer lastExecutedStatement = null;
+            if (lastNodeType != CoberturaStatementEncoding.NORMAL_ID) {
+                lastExecutedStatement = currentSubTrace.peekLastNoCheck();
+            }
+
+            int id = subTracePool.addSubTraceSequence(currentSubTrace, lineSpectra);
+            currentSubTrace.clear();
+
+            if (currentSubTraceSequence == null) {
+                currentSubTraceSequence = new SingleLinkedIntArrayQueue(30);
+            }
+            currentSubTraceSequence.add(id);
+
+            if (lastExecutedStatement != null) {
+                // the branch statement also starts the next sub trace
+                currentSubTrace.add(lastExecutedStatement);
+                addCurrentSubTraceSequenceToTrace();
+            }
+        }
+
+        private void addCurrentSubTraceSequenceToTrace() {
+            resultTrace.append(subTraceSequencePool.addSubTraceSequence(currentSubTraceSequence));
+            currentSubTraceSequence = null;
+        }
+    }
+
+    private static class SplitResult {
+
+        private final List<int[]> subTraces = new ArrayList<>();
+        private final List<int[]> subTraceSequences = new ArrayList<>();
+        private final List<int[]> executionTraces = new ArrayList<>();
+        private final List<int[]> mappedExecutionTraces = new ArrayList<>();
+
+        private SplitResult(SimpleIntIndexerCompressed indexer, List<byte[]> mappedTraces) {
+            for (int i = 0; i < indexer.getNodeIdSequences().size(); ++i) {
+                subTraces.add(indexer.getNodeIdSequence(i));
+            }
+            for (int i = 0; i < indexer.getSubTraceIdSequences().size(); ++i) {
+                subTraceSequences.add(indexer.getSubTraceIdSequence(i));
+            }
+            for (byte[] mappedTrace : mappedTraces) {
+                ExecutionTrace executionTrace = new ExecutionTrace(mappedTrace, indexer);
+                int[] sequenceIds = new int[(int) executionTrace.size()];
+                TraceIterator iterator = executionTrace.iterator();
+                for (int i = 0; i < sequenceIds.length; ++i) {
+                    sequenceIds[i] = iterator.next();
+                }
+                assertFalse(iterator.hasNext());
+                executionTraces.add(sequenceIds);
+                mappedExecutionTraces.add(executionTrace.reconstructFullMappedTrace(indexer));
+            }
+        }
+    }
+
+    private static int getNodeTypeId(int counterId) {
+        if (counterId % 7 == 3) {
+            return CoberturaStatementEncoding.BRANCH_ID;
+        } else if (counterId % 11 == 5) {
+            return CoberturaStatementEncoding.JUMP_ID;
+        } else if (counterId % 13 == 0) {
+            return CoberturaStatementEncoding.SWITCH_ID;
+        }
+        return CoberturaStatementEncoding.NORMAL_ID;
+    }
+
+    private static NodeType getNodeType(int nodeTypeId) {
+        switch (nodeTypeId) {
+            case CoberturaStatementEncoding.BRANCH_ID:
+                return NodeType.FALSE_BRANCH;
+            case CoberturaStatementEncoding.JUMP_ID:
+                return NodeType.TRUE_BRANCH;
+            case CoberturaStatementEncoding.SWITCH_ID:
+                return NodeType.SWITCH_BRANCH;
+            default:
+                return NodeType.NORMAL;
+        }
+    }
+
+}
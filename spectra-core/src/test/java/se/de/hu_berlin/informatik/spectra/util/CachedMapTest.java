@@ -4,15 +4,21 @@
 package se.de.hu_berlin.informatik.spectra.util;
 
 import org.junit.*;
+import se.de.hu_berlin.informatik.utils.compression.ziputils.ZipFileWrapper;
 import se.de.hu_berlin.informatik.utils.files.FileUtils;
 import se.de.hu_berlin.informatik.utils.miscellaneous.TestSettings;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.*;
 
@@ -138,6 +144,115 @@ public class CachedMapTest extends TestSettings {
         checkIfEqual(map2, checkMap);
     }
 
+    @Test
+    public void cachedMapPrefetchTest() {
+        Path output = Paths.get(getStdTestDir(), "cacheMap", "prefetchMap.zip");
+        FileUtils.delete(output);
+
+        CachedMap<int[]> map = new CachedIntArrayMap(output, 50, 500, "test", false);
+        Map<Integer, int[]> checkMap = new HashMap<>();
+
+        Random rand = new Random(12315415);
+        for (int i = 0; i < 2000; ++i) {
+            int length = rand.nextInt(100)+1;
+            int[] array = new int[length];
+            for (int j = 0; j < length; ++j) {
+                array[j] = rand.nextInt();
+            }
+            map.put(i, array);
+            checkMap.put(i, array);
+        }
+        map.store();
+
+        for (CachedMap.EvictionPolicy policy : CachedMap.EvictionPolicy.values()) {
+            map.setEvictionPolicy(policy);
+            map.setPrefetchSize(100);
+            map.resetStats();
+
+            // sequential and repeated access
+            for (int round = 0; round < 2; ++round) {
+                for (int i = 0; i < 2000; ++i) {
+                    assertArrayEquals(checkMap.get(i), map.get(i));
+                }
+            }
+            assertEquals(4000, map.getHits() + map.getMisses() + map.getPrefetchHits());
+
+            // values that were not stored, yet, count as hits
+            int newKey = 2000 + policy.ordinal();
+            map.put(newKey, new int[]{newKey});
+            checkMap.put(newKey, new int[]{newKey});
+            map.resetStats();
+            assertArrayEquals(checkMap.get(newKey), map.get(newKey));
+            assertEquals(1, map.getHits());
+            assertEquals(0, map.getMisses() + map.getPrefetchHits());
+
+            // changing stored entries discards prefetched values
+            map.put(5, new int[]{5});
+            checkMap.put(5, new int[]{5});
+            checkIfEqual(map, checkMap);
+        }
+
+        map.setPrefetchSize(0);
+        checkIfEqual(map, checkMap);
+    }
+
+    @Test
+    public void cachedMapSharedZipPrefetchTest() throws Exception {
+        Path output = Paths.get(getStdTestDir(), "cacheMap", "sharedPrefetchMap.zip");
+        FileUtils.delete(output);
+
+        // several maps in the same zip file (like the sequence maps of a spectra zip file)
+        int mapCount = 3;
+        List<Map<Integer, int[]>> checkMaps = new ArrayList<>();
+        Random rand = new Random(12315415);
+        for (int m = 0; m < mapCount; ++m) {
+            CachedMap<int[]> map = new CachedIntArrayMap(output, 50, 200, "test" + m, false);
+            Map<Integer, int[]> checkMap = new HashMap<>();
+            for (int i = 0; i < 2000; ++i) {
+                int length = rand.nextInt(100)+1;
+                int[] array = new int[length];
+                for (int j = 0; j < length; ++j) {
+                    array[j] = rand.nextInt();
+                }
+                map.put(i, array);
+                checkMap.put(i, array);
+            }
+            map.store();
+            checkMaps.add(checkMap);
+        }
+
+        // the prefetchers of all maps and the reading threads access the shared zip file wrapper concurrently
+        ExecutorService executor = Executors.newFixedThreadPool(mapCount + 1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int m = 0; m < mapCount; ++m) {
+                CachedMap<int[]> map = new CachedIntArrayMap(output, 50, 200, "test" + m, false);
+                map.setEvictionPolicy(CachedMap.EvictionPolicy.W_TINY_LFU);
+                map.setPrefetchSize(100);
+                Map<Integer, int[]> checkMap = checkMaps.get(m);
+                futures.add(executor.submit(() -> {
+                    for (int round = 0; round < 3; ++round) {
+                        for (int i = 0; i < 2000; ++i) {
+                            assertArrayEquals(checkMap.get(i), map.get(i));
+                        }
+                    }
+                }));
+            }
+            ZipFileWrapper zip = ZipFileWrapper.getZipFileWrapper(output);
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 200; ++i) {
+                    assertTrue(SpectraFileUtils.zipEntryExists(zip, "test0/." + (i % 10)));
+                    assertNotNull(SpectraFileUtils.getZipEntry(zip, "test1/." + (i % 10)));
+                }
+            }));
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     private void checkIfEqual(CachedMap<int[]> map, Map<Integer, int[]> checkMap) {
         assertEquals(checkMap.size(), map.size());
 
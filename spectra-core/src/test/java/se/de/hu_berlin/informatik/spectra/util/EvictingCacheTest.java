@@ -0,0 +1,93 @@
+package se.de.hu_berlin.informatik.spectra.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EvictingCacheTest {
+
+    @Test
+    public void fifoCacheTest() {
+        EvictingCache<Integer> cache = EvictingCache.create(CachedMap.EvictionPolicy.FIFO, 3);
+        cache.put(1, 1);
+        cache.put(2, 2);
+        cache.put(3, 3);
+        cache.get(1);
+        cache.put(4, 4);
+
+        // accessing 1 does not keep it in the cache
+        assertNull(cache.get(1));
+        assertEquals(Integer.valueOf(2), cache.get(2));
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void lruCacheTest() {
+        EvictingCache<Integer> cache = EvictingCache.create(CachedMap.EvictionPolicy.LRU, 3);
+        cache.put(1, 1);
+        cache.put(2, 2);
+        cache.put(3, 3);
+        cache.get(1);
+        cache.put(4, 4);
+
+        assertEquals(Integer.valueOf(1), cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals(3, cache.size());
+
+        cache.setCapacity(1);
+        assertEquals(1, cache.size());
+        assertEquals(Integer.valueOf(1), cache.get(1));
+
+        cache.remove(1);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void tinyLfuCacheTest() {
+        int capacity = 100;
+        EvictingCache<Integer> cache = EvictingCache.create(CachedMap.EvictionPolicy.W_TINY_LFU, capacity);
+
+        // frequently used entries
+        for (int round = 0; round < 5; ++round) {
+            for (int i = 0; i < 50; ++i) {
+                if (cache.get(i) == null) {
+                    cache.put(i, i);
+                }
+            }
+        }
+
+        // scan over many entries that are only used once
+        for (int i = 1000; i < 10000; ++i) {
+            if (cache.get(i) == null) {
+                cache.put(i, i);
+            }
+            assertTrue(cache.size() <= capacity);
+        }
+
+        // the frequently used entries survived the scan
+        int cached = 0;
+        for (int i = 0; i < 50; ++i) {
+            if (cache.get(i) != null) {
+                ++cached;
+            }
+        }
+        assertTrue("only " + cached + " entries survived", cached >= 45);
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void frequencySketchTest() {
+        EvictingCache.FrequencySketch sketch = new EvictingCache.FrequencySketch(64);
+        for (int i = 0; i < 10; ++i) {
+            sketch.increment(42);
+        }
+        sketch.increment(7);
+
+        assertEquals(10, sketch.frequency(42));
+        assertTrue(sketch.frequency(7) >= 1);
+        assertTrue(sketch.frequency(42) > sketch.frequency(7));
+    }
+
+}
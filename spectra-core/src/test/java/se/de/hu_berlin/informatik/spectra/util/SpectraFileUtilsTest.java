@@ -3,18 +3,23 @@ package se.de.hu_berlin.informatik.spectra.util;
 import org.junit.*;
 import org.junit.contrib.java.lang.system.ExpectedSystemExit;
 import org.junit.contrib.java.lang.system.SystemErrRule;
+import se.de.hu_berlin.informatik.spectra.core.ComputationStrategies;
+import se.de.hu_berlin.informatik.spectra.core.INode;
 import se.de.hu_berlin.informatik.spectra.core.ISpectra;
 import se.de.hu_berlin.informatik.spectra.core.ITrace;
 import se.de.hu_berlin.informatik.spectra.core.SourceCodeBlock;
 import se.de.hu_berlin.informatik.spectra.core.count.CountSpectra;
 import se.de.hu_berlin.informatik.spectra.core.count.CountTrace;
 import se.de.hu_berlin.informatik.spectra.core.hit.HitTrace;
+import se.de.hu_berlin.informatik.spectra.core.manipulation.BuildBlockSpectraModule;
+import se.de.hu_berlin.informatik.spectra.core.manipulation.FilterSpectraModule;
 import se.de.hu_berlin.informatik.spectra.core.traces.ExecutionTrace;
 import se.de.hu_berlin.informatik.spectra.core.traces.RawIntTraceCollector;
 import se.de.hu_berlin.informatik.spectra.core.traces.SimpleIntIndexerCompressed;
 import se.de.hu_berlin.informatik.spectra.provider.cobertura.CoberturaSpectraProviderFactory;
 import se.de.hu_berlin.informatik.spectra.provider.cobertura.xml.CoberturaCountXMLProvider;
 import se.de.hu_berlin.informatik.spectra.provider.cobertura.xml.CoberturaXMLProvider;
+import se.de.hu_berlin.informatik.utils.compression.ziputils.ZipFileWrapper;
 import se.de.hu_berlin.informatik.utils.files.FileUtils;
 import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
 import se.de.hu_berlin.informatik.utils.miscellaneous.TestSettings;
@@ -24,7 +29,10 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 import java.util.zip.ZipException;
 
 import static org.junit.Assert.*;
@@ -427,6 +435,206 @@ public class SpectraFileUtilsTest extends TestSettings {
         assertTrue(output3.toFile().length() <= output2.toFile().length());
     }
 
+    @Test
+    public void testDeltaEncodedSparseBlockSpectraReadingAndWriting() {
+        final CoberturaXMLProvider<HitTrace<SourceCodeBlock>> c = CoberturaSpectraProviderFactory.getHitSpectraFromXMLProvider(true);
+        c.addData(getStdResourcesDir() + "/fk/stardust/provider/large-coverage.xml", "large", true);
+        c.addData(getStdResourcesDir() + "/fk/stardust/provider/simple-coverage.xml", "simple", false);
+
+        ISpectra<SourceCodeBlock, ? super HitTrace<SourceCodeBlock>> spectra = c.loadSpectra();
+
+        // the sparse format stays the default
+        Path output1 = Paths.get(getStdTestDir(), "spectra_block_sp_default.zip");
+        FileUtils.delete(output1);
+        SpectraFileUtils.saveSpectraToZipFile(spectra, output1, true, true, true);
+        assertEquals(SpectraFileUtils.STATUS_SPARSE_INDEXED,
+                SpectraFileUtils.getStatusByte(ZipFileWrapper.getZipFileWrapper(output1))[0]);
+
+        Path output2 = Paths.get(getStdTestDir(), "spectra_block_sp_delta.zip");
+        FileUtils.delete(output2);
+        SpectraFileUtils.saveSpectraToZipFile(spectra, output2, true, true, true, false, true);
+        assertEquals(SpectraFileUtils.STATUS_SPARSE_DELTA_INDEXED,
+                SpectraFileUtils.getStatusByte(ZipFileWrapper.getZipFileWrapper(output2))[0]);
+
+        ISpectra<SourceCodeBlock, ?> spectra2 = SpectraFileUtils.loadBlockSpectraFromZipFile(output2);
+        assertEquals(spectra, spectra2);
+        assertEquals(SpectraFileUtils.loadBlockSpectraFromZipFile(output1), spectra2);
+        assertStreamMatchesSpectra(output2, spectra2);
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testColumnarBlockSpectraReadingAndWriting() {
+        final CoberturaXMLProvider<HitTrace<SourceCodeBlock>> c = CoberturaSpectraProviderFactory.getHitSpectraFromXMLProvider(true);
+        c.addData(getStdResourcesDir() + "/fk/stardust/provider/large-coverage.xml", "large", true);
+        c.addData(getStdResourcesDir() + "/fk/stardust/provider/large-coverage.xml", "large2", true);
+        c.addData(getStdResourcesDir() + "/fk/stardust/provider/simple-coverage.xml", "simple", false);
+
+        ISpectra<SourceCodeBlock, ? super HitTrace<SourceCodeBlock>> spectra = c.loadSpectra();
+
+        Path output1 = Paths.get(getStdTestDir(), "spectra_block_col.zip");
+        FileUtils.delete(output1);
+        SpectraFileUtils.saveSpectraToZipFile(spectra, output1, true, false, true, true);
+        Log.out(this, "saved...");
+
+        ISpectra<SourceCodeBlock, ?> spectra2 = SpectraFileUtils.loadBlockSpectraFromZipFile(output1);
+        Log.out(this, "loaded...");
+        Collection<? extends ITrace<SourceCodeBlock>> failingTraces = spectra2.getFailingTraces();
+        assertNotNull(failingTraces);
+        assertEquals(1, failingTraces.size());
+        ITrace<SourceCodeBlock> trace = spectra2.getTrace("simple");
+        assertNotNull(trace);
+        assertFalse(trace.isSuccessful());
+
+        // successful traces are loaded lazily
+        assertEquals(spectra.getTrace("large").involvedNodesCount(), spectra2.getTrace("large").involvedNodesCount());
+        assertEquals(spectra, spectra2);
+
+        ISpectra<SourceCodeBlock, ?> spectra3 = SpectraFileUtils.loadPackedBlockSpectraFromZipFile(output1);
+        Log.out(this, "loaded packed...");
+        assertEquals(spectra, spectra3);
+
+        Path output2 = Paths.get(getStdTestDir(), "spectra2_block_col.zip");
+        FileUtils.delete(output2);
+        SpectraFileUtils.saveSpectraToZipFile(spectra2, output2, true, false, false, true);
+        Log.out(this, "saved non-indexed...");
+        ISpectra<SourceCodeBlock, ?> spectra4 = SpectraFileUtils.loadBlockSpectraFromZipFile(output2);
+        Log.out(this, "loaded...");
+        assertEquals(spectra2, spectra4);
+    }
+
+    @Test
+    public void testStreamingSpectraReading() {
+        final CoberturaXMLProvider<HitTrace<SourceCodeBlock>> c = CoberturaSpectraProviderFactory.getHitSpectraFromXMLProvider(true);
+        c.addData(getStdResourcesDir() + "/fk/stardust/provider/large-coverage.xml", "large", true);
+        c.addData(getStdResourcesDir() + "/fk/stardust/provider/large-coverage.xml", "large2", true);
+        c.addData(getStdResourcesDir() + "/fk/stardust/provider/simple-coverage.xml", "simple", false);
+
+        ISpectra<SourceCodeBlock, ? super HitTrace<SourceCodeBlock>> spectra = c.loadSpectra();
+
+        Path output1 = Paths.get(getStdTestDir(), "spectra_block_stream.zip");
+        FileUtils.delete(output1);
+        SpectraFileUtils.saveSpectraToZipFile(spectra, output1, true, false, true);
+        assertStreamMatchesSpectra(output1, SpectraFileUtils.loadBlockSpectraFromZipFile(output1));
+
+        Path output2 = Paths.get(getStdTestDir(), "spectra_block_stream_sparse.zip");
+        FileUtils.delete(output2);
+        SpectraFileUtils.saveSpectraToZipFile(spectra, output2, true, true, true);
+        assertStreamMatchesSpectra(output2, SpectraFileUtils.loadBlockSpectraFromZipFile(output2));
+
+        Path output3 = Paths.get(getStdTestDir(), "spectra_block_stream_col.zip");
+        FileUtils.delete(output3);
+        SpectraFileUtils.saveSpectraToZipFile(spectra, output3, true, false, true, true);
+        assertStreamMatchesSpectra(output3, SpectraFileUtils.loadBlockSpectraFromZipFile(output3));
+
+        final CoberturaCountXMLProvider<CountTrace<SourceCodeBlock>> c2 = CoberturaSpectraProviderFactory.getCountSpectraFromXMLProvider(true);
+        c2.addData(getStdResourcesDir() + "/fk/stardust/provider/large-coverage.xml", "large", true);
+        c2.addData(getStdResourcesDir() + "/fk/stardust/provider/simple-coverage.xml", "simple", false);
+
+        Path output4 = Paths.get(getStdTestDir(), "count_spectra_block_stream.zip");
+        FileUtils.delete(output4);
+        SpectraFileUtils.saveSpectraToZipFile(c2.loadSpectra(), output4, true, false, true);
+        CountSpectra<SourceCodeBlock> countSpectra = SpectraFileUtils.loadBlockCountSpectraFromZipFile(output4);
+        assertStreamMatchesSpectra(output4, countSpectra);
+
+        SpectraStream<SourceCodeBlock> stream = SpectraFileUtils.streamBlockSpectraFromZipFile(output4);
+        assertTrue(stream.isCountSpectra());
+        for (SpectraStream.StreamedTrace<SourceCodeBlock> trace : stream) {
+            CountTrace<SourceCodeBlock> countTrace = countSpectra.getTrace(trace.getIdentifier());
+            for (INode<SourceCodeBlock> node : countSpectra.getNodes()) {
+                assertEquals(countTrace.getHits(node), trace.getHits(stream.getNodeIndex(node.getIdentifier())));
+            }
+        }
+    }
+
+    @Test
+    public void testStreamingSpectraFiltering() {
+        final CoberturaXMLProvider<HitTrace<SourceCodeBlock>> c = CoberturaSpectraProviderFactory.getHitSpectraFromXMLProvider(true);
+        c.addData(getStdResourcesDir() + "/fk/stardust/provider/large-coverage.xml", "large", true);
+        c.addData(getStdResourcesDir() + "/fk/stardust/provider/simple-coverage.xml", "simple", false);
+
+        Path output = Paths.get(getStdTestDir(), "spectra_block_stream_filter.zip");
+        FileUtils.delete(output);
+        SpectraFileUtils.saveSpectraToZipFile(c.loadSpectra(), output, true, true, true);
+        SpectraStream<SourceCodeBlock> stream = SpectraFileUtils.streamBlockSpectraFromZipFile(output);
+
+        for (INode.CoverageType coverageType : INode.CoverageType.values()) {
+            // the nodes that remain after filtering the loaded spectra...
+            ISpectra<SourceCodeBlock, ?> spectra = new FilterSpectraModule<SourceCodeBlock>(coverageType)
+                    .submit(SpectraFileUtils.loadBlockSpectraFromZipFile(output)).getResult();
+            Set<SourceCodeBlock> remainingNodes = new HashSet<>(stream.getNodeIdentifiers());
+            // ...are the nodes that remain after removing the nodes computed from the stream
+            remainingNodes.removeAll(FilterSpectraModule.getNodesToRemove(stream, coverageType));
+
+            assertEquals(coverageType.toString(), remainingNodes.size(), spectra.getNodes().size());
+            for (SourceCodeBlock identifier : remainingNodes) {
+                assertTrue(coverageType + ": " + identifier, spectra.hasNode(identifier));
+            }
+        }
+    }
+
+    @Test
+    public void testStreamingBlockBuilding() {
+        final CoberturaXMLProvider<HitTrace<SourceCodeBlock>> c = CoberturaSpectraProviderFactory.getHitSpectraFromXMLProvider(true);
+        c.addData(getStdResourcesDir() + "/fk/stardust/provider/large-coverage.xml", "large", true);
+        c.addData(getStdResourcesDir() + "/fk/stardust/provider/simple-coverage.xml", "simple", false);
+
+        Path output = Paths.get(getStdTestDir(), "spectra_block_stream_blocks.zip");
+        FileUtils.delete(output);
+        SpectraFileUtils.saveSpectraToZipFile(c.loadSpectra(), output, true, true, true);
+        SpectraStream<SourceCodeBlock> stream = SpectraFileUtils.streamBlockSpectraFromZipFile(output);
+        Set<String> lines = new HashSet<>();
+        for (SourceCodeBlock identifier : stream.getNodeIdentifiers()) {
+            lines.add(identifier.toString());
+        }
+
+        ISpectra<SourceCodeBlock, ?> spectra = new BuildBlockSpectraModule()
+                .submit(SpectraFileUtils.loadBlockSpectraFromZipFile(output)).getResult();
+        List<SourceCodeBlock> blocks = BuildBlockSpectraModule.buildBlocks(stream);
+
+        // the blocks computed from the stream are the blocks of the loaded spectra...
+        assertEquals(spectra.getNodes().size(), blocks.size());
+        for (SourceCodeBlock block : blocks) {
+            INode<SourceCodeBlock> node = spectra.getNode(block);
+            assertNotNull(block.toString(), node);
+            assertEquals(node.getIdentifier().toString(), block.toString());
+        }
+        // ...and the node identifiers of the stream are not changed
+        for (SourceCodeBlock identifier : stream.getNodeIdentifiers()) {
+            assertTrue(identifier.toString(), lines.contains(identifier.toString()));
+        }
+    }
+
+    private static void assertStreamMatchesSpectra(Path zipFile, ISpectra<SourceCodeBlock, ?> spectra) {
+        SpectraStream<SourceCodeBlock> stream = SpectraFileUtils.streamBlockSpectraFromZipFile(zipFile);
+        assertEquals(spectra.getNodes().size(), stream.getNodeCount());
+        assertEquals(spectra.getTraces().size(), stream.getTraceCount());
+
+        int traceCount = stream.fold(0, (count, trace) -> {
+            ITrace<SourceCodeBlock> loadedTrace = spectra.getTrace(trace.getIdentifier());
+            assertNotNull(loadedTrace);
+            assertEquals(loadedTrace.getIndex(), trace.getIndex());
+            assertEquals(loadedTrace.isSuccessful(), trace.isSuccessful());
+            assertEquals(loadedTrace.involvedNodesCount(), trace.involvedNodesCount());
+            for (INode<SourceCodeBlock> node : spectra.getNodes()) {
+                assertEquals(loadedTrace.isInvolved(node), trace.isInvolved(node));
+            }
+            return count + 1;
+        });
+        assertEquals(spectra.getTraces().size(), traceCount);
+
+        SpectraStream.InvolvementCounts counts = stream.countInvolvement();
+        for (INode<SourceCodeBlock> node : spectra.getNodes()) {
+            int index = stream.getNodeIndex(node.getIdentifier());
+            assertEquals(node.getEF(ComputationStrategies.STANDARD_SBFL), counts.getEF(index), 0);
+            assertEquals(node.getEP(ComputationStrategies.STANDARD_SBFL), counts.getEP(index), 0);
+            assertEquals(node.getNF(ComputationStrategies.STANDARD_SBFL), counts.getNF(index), 0);
+            assertEquals(node.getNP(ComputationStrategies.STANDARD_SBFL), counts.getNP(index), 0);
+        }
+    }
+
     //TODO:doesn't seem to work for some kind of reasons... dunno why
 
     /**
@@ -158,6 +158,25 @@ public abstract class AbstractSpectraGenerationFactory<T extends Serializable, R
     public abstract AbstractRunSingleTestAndReportModule<T, R> getTestRunnerModule(OptionParser options,
                                                                                    ClassLoader testAndInstrumentClassLoader, String testClassPath, StatisticsCollector<StatisticsData> statisticsContainer);
 
+    /**
+     * Gets a module that runs a single test and generates a coverage report in the end, for
+     * one of multiple workers that run tests in parallel. The workers have to be isolated
+     * from each other, e.g., by running the tests in separate JVMs and by using separate
+     * coverage data files.
+     *
+     * @param options                      an object that holds options relevant to execution
+     * @param testAndInstrumentClassLoader a class loader that is used to run the test (loads the instrumented classes, specifically)
+     * @param testClassPath                the class path that is necessary for execution of the test classes
+     * @param statisticsContainer          a container for collecting statistics
+     * @param workerIndex                  the index of the worker
+     * @return the test runner module; null if the tool does not support parallel test execution
+     */
+    public AbstractRunSingleTestAndReportModule<T, R> getParallelTestRunnerModule(OptionParser options,
+                                                                                   ClassLoader testAndInstrumentClassLoader, String testClassPath, StatisticsCollector<StatisticsData> statisticsContainer,
+                                                                                   int workerIndex) {
+        return null;
+    }
+
     /**
      * Gets a module that collects all the reports generated by running the tests and generates
      * a spectra at the end, when all tests have been run.
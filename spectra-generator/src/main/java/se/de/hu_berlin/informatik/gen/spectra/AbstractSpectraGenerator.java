@@ -74,6 +74,13 @@ public abstract class AbstractSpectraGenerator {
      * if {@code null}, then it will just be ignored
      * @param testRunnerJVMArgs
      * JVM arguments for test runner JVMs
+     * @param testWorkers
+     * the number of tests to run in parallel
+     * @param classAffinity
+     * whether all tests of a test class shall be run by the same worker
+     * @param noWorkerPool
+     * whether each test that is run in a separate JVM shall get a new JVM,
+     * instead of reusing the JVMs of a worker pool
      * @param pathsToBinaries
      * a list of paths to class files or directories with class files
      */
@@ -85,7 +92,8 @@ public abstract class AbstractSpectraGenerator {
                                         boolean useJava7, boolean condenseNodes,
                                         Long timeout, int testRepeatCount, int maxErrors, int pipeBufferSize, 
                                         Integer agentPort, List<String> failingtests,
-                                        String[] testRunnerJVMArgs, String... pathsToBinaries) {
+                                        String[] testRunnerJVMArgs, int testWorkers, boolean classAffinity,
+                                        boolean noWorkerPool, String... pathsToBinaries) {
         final Path projectDir = FileUtils.checkIfAnExistingDirectory(null, projectDirOptionValue);
         final Path testClassDir = FileUtils.checkIfAnExistingDirectory(projectDir, testClassDirOptionValue);
         final Path sourceDir = FileUtils.checkIfAnExistingDirectory(projectDir, sourceDirOptionValue);
@@ -172,7 +180,8 @@ public abstract class AbstractSpectraGenerator {
         runTestsAndGenerateSpectra(
                 factory, projectDirOptionValue, sourceDirOptionValue, testClassPath, testClassList, testList, javaHome,
                 useFullSpectra, useSeparateJVM, useJava7, condenseNodes, timeout, testRepeatCount, maxErrors, pipeBufferSize, agentPort, failingtests,
-                projectDir, testClassDir, outputDir, instrumentedDir, testRunnerJVMArgs, pathsToBinaries);
+                projectDir, testClassDir, outputDir, instrumentedDir, testRunnerJVMArgs, testWorkers, classAffinity,
+                noWorkerPool, pathsToBinaries);
 
 
         /* #====================================================================================
@@ -191,12 +200,14 @@ public abstract class AbstractSpectraGenerator {
                                                    int testRepeatCount, int maxErrors, int pipeBufferSize, 
                                                    Integer agentPort, List<String> failingtests, final Path projectDir,
                                                    final Path testClassDir, final String outputDir, final Path instrumentedDir, 
-                                                   String[] testRunnerJVMArgs, String... pathsToBinaries) {
+                                                   String[] testRunnerJVMArgs, int testWorkers, boolean classAffinity,
+                                                   boolean noWorkerPool, String... pathsToBinaries) {
 
         String[] newArgs = getArgs(factory.getStrategy(), factory.getSpecificArgsForMainTestRunner(),
                 projectDirOptionValue, sourceDirOptionValue, testClassDir, testClassPath, outputDir, instrumentedDir,
                 testClassList, testList, javaHome, useFullSpectra, useSeparateJVM, useJava7, condenseNodes, timeout, testRepeatCount,
-                maxErrors, pipeBufferSize, agentPort, failingtests, testRunnerJVMArgs, pathsToBinaries);
+                maxErrors, pipeBufferSize, agentPort, failingtests, testRunnerJVMArgs, testWorkers, classAffinity,
+                noWorkerPool, pathsToBinaries);
 
         String systemClassPath = new ClassPathParser().parseSystemClasspath().getClasspath();
 
@@ -217,7 +228,8 @@ public abstract class AbstractSpectraGenerator {
                                     String testClassPath, final String outputDir, final Path instrumentedDir, String testClassList,
                                     String testList, final String javaHome, boolean useFullSpectra, boolean useSeparateJVM, boolean useJava7, boolean condenseNodes,
                                     Long timeout, int testRepeatCount, int maxErrors, int pipeBufferSize, Integer agentPort, List<String> failingtests, 
-                                    String[] testRunnerJVMArgs, String... pathsToBinaries) {
+                                    String[] testRunnerJVMArgs, int testWorkers, boolean classAffinity,
+                                    boolean noWorkerPool, String... pathsToBinaries) {
         //build arguments for the "real" application (running the tests...)
         String[] newArgs = {
                 RunAllTestsAndGenSpectra.CmdOptions.PROJECT_DIR.asArg(), projectDirOptionValue,
@@ -289,6 +301,18 @@ public abstract class AbstractSpectraGenerator {
             newArgs = Misc.addToArrayAndReturnResult(newArgs, RunAllTestsAndGenSpectra.CmdOptions.PIPE_BUFFER_SIZE.asArg(), String.valueOf(pipeBufferSize));
         }
 
+        if (testWorkers > 1) {
+            newArgs = Misc.addToArrayAndReturnResult(newArgs, RunAllTestsAndGenSpectra.CmdOptions.TEST_WORKERS.asArg(), String.valueOf(testWorkers));
+        }
+
+        if (classAffinity) {
+            newArgs = Misc.addToArrayAndReturnResult(newArgs, RunAllTestsAndGenSpectra.CmdOptions.CLASS_AFFINITY.asArg());
+        }
+
+        if (noWorkerPool) {
+            newArgs = Misc.addToArrayAndReturnResult(newArgs, RunAllTestsAndGenSpectra.CmdOptions.NO_WORKER_POOL.asArg());
+        }
+
         if (agentPort != null) {
             newArgs = Misc.addToArrayAndReturnResult(newArgs, RunAllTestsAndGenSpectra.CmdOptions.AGENT_PORT.asArg(), String.valueOf(agentPort.intValue()));
         }
@@ -324,6 +348,9 @@ public abstract class AbstractSpectraGenerator {
 		private String[] customJvmArgs;
 		private String[] customSmallJvmArgs;
 		private int pipeBufferSize;
+		private int testWorkers = 1;
+		private boolean classAffinity = false;
+		private boolean noWorkerPool = false;
 
         public AbstractBuilder setProjectDir(String projectDir) {
             this.projectDir = projectDir;
@@ -416,6 +443,21 @@ public abstract class AbstractSpectraGenerator {
             return this;
         }
 
+        public AbstractBuilder setTestWorkers(int testWorkers) {
+            this.testWorkers = testWorkers;
+            return this;
+        }
+
+        public AbstractBuilder setClassAffinity(boolean classAffinity) {
+            this.classAffinity = classAffinity;
+            return this;
+        }
+
+        public AbstractBuilder setNoWorkerPool(boolean noWorkerPool) {
+            this.noWorkerPool = noWorkerPool;
+            return this;
+        }
+
         public AbstractBuilder setFailingTests(List<String> failingTests) {
             this.failingTests = failingTests;
             return this;
@@ -445,7 +487,7 @@ public abstract class AbstractSpectraGenerator {
                     testClassPath, testClassList, testList, javaHome,
                     useFullSpectra, useSeparateJVM, useJava7, condenseNodes, timeout, testRepeatCount,
                     maxErrors, pipeBufferSize, agentPort, failingTests, customSmallJvmArgs,
-                    classesToInstrument);
+                    testWorkers, classAffinity, noWorkerPool, classesToInstrument);
         }
 
     }
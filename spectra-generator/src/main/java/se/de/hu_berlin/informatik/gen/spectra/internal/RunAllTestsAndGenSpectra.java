@@ -48,6 +48,11 @@ public class RunAllTestsAndGenSpectra {
         FULL_SPECTRA("f", "fullSpectra", false, "Set this if a full spectra should be generated with all executable statements. Otherwise, only "
                 + "these statements are included that are executed by at least one test case.", false),
         SEPARATE_JVM("jvm", "separateJvm", false, "Set this if each test shall be run in a separate JVM.", false),
+        TEST_WORKERS("w", "workers", true, "The number of tests to run in parallel, each worker in its own JVMs "
+                + "(if supported by the chosen strategy). Default: 1", false),
+        CLASS_AFFINITY("aff", "classAffinity", false, "Set this if all tests of a test class shall be run by the same worker.", false),
+        NO_WORKER_POOL("nopool", "noWorkerPool", false, "Set this if each test that is run in a separate JVM shall get a new JVM, "
+                + "instead of reusing the JVMs of a worker pool (if supported by the chosen strategy).", false),
         JAVA7("java7", "onlyJava7", false, "Set this if each test shall only be run in a separate JVM with Java 7 (if Java 7 home directory given).", false),
         CONDENSE_NODES("con", "condense", false, "Set this if empty lines in between statements should be filled up.", false),
         //		JAVA7_RUNNER("j7r", "java7Runner", true, "The path to the java 7 runner jar.", false),
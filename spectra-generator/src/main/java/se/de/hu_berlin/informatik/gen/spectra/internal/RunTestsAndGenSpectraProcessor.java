@@ -2,6 +2,8 @@ package se.de.hu_berlin.informatik.gen.spectra.internal;
 
 import se.de.hu_berlin.informatik.gen.spectra.AbstractSpectraGenerationFactory;
 import se.de.hu_berlin.informatik.gen.spectra.internal.RunAllTestsAndGenSpectra.CmdOptions;
+import se.de.hu_berlin.informatik.gen.spectra.modules.AbstractRunSingleTestAndReportModule;
+import se.de.hu_berlin.informatik.gen.spectra.modules.ParallelRunSingleTestAndReportModule;
 import se.de.hu_berlin.informatik.java7.testrunner.TestWrapper;
 import se.de.hu_berlin.informatik.junittestutils.data.StatisticsData;
 import se.de.hu_berlin.informatik.junittestutils.testlister.mining.TestMinerProcessor;
@@ -221,7 +223,7 @@ public class RunTestsAndGenSpectraProcessor<T extends Serializable, R, S> extend
 
         // run tests and collect reports based on used coverage tool
         linker.append(pipeBufferSize,
-                factory.getTestRunnerModule(options, testAndInstrumentClassLoader, changedTestClassPath, statisticsContainer)
+                getTestRunnerModule(options, testAndInstrumentClassLoader, changedTestClassPath, statisticsContainer)
 //				.asPipe(instrumentedClassesLoader)
                         .asPipe(pipeBufferSize).enableTracking().allowOnlyForcedTracks(),
                 factory.getReportToSpectraProcessor(options, statisticsContainer),
@@ -245,6 +247,25 @@ public class RunTestsAndGenSpectraProcessor<T extends Serializable, R, S> extend
         }
     }
 
+    private AbstractProcessor<TestWrapper, R> getTestRunnerModule(OptionParser options,
+                                                                  ClassLoader testAndInstrumentClassLoader, String testClassPath,
+                                                                  StatisticsCollector<StatisticsData> statisticsContainer) {
+        int workerCount = options.getOptionValueAsInt(CmdOptions.TEST_WORKERS, 1);
+        if (workerCount > 1) {
+            AbstractRunSingleTestAndReportModule<T, R> firstWorker = factory.getParallelTestRunnerModule(
+                    options, testAndInstrumentClassLoader, testClassPath, statisticsContainer, 0);
+            if (firstWorker != null) {
+                Log.out(this, "Running tests with %d workers.", workerCount);
+                return new ParallelRunSingleTestAndReportModule<>(workerCount, options.hasOption(CmdOptions.CLASS_AFFINITY),
+                        i -> i == 0 ? firstWorker : factory.getParallelTestRunnerModule(
+                                options, testAndInstrumentClassLoader, testClassPath, statisticsContainer, i));
+            }
+            Log.warn(this, "Strategy '%s' does not support parallel test execution. Running tests sequentially.",
+                    factory.getStrategy());
+        }
+        return factory.getTestRunnerModule(options, testAndInstrumentClassLoader, testClassPath, statisticsContainer);
+    }
+
     private static Path getPathAndAddToURLs(String stringPath, List<URL> cpURLs) {
         Path path = null;
         if (stringPath != null) {
@@ -36,6 +36,10 @@ final public class TraceCoberturaSpectraGenerator extends AbstractSpectraGenerat
         FULL_SPECTRA("f", "fullSpectra", false, "Set this if a full spectra should be generated with all executable statements. Otherwise, only "
                 + "these statements are included that are executed by at least one test case.", false),
         SEPARATE_JVM("jvm", "separateJvm", false, "Set this if each test shall be run in a separate JVM.", false),
+        TEST_WORKERS("w", "workers", true, "The number of tests to run in parallel, each worker in its own JVMs. Default: 1", false),
+        CLASS_AFFINITY("aff", "classAffinity", false, "Set this if all tests of a test class shall be run by the same worker.", false),
+        NO_WORKER_POOL("nopool", "noWorkerPool", false, "Set this if each test that is run in a separate JVM shall get a new JVM, "
+                + "instead of reusing the JVMs of a worker pool.", false),
         JAVA7("java7", "onlyJava7", false, "Set this if each test shall only be run in a separate JVM with Java 7 (if Java 7 home directory given).", false),
         TEST_LIST("t", "testList", true, "File with all tests to execute.", 0),
         TEST_CLASS_LIST("tcl", "testClassList", true, "File with a list of test classes from which all tests shall be executed.", 0),
@@ -120,6 +124,10 @@ final public class TraceCoberturaSpectraGenerator extends AbstractSpectraGenerat
 
         int maxErrors = options.getOptionValueAsInt(CmdOptions.MAX_ERRORS, 0);
 
+        int testWorkers = options.getOptionValueAsInt(CmdOptions.TEST_WORKERS, 1);
+        boolean classAffinity = options.hasOption(CmdOptions.CLASS_AFFINITY);
+        boolean noWorkerPool = options.hasOption(CmdOptions.NO_WORKER_POOL);
+
 //		AbstractSpectraGenerationFactory<?, ?> factory = new CoberturaSpectraGenerationFactory(outputDir);
 //		new CoberturaSpectraGenerator().generateSpectra(
 //				factory, projectDir, sourceDir, testClassDir, outputDir,
@@ -142,6 +150,9 @@ final public class TraceCoberturaSpectraGenerator extends AbstractSpectraGenerat
                 .setTimeout(timeout)
                 .setTestRepeatCount(testRepeatCount)
                 .setMaxErrors(maxErrors)
+                .setTestWorkers(testWorkers)
+                .setClassAffinity(classAffinity)
+                .setNoWorkerPool(noWorkerPool)
                 .setPathsToBinaries(classesToInstrument)
                 .run();
 
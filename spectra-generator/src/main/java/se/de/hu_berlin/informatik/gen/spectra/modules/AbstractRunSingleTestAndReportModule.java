@@ -158,9 +158,7 @@ public abstract class AbstractRunSingleTestAndReportModule<T extends Serializabl
                 Log.err(this, testStatistics.getErrorMsg());
             }
 
-            if (statisticsContainer != null) {
-                statisticsContainer.addStatistics(testStatistics);
-            }
+            addStatistics(testStatistics);
 
             //don't produce reports for wrong test data or tests with unexpected outcome
             if (testResultError || isIncorrectData(projectData)) {
@@ -170,17 +168,24 @@ public abstract class AbstractRunSingleTestAndReportModule<T extends Serializabl
             }
         } else {
             // skip execution if too many errors occured
-            if (statisticsContainer != null) {
-                TestStatistics testStatistics = new TestStatistics();
-                testStatistics.addStatisticsElement(StatisticsData.SKIPPED, 1);
-                statisticsContainer.addStatistics(testStatistics);
-            }
+            TestStatistics testStatistics = new TestStatistics();
+            testStatistics.addStatisticsElement(StatisticsData.SKIPPED, 1);
+            addStatistics(testStatistics);
             return null;
         }
     }
 
     public abstract R generateReport(TestWrapper testWrapper, TestStatistics testStatistics, T data);
 
+    private void addStatistics(TestStatistics testStatistics) {
+        if (statisticsContainer != null) {
+            // the container may be shared by modules that run tests in parallel
+            synchronized (statisticsContainer) {
+                statisticsContainer.addStatistics(testStatistics);
+            }
+        }
+    }
+
     private boolean testResultErrorOccurred(final TestWrapper testWrapper, TestStatistics testStatistics, boolean log) {
         // check for "correct" (intended) test execution result
         String testName = testWrapper.toString();
@@ -339,18 +344,49 @@ public abstract class AbstractRunSingleTestAndReportModule<T extends Serializabl
     @Override
     public R getResultFromCollectedItems() {
         // in the end, check if number of failing tests is correct (if given)
-        if (testErrorCounter > maxErrors) {
+        R errorReport = checkTestExecution(testErrorCounter, failedTestCounter);
+        if (errorReport != null) {
+            return errorReport;
+        }
+        return super.getResultFromCollectedItems();
+    }
+
+    /**
+     * Checks whether the given numbers of test errors and executed (known) failing
+     * tests are acceptable. Used to check the results of multiple modules that ran
+     * parts of the tests, as well.
+     *
+     * @param testErrors  the number of test execution errors
+     * @param failedTests the number of executed known failing tests
+     * @return the error report if the test execution was not successful; null otherwise
+     */
+    public R checkTestExecution(int testErrors, int failedTests) {
+        if (testErrors > maxErrors) {
             Log.err(this, "Some tests were not successfully executed! (> %d)", maxErrors);
             return getErrorReport();
         }
         if (knownFailingtests != null) {
-            if (knownFailingtests.size() > failedTestCounter) {
+            if (knownFailingtests.size() > failedTests) {
                 Log.err(this, "Not all specified failing tests have been executed! Expected: %d, Actual: %d",
-                        knownFailingtests.size(), failedTestCounter);
+                        knownFailingtests.size(), failedTests);
                 return getErrorReport();
             }
         }
-        return super.getResultFromCollectedItems();
+        return null;
+    }
+
+    /**
+     * @return the number of test execution errors so far
+     */
+    public int getTestErrorCount() {
+        return testErrorCounter;
+    }
+
+    /**
+     * @return the number of executed known failing tests so far
+     */
+    public int getFailedTestCount() {
+        return failedTestCounter;
     }
 
     @Override
@@ -31,12 +31,39 @@ import java.io.Serializable;
 public abstract class AbstractRunTestInNewJVMModuleWithServer<T extends Serializable>
         extends AbstractRunTestInNewJVMModule<T> {
 
+    /**
+     * the number of tests after which a worker JVM is replaced, to limit
+     * the effects of static state that can not be reset
+     */
+    public static final int MAX_TESTS_PER_WORKER = 500;
+
     protected final ServerSideListener<T, Byte> listener;
     final private int port;
     final private ExecuteMainClassInNewJVM executeModule;
+    final private JVMWorkerPool workerPool;
 
     public AbstractRunTestInNewJVMModuleWithServer(Class<?> testRunnerClass, final String testOutput, 
     		String instrumentedClassPath, final String javaHome, File projectDir, String[] customJvmArgs, String... properties) {
+        this(testRunnerClass, null, null, testOutput, instrumentedClassPath, javaHome, projectDir, customJvmArgs, properties);
+    }
+
+    /**
+     * Creates a module that runs the tests in a pool of long-lived worker JVMs,
+     * if a worker class is given. Otherwise, each test is run in a new JVM.
+     *
+     * @param testRunnerClass       the main class to run a single test in a new JVM
+     * @param workerClass           the main class of a worker JVM, or null
+     * @param timeout               the test timeout in seconds, or null
+     * @param testOutput            the test output directory
+     * @param instrumentedClassPath the class path of the test JVMs
+     * @param javaHome              the java home directory to use, or null
+     * @param projectDir            the working directory of the test JVMs
+     * @param customJvmArgs         custom arguments for the test JVMs
+     * @param properties            additional properties for the test JVMs
+     */
+    public AbstractRunTestInNewJVMModuleWithServer(Class<?> testRunnerClass, Class<?> workerClass, Long timeout,
+    		final String testOutput, String instrumentedClassPath, final String javaHome, File projectDir,
+    		String[] customJvmArgs, String... properties) {
         super(testOutput);
 
         listener = SimpleServerFramework.startServer();
@@ -62,6 +89,21 @@ public abstract class AbstractRunTestInNewJVMModuleWithServer<T extends Serializ
                 .setEnvVariable("LC_ALL", "en_US.UTF-8")
                 .setEnvVariable("TZ", "America/Los_Angeles");
 
+        if (workerClass == null) {
+            this.workerPool = null;
+        } else {
+            // give the worker some extra time to abort the test by itself
+            this.workerPool = new JVMWorkerPool(
+                    javaHome,
+                    workerClass,
+                    instrumentedClassPath,
+                    projectDir,
+                    MAX_TESTS_PER_WORKER,
+                    timeout == null ? null : timeout + 60,
+                    jvmArgs)
+                    .setEnvVariable("LC_ALL", "en_US.UTF-8")
+                    .setEnvVariable("TZ", "America/Los_Angeles");
+        }
     }
     
     @Override
@@ -69,6 +111,14 @@ public abstract class AbstractRunTestInNewJVMModuleWithServer<T extends Serializ
         return executeModule;
     }
 
+    @Override
+    protected int runTest(String[] args) {
+        if (workerPool == null) {
+            return super.runTest(args);
+        }
+        return workerPool.execute(args);
+    }
+
     protected int getServerPort() {
         return this.port;
     }
@@ -95,6 +145,9 @@ public abstract class AbstractRunTestInNewJVMModuleWithServer<T extends Serializ
     @Override
     public boolean finalShutdown() {
         // Log.out(this, "Shutting down...");
+        if (workerPool != null) {
+            workerPool.shutdown();
+        }
         if (listener != null) {
             listener.shutDown();
         }
@@ -0,0 +1,191 @@
+/**
+ *
+ */
+package se.de.hu_berlin.informatik.gen.spectra.modules;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * Worker side of the {@link JVMWorkerPool}. Connects to the control port of the
+ * pool, reads test commands (one per line, arguments separated by tabs), executes
+ * each test with the given {@link TestExecutor} and reports the result back.
+ *
+ * <p> The standard streams are not used for the communication with the pool, so
+ * that tests can use them like in any other JVM.
+ */
+public final class JVMWorker {
+
+    /**
+     * separates the arguments of a test command
+     */
+    public static final char ARG_SEPARATOR = '\t';
+
+    /**
+     * Executes single tests inside of a worker JVM.
+     */
+    public interface TestExecutor {
+
+        /**
+         * Resets all static state that was left over from a previous test.
+         *
+         * @return true if the state could be reset; false if the worker
+         * should be recycled after the current test
+         */
+        boolean reset();
+
+        /**
+         * Runs a single test.
+         *
+         * @param args the arguments of the test, as given to a single test runner
+         * @return the result code (0 on success)
+         */
+        int execute(String[] args);
+
+        /**
+         * @return true if the last test left the JVM in a state that
+         * can not be reset (e.g., due to a timeout)
+         */
+        boolean isCorrupted();
+    }
+
+    private JVMWorker() {
+        //disallow instantiation
+    }
+
+    /**
+     * Runs the worker loop until the pool closes the connection.
+     *
+     * @param args     the command line arguments of the worker JVM; the first
+     *                 argument has to be the control port of the pool
+     * @param executor executes the tests
+     */
+    public static void run(final String[] args, final TestExecutor executor) {
+        if (args.length < 1) {
+            System.err.println("No control port given.");
+            Runtime.getRuntime().exit(1);
+        }
+
+        // the first test may start long-lived helper threads or set properties;
+        // use the state after the first test as the base line
+        GlobalState baseState = null;
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]));
+             BufferedReader reader = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter protocol = new PrintWriter(new BufferedWriter(
+                     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)), true)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                boolean recycle = !executor.reset();
+                int result;
+                try {
+                    result = executor.execute(split(line));
+                } catch (Throwable t) {
+                    t.printStackTrace();
+                    result = 1;
+                    recycle = true;
+                }
+                // threads that survived the test may still alter the static state
+                if (baseState == null) {
+                    baseState = new GlobalState();
+                } else {
+                    recycle |= baseState.hasChanged();
+                }
+                recycle |= executor.isCorrupted();
+
+                protocol.println(result + " " + (recycle ? 1 : 0));
+                if (recycle) {
+                    break;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            e.printStackTrace();
+        }
+        Runtime.getRuntime().exit(0);
+    }
+
+    private static String[] split(final String line) {
+        int count = 1;
+        for (int i = 0; i < line.length(); ++i) {
+            if (line.charAt(i) == ARG_SEPARATOR) {
+                ++count;
+            }
+        }
+        final String[] args = new String[count];
+        int start = 0;
+        for (int i = 0; i < count; ++i) {
+            int end = line.indexOf(ARG_SEPARATOR, start);
+            if (end < 0) {
+                end = line.length();
+            }
+            args[i] = line.substring(start, end);
+            start = end + 1;
+        }
+        return args;
+    }
+
+    /**
+     * JVM wide state that tests may leave behind and that can not be reset by the
+     * {@link TestExecutor}: running threads, system properties, the default locale
+     * and the default time zone.
+     */
+    private static class GlobalState {
+
+        final private Set<Thread> threads = getLiveThreads();
+        final private Locale locale = Locale.getDefault();
+        // initializing the default time zone sets the property 'user.timezone'
+        final private String timeZone = TimeZone.getDefault().getID();
+        final private Properties properties = (Properties) System.getProperties().clone();
+
+        /**
+         * @return true if a thread has been started that is still alive, or if any of
+         * the other global settings differ from this state
+         */
+        boolean hasChanged() {
+            for (Thread thread : getLiveThreads()) {
+                if (!threads.contains(thread)) {
+                    return true;
+                }
+            }
+            return !properties.equals(System.getProperties())
+                    || !locale.equals(Locale.getDefault())
+                    || !timeZone.equals(TimeZone.getDefault().getID());
+        }
+
+        private static Set<Thread> getLiveThreads() {
+            ThreadGroup root = Thread.currentThread().getThreadGroup();
+            while (root.getParent() != null) {
+                root = root.getParent();
+            }
+            // the number of threads may change in the meantime
+            Thread[] threads = new Thread[root.activeCount() + 8];
+            int count;
+            while ((count = root.enumerate(threads, true)) == threads.length) {
+                threads = new Thread[threads.length * 2];
+            }
+            Set<Thread> result = new HashSet<>();
+            for (int i = 0; i < count; ++i) {
+                if (threads[i].isAlive()) {
+                    result.add(threads[i]);
+                }
+            }
+            return result;
+        }
+    }
+
+}
@@ -0,0 +1,294 @@
+/**
+ *
+ */
+package se.de.hu_berlin.informatik.gen.spectra.modules;
+
+import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pool of long-lived worker JVMs that execute tests in sequence. Each worker
+ * runs a main class that hands control to {@link JVMWorker#run(String[], JVMWorker.TestExecutor)}.
+ * Tests and results are exchanged over a local socket, whose port is given to the
+ * worker as its first command line argument. The standard streams of the workers
+ * are inherited, and their standard input is closed.
+ *
+ * <p> Starting a new JVM for every single test means paying for JVM startup and
+ * class loading of the (instrumented) classes again and again. A worker is only
+ * replaced if it crashes, does not respond in time, reports that its static state
+ * could not be reset or has executed the maximum number of tests.
+ */
+public class JVMWorkerPool {
+
+    /**
+     * returned if the worker crashed or did not respond in time
+     */
+    public static final int WORKER_FAILED = -1;
+
+    private static final int CRASHED = Integer.MIN_VALUE;
+
+    /**
+     * the maximum number of seconds to wait for a new worker to connect
+     */
+    private static final int CONNECT_TIMEOUT = 120;
+
+    final private List<String> command;
+    final private File projectDir;
+    final private Map<String, String> envVariables = new HashMap<>();
+    final private int maxTestsPerWorker;
+    final private long responseTimeout;
+
+    final private BlockingQueue<Worker> idleWorkers = new LinkedBlockingQueue<>();
+    final private List<Worker> allWorkers = new ArrayList<>();
+    private boolean isShutDown = false;
+
+    /**
+     * @param javaHome          the java home directory to use, or null for the current one
+     * @param workerClass       the main class of a worker
+     * @param classPath         the class path of the workers
+     * @param projectDir        the working directory of the workers
+     * @param maxTestsPerWorker the maximum number of tests to run in a single worker
+     * @param responseTimeout   the maximum number of seconds to wait for the result of
+     *                          a single test, or null to wait indefinitely
+     * @param jvmArgs           additional arguments for the worker JVMs
+     */
+    public JVMWorkerPool(final String javaHome, final Class<?> workerClass, final String classPath,
+                         final File projectDir, final int maxTestsPerWorker, final Long responseTimeout,
+                         final String... jvmArgs) {
+        this.projectDir = projectDir;
+        this.maxTestsPerWorker = maxTestsPerWorker;
+        this.responseTimeout = responseTimeout == null ? 0 : responseTimeout;
+
+        String javaExecutable = (javaHome == null ? System.getProperty("java.home") : javaHome)
+                + File.separator + "bin" + File.separator + "java";
+        this.command = new ArrayList<>();
+        command.add(javaExecutable);
+        if (jvmArgs != null) {
+            for (String arg : jvmArgs) {
+                if (arg != null) {
+                    command.add(arg);
+                }
+            }
+        }
+        command.add("-cp");
+        command.add(classPath);
+        command.add(workerClass.getName());
+    }
+
+    /**
+     * Sets an environment variable for all workers that are started afterwards.
+     *
+     * @param key   the name of the variable
+     * @param value the value
+     * @return this pool
+     */
+    public JVMWorkerPool setEnvVariable(final String key, final String value) {
+        envVariables.put(key, value);
+        return this;
+    }
+
+    /**
+     * Executes a single test in an idle worker (or in a new one, if none is idle).
+     *
+     * @param args the arguments for the test
+     * @return the result code of the test, or {@link #WORKER_FAILED}
+     */
+    public int execute(final String... args) {
+        Worker worker = idleWorkers.poll();
+        if (worker == null) {
+            worker = startWorker();
+            if (worker == null) {
+                return WORKER_FAILED;
+            }
+        }
+
+        int result = worker.execute(args);
+        if (result == WORKER_FAILED || worker.needsRecycling || worker.testCount >= maxTestsPerWorker) {
+            worker.destroy();
+        } else {
+            idleWorkers.add(worker);
+        }
+        return result;
+    }
+
+    private Worker startWorker() {
+        synchronized (allWorkers) {
+            if (isShutDown) {
+                return null;
+            }
+        }
+        Process process = null;
+        try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            serverSocket.setSoTimeout(1000);
+            List<String> workerCommand = new ArrayList<>(command);
+            workerCommand.add(String.valueOf(serverSocket.getLocalPort()));
+            ProcessBuilder builder = new ProcessBuilder(workerCommand)
+                    .directory(projectDir)
+                    .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT);
+            builder.environment().putAll(envVariables);
+            process = builder.start();
+            // tests that read from the standard input should not block
+            process.getOutputStream().close();
+
+            Worker worker = new Worker(process, acceptConnection(serverSocket, process));
+            synchronized (allWorkers) {
+                allWorkers.add(worker);
+                if (isShutDown) {
+                    worker.destroy();
+                    return null;
+                }
+            }
+            return worker;
+        } catch (IOException e) {
+            Log.err(this, e, "Could not start worker JVM.");
+        }
+        if (process != null) {
+            process.destroyForcibly();
+        }
+        return null;
+    }
+
+    private static Socket acceptConnection(final ServerSocket serverSocket, final Process process) throws IOException {
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT * 1000L;
+        while (true) {
+            try {
+                return serverSocket.accept();
+            } catch (SocketTimeoutException e) {
+                if (!process.isAlive()) {
+                    throw new IOException("Worker JVM exited with code " + process.exitValue() + ".");
+                }
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IOException("Worker JVM did not connect in time.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Shuts down all workers.
+     */
+    public void shutdown() {
+        synchronized (allWorkers) {
+            isShutDown = true;
+            for (Worker worker : new ArrayList<>(allWorkers)) {
+                worker.destroy();
+            }
+            idleWorkers.clear();
+        }
+    }
+
+    private class Worker {
+
+        final private Process process;
+        final private Socket socket;
+        final private BufferedWriter writer;
+        final private BlockingQueue<Integer> results = new LinkedBlockingQueue<>();
+        private volatile boolean needsRecycling = false;
+        private int testCount = 0;
+
+        private Worker(final Process process, final Socket socket) throws IOException {
+            this.process = process;
+            this.socket = socket;
+            socket.setSoTimeout(0);
+            this.writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+
+            Thread readerThread = new Thread(this::readResults, "jvm-worker-reader");
+            readerThread.setDaemon(true);
+            readerThread.start();
+        }
+
+        private void readResults() {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                // each line holds a result code and a recycling flag
+                while ((line = reader.readLine()) != null) {
+                    String[] split = line.split(" ");
+                    if (split.length == 2) {
+                        needsRecycling = "1".equals(split[1]);
+                        results.add(Integer.valueOf(split[0]));
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                // treat as crashed
+            }
+            results.add(CRASHED);
+        }
+
+        private int execute(final String[] args) {
+            ++testCount;
+            try {
+                StringBuilder line = new StringBuilder();
+                for (int i = 0; i < args.length; ++i) {
+                    if (i > 0) {
+                        line.append(JVMWorker.ARG_SEPARATOR);
+                    }
+                    line.append(args[i]);
+                }
+                writer.write(line.toString());
+                writer.newLine();
+                writer.flush();
+            } catch (IOException e) {
+                Log.err(JVMWorkerPool.this, e, "Could not send test to worker JVM.");
+                return WORKER_FAILED;
+            }
+
+            try {
+                Integer result = responseTimeout > 0
+                        ? results.poll(responseTimeout, TimeUnit.SECONDS)
+                        : results.take();
+                if (result == null) {
+                    Log.err(JVMWorkerPool.this, "Worker JVM did not respond in time: %s", String.join(" ", args));
+                    return WORKER_FAILED;
+                }
+                if (result == CRASHED) {
+                    return WORKER_FAILED;
+                }
+                return result;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return WORKER_FAILED;
+            }
+        }
+
+        private void destroy() {
+            synchronized (allWorkers) {
+                allWorkers.remove(this);
+            }
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            process.destroy();
+            try {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+}
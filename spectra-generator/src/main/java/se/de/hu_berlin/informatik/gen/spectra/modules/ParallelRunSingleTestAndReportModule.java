@@ -0,0 +1,188 @@
+/**
+ *
+ */
+package se.de.hu_berlin.informatik.gen.spectra.modules;
+
+import se.de.hu_berlin.informatik.java7.testrunner.TestWrapper;
+import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
+import se.de.hu_berlin.informatik.utils.processors.AbstractProcessor;
+import se.de.hu_berlin.informatik.utils.processors.sockets.ProcessorSocket;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Spreads the tests over multiple isolated test runner modules (each with its
+ * own coverage data file, server port and test JVMs) and runs them in parallel.
+ *
+ * <p> The generated reports are passed on in the order in which the tests were
+ * submitted, so that the resulting trace indices do not depend on the number of
+ * workers or on the test execution times.
+ *
+ * <p> If class affinity is enabled, all tests of a test class are run by the same
+ * worker, since tests of the same class often share static state.
+ *
+ * <p> Tests for which a worker fails to deliver a report count as test errors.
+ *
+ * @param <T> the type of coverage data object that is collected
+ * @param <R> the type of report object that is generated
+ */
+public class ParallelRunSingleTestAndReportModule<T extends Serializable, R> extends AbstractProcessor<TestWrapper, R> {
+
+    final private List<AbstractRunSingleTestAndReportModule<T, R>> workers;
+    final private List<ExecutorService> executors;
+    final private AtomicInteger[] pendingTests;
+    final private boolean classAffinity;
+    final private Map<String, Integer> classToWorker = new HashMap<>();
+
+    // reports in order of submission
+    final private Deque<Future<R>> pendingReports = new ArrayDeque<>();
+    final private int maxPendingReports;
+    // tests for which no report could be obtained from a worker
+    private int reportErrorCounter = 0;
+
+    private ProcessorSocket<TestWrapper, R> socket;
+
+    /**
+     * @param workerCount   the number of tests to run in parallel
+     * @param classAffinity whether to run all tests of a class with the same worker
+     * @param workerFactory creates the test runner module for the worker with the given index
+     */
+    public ParallelRunSingleTestAndReportModule(int workerCount, boolean classAffinity,
+                                                IntFunction<AbstractRunSingleTestAndReportModule<T, R>> workerFactory) {
+        super();
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("Need at least one worker.");
+        }
+        this.classAffinity = classAffinity;
+        this.workers = new ArrayList<>(workerCount);
+        this.executors = new ArrayList<>(workerCount);
+        this.pendingTests = new AtomicInteger[workerCount];
+        for (int i = 0; i < workerCount; ++i) {
+            workers.add(workerFactory.apply(i));
+            executors.add(Executors.newSingleThreadExecutor());
+            pendingTests[i] = new AtomicInteger();
+        }
+        // limit the number of reports that are held in memory
+        this.maxPendingReports = 4 * workerCount;
+    }
+
+    /* (non-Javadoc)
+     * @see se.de.hu_berlin.informatik.utils.tm.ITransmitter#processItem(java.lang.Object)
+     */
+    @Override
+    public R processItem(final TestWrapper testWrapper, ProcessorSocket<TestWrapper, R> socket) {
+        this.socket = socket;
+        socket.allowOnlyForcedTracks();
+        socket.forceTrack(testWrapper.toString());
+
+        final int workerIndex = selectWorker(testWrapper);
+        final AbstractRunSingleTestAndReportModule<T, R> worker = workers.get(workerIndex);
+        pendingTests[workerIndex].incrementAndGet();
+        pendingReports.add(executors.get(workerIndex).submit(() -> {
+            try {
+                return worker.submit(testWrapper).getResult();
+            } finally {
+                pendingTests[workerIndex].decrementAndGet();
+            }
+        }));
+
+        // pass on all finished reports (in order) and wait if too many are pending
+        while (!pendingReports.isEmpty()
+                && (pendingReports.peek().isDone() || pendingReports.size() > maxPendingReports)) {
+            produceNextReport();
+        }
+        return null;
+    }
+
+    private int selectWorker(final TestWrapper testWrapper) {
+        if (classAffinity) {
+            Integer workerIndex = classToWorker.get(testWrapper.getTestClassName());
+            if (workerIndex == null) {
+                workerIndex = getLeastBusyWorker();
+                classToWorker.put(testWrapper.getTestClassName(), workerIndex);
+            }
+            return workerIndex;
+        }
+        return getLeastBusyWorker();
+    }
+
+    private int getLeastBusyWorker() {
+        int best = 0;
+        for (int i = 1; i < pendingTests.length; ++i) {
+            if (pendingTests[i].get() < pendingTests[best].get()) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private void produceNextReport() {
+        Future<R> next = pendingReports.poll();
+        R report = null;
+        try {
+            report = next.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ++reportErrorCounter;
+            Log.err(this, e, "Interrupted while waiting for a test report.");
+        } catch (ExecutionException e) {
+            ++reportErrorCounter;
+            Log.err(this, e, "Running a test failed.");
+        }
+        if (report != null) {
+            socket.produce(report);
+        }
+    }
+
+    @Override
+    public R getResultFromCollectedItems() {
+        while (!pendingReports.isEmpty()) {
+            produceNextReport();
+        }
+
+        // check the overall results of all workers
+        int testErrors = reportErrorCounter;
+        int failedTests = 0;
+        for (AbstractRunSingleTestAndReportModule<T, R> worker : workers) {
+            testErrors += worker.getTestErrorCount();
+            failedTests += worker.getFailedTestCount();
+        }
+        R errorReport = workers.get(0).checkTestExecution(testErrors, failedTests);
+        if (errorReport != null) {
+            return errorReport;
+        }
+        return super.getResultFromCollectedItems();
+    }
+
+    @Override
+    public boolean finalShutdown() {
+        for (ExecutorService executor : executors) {
+            executor.shutdown();
+        }
+        for (ExecutorService executor : executors) {
+            try {
+                executor.awaitTermination(1, TimeUnit.HOURS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (AbstractRunSingleTestAndReportModule<T, R> worker : workers) {
+            worker.finalShutdown();
+        }
+        return super.finalShutdown();
+    }
+
+}
@@ -0,0 +1,220 @@
+package se.de.hu_berlin.informatik.gen.spectra.predicates.mining;
+
+import org.apache.commons.lang3.tuple.Pair;
+import se.de.hu_berlin.informatik.gen.spectra.predicates.extras.Profile;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Mines discriminative signatures like {@link GrTreeMiner#MineSignatures(int, int, int)}, but
+ * represents the transactions that contain a predicate as two bitsets (over the failing and
+ * over the passing profiles). The support of an item set is then the number of set bits in
+ * the intersection of the bitsets of its predicates. Item sets are extended depth first in
+ * ascending order of predicate ids, and the extensions of an item set are explored in parallel.
+ */
+class BitsetMiner {
+
+    private final GrTreeMiner miner;
+    private final GrTree itemFactory = new GrTree(new Database());
+
+    // predicate ids, in ascending order
+    private final int[] ids;
+    // for each predicate: bitsets over the failing (negative) and the passing (positive) profiles
+    private final long[][] negativeBits;
+    private final long[][] positiveBits;
+    private final int negativeCount;
+    private final int positiveCount;
+
+    BitsetMiner(Database db, GrTreeMiner miner) {
+        this.miner = miner;
+
+        TreeSet<Integer> allIds = new TreeSet<>();
+        db.transactions.forEach(profile -> allIds.addAll(profile.predicates));
+        this.ids = allIds.stream().mapToInt(Integer::intValue).toArray();
+        Map<Integer, Integer> idToIndex = new HashMap<>();
+        for (int i = 0; i < ids.length; ++i) {
+            idToIndex.put(ids[i], i);
+        }
+
+        this.negativeCount = db.getNegativeCount();
+        this.positiveCount = db.getPositiveCount();
+        this.negativeBits = new long[ids.length][words(negativeCount)];
+        this.positiveBits = new long[ids.length][words(positiveCount)];
+        int negativeIndex = 0;
+        int positiveIndex = 0;
+        for (Profile profile : db.transactions) {
+            long[][] bits = profile.positiveSupport ? positiveBits : negativeBits;
+            int index = profile.positiveSupport ? positiveIndex++ : negativeIndex++;
+            for (Integer id : profile.predicates) {
+                bits[idToIndex.get(id)][index >>> 6] |= 1L << index;
+            }
+        }
+    }
+
+    private static int words(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    HashMap<Pair<Integer, Integer>, HashSet<GrTree.Item>> mine(int k, int neg_sup, int size_limit) {
+        TopK topK = new TopK(k);
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            pool.invoke(new ExtendTask(new int[0], allSet(negativeCount), allSet(positiveCount),
+                    negativeCount, positiveCount, topK, neg_sup, size_limit));
+        } finally {
+            pool.shutdown();
+        }
+        return topK.result;
+    }
+
+    private static long[] allSet(int bits) {
+        long[] result = new long[words(bits)];
+        Arrays.fill(result, -1L);
+        if ((bits & 63) != 0) {
+            result[result.length - 1] = (1L << bits) - 1;
+        }
+        return result;
+    }
+
+    private static int and(long[] a, long[] b, long[] result) {
+        int count = 0;
+        for (int i = 0; i < a.length; ++i) {
+            result[i] = a[i] & b[i];
+            count += Long.bitCount(result[i]);
+        }
+        return count;
+    }
+
+    private GrTree.Item createItem(int[] itemIndices, int positiveSupport, int negativeSupport) {
+        GrTree.Item item = itemFactory.new Item();
+        for (int index : itemIndices) {
+            item.id.add(ids[index]);
+        }
+        item.prefixedId.addAll(item.id);
+        item.positiveSupport = positiveSupport;
+        item.negativeSupport = negativeSupport;
+        return item;
+    }
+
+    private final class ExtendTask extends RecursiveAction {
+
+        // indices of the predicates in the item set
+        private final int[] itemSet;
+        private final long[] negative;
+        private final long[] positive;
+        private final int negativeSupport;
+        private final int positiveSupport;
+        private final TopK topK;
+        private final int neg_sup;
+        private final int size_limit;
+
+        private ExtendTask(int[] itemSet, long[] negative, long[] positive, int negativeSupport,
+                           int positiveSupport, TopK topK, int neg_sup, int size_limit) {
+            this.itemSet = itemSet;
+            this.negative = negative;
+            this.positive = positive;
+            this.negativeSupport = negativeSupport;
+            this.positiveSupport = positiveSupport;
+            this.topK = topK;
+            this.neg_sup = neg_sup;
+            this.size_limit = size_limit;
+        }
+
+        @Override
+        protected void compute() {
+            boolean isRoot = itemSet.length == 0;
+            if (!isRoot && miner.DiscriminativeSignificanceUpperBound(positiveSupport, negativeSupport) < topK.threshold) {
+                // branch and bound: no extension can make it into the result
+                return;
+            }
+            boolean extendFurther = itemSet.length + 1 < size_limit;
+            List<ExtendTask> subTasks = new ArrayList<>();
+            int first = isRoot ? 0 : itemSet[itemSet.length - 1] + 1;
+            long[] newNegative = new long[negative.length];
+            long[] newPositive = new long[positive.length];
+            for (int i = first; i < ids.length; ++i) {
+                int neg = and(negative, negativeBits[i], newNegative);
+                if (!isRoot && neg < neg_sup) {
+                    continue;
+                }
+                int pos = and(positive, positiveBits[i], newPositive);
+                if (pos + neg == 0 || (!isRoot && pos == positiveSupport && neg == negativeSupport)) {
+                    // predicate is not contained or contained in all transactions of the item set
+                    continue;
+                }
+
+                int[] newItemSet = Arrays.copyOf(itemSet, itemSet.length + 1);
+                newItemSet[itemSet.length] = i;
+                double ds = miner.DiscriminativeSignificance(pos, neg);
+                if (ds > 0) {
+                    topK.update(pos, neg, ds, () -> createItem(newItemSet, pos, neg));
+                }
+                if (extendFurther) {
+                    subTasks.add(new ExtendTask(newItemSet, newNegative, newPositive, neg, pos,
+                            topK, neg_sup, size_limit));
+                    newNegative = new long[negative.length];
+                    newPositive = new long[positive.length];
+                }
+            }
+            invokeAll(subTasks);
+        }
+    }
+
+    private interface ItemSupplier {
+        GrTree.Item get();
+    }
+
+    /**
+     * The (at most) k support pairs with the highest discriminative significance, together with
+     * all item sets that have these supports. Ties are broken by the supports, so the result
+     * does not depend on the order in which item sets are found.
+     */
+    private final class TopK {
+
+        private final int k;
+        private final HashMap<Pair<Integer, Integer>, HashSet<GrTree.Item>> result = new HashMap<>();
+        // the minimal significance in a full result; supersets with a lower bound are pruned
+        private volatile double threshold = 0;
+
+        private TopK(int k) {
+            this.k = k;
+        }
+
+        private synchronized void update(int pos, int neg, double ds, ItemSupplier item) {
+            Pair<Integer, Integer> key = Pair.of(pos, neg);
+            HashSet<GrTree.Item> items = result.get(key);
+            if (items != null) {
+                items.add(item.get());
+                return;
+            }
+            if (result.size() >= k && ds < threshold) {
+                return;
+            }
+            result.put(key, new HashSet<>(Collections.singletonList(item.get())));
+            if (result.size() > k) {
+                result.remove(Collections.min(result.keySet(), this::compare));
+            }
+            if (result.size() >= k) {
+                Pair<Integer, Integer> smallest = Collections.min(result.keySet(), this::compare);
+                threshold = miner.DiscriminativeSignificance(smallest.getLeft(), smallest.getRight());
+            }
+        }
+
+        // orders support pairs by significance, then by fewer passing and more failing transactions
+        private int compare(Pair<Integer, Integer> a, Pair<Integer, Integer> b) {
+            int result = Double.compare(
+                    miner.DiscriminativeSignificance(a.getLeft(), a.getRight()),
+                    miner.DiscriminativeSignificance(b.getLeft(), b.getRight()));
+            if (result == 0) {
+                result = Integer.compare(b.getLeft(), a.getLeft());
+            }
+            if (result == 0) {
+                result = Integer.compare(a.getRight(), b.getRight());
+            }
+            return result;
+        }
+    }
+
+}
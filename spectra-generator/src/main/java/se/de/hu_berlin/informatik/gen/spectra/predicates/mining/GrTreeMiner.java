@@ -32,6 +32,15 @@ public class GrTreeMiner {
         return GS;
     }
 
+    /**
+     * Mines the same signatures as {@link #MineSignatures(int, int, int)}, using bitsets to
+     * compute supports and exploring the search space in parallel.
+     */
+    public HashMap<Pair<Integer, Integer>, HashSet<GrTree.Item>> MineSignaturesWithBitsets(int k, int neg_sup, int size_limit)
+    {
+        return new BitsetMiner(this.startDB, this).mine(k, neg_sup, size_limit);
+    }
+
     public void MineRec(GrTree tree, int k, int neg_sup, int size_limit, HashMap<Pair<Integer, Integer>, HashSet<GrTree.Item>> GS)
     {
         if (tree.isEmpty())
@@ -138,6 +147,12 @@ public class GrTreeMiner {
 
 
 
+    // upper bound for the discriminative significance of all supersets of an item set with the given supports;
+    // the information gain is convex, so the maximum lies on a vertex of the feasible region
+    double DiscriminativeSignificanceUpperBound(int p, int n) {
+        return Math.max(DiscriminativeSignificance(0, n), DiscriminativeSignificance(p, n));
+    }
+
     private double InformationGain(int p, int n, int db_pos, int db_neg){
         double d = db_pos + db_neg;
         double first = Entropy(db_pos, db_neg);
@@ -56,7 +56,7 @@ public class Miner {
         //Log.out(this, MessageFormat.format("Starting Mining with {0} Items in DB", db.transactions.size()));
         long startTime = new Date().getTime();
         GrTreeMiner miner = new GrTreeMiner(db);
-        HashMap<Pair<Integer, Integer>, HashSet<GrTree.Item>> generators = miner.MineSignatures(3,neg_support,3);
+        HashMap<Pair<Integer, Integer>, HashSet<GrTree.Item>> generators = miner.MineSignaturesWithBitsets(3,neg_support,3);
 
         Log.out(this, "Mining time: %s",  Misc.getFormattedTimerString(new Date().getTime() - startTime));
         Log.out(this, "Finish Mining.");
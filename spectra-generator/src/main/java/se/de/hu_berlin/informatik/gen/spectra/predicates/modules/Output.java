@@ -2,24 +2,36 @@ package se.de.hu_berlin.informatik.gen.spectra.predicates.modules;
 
 
 import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
-import se.de.hu_berlin.informatik.utils.miscellaneous.Pair;
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class Output {
 
+    // header of the binary predicate database ("PRDB")
+    private static final int DB_MAGIC = 0x50524442;
+    private static final int DB_VERSION = 1;
+
     public static Map<Integer, Predicate> Predicates = new HashMap<>();
+    // contains the triggers of all threads after calling getTriggers()
     public static Map<Integer, Integer> Triggers = new ConcurrentHashMap<>();
     public static int nextPredicateNumber;
 
     public static JOINSTRATEGY joinStrategy = JOINSTRATEGY.NONE;
-    private static Integer lastPredicateId = -1;
-    private static final Map<Pair<Integer,Integer>,Integer> joinPredicateMap = new ConcurrentHashMap<>();
+    // maps pairs of predicate ids (id << 32 | last id) to the ids of joined predicates
+    private static final Map<Long,Integer> joinPredicateMap = new ConcurrentHashMap<>();
     private static boolean shouldWrite = false;
-    private static Object lock;
+
+    // triggers are recorded per thread and merged on demand
+    private static final List<ThreadTriggerCounter> threadCounters = new ArrayList<>();
+    private static final ThreadLocal<ThreadTriggerCounter> threadCounter = new ThreadLocal<>();
+    // counters from older generations are replaced on their thread's next trigger
+    private static volatile int generation = 0;
 
     public Output()
     {
@@ -33,21 +45,60 @@ public class Output {
         Predicates.put(newPredicate.id,newPredicate);
     }
 
-    //trigger Predicate
-    public static synchronized void triggerPredicate(int id){
-        Triggers.put(id, Triggers.getOrDefault(id, 0) + 1);
-        if (joinStrategy == JOINSTRATEGY.PAIRS) {
+    //trigger Predicate; called by the instrumented code, so this only records the trigger in the current thread
+    public static void triggerPredicate(int id){
+        getThreadCounter().trigger(id, joinStrategy == JOINSTRATEGY.PAIRS);
+    }
+
+    private static ThreadTriggerCounter getThreadCounter() {
+        ThreadTriggerCounter counter = threadCounter.get();
+        if (counter == null || counter.getGeneration() != generation) {
+            synchronized (threadCounters) {
+                counter = new ThreadTriggerCounter(Thread.currentThread(), generation);
+                threadCounters.add(counter);
+            }
+            threadCounter.set(counter);
+        }
+        return counter;
+    }
 
-                if (!joinPredicateMap.containsKey(new Pair<>(id, lastPredicateId))) {
-                    Predicate jointPredicate = new Predicate(id, lastPredicateId);
-                    Predicates.put(jointPredicate.id, jointPredicate);
-                    joinPredicateMap.put(new Pair<>(id, lastPredicateId), jointPredicate.id);
+    /**
+     * Merges the triggers that were recorded by all threads into {@link #Triggers}
+     * and creates joined predicates, if necessary. Should be called when no predicates
+     * are triggered concurrently, e.g., after a test run.
+     *
+     * @return the triggers
+     */
+    public static Map<Integer, Integer> getTriggers() {
+        synchronized (threadCounters) {
+            for (Iterator<ThreadTriggerCounter> iterator = threadCounters.iterator(); iterator.hasNext(); ) {
+                ThreadTriggerCounter counter = iterator.next();
+                counter.drainTo(
+                        (id, count) -> Triggers.merge(id, count, Integer::sum),
+                        Output::triggerJoinedPredicate);
+                if (!counter.getOwner().isAlive()) {
+                    iterator.remove();
                 }
-                Triggers.put(joinPredicateMap.get(new Pair<>(id, lastPredicateId)), 1);
-                shouldWrite = true;
+            }
         }
-        lastPredicateId = id;
+        return Triggers;
+    }
+
+    // joined predicates are only marked as triggered (like before triggers were counted per thread)
+    private static void triggerJoinedPredicate(int id, int lastId, int count) {
+        Integer joinedId = joinPredicateMap.get(joinKey(id, lastId));
+        if (joinedId == null) {
+            Predicate jointPredicate = new Predicate(id, lastId);
+            Predicates.put(jointPredicate.id, jointPredicate);
+            joinedId = jointPredicate.id;
+            joinPredicateMap.put(joinKey(id, lastId), joinedId);
+        }
+        Triggers.put(joinedId, 1);
+        shouldWrite = true;
+    }
 
+    private static long joinKey(int id, int lastId) {
+        return ((long) id << 32) | (lastId & 0xFFFFFFFFL);
     }
 
     public static void outputPredicates(){
@@ -61,14 +112,14 @@ public class Output {
     }
 
     public static void writeToFile(File outputDir, String filename, boolean forceWrite){
+        // joined predicates are created when merging the triggers
+        getTriggers();
         if (forceWrite)
             shouldWrite = true;
         if (shouldWrite) {
-            try {
-                ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(outputDir + "/" + filename));
-                oos.writeObject(Predicates);
-                oos.flush();
-                oos.close();
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(outputDir + "/" + filename)))) {
+                writePredicates(out, Predicates);
             } catch (Exception ex) {
                 Log.err(Output.class, ex);
             }
@@ -76,22 +127,93 @@ public class Output {
     }
 
     public static void readFromFile(String outputDir) {
+        File file = new File(outputDir + "/jointPredicates.db");
+        if (!file.exists()) {
+            file = new File(outputDir + "/Predicates.db");
+        }
         try {
-            ObjectInputStream ois;
-            if (new File(outputDir + "/jointPredicates.db").exists()) {
-                ois = new ObjectInputStream(new FileInputStream(outputDir + "/jointPredicates.db"));
-            }
-            else {
-                ois = new ObjectInputStream(new FileInputStream(outputDir + "/Predicates.db"));
-            }
-            Predicates = ((Map<Integer, Predicate>) ois.readObject());
-            ois.close();
+            Predicates = readPredicates(file);
             nextPredicateNumber = Predicates.size();
         }
         catch (Exception ex) {
             Log.err(Output.class, ex);
         }
-        Predicates.values().stream().filter(predicate -> predicate.joined).forEach(predicate -> joinPredicateMap.put(new Pair<>(predicate.firstId, predicate.secondId), predicate.id));
+        Predicates.values().stream().filter(predicate -> predicate.joined).forEach(predicate -> joinPredicateMap.put(joinKey(predicate.firstId, predicate.secondId), predicate.id));
+    }
+
+    static void writePredicates(DataOutputStream out, Map<Integer, Predicate> predicates) throws IOException {
+        out.writeInt(DB_MAGIC);
+        out.writeInt(DB_VERSION);
+        out.writeInt(predicates.size());
+        for (Predicate predicate : predicates.values()) {
+            out.writeInt(predicate.id);
+            out.writeInt(predicate.count);
+            writeNullableString(out, predicate.description);
+            out.writeInt(predicate.linenumber);
+            writeNullableString(out, predicate.file);
+            out.writeInt(predicate.firstVariableId);
+            out.writeInt(predicate.secondVariableId);
+            writeNullableString(out, predicate.comparisonType);
+            out.writeBoolean(predicate.joined);
+            if (predicate.joined) {
+                out.writeInt(predicate.firstId);
+                out.writeInt(predicate.secondId);
+            }
+        }
+    }
+
+    /**
+     * Reads predicates from a file that was written with {@link #writeToFile(File, String, boolean)}.
+     * Also reads files that contain a serialized map of predicates (old format).
+     *
+     * @param file the file to read
+     * @return map of predicate ids to predicates
+     * @throws IOException            if reading fails
+     * @throws ClassNotFoundException if reading a file in the old format fails
+     */
+    @SuppressWarnings("unchecked")
+    static Map<Integer, Predicate> readPredicates(File file) throws IOException, ClassNotFoundException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            in.mark(4);
+            if (in.readInt() != DB_MAGIC) {
+                in.reset();
+                return (Map<Integer, Predicate>) new ObjectInputStream(in).readObject();
+            }
+            int version = in.readInt();
+            if (version != DB_VERSION) {
+                throw new IOException("Unsupported predicate database version: " + version);
+            }
+            int size = in.readInt();
+            Map<Integer, Predicate> predicates = new HashMap<>(2 * size);
+            for (int i = 0; i < size; ++i) {
+                Predicate predicate = new Predicate(in.readInt());
+                predicate.count = in.readInt();
+                predicate.description = readNullableString(in);
+                predicate.linenumber = in.readInt();
+                predicate.file = readNullableString(in);
+                predicate.firstVariableId = in.readInt();
+                predicate.secondVariableId = in.readInt();
+                predicate.comparisonType = readNullableString(in);
+                predicate.joined = in.readBoolean();
+                if (predicate.joined) {
+                    predicate.firstId = in.readInt();
+                    predicate.secondId = in.readInt();
+                }
+                predicates.put(predicate.id, predicate);
+            }
+            return predicates;
+        }
+    }
+
+    private static void writeNullableString(DataOutputStream out, String string) throws IOException {
+        out.writeBoolean(string != null);
+        if (string != null) {
+            out.writeUTF(string);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
     }
 
     public static void writeToHumanFile(String outputDir) {
@@ -114,7 +236,7 @@ public class Output {
     }
 
     public static boolean writeTriggersToFile(String outputDir,boolean successful) {
-        if (Triggers.isEmpty())
+        if (getTriggers().isEmpty())
             return false;
         try {
             FileWriter fw = new FileWriter(outputDir + "/Triggers.csv",true);
@@ -137,7 +259,15 @@ public class Output {
         return true;
     }
 
+    /**
+     * Discards all recorded triggers. The counters of other threads are not
+     * modified; they are retired and replaced on the threads' next trigger.
+     */
     public static void resetTriggers() {
+        synchronized (threadCounters) {
+            ++generation;
+            threadCounters.clear();
+        }
         Triggers.clear();
     }
 
@@ -68,7 +68,7 @@ public class Predicate implements Serializable
 
 
 
-    public Predicate(int id){ //Debug only
+    public Predicate(int id){ //Debug only (and for reading predicates from a file)
         this.id = id;
     }
 
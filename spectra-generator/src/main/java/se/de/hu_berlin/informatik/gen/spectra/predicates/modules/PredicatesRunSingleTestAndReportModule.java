@@ -107,7 +107,7 @@ public class PredicatesRunSingleTestAndReportModule extends AbstractRunSingleTes
         NativeReport report = new NativeReport(data, reportArguments
                 .getDestinationDirectory(), reportArguments.getSources(),
                 reportArguments.getEncoding());
-        Profile profile = new Profile(new ArrayList<>(Output.Triggers.keySet()),testStatistics.wasSuccessful());
+        Profile profile = new Profile(new ArrayList<>(Output.getTriggers().keySet()),testStatistics.wasSuccessful());
 
         return new PredicateReportWrapper(report,
                 testWrapper.toString(), testStatistics.wasSuccessful(), profile);
@@ -0,0 +1,126 @@
+package se.de.hu_berlin.informatik.gen.spectra.predicates.modules;
+
+import java.util.Arrays;
+
+/**
+ * Counts the predicate triggers of a single thread. Only the owning thread records triggers,
+ * so no synchronization is needed. The counts are merged into {@link Output#Triggers}
+ * while the thread does not trigger predicates (e.g., after a test run).
+ */
+final class ThreadTriggerCounter {
+
+    private final Thread owner;
+    private final int generation;
+
+    // trigger counts, indexed by predicate id
+    private int[] counts = new int[1024];
+    private boolean triggered = false;
+    private int lastPredicateId = -1;
+
+    // counts of consecutive pairs (id, last id), used for joined predicates;
+    // open addressing with linear probing, a count of 0 marks an empty slot
+    private long[] pairKeys = new long[64];
+    private int[] pairCounts = new int[64];
+    private int pairSize = 0;
+
+    ThreadTriggerCounter(Thread owner, int generation) {
+        this.owner = owner;
+        this.generation = generation;
+    }
+
+    Thread getOwner() {
+        return owner;
+    }
+
+    int getGeneration() {
+        return generation;
+    }
+
+    void trigger(int id, boolean joinPairs) {
+        if (id >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(id + 1, 2 * counts.length));
+        }
+        ++counts[id];
+        triggered = true;
+        if (joinPairs) {
+            addPair(((long) id << 32) | (lastPredicateId & 0xFFFFFFFFL));
+        }
+        lastPredicateId = id;
+    }
+
+    private void addPair(long key) {
+        int mask = pairKeys.length - 1;
+        int slot = mix(key) & mask;
+        while (pairCounts[slot] != 0) {
+            if (pairKeys[slot] == key) {
+                ++pairCounts[slot];
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        pairKeys[slot] = key;
+        pairCounts[slot] = 1;
+        if (++pairSize > pairKeys.length / 2) {
+            growPairs();
+        }
+    }
+
+    private void growPairs() {
+        long[] oldKeys = pairKeys;
+        int[] oldCounts = pairCounts;
+        pairKeys = new long[2 * oldKeys.length];
+        pairCounts = new int[2 * oldKeys.length];
+        int mask = pairKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldCounts[i] != 0) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (pairCounts[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                pairKeys[slot] = oldKeys[i];
+                pairCounts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+
+    interface CountConsumer {
+        void accept(int id, int count);
+    }
+
+    interface PairConsumer {
+        void accept(int id, int lastId, int count);
+    }
+
+    /**
+     * Passes all recorded counts to the given consumers and resets them.
+     *
+     * @param countConsumer consumes the trigger counts of single predicates
+     * @param pairConsumer  consumes the counts of consecutive pairs of predicates
+     */
+    void drainTo(CountConsumer countConsumer, PairConsumer pairConsumer) {
+        if (triggered) {
+            for (int id = 0; id < counts.length; ++id) {
+                if (counts[id] != 0) {
+                    countConsumer.accept(id, counts[id]);
+                    counts[id] = 0;
+                }
+            }
+            triggered = false;
+        }
+        if (pairSize > 0) {
+            for (int i = 0; i < pairKeys.length; ++i) {
+                if (pairCounts[i] != 0) {
+                    pairConsumer.accept((int) (pairKeys[i] >>> 32), (int) pairKeys[i], pairCounts[i]);
+                    pairCounts[i] = 0;
+                }
+            }
+            pairSize = 0;
+        }
+    }
+
+}
@@ -15,6 +15,7 @@ import se.de.hu_berlin.informatik.spectra.core.ISpectra;
 import se.de.hu_berlin.informatik.spectra.core.SourceCodeBlock;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.coveragedata.ProjectData;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.report.TraceCoberturaReportWrapper;
+import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
 import se.de.hu_berlin.informatik.utils.miscellaneous.Misc;
 import se.de.hu_berlin.informatik.utils.optionparser.OptionParser;
 import se.de.hu_berlin.informatik.utils.processors.AbstractConsumingProcessor;
@@ -23,8 +24,10 @@ import se.de.hu_berlin.informatik.utils.statistics.StatisticsCollector;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.Objects;
 
 public class TraceCoberturaSpectraGenerationFactory
@@ -73,6 +76,29 @@ public class TraceCoberturaSpectraGenerationFactory
     public AbstractRunSingleTestAndReportModule<ProjectData, TraceCoberturaReportWrapper> getTestRunnerModule(
             OptionParser options, ClassLoader testAndInstrumentClassLoader, String testClassPath,
             StatisticsCollector<StatisticsData> statisticsContainer) {
+        return getTestRunnerModule(options, testAndInstrumentClassLoader, testClassPath, statisticsContainer,
+                coberturaDataFile, options.hasOption(CmdOptions.SEPARATE_JVM));
+    }
+
+    @Override
+    public AbstractRunSingleTestAndReportModule<ProjectData, TraceCoberturaReportWrapper> getParallelTestRunnerModule(
+            OptionParser options, ClassLoader testAndInstrumentClassLoader, String testClassPath,
+            StatisticsCollector<StatisticsData> statisticsContainer, int workerIndex) {
+        // each worker needs its own data file, since the data file is reset by the module
+        File workerDataFile = new File(coberturaDataFile.getParentFile(), "cobertura_" + workerIndex + ".ser");
+        try {
+            Files.copy(coberturaDataFile.toPath(), workerDataFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Log.abort(this, e, "Could not copy data file '%s'.", coberturaDataFile);
+        }
+        // tests can only be run in parallel in separate JVMs, since the coverage data is collected statically
+        return getTestRunnerModule(options, testAndInstrumentClassLoader, testClassPath, statisticsContainer,
+                workerDataFile, true);
+    }
+
+    private AbstractRunSingleTestAndReportModule<ProjectData, TraceCoberturaReportWrapper> getTestRunnerModule(
+            OptionParser options, ClassLoader testAndInstrumentClassLoader, String testClassPath,
+            StatisticsCollector<StatisticsData> statisticsContainer, File dataFile, boolean useSeparateJVM) {
         final Path projectDir = options.isDirectory(CmdOptions.PROJECT_DIR, true);
         final Path srcDir = options.isDirectory(projectDir, CmdOptions.SOURCE_DIR, true);
         final String outputDir = options.isDirectory(CmdOptions.OUTPUT, false).toString();
@@ -84,7 +110,7 @@ public class TraceCoberturaSpectraGenerationFactory
             e.printStackTrace();
         }
 
-        return new TraceCoberturaRunSingleTestAndReportModule(coberturaDataFile.toPath().toAbsolutePath(), outputDir,
+        return new TraceCoberturaRunSingleTestAndReportModule(dataFile.toPath().toAbsolutePath(), outputDir,
                 projectDir.toFile(), srcDir.toString(), options.hasOption(CmdOptions.FULL_SPECTRA),
                 RunTestsAndGenSpectraProcessor.TEST_DEBUG_OUTPUT,
                 options.hasOption(CmdOptions.TIMEOUT) ? Long.valueOf(options.getOptionValue(CmdOptions.TIMEOUT)) : null,
@@ -93,7 +119,7 @@ public class TraceCoberturaSpectraGenerationFactory
                 testClassPath, options.getOptionValue(CmdOptions.JAVA_HOME_DIR, null),
 //				RunTestsAndGenSpectraProcessor.class.getResource("/testrunner.jar").getPath(),
                 Objects.requireNonNull(testrunnerJar).getAbsolutePath(),
-                options.hasOption(CmdOptions.SEPARATE_JVM), options.hasOption(CmdOptions.JAVA7),
+                useSeparateJVM, options.hasOption(CmdOptions.JAVA7), !options.hasOption(CmdOptions.NO_WORKER_POOL),
                 options.getOptionValueAsInt(CmdOptions.MAX_ERRORS, 0),
                 options.getOptionValues(CmdOptions.FAILING_TESTS), statisticsContainer, testAndInstrumentClassLoader,
                 getSmallJVMConfigArguments());
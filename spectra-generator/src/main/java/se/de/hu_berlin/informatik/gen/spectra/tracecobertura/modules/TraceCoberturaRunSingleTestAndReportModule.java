@@ -47,12 +47,13 @@ public class TraceCoberturaRunSingleTestAndReportModule extends AbstractRunSingl
     private final boolean fullSpectra;
     private final File projectDir;
     private final String java7RunnerJar;
+    private final boolean useWorkerPool;
     boolean isFirst = true;
 
     public TraceCoberturaRunSingleTestAndReportModule(final Path dataFile, final String testOutput, final File projectDir, final String srcDir,
                                                       final boolean fullSpectra, final boolean debugOutput, Long timeout, final int repeatCount,
                                                       String instrumentedClassPath, final String javaHome, final String java7RunnerJar, boolean useSeparateJVMalways,
-                                                      boolean alwaysUseJava7, int maxErrors, String[] failingtests,
+                                                      boolean alwaysUseJava7, boolean useWorkerPool, int maxErrors, String[] failingtests,
                                                       final StatisticsCollector<StatisticsData> statisticsContainer, ClassLoader cl,
                                                       String[] customJvmArgs) {
         super(testOutput, debugOutput, timeout, repeatCount, useSeparateJVMalways, alwaysUseJava7,
@@ -66,6 +67,7 @@ public class TraceCoberturaRunSingleTestAndReportModule extends AbstractRunSingl
         this.instrumentedClassPath = instrumentedClassPath;
         this.javaHome = javaHome;
         this.java7RunnerJar = java7RunnerJar;
+        this.useWorkerPool = useWorkerPool;
         this.cl = cl;
 
         this.dataFile = dataFile;
@@ -176,7 +178,7 @@ public class TraceCoberturaRunSingleTestAndReportModule extends AbstractRunSingl
     @Override
     public AbstractRunTestInNewJVMModule<ProjectData> newTestRunInNewJVMModule() {
         return new TraceCoberturaRunTestInNewJVMModule(testOutput, debugOutput, timeout,
-                repeatCount, instrumentedClassPath + File.pathSeparator + new ClassPathParser().parseSystemClasspath().getClasspath(),
+                repeatCount, useWorkerPool, instrumentedClassPath + File.pathSeparator + new ClassPathParser().parseSystemClasspath().getClasspath(),
                 dataFile, null, projectDir, getCustomSmallJvmArgs(), 
                 "-Dnet.sourceforge.cobertura.datafile=" + dataFile.toAbsolutePath().toString());
     }
@@ -7,12 +7,15 @@ import org.apache.commons.cli.Option;
 
 import se.de.hu_berlin.informatik.gen.spectra.jacoco.modules.sub.JaCoCoRunTestInNewJVMModule.TestRunner.CmdOptions;
 import se.de.hu_berlin.informatik.gen.spectra.modules.AbstractRunTestInNewJVMModuleWithServer;
+import se.de.hu_berlin.informatik.gen.spectra.modules.JVMWorker;
 import se.de.hu_berlin.informatik.java7.testrunner.TestWrapper;
 import se.de.hu_berlin.informatik.junittestutils.data.TestStatistics;
 import se.de.hu_berlin.informatik.junittestutils.testrunner.running.ExtendedTestRunModule;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.coveragedata.ExecutionTraceCollector;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.coveragedata.ProjectData;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.coveragedata.TouchCollector;
 import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
+import se.de.hu_berlin.informatik.utils.miscellaneous.Pair;
 import se.de.hu_berlin.informatik.utils.miscellaneous.SimpleServerFramework;
 import se.de.hu_berlin.informatik.utils.optionparser.OptionParser;
 import se.de.hu_berlin.informatik.utils.optionparser.OptionWrapper;
@@ -35,10 +38,10 @@ public class TraceCoberturaRunTestInNewJVMModule extends AbstractRunTestInNewJVM
     final private String[] args;
 
     public TraceCoberturaRunTestInNewJVMModule(final String testOutput,
-                                               final boolean debugOutput, final Long timeout, final int repeatCount,
+                                               final boolean debugOutput, final Long timeout, final int repeatCount, final boolean useWorkerPool,
                                                String instrumentedClassPath, final Path dataFile, final String javaHome, File projectDir,
                                                String[] customJvmArgs, String... properties) {
-        super(TestRunner.class, testOutput, instrumentedClassPath, javaHome, projectDir, customJvmArgs, properties);
+        super(TestRunner.class, useWorkerPool ? Worker.class : null, timeout, testOutput, instrumentedClassPath, javaHome, projectDir, customJvmArgs, properties);
         dataFile.toFile();
 
         int arrayLength = 8;
@@ -152,6 +155,31 @@ public class TraceCoberturaRunTestInNewJVMModule extends AbstractRunTestInNewJVM
                 Log.abort(TestRunner.class, "Please include property '-Dnet.sourceforge.cobertura.datafile=.../cobertura.ser' in the application's call.");
             }
 
+            // initialize!
+            ProjectData.getGlobalProjectData();
+            //turn off auto saving (removes the shutdown hook inside of Cobertura)
+            ProjectData.turnOffAutoSave();
+            // reset hits, if any class was already registered (should not be the case, actually)
+            TouchCollector.resetTouchesOnRegisteredClasses();
+
+            boolean successful = runSingleTest(args).second();
+
+            if (successful) {
+                Runtime.getRuntime().exit(0);
+            } else {
+                Runtime.getRuntime().exit(1);
+            }
+
+        }
+
+        /**
+         * Runs a single test and sends the collected project data to the server.
+         * The hit counters have to be reset before calling this method.
+         *
+         * @param args command line arguments
+         * @return the test statistics and whether the project data could be sent
+         */
+        private static Pair<TestStatistics, Boolean> runSingleTest(final String[] args) {
             final OptionParser options = OptionParser.getOptions("TestRunner", false, CmdOptions.class, args);
 
             final Path outputFile = options.isFile(CmdOptions.OUTPUT, false);
@@ -169,13 +197,6 @@ public class TraceCoberturaRunTestInNewJVMModule extends AbstractRunTestInNewJVM
             ExtendedTestRunModule testRunner = new ExtendedTestRunModule(outputFile.getParent().toString(),
                     true, options.hasOption(CmdOptions.TIMEOUT) ? Long.valueOf(options.getOptionValue(CmdOptions.TIMEOUT)) : null, null);
 
-            // initialize!
-            ProjectData.getGlobalProjectData();
-            //turn off auto saving (removes the shutdown hook inside of Cobertura)
-            ProjectData.turnOffAutoSave();
-            // reset hits, if any class was already registered (should not be the case, actually)
-            TouchCollector.resetTouchesOnRegisteredClasses();
-
             ProjectData projectData = null;
 
             //(try to) run the test and get the statistics
@@ -204,14 +225,62 @@ public class TraceCoberturaRunTestInNewJVMModule extends AbstractRunTestInNewJVM
             boolean successful = projectData != null
                     && SimpleServerFramework.sendToServer(projectData, port, 3);
 
-            if (successful) {
-                Runtime.getRuntime().exit(0);
-            } else {
-                Runtime.getRuntime().exit(1);
-            }
+            return new Pair<>(statistics, successful);
+        }
 
+    }
+
+    /**
+     * Runs multiple tests in sequence inside of a single (long-lived) JVM.
+     * Takes the same arguments as the {@link TestRunner} for each test.
+     */
+    public final static class Worker {
+
+        private Worker() {
+            //disallow instantiation
         }
 
+        /**
+         * @param args
+         * command line arguments (the control port of the worker pool)
+         */
+        public static void main(final String[] args) {
+
+            if (System.getProperty("net.sourceforge.cobertura.datafile") == null) {
+                Log.abort(Worker.class, "Please include property '-Dnet.sourceforge.cobertura.datafile=.../cobertura.ser' in the application's call.");
+            }
+
+            // initialize!
+            ProjectData.getGlobalProjectData();
+            //turn off auto saving (removes the shutdown hook inside of Cobertura)
+            ProjectData.turnOffAutoSave();
+
+            JVMWorker.run(args, new JVMWorker.TestExecutor() {
+
+                private boolean corrupted = false;
+
+                @Override
+                public boolean reset() {
+                    // reset hits and traces that were left over from the last test
+                    boolean resetWorked = TouchCollector.resetTouchesOnRegisteredClasses();
+                    ExecutionTraceCollector.resetExecutionTraces();
+                    return resetWorked;
+                }
+
+                @Override
+                public int execute(String[] args) {
+                    Pair<TestStatistics, Boolean> result = TestRunner.runSingleTest(args);
+                    // a timed out test may still be running in the background
+                    corrupted = result.first().timeoutOccurred() || result.first().wasInterrupted();
+                    return result.second() ? 0 : 1;
+                }
+
+                @Override
+                public boolean isCorrupted() {
+                    return corrupted;
+                }
+            });
+        }
 
     }
 
@@ -0,0 +1,126 @@
+package se.de.hu_berlin.informatik.gen.spectra.modules;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+public class JVMWorkerPoolTest {
+
+    private JVMWorkerPool pool;
+
+    @Before
+    public void setUp() {
+        pool = new JVMWorkerPool(null, TestWorker.class, System.getProperty("java.class.path"),
+                new File("."), 100, 60L);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void workerIsReused() {
+        Assert.assertEquals(1, pool.execute(TestWorker.COUNT));
+        Assert.assertEquals(2, pool.execute(TestWorker.COUNT));
+        Assert.assertEquals(42, pool.execute(TestWorker.EXIT_CODE, "42"));
+        Assert.assertEquals(4, pool.execute(TestWorker.COUNT));
+    }
+
+    @Test
+    public void testsCanReadStandardInput() {
+        // the standard input is not used for the communication with the pool and is closed
+        Assert.assertEquals(0, pool.execute(TestWorker.READ_STDIN));
+        Assert.assertEquals(2, pool.execute(TestWorker.COUNT));
+    }
+
+    @Test
+    public void workerIsRecycledAfterLeakingAThread() {
+        Assert.assertEquals(1, pool.execute(TestWorker.COUNT));
+        Assert.assertEquals(0, pool.execute(TestWorker.START_THREAD));
+        Assert.assertEquals(1, pool.execute(TestWorker.COUNT));
+    }
+
+    @Test
+    public void workerIsRecycledAfterChangingAProperty() {
+        Assert.assertEquals(1, pool.execute(TestWorker.COUNT));
+        Assert.assertEquals(0, pool.execute(TestWorker.SET_PROPERTY));
+        Assert.assertEquals(1, pool.execute(TestWorker.COUNT));
+    }
+
+    @Test
+    public void crashedWorkerIsReplaced() {
+        Assert.assertEquals(JVMWorkerPool.WORKER_FAILED, pool.execute(TestWorker.CRASH));
+        Assert.assertEquals(1, pool.execute(TestWorker.COUNT));
+    }
+
+    /**
+     * Executes simple commands that return a result code.
+     */
+    public static final class TestWorker {
+
+        static final String COUNT = "count";
+        static final String EXIT_CODE = "exitCode";
+        static final String READ_STDIN = "readStdin";
+        static final String START_THREAD = "startThread";
+        static final String SET_PROPERTY = "setProperty";
+        static final String CRASH = "crash";
+
+        private static int testCount = 0;
+
+        public static void main(final String[] args) {
+            JVMWorker.run(args, new JVMWorker.TestExecutor() {
+                @Override
+                public boolean reset() {
+                    return true;
+                }
+
+                @Override
+                public int execute(String[] args) {
+                    ++testCount;
+                    switch (args[0]) {
+                        case COUNT:
+                            return testCount;
+                        case EXIT_CODE:
+                            return Integer.parseInt(args[1]);
+                        case READ_STDIN:
+                            try {
+                                return System.in.read() == -1 ? 0 : 1;
+                            } catch (IOException e) {
+                                return 2;
+                            }
+                        case START_THREAD:
+                            Thread thread = new Thread(() -> {
+                                try {
+                                    Thread.sleep(60000);
+                                } catch (InterruptedException e) {
+                                    // exit
+                                }
+                            });
+                            thread.setDaemon(true);
+                            thread.start();
+                            return 0;
+                        case SET_PROPERTY:
+                            System.setProperty("jvm.worker.test", "changed");
+                            return 0;
+                        case CRASH:
+                            Runtime.getRuntime().halt(1);
+                            return 0;
+                        default:
+                            return 3;
+                    }
+                }
+
+                @Override
+                public boolean isCorrupted() {
+                    return false;
+                }
+            });
+        }
+    }
+
+}
@@ -0,0 +1,155 @@
+package se.de.hu_berlin.informatik.gen.spectra.modules;
+
+import org.junit.Assert;
+import org.junit.Test;
+import se.de.hu_berlin.informatik.java7.testrunner.TestWrapper;
+import se.de.hu_berlin.informatik.junittestutils.data.TestStatistics;
+import se.de.hu_berlin.informatik.utils.processors.AbstractProcessor;
+import se.de.hu_berlin.informatik.utils.processors.sockets.ProcessorSocket;
+import se.de.hu_berlin.informatik.utils.processors.sockets.pipe.PipeLinker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ParallelRunSingleTestAndReportModuleTest {
+
+    private static final String ERROR_REPORT = "error";
+    private static final String BROKEN_TEST = "broken";
+
+    @Test
+    public void reportsArePassedOnInSubmissionOrder() {
+        List<TestWrapper> tests = getTests(8, 10);
+        List<String> reports = runTests(4, false, tests, Integer.MAX_VALUE, null);
+
+        Assert.assertEquals(tests.size(), reports.size());
+        for (int i = 0; i < tests.size(); ++i) {
+            Assert.assertEquals(tests.get(i).toString(), reports.get(i));
+        }
+    }
+
+    @Test
+    public void testsOfAClassRunWithTheSameWorker() {
+        List<TestWrapper> tests = getTests(8, 10);
+        Map<String, Integer> classToWorker = new ConcurrentHashMap<>();
+        List<String> reports = runTests(3, true, tests, Integer.MAX_VALUE, classToWorker);
+
+        Assert.assertEquals(tests.size(), reports.size());
+        Assert.assertEquals(8, classToWorker.size());
+    }
+
+    @Test
+    public void failedReportCountsAsTestError() {
+        List<TestWrapper> tests = getTests(2, 5);
+        tests.add(3, new TestWrapper("Class0", BROKEN_TEST));
+
+        // no errors allowed: the lost report has to result in the error report
+        List<String> reports = runTests(2, false, tests, 0, null);
+        Assert.assertEquals(tests.size(), reports.size());
+        Assert.assertEquals(ERROR_REPORT, reports.get(reports.size() - 1));
+        Assert.assertFalse(reports.contains(tests.get(3).toString()));
+
+        // one error allowed: all other reports are passed on
+        reports = runTests(2, false, tests, 1, null);
+        Assert.assertEquals(tests.size() - 1, reports.size());
+        Assert.assertFalse(reports.contains(ERROR_REPORT));
+    }
+
+    private static List<TestWrapper> getTests(int classCount, int testsPerClass) {
+        List<TestWrapper> tests = new ArrayList<>();
+        for (int i = 0; i < testsPerClass; ++i) {
+            for (int j = 0; j < classCount; ++j) {
+                tests.add(new TestWrapper("Class" + j, "test" + i));
+            }
+        }
+        return tests;
+    }
+
+    private static List<String> runTests(int workerCount, boolean classAffinity, List<TestWrapper> tests,
+                                         int maxErrors, Map<String, Integer> classToWorker) {
+        List<String> reports = Collections.synchronizedList(new ArrayList<>());
+        new PipeLinker().append(
+                new ParallelRunSingleTestAndReportModule<String, String>(workerCount, classAffinity,
+                        i -> new StubRunSingleTestAndReportModule(i, maxErrors, classToWorker)),
+                new AbstractProcessor<String, Object>() {
+                    @Override
+                    public Object processItem(String report) {
+                        reports.add(report);
+                        return null;
+                    }
+                })
+                .submitAndShutdown(tests);
+        return reports;
+    }
+
+    private static class StubRunSingleTestAndReportModule extends AbstractRunSingleTestAndReportModule<String, String> {
+
+        private final int index;
+        private final Map<String, Integer> classToWorker;
+        private final Random random;
+
+        StubRunSingleTestAndReportModule(int index, int maxErrors, Map<String, Integer> classToWorker) {
+            super(null, false, null, 1, false, false, maxErrors, null, null, null, null);
+            this.index = index;
+            this.classToWorker = classToWorker;
+            this.random = new Random(index);
+        }
+
+        @Override
+        public String processItem(TestWrapper testWrapper, ProcessorSocket<TestWrapper, String> socket) {
+            if (classToWorker != null) {
+                Integer previous = classToWorker.putIfAbsent(testWrapper.getTestClassName(), index);
+                Assert.assertEquals(index, previous == null ? index : previous.intValue());
+            }
+            try {
+                // finish the tests in a different order than they were submitted
+                Thread.sleep(random.nextInt(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (BROKEN_TEST.equals(testWrapper.getTestMethodName())) {
+                throw new IllegalStateException("Broken test runner.");
+            }
+            return testWrapper.toString();
+        }
+
+        @Override
+        public String generateReport(TestWrapper testWrapper, TestStatistics testStatistics, String data) {
+            return data;
+        }
+
+        @Override
+        public AbstractRunTestInNewJVMModule<String> newTestRunInNewJVMModule() {
+            return null;
+        }
+
+        @Override
+        public AbstractRunTestLocallyModule<String> newTestRunLocallyModule() {
+            return null;
+        }
+
+        @Override
+        public AbstractRunTestInNewJVMModule<String> newTestRunInNewJVMModuleWithJava7Runner() {
+            return null;
+        }
+
+        @Override
+        public String transformTestResultFromSeparateJVM(String projectData) {
+            return projectData;
+        }
+
+        @Override
+        public String transformTestResultFromSeparateJVMWithJava7(String projectData) {
+            return projectData;
+        }
+
+        @Override
+        public String getErrorReport() {
+            return ERROR_REPORT;
+        }
+    }
+
+}
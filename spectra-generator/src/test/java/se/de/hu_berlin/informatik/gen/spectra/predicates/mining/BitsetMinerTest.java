@@ -0,0 +1,169 @@
+package se.de.hu_berlin.informatik.gen.spectra.predicates.mining;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Assert;
+import org.junit.Test;
+import se.de.hu_berlin.informatik.gen.spectra.predicates.extras.Profile;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+public class BitsetMinerTest {
+
+    private static final int K = 3;
+    private static final int SIZE_LIMIT = 3;
+
+    @Test
+    public void bitsetMinerMatchesBruteForceAndGrTreeMiner() {
+        Random random = new Random(42);
+        for (int run = 0; run < 200; ++run) {
+            Database db = randomDatabase(random);
+            db.PurgeFullSupport();
+            if (db.getNegativeCount() == 0 || db.getPositiveCount() == 0) {
+                continue;
+            }
+            int negSup = (int) Math.ceil(db.getNegativeCount() / 2.0);
+            String message = "run " + run;
+
+            GrTreeMiner miner = new GrTreeMiner(db);
+            Map<Pair<Integer, Integer>, HashSet<GrTree.Item>> result = miner.MineSignaturesWithBitsets(K, negSup, SIZE_LIMIT);
+
+            // all item sets that may be reported, by their supports
+            Map<Pair<Integer, Integer>, Set<Set<Integer>>> itemSets = new HashMap<>();
+            bruteForce(db, allIds(db), new ArrayList<>(), 0, negSup, itemSets);
+            itemSets.keySet().removeIf(key -> miner.DiscriminativeSignificance(key.getLeft(), key.getRight()) <= 0);
+
+            // top-k supports, ties broken like in the bitset miner
+            List<Pair<Integer, Integer>> topK = itemSets.keySet().stream()
+                    .sorted(Comparator.comparingDouble(
+                            (Pair<Integer, Integer> key) -> miner.DiscriminativeSignificance(key.getLeft(), key.getRight()))
+                            .reversed()
+                            .thenComparing(Pair::getLeft)
+                            .thenComparing(Pair::getRight, Comparator.reverseOrder()))
+                    .limit(K)
+                    .collect(Collectors.toList());
+            Assert.assertEquals(message, new HashSet<>(topK), result.keySet());
+
+            for (Map.Entry<Pair<Integer, Integer>, HashSet<GrTree.Item>> entry : result.entrySet()) {
+                Set<Set<Integer>> found = new HashSet<>();
+                for (GrTree.Item item : entry.getValue()) {
+                    // the supports of the reported item sets are correct
+                    Assert.assertEquals(message, entry.getKey(), supports(db, item.id));
+                    Assert.assertEquals(message, entry.getKey(), Pair.of(item.positiveSupport, item.negativeSupport));
+                    found.add(item.id);
+                }
+                // all generators (minimal item sets) with these supports are reported
+                for (Set<Integer> itemSet : itemSets.get(entry.getKey())) {
+                    if (isGenerator(db, itemSet)) {
+                        Assert.assertTrue(message + ": " + itemSet, found.contains(itemSet));
+                    }
+                }
+            }
+
+            // the tree based miner is not exact: it may miss significant item sets and may report item sets
+            // with other supports than the ones they are listed under; every signature that it reports
+            // correctly has to be found by the bitset miner, unless k more significant ones were found
+            double minSignificance = result.keySet().stream()
+                    .mapToDouble(key -> miner.DiscriminativeSignificance(key.getLeft(), key.getRight()))
+                    .min().orElse(0);
+            Map<Pair<Integer, Integer>, HashSet<GrTree.Item>> treeResult =
+                    new GrTreeMiner(copy(db)).MineSignatures(K, negSup, SIZE_LIMIT);
+            for (Map.Entry<Pair<Integer, Integer>, HashSet<GrTree.Item>> entry : treeResult.entrySet()) {
+                Pair<Integer, Integer> key = entry.getKey();
+                if (entry.getValue().stream().noneMatch(item -> supports(db, item.prefixedId).equals(key))) {
+                    continue;
+                }
+                Assert.assertTrue(message + ": " + key, result.containsKey(key)
+                        || (result.size() == K && miner.DiscriminativeSignificance(key.getLeft(), key.getRight()) <= minSignificance));
+            }
+        }
+    }
+
+    private static Database randomDatabase(Random random) {
+        Database db = new Database();
+        int predicateCount = 3 + random.nextInt(6);
+        int profileCount = 4 + random.nextInt(20);
+        for (int i = 0; i < profileCount; ++i) {
+            List<Integer> predicates = new ArrayList<>();
+            for (int id = 0; id < predicateCount; ++id) {
+                if (random.nextInt(3) != 0) {
+                    predicates.add(id);
+                }
+            }
+            db.addProfile(new Profile(predicates, random.nextBoolean()));
+        }
+        return db;
+    }
+
+    private static Database copy(Database db) {
+        Database copy = new Database();
+        for (Profile profile : db.transactions) {
+            copy.addProfile(new Profile(profile.predicates, profile.positiveSupport));
+        }
+        return copy;
+    }
+
+    private static List<Integer> allIds(Database db) {
+        TreeSet<Integer> ids = new TreeSet<>();
+        db.transactions.forEach(profile -> ids.addAll(profile.predicates));
+        return new ArrayList<>(ids);
+    }
+
+    // enumerates all item sets with at most SIZE_LIMIT items; item sets with more than one item need a
+    // negative support of at least negSup (like conditional databases in the tree based miner)
+    private static void bruteForce(Database db, List<Integer> ids, List<Integer> itemSet, int first, int negSup,
+                                   Map<Pair<Integer, Integer>, Set<Set<Integer>>> itemSets) {
+        if (itemSet.size() == SIZE_LIMIT) {
+            return;
+        }
+        for (int i = first; i < ids.size(); ++i) {
+            itemSet.add(ids.get(i));
+            Pair<Integer, Integer> supports = supports(db, itemSet);
+            if (supports.getLeft() + supports.getRight() > 0 && (itemSet.size() == 1 || supports.getRight() >= negSup)) {
+                itemSets.computeIfAbsent(supports, key -> new HashSet<>()).add(new TreeSet<>(itemSet));
+                bruteForce(db, ids, itemSet, i + 1, negSup, itemSets);
+            }
+            itemSet.remove(itemSet.size() - 1);
+        }
+    }
+
+    private static boolean isGenerator(Database db, Set<Integer> itemSet) {
+        Pair<Integer, Integer> supports = supports(db, itemSet);
+        for (Integer id : itemSet) {
+            Set<Integer> subset = new TreeSet<>(itemSet);
+            subset.remove(id);
+            if (!subset.isEmpty() && supports(db, subset).equals(supports)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Pair<Integer, Integer> supports(Database db, Iterable<Integer> itemSet) {
+        int pos = 0;
+        int neg = 0;
+        for (Profile profile : db.transactions) {
+            boolean containsAll = true;
+            for (Integer id : itemSet) {
+                containsAll &= profile.predicates.contains(id);
+            }
+            if (containsAll) {
+                if (profile.positiveSupport) {
+                    ++pos;
+                } else {
+                    ++neg;
+                }
+            }
+        }
+        return Pair.of(pos, neg);
+    }
+
+}
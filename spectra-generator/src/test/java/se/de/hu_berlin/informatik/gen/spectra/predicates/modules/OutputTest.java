@@ -0,0 +1,165 @@
+package se.de.hu_berlin.informatik.gen.spectra.predicates.modules;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.Opcodes;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+public class OutputTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        Output.Predicates = new HashMap<>();
+        Output.nextPredicateNumber = 100;
+        Output.joinStrategy = Output.JOINSTRATEGY.NONE;
+        Output.resetTriggers();
+    }
+
+    @After
+    public void tearDown() {
+        Output.joinStrategy = Output.JOINSTRATEGY.NONE;
+        Output.resetTriggers();
+    }
+
+    @Test
+    public void predicateDatabaseRoundTrip() throws Exception {
+        Map<Integer, Predicate> predicates = getPredicates();
+
+        File file = folder.newFile("Predicates.db");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            Output.writePredicates(out, predicates);
+        }
+
+        assertEquals(predicates, Output.readPredicates(file));
+    }
+
+    @Test
+    public void readsSerializedPredicateMaps() throws Exception {
+        Map<Integer, Predicate> predicates = getPredicates();
+
+        // format of files written before the binary database was introduced
+        File file = folder.newFile("Predicates.db");
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file))) {
+            out.writeObject(predicates);
+        }
+
+        assertEquals(predicates, Output.readPredicates(file));
+    }
+
+    @Test
+    public void mergesThreadTriggersIntoJoinedPredicates() throws Exception {
+        Output.joinStrategy = Output.JOINSTRATEGY.PAIRS;
+
+        // pairs: (1,-1), (2,1), (1,2), (2,1)
+        runInThread(1, 2, 1, 2);
+        // pairs: (2,-1), (1,2)
+        runInThread(2, 1);
+
+        Map<Integer, Integer> triggers = Output.getTriggers();
+        Assert.assertEquals(3, triggers.get(1).intValue());
+        Assert.assertEquals(3, triggers.get(2).intValue());
+
+        // one joined predicate per pair, even if several threads triggered it
+        Map<String, Integer> joined = new HashMap<>();
+        for (Predicate predicate : Output.Predicates.values()) {
+            Assert.assertTrue(predicate.joined);
+            Assert.assertNull(joined.put(predicate.firstId + "," + predicate.secondId, predicate.id));
+        }
+        Assert.assertEquals(4, joined.size());
+        Assert.assertEquals(6, triggers.size());
+        for (String pair : new String[]{"1,-1", "2,1", "1,2", "2,-1"}) {
+            // joined predicates are only marked as triggered
+            Assert.assertEquals(pair, 1, triggers.get(joined.get(pair)).intValue());
+        }
+
+        // merging again does not change anything
+        Assert.assertEquals(6, Output.getTriggers().size());
+        Assert.assertEquals(3, Output.getTriggers().get(1).intValue());
+        Assert.assertEquals(4, Output.Predicates.size());
+    }
+
+    @Test
+    public void resetDiscardsTriggersOfRunningThreads() throws Exception {
+        CountDownLatch triggered = new CountDownLatch(1);
+        CountDownLatch reset = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            Output.triggerPredicate(1);
+            triggered.countDown();
+            try {
+                reset.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Output.triggerPredicate(2);
+        });
+        thread.start();
+
+        triggered.await();
+        Output.resetTriggers();
+        reset.countDown();
+        thread.join();
+
+        Map<Integer, Integer> triggers = Output.getTriggers();
+        Assert.assertEquals(1, triggers.size());
+        Assert.assertEquals(1, triggers.get(2).intValue());
+    }
+
+    private static void runInThread(int... ids) throws InterruptedException {
+        Thread thread = new Thread(() -> {
+            for (int id : ids) {
+                Output.triggerPredicate(id);
+            }
+        });
+        thread.start();
+        thread.join();
+    }
+
+    private static Map<Integer, Predicate> getPredicates() {
+        Map<Integer, Predicate> predicates = new HashMap<>();
+        Predicate predicate = new Predicate("x > 0", 12, "Foo.java");
+        predicate.count = 3;
+        predicates.put(predicate.id, predicate);
+        predicate = new Predicate(13, "Foo.java", 1, 2, Opcodes.IFEQ);
+        predicates.put(predicate.id, predicate);
+        predicate = new Predicate(14, "Bar.java", "!= null", 3);
+        predicates.put(predicate.id, predicate);
+        predicate = new Predicate(0, 1);
+        predicates.put(predicate.id, predicate);
+        return predicates;
+    }
+
+    private static void assertEquals(Map<Integer, Predicate> expected, Map<Integer, Predicate> actual) {
+        Assert.assertEquals(expected.keySet(), actual.keySet());
+        for (Predicate predicate : expected.values()) {
+            Predicate other = actual.get(predicate.id);
+            Assert.assertEquals(predicate.id, other.id);
+            Assert.assertEquals(predicate.count, other.count);
+            Assert.assertEquals(predicate.description, other.description);
+            Assert.assertEquals(predicate.linenumber, other.linenumber);
+            Assert.assertEquals(predicate.file, other.file);
+            Assert.assertEquals(predicate.firstVariableId, other.firstVariableId);
+            Assert.assertEquals(predicate.secondVariableId, other.secondVariableId);
+            Assert.assertEquals(predicate.comparisonType, other.comparisonType);
+            Assert.assertEquals(predicate.joined, other.joined);
+            Assert.assertEquals(predicate.firstId, other.firstId);
+            Assert.assertEquals(predicate.secondId, other.secondId);
+            Assert.assertEquals(predicate.toString(), other.toString());
+        }
+    }
+
+}
@@ -3,14 +3,13 @@ package se.de.hu_berlin.informatik.spectra.provider.tracecobertura.coveragedata;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.data.CoverageIgnore;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.CoberturaStatementEncoding;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.SequiturUtils;
-import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output.OutputSequence;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output.CompactOutputSequence;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -25,8 +24,12 @@ public class ExecutionTraceCollector {
 
     private static final transient Lock globalExecutionTraceCollectorLock = new ReentrantLock();
 
-    // shouldn't need to be thread-safe, as each thread only accesses its own trace (thread id -> sequence of sub trace ids)
-    private static Map<Long, OutputSequence> executionTraces = new ConcurrentHashMap<>();
+    // each thread records its trace and hit counts in its own recorder (no shared writes while recording);
+    // the recorders of all threads are registered here and merged when the traces/counters are collected
+    private static final ConcurrentLinkedQueue<ThreadTrace> executionTraces = new ConcurrentLinkedQueue<>();
+    // recorders from older generations are replaced on their thread's next access
+    private static volatile int generation = 0;
+    private static final ThreadLocal<ThreadTrace> currentTrace = new ThreadLocal<>();
 //    private static SharedOutputGrammar grammar = new SharedOutputGrammar();
 
     private static final int[][] classesToCounterArrayMap = new int[(int)Math.pow(2, CoberturaStatementEncoding.CLASS_ID_BITS)][];
@@ -50,7 +53,66 @@ public class ExecutionTraceCollector {
 //		}
 //	}
 
-    private static long counter = 0;
+    /**
+     * The execution trace of a single thread, together with the thread's
+     * (lazily allocated) hit counters for each class.
+     *
+     * <p> Only the owning thread writes its counters. Other threads collect the
+     * hit counts by adding the difference to the last collected counts, so no
+     * increment can get lost while the owning thread keeps running.
+     */
+    @CoverageIgnore
+    private static final class ThreadTrace extends CompactOutputSequence {
+
+        private final long threadId;
+        private final int generation;
+        private final AtomicIntegerArray[] counters = new AtomicIntegerArray[classesToCounterArrayMap.length];
+        // the hit counts that were already collected (only accessed while holding the global lock)
+        private final int[][] collectedCounters = new int[classesToCounterArrayMap.length][];
+        // number of recorded statements (for progress output)
+        private long statementCounter = 0;
+
+        private ThreadTrace(long threadId, int generation) {
+            super();
+            this.threadId = threadId;
+            this.generation = generation;
+        }
+
+        private void incrementCounter(int classId, int counterId) {
+            AtomicIntegerArray classCounters = counters[classId];
+            if (classCounters == null) {
+                classCounters = new AtomicIntegerArray(classesToCounterArrayMap[classId].length);
+                counters[classId] = classCounters;
+            }
+            // single writer: no need for an atomic increment
+            classCounters.lazySet(counterId, classCounters.get(counterId) + 1);
+        }
+
+        private void countStatement() {
+            if (++statementCounter % 1000000 == 0) {
+                System.out.print('.');
+                if (statementCounter % 100000000 == 0)
+                    System.out.println(String.format("%,d", statementCounter));
+            }
+        }
+
+        // has to be called while holding the global lock
+        private void addCountersTo(int classId, int[] target) {
+            AtomicIntegerArray classCounters = counters[classId];
+            if (classCounters != null) {
+                int[] collected = collectedCounters[classId];
+                if (collected == null) {
+                    collected = new int[classCounters.length()];
+                    collectedCounters[classId] = collected;
+                }
+                for (int i = 0; i < collected.length && i < target.length; ++i) {
+                    int count = classCounters.get(i);
+                    target[i] += count - collected[i];
+                    collected[i] = count;
+                }
+            }
+        }
+    }
 
     /**
      * @return the collection of execution traces for all executed threads;
@@ -62,20 +124,27 @@ public class ExecutionTraceCollector {
         try {
 //            processAllRemainingSubTraces();
         	
-        	Map<Long, OutputSequence> tempMap = executionTraces;
+        	List<ThreadTrace> tempList = retireAllRecorders();
 //        	grammar.lock();
 //        	SharedOutputGrammar tempGrammar = grammar;
         	
-        	executionTraces = new ConcurrentHashMap<>();
+        	// keep the hit counts that have not been collected, yet
+        	for (ThreadTrace trace : tempList) {
+        	    for (int classId = 0; classId < classesToCounterArrayMap.length; ++classId) {
+        	        if (classesToCounterArrayMap[classId] != null) {
+        	            trace.addCountersTo(classId, classesToCounterArrayMap[classId]);
+        	        }
+        	    }
+        	}
 //            grammar = new SharedOutputGrammar();
 
             int threadCounter = 0;
 //            StringBuilder sb = new StringBuilder();
 //            sb.append(String.format("%n#statements: %,d%n", counter));
-            List<Pair<Long, byte[]>> traces = new ArrayList<>(tempMap.size());
-            for (Entry<Long, OutputSequence> entry : tempMap.entrySet()) {
-            	byte[] bytes = SequiturUtils.convertToByteArray(entry.getValue(), true);
-                traces.add(new Pair<>(entry.getKey(), bytes));
+            List<Pair<Long, byte[]>> traces = new ArrayList<>(tempList.size());
+            for (ThreadTrace trace : tempList) {
+            	byte[] bytes = SequiturUtils.convertToByteArray(trace, true, SequiturUtils.Format.COMPACT);
+                traces.add(new Pair<>(trace.threadId, bytes));
                 ++threadCounter;
 
 //                sb.append(String.format(" %,d -> %,d (%.2f%%)%n", 
@@ -85,7 +154,6 @@ public class ExecutionTraceCollector {
 //            byte[] grammarByteArray = SequiturUtils.convertToByteArray(tempGrammar);
             
             //System.out.println(String.format("executed statements: %,d, threads: %,d", counter, threadCounter));
-            counter = 0;
 //            if (sb.length() != 0) {
 //            	System.out.print(sb.toString());
 //            }
@@ -106,8 +174,53 @@ public class ExecutionTraceCollector {
     }
 
 
-    private static OutputSequence getNewCollector(long threadId) {
-        return new OutputSequence();
+    /**
+     * Discards all collected execution traces (and hit counts that were not
+     * collected, yet) without converting them.
+     * Used to reset the collector between tests that run in the same JVM.
+     */
+    public static void resetExecutionTraces() {
+        globalExecutionTraceCollectorLock.lock();
+        try {
+            retireAllRecorders();
+        } finally {
+            globalExecutionTraceCollectorLock.unlock();
+        }
+    }
+
+
+    // has to be called while holding the global lock
+    private static List<ThreadTrace> retireAllRecorders() {
+        // threads will create new recorders on their next access
+        ++generation;
+        List<ThreadTrace> retired = new ArrayList<>(executionTraces.size());
+        ThreadTrace trace;
+        while ((trace = executionTraces.poll()) != null) {
+            retired.add(trace);
+        }
+        return retired;
+    }
+
+
+    private static ThreadTrace getCurrentRecorder() {
+        ThreadTrace trace = currentTrace.get();
+        if (trace == null || trace.generation != generation) {
+            trace = new ThreadTrace(Thread.currentThread().getId(), generation);
+            currentTrace.set(trace);
+            executionTraces.add(trace);
+        }
+        return trace;
+    }
+
+
+    private static ThreadTrace getRecorder(CompactOutputSequence trace) {
+        // the given trace is the current thread's recorder, unless it was not
+        // obtained through getOutputSequence() or it was retired while the
+        // calling frame was still running (hit counts have to go to the live recorder)
+        if (trace instanceof ThreadTrace && ((ThreadTrace) trace).generation == generation) {
+            return (ThreadTrace) trace;
+        }
+        return getCurrentRecorder();
     }
 
 
@@ -116,13 +229,9 @@ public class ExecutionTraceCollector {
      *
      * @param trace the output sequence to append statements to
      */
-    public static void startNewSubTrace(OutputSequence trace) {
+    public static void startNewSubTrace(CompactOutputSequence trace) {
 
-        if (++counter % 1000000 == 0) {
-            System.out.print('.');
-            if (counter % 100000000 == 0)
-                System.out.println(String.format("%,d", counter));
-        }
+        getRecorder(trace).countStatement();
 
         // add an indicator to the trace that represents a visited catch block
         trace.append(NEW_SUBTRACE_ID);
@@ -188,9 +297,8 @@ public class ExecutionTraceCollector {
      * @param counterId the cobertura counter id, necessary to retrieve the exact line in the class
      * @param trace     the output sequence to append statements to
      */
-    public static void addStatementToExecutionTraceAndIncrementCounter(int classId, int counterId, OutputSequence trace) {
-        addStatementToExecutionTrace(classId, counterId, CoberturaStatementEncoding.NORMAL_ID, trace);
-        incrementCounter(classId, counterId);
+    public static void addStatementToExecutionTraceAndIncrementCounter(int classId, int counterId, CompactOutputSequence trace) {
+        addStatementToExecutionTraceAndIncrementCounter(classId, counterId, CoberturaStatementEncoding.NORMAL_ID, trace);
     }
 
     /**
@@ -201,9 +309,8 @@ public class ExecutionTraceCollector {
      * @param counterId the cobertura counter id, necessary to retrieve the exact line in the class
      * @param trace     the output sequence to append statements to
      */
-    public static void variableAddStatementToExecutionTraceAndIncrementCounter(int classId, int counterId, OutputSequence trace) {
-        addStatementToExecutionTrace(classId, counterId, CoberturaStatementEncoding.BRANCH_ID, trace);
-        incrementCounter(classId, counterId);
+    public static void variableAddStatementToExecutionTraceAndIncrementCounter(int classId, int counterId, CompactOutputSequence trace) {
+        addStatementToExecutionTraceAndIncrementCounter(classId, counterId, CoberturaStatementEncoding.BRANCH_ID, trace);
     }
 
     /**
@@ -214,9 +321,8 @@ public class ExecutionTraceCollector {
      * @param counterId the cobertura counter id, necessary to retrieve the exact line in the class
      * @param trace     the output sequence to append statements to
      */
-    public static void jumpAddStatementToExecutionTraceAndIncrementCounter(int classId, int counterId, OutputSequence trace) {
-        addStatementToExecutionTrace(classId, counterId, CoberturaStatementEncoding.JUMP_ID, trace);
-        incrementCounter(classId, counterId);
+    public static void jumpAddStatementToExecutionTraceAndIncrementCounter(int classId, int counterId, CompactOutputSequence trace) {
+        addStatementToExecutionTraceAndIncrementCounter(classId, counterId, CoberturaStatementEncoding.JUMP_ID, trace);
     }
 
     /**
@@ -227,27 +333,22 @@ public class ExecutionTraceCollector {
      * @param counterId the cobertura counter id, necessary to retrieve the exact line in the class
      * @param trace     the output sequence to append statements to
      */
-    public static void switchAddStatementToExecutionTraceAndIncrementCounter(int classId, int counterId, OutputSequence trace) {
+    public static void switchAddStatementToExecutionTraceAndIncrementCounter(int classId, int counterId, CompactOutputSequence trace) {
 //		processLastSubTrace();
-        addStatementToExecutionTrace(classId, counterId, CoberturaStatementEncoding.SWITCH_ID, trace);
-        incrementCounter(classId, counterId);
+        addStatementToExecutionTraceAndIncrementCounter(classId, counterId, CoberturaStatementEncoding.SWITCH_ID, trace);
     }
 
 
-    private static void addStatementToExecutionTrace(int classId, int counterId, int specialIndicatorId, OutputSequence trace) {
-        if (counterId == AbstractCodeProvider.FAKE_COUNTER_ID) {
-            // this marks a fake jump! (ignore)
-            return;
-        }
+    private static void addStatementToExecutionTraceAndIncrementCounter(int classId, int counterId, int specialIndicatorId, CompactOutputSequence trace) {
+        ThreadTrace recorder = getRecorder(trace);
+        if (counterId != AbstractCodeProvider.FAKE_COUNTER_ID) {
+            // (a fake counter id marks a fake jump and is not added to the trace)
+            recorder.countStatement();
 
-        if (++counter % 1000000 == 0) {
-            System.out.print('.');
-            if (counter % 100000000 == 0)
-                System.out.println(String.format("%,d", counter));
+            // add the statement to the execution trace
+            trace.append(CoberturaStatementEncoding.generateUniqueRepresentationForStatement(classId, counterId));
         }
-
-        // add the statement to the execution trace
-        trace.append(CoberturaStatementEncoding.generateUniqueRepresentationForStatement(classId, counterId));
+        recorder.incrementCounter(classId, counterId);
     }
 
 
@@ -257,22 +358,9 @@ public class ExecutionTraceCollector {
      *
      * @return output sequence for the current thread
      */
-    public static OutputSequence getOutputSequence() {
-        Thread currentThread = Thread.currentThread();
-		long threadId = currentThread.getId();
+    public static CompactOutputSequence getOutputSequence() {
         // get the thread's execution trace
-        OutputSequence trace = executionTraces.get(threadId);
-        if (trace == null) {
-        	 globalExecutionTraceCollectorLock.lock();
-             try {
-            	 trace = getNewCollector(threadId);
-            	 executionTraces.put(threadId, trace);
-//            	 currentThreads.add(currentThread);
-             } finally {
-            	 globalExecutionTraceCollectorLock.unlock();
-			}
-        }
-        return trace;
+        return getCurrentRecorder();
     }
 
     /**
@@ -283,13 +371,8 @@ public class ExecutionTraceCollector {
      * @param counterId the cobertura counter id, necessary to retrieve the exact line in the class
      */
     public static void incrementCounter(int classId, int counterId) {
-//		globalExecutionTraceCollectorLock.lock();
-//		try {
-//		++classesToCounterArrayMap.get(classId)[counterId];
-        ++classesToCounterArrayMap[classId][counterId];
-//		} finally {
-//			globalExecutionTraceCollectorLock.unlock();
-//		}
+        // counts are collected per thread and merged in getAndResetCounterArrayForClass(int)
+        getCurrentRecorder().incrementCounter(classId, counterId);
     }
 
     public static int[] getAndResetCounterArrayForClass(int classId) {
@@ -305,6 +388,10 @@ public class ExecutionTraceCollector {
             int[] counters = classesToCounterArrayMap[classId];
             if (counters != null) {
                 classesToCounterArrayMap[classId] = new int[counters.length];
+                // add the hit counts of all threads
+                for (ThreadTrace trace : executionTraces) {
+                    trace.addCountersTo(classId, counters);
+                }
             }
             return counters;
         } finally {
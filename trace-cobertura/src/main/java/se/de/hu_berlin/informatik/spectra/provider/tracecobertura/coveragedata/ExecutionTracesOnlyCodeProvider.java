@@ -4,7 +4,7 @@ import org.objectweb.asm.*;
 
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.data.CoverageIgnore;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.CoberturaStatementEncoding;
-import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output.OutputSequence;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output.CompactOutputSequence;
 
 import java.util.Set;
 
@@ -47,7 +47,7 @@ public class ExecutionTracesOnlyCodeProvider extends AbstractCodeProvider
             nextMethodVisitor.visitVarInsn(Opcodes.ALOAD, threadIdVariableIndex);
             nextMethodVisitor.visitMethodInsn(Opcodes.INVOKESTATIC, Type
                             .getInternalName(ExecutionTraceCollector.class), "variableAddStatementToExecutionTraceAndIncrementCounter",
-                    "(IIL" + Type.getInternalName(OutputSequence.class) + ";)V");
+                    "(IIL" + Type.getInternalName(CompactOutputSequence.class) + ";)V");
 
             generateCodeThatZeroJumpCounterIdVariable(nextMethodVisitor,
                     lastJumpIdVariableIndex);
@@ -81,7 +81,7 @@ public class ExecutionTracesOnlyCodeProvider extends AbstractCodeProvider
     		nextMethodVisitor.visitVarInsn(Opcodes.ALOAD, threadIdVariableIndex);
     		nextMethodVisitor.visitMethodInsn(Opcodes.INVOKESTATIC, Type
     				.getInternalName(ExecutionTraceCollector.class), "startNewSubTrace",
-    				"(L" + Type.getInternalName(OutputSequence.class) + ";)V");
+    				"(L" + Type.getInternalName(CompactOutputSequence.class) + ";)V");
     	}
     }
 
@@ -94,7 +94,7 @@ public class ExecutionTracesOnlyCodeProvider extends AbstractCodeProvider
     	if (collectExecutionTrace) {
     		mv.visitMethodInsn(Opcodes.INVOKESTATIC, Type
     				.getInternalName(ExecutionTraceCollector.class),
-    				"getOutputSequence", "()L" + Type.getInternalName(OutputSequence.class) + ";");
+    				"getOutputSequence", "()L" + Type.getInternalName(CompactOutputSequence.class) + ";");
     		mv.visitVarInsn(Opcodes.ASTORE, threadIdVariableIndex);
     	}
     }
@@ -115,7 +115,7 @@ public class ExecutionTracesOnlyCodeProvider extends AbstractCodeProvider
             nextMethodVisitor.visitVarInsn(Opcodes.ALOAD, threadIdVariableIndex);
             nextMethodVisitor.visitMethodInsn(Opcodes.INVOKESTATIC, Type
                             .getInternalName(ExecutionTraceCollector.class), "addStatementToExecutionTraceAndIncrementCounter",
-                    "(IIL" + Type.getInternalName(OutputSequence.class) + ";)V");
+                    "(IIL" + Type.getInternalName(CompactOutputSequence.class) + ";)V");
         } else {
             // increment counter
             nextMethodVisitor.visitLdcInsn(classId);
@@ -143,7 +143,7 @@ public class ExecutionTracesOnlyCodeProvider extends AbstractCodeProvider
             nextMethodVisitor.visitVarInsn(Opcodes.ALOAD, threadIdVariableIndex);
             nextMethodVisitor.visitMethodInsn(Opcodes.INVOKESTATIC, Type
                             .getInternalName(ExecutionTraceCollector.class), "jumpAddStatementToExecutionTraceAndIncrementCounter",
-                    "(IIL" + Type.getInternalName(OutputSequence.class) + ";)V");
+                    "(IIL" + Type.getInternalName(CompactOutputSequence.class) + ";)V");
         } else {
             // increment counter
             nextMethodVisitor.visitLdcInsn(classId);
@@ -169,7 +169,7 @@ public class ExecutionTracesOnlyCodeProvider extends AbstractCodeProvider
             nextMethodVisitor.visitVarInsn(Opcodes.ALOAD, threadIdVariableIndex);
             nextMethodVisitor.visitMethodInsn(Opcodes.INVOKESTATIC, Type
                             .getInternalName(ExecutionTraceCollector.class), "switchAddStatementToExecutionTraceAndIncrementCounter",
-                    "(IIL" + Type.getInternalName(OutputSequence.class) + ";)V");
+                    "(IIL" + Type.getInternalName(CompactOutputSequence.class) + ";)V");
 //			generateCodeThatProcessesLastSubtrace(nextMethodVisitor);
         } else {
             // increment counter
@@ -9,7 +9,7 @@ import org.objectweb.asm.commons.LocalVariablesSorter;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.data.AbstractFindTouchPointsClassInstrumenter;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.data.FindTouchPointsMethodAdapter;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.CoberturaStatementEncoding;
-import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output.OutputSequence;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output.CompactOutputSequence;
 
 import java.util.Collection;
 import java.util.Map;
@@ -116,7 +116,7 @@ public class InjectCodeClassInstrumenter
                 instrumenter);
         int variable = sorter.newLocal(Type.INT_TYPE);
         touchPointListener.setLastJumpIdVariableIndex(variable);
-        int variable2 = sorter.newLocal(Type.getObjectType(Type.getInternalName(OutputSequence.class)));
+        int variable2 = sorter.newLocal(Type.getObjectType(Type.getInternalName(CompactOutputSequence.class)));
         touchPointListener.setThreadIdVariableIndex(variable2);
         return sorter;
         //return new ShiftVariableMethodAdapter(instrumenter, access, desc, 1);
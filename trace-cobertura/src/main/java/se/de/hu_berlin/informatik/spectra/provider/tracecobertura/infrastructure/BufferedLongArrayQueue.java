@@ -52,6 +52,9 @@ public class BufferedLongArrayQueue implements Serializable {
     // keep a node that may be reused
     private transient Node reusableNode = null;
 
+    // stores the nodes in memory-mapped segment files instead of one file per node, if not null
+    private MappedSegmentStore segmentStore = null;
+
     private void writeObject(java.io.ObjectOutputStream stream)
             throws IOException {
         sleep();
@@ -64,6 +67,7 @@ public class BufferedLongArrayQueue implements Serializable {
         stream.writeInt(firstNodeSize);
         stream.writeLong(size);
         stream.writeInt(arrayLength);
+        stream.writeObject(segmentStore);
     }
 
     private volatile transient boolean locked = false;
@@ -111,6 +115,7 @@ public class BufferedLongArrayQueue implements Serializable {
         firstNodeSize = stream.readInt();
         size = stream.readLong();
         arrayLength = stream.readInt();
+        segmentStore = (MappedSegmentStore) stream.readObject();
 
         // always delete files from deserialized object TODO
         deleteOnExit = true;
@@ -169,6 +174,21 @@ public class BufferedLongArrayQueue implements Serializable {
         this(output, filePrefix, nodeArrayLength, true);
     }
 
+    /**
+     * If {@code useMappedSegments} is true, full nodes are stored in large, memory-mapped
+     * segment files (see {@link MappedSegmentStore}) instead of in one file per node.
+     */
+    public BufferedLongArrayQueue(File output, String filePrefix, int nodeArrayLength, boolean deleteOnExit, boolean useMappedSegments) {
+        this(output, filePrefix, nodeArrayLength, deleteOnExit);
+        if (useMappedSegments) {
+            this.segmentStore = new MappedSegmentStore(output, filePrefix, 8 * arrayLength + 8, deleteOnExit);
+        }
+    }
+
+    public boolean usesMappedSegments() {
+        return segmentStore != null;
+    }
+
     public int getNodeSize() {
         return arrayLength;
     }
@@ -220,6 +240,14 @@ public class BufferedLongArrayQueue implements Serializable {
     }
 
     private void store(Node node) {
+        if (segmentStore != null) {
+            // write directly to the mapped segment
+            ByteBuffer mappedBuf = segmentStore.getWriteBuffer(node.storeIndex, 8 * (node.endIndex - node.startIndex) + 8);
+            mappedBuf.putInt(node.startIndex);
+            mappedBuf.putInt(node.endIndex);
+            mappedBuf.asLongBuffer().put(node.items, node.startIndex, node.endIndex - node.startIndex);
+            return;
+        }
 //    	System.out.println(super.toString() + " store: " + node.storeIndex + ", " + cachedNodes.keySet() + ", last: " + (lastStoreIndex+1));
 //    	System.out.println("imem: " + Runtime.getRuntime().freeMemory());
         String filename = getFileName(node.storeIndex);
@@ -343,6 +371,10 @@ public class BufferedLongArrayQueue implements Serializable {
     }
 
     private void delete(int storeIndex) {
+        if (segmentStore != null) {
+            segmentStore.delete(storeIndex);
+            return;
+        }
         String filename = getFileName(storeIndex);
         // stored node should be deleted
         File file = new File(filename);
@@ -385,57 +417,46 @@ public class BufferedLongArrayQueue implements Serializable {
             return cachedNodes.get(storeIndex);
         }
 
-        String filename = getFileName(storeIndex);
-        if (!(new File(filename).exists())) {
-            return null;
-        }
-
-//		System.out.println(super.toString() + " load: " + storeIndex + ", " + cachedNodes.keySet() + ", last: " + (lastStoreIndex+1));
         Node loadedNode;
-        try (FileInputStream in = new FileInputStream(filename)) {
-            try (FileChannel file = in.getChannel()) {
-                long fileSize = file.size();
-                if (fileSize > Integer.MAX_VALUE) {
-                    throw new UnsupportedOperationException("File size too big!");
-                }
-                ByteBuffer directBuf = getFreshBuffer();
-                file.read(directBuf);
-                directBuf.flip();
-
-                int startIndex = directBuf.getInt();
-                int endIndex = directBuf.getInt();
-
-                if (reusableNode == null) {
-//					int arrayLength = (int)fileSize/8 - 2;
-                    // actually only load an array of the size that's necessary;
-                    // will be extended if there are new elements that are added
-                    long[] items = new long[endIndex];
-                    for (int i = startIndex; i < endIndex; ++i) {
-                        items[i] = directBuf.getLong();
-                    }
+        if (segmentStore != null) {
+            ByteBuffer mappedBuf = segmentStore.read(storeIndex);
+            if (mappedBuf == null) {
+                return null;
+            }
+            try {
+                loadedNode = readNode(mappedBuf, storeIndex);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                throw new IllegalStateException();
+            }
+        } else {
+            String filename = getFileName(storeIndex);
+            if (!(new File(filename).exists())) {
+                return null;
+            }
 
-                    loadedNode = new Node(items, startIndex, endIndex, storeIndex, arrayLength);
-                } else {
-                    long[] items = reusableNode.items;
-                    if (endIndex > items.length) {
-                        items = new long[endIndex];
-                    }
-                    for (int i = startIndex; i < endIndex; ++i) {
-                        items[i] = directBuf.getLong();
+//			System.out.println(super.toString() + " load: " + storeIndex + ", " + cachedNodes.keySet() + ", last: " + (lastStoreIndex+1));
+            try (FileInputStream in = new FileInputStream(filename)) {
+                try (FileChannel file = in.getChannel()) {
+                    long fileSize = file.size();
+                    if (fileSize > Integer.MAX_VALUE) {
+                        throw new UnsupportedOperationException("File size too big!");
                     }
+                    ByteBuffer directBuf = getFreshBuffer();
+                    file.read(directBuf);
+                    directBuf.flip();
 
-                    loadedNode = reusableNode.recycle(items, startIndex, endIndex, storeIndex);
-                    reusableNode = null;
-                }
+                    loadedNode = readNode(directBuf, storeIndex);
 
-                // file can not be removed, due to serialization! TODO
-                if (deleteOnExit) {
-                    new File(filename).deleteOnExit();
+                    // file can not be removed, due to serialization! TODO
+                    if (deleteOnExit) {
+                        new File(filename).deleteOnExit();
+                    }
                 }
+            } catch (IOException | IndexOutOfBoundsException e) {
+                e.printStackTrace();
+                throw new IllegalStateException();
             }
-        } catch (IOException | IndexOutOfBoundsException e) {
-            e.printStackTrace();
-            throw new IllegalStateException();
         }
 
         if (storeIndex <= lastStoreIndex) {
@@ -448,6 +469,30 @@ public class BufferedLongArrayQueue implements Serializable {
     }
 
 
+    private Node readNode(ByteBuffer buf, int storeIndex) {
+        int startIndex = buf.getInt();
+        int endIndex = buf.getInt();
+
+        long[] items;
+        if (reusableNode == null || endIndex > reusableNode.items.length) {
+            // actually only load an array of the size that's necessary;
+            // will be extended if there are new elements that are added
+            items = new long[endIndex];
+        } else {
+            items = reusableNode.items;
+        }
+        buf.asLongBuffer().get(items, startIndex, endIndex - startIndex);
+
+        if (reusableNode == null) {
+            return new Node(items, startIndex, endIndex, storeIndex, arrayLength);
+        } else {
+            Node loadedNode = reusableNode.recycle(items, startIndex, endIndex, storeIndex);
+            reusableNode = null;
+            return loadedNode;
+        }
+    }
+
+
     public long size() {
         return size;
     }
@@ -498,6 +543,10 @@ public class BufferedLongArrayQueue implements Serializable {
         // delete potentially stored last node
         delete(lastStoreIndex + 1);
         lastNode = null;
+        if (segmentStore != null) {
+            // removes the segment files
+            segmentStore.clear();
+        }
 
         initialize();
     }
@@ -205,7 +205,10 @@ public class BufferedMap<E> implements Map<Integer, E>, Serializable {
     }
 
     private void delete(Integer storeIndex) {
-        String filename = getFileName(storeIndex);
+        delete(storeIndex, getFileName(storeIndex));
+    }
+
+    protected void delete(int storeIndex, String filename) {
         // stored node should be deleted
         File file = new File(filename);
         if (file.exists()) {
@@ -0,0 +1,388 @@
+package se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure;
+
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.data.CoverageIgnore;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Maps sequences of integers to (non-zero) integer values. Each sequence is identified by a
+ * 64 bit key that is provided by the caller (e.g., a hash of the sequence or some other
+ * representation), but lookups always compare the full content of the sequences, so different
+ * sequences with the same key are kept apart.
+ *
+ * <p>Everything is stored outside of the Java heap: an open addressing hash table with linear
+ * probing maps keys to records that are appended to a record store, and each record holds
+ * the value, the length and the elements of a sequence. Both are either kept in direct
+ * buffers or in memory-mapped files in a given directory.
+ *
+ * <p>Lookups may be executed concurrently with each other and with a single thread that adds
+ * sequences.
+ */
+@CoverageIgnore
+public class IntSequenceIndex implements Closeable {
+
+    // each slot holds the key and the offset of the record + 1 (0 marks an empty slot)
+    private static final int SLOT_BYTES = 16;
+    private static final int SLOTS_PER_SEGMENT_SHIFT = 26;
+    private static final long SLOTS_PER_SEGMENT = 1L << SLOTS_PER_SEGMENT_SHIFT;
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    private static final double MAX_LOAD = 0.6;
+
+    // records are stored as int arrays: value, length, elements...
+    private static final int INTS_PER_RECORD_SEGMENT_SHIFT = 22;
+    private static final long INTS_PER_RECORD_SEGMENT = 1L << INTS_PER_RECORD_SEGMENT_SHIFT;
+    private static final long RECORD_SEGMENT_MASK = INTS_PER_RECORD_SEGMENT - 1;
+
+    /**
+     * Consumes all stored sequences (see {@link #forEach(EntryConsumer)}).
+     */
+    public interface EntryConsumer {
+        void accept(int value, int[] sequence);
+    }
+
+    // the slots of the hash table; never modified after a rehash, only replaced
+    private static final class Table {
+        private final ByteBuffer[] segments;
+        private final long capacity;
+        private final int generation;
+
+        private Table(ByteBuffer[] segments, long capacity, int generation) {
+            this.segments = segments;
+            this.capacity = capacity;
+            this.generation = generation;
+        }
+
+        private long getKey(long slot) {
+            return segments[(int) (slot >>> SLOTS_PER_SEGMENT_SHIFT)]
+                    .getLong((int) (slot & (SLOTS_PER_SEGMENT - 1)) * SLOT_BYTES);
+        }
+
+        private long getReference(long slot) {
+            return segments[(int) (slot >>> SLOTS_PER_SEGMENT_SHIFT)]
+                    .getLong((int) (slot & (SLOTS_PER_SEGMENT - 1)) * SLOT_BYTES + 8);
+        }
+
+        private void set(long slot, long key, long reference) {
+            ByteBuffer segment = segments[(int) (slot >>> SLOTS_PER_SEGMENT_SHIFT)];
+            int offset = (int) (slot & (SLOTS_PER_SEGMENT - 1)) * SLOT_BYTES;
+            segment.putLong(offset, key);
+            segment.putLong(offset + 8, reference);
+        }
+    }
+
+    private final File directory;
+    private final String filePrefix;
+    private final boolean deleteOnExit;
+    private final List<File> files = new ArrayList<>();
+
+    private final StampedLock lock = new StampedLock();
+
+    private volatile Table table;
+    private volatile ByteBuffer[] recordSegments = new ByteBuffer[0];
+    // number of used ints in the record store
+    private long recordEnd = 0;
+    private int size = 0;
+
+    /**
+     * Creates an index that is stored in direct buffers.
+     */
+    public IntSequenceIndex() {
+        this(null, null, false);
+    }
+
+    /**
+     * Creates an index that is stored in memory-mapped files.
+     *
+     * @param directory    the directory to store the files in; if null, direct buffers are used
+     * @param filePrefix   the prefix of the files
+     * @param deleteOnExit whether to delete the files on exit (they are deleted when
+     *                     the index gets closed, in any case)
+     */
+    public IntSequenceIndex(File directory, String filePrefix, boolean deleteOnExit) {
+        this.directory = directory;
+        this.filePrefix = filePrefix;
+        this.deleteOnExit = deleteOnExit;
+        if (directory != null) {
+            directory.mkdirs();
+        }
+        this.table = newTable(INITIAL_CAPACITY, 0);
+    }
+
+    /**
+     * Computes a 64 bit hash over the first {@code length} elements of the given sequence.
+     * May be used as key if no better representation is available.
+     *
+     * @param sequence the sequence
+     * @param length   the number of elements to consider
+     * @return the hash
+     */
+    public static long hash(int[] sequence, int length) {
+        long hash = length;
+        for (int i = 0; i < length; ++i) {
+            hash = (hash + sequence[i]) * 0x9E3779B97F4A7C15L;
+            hash ^= hash >>> 29;
+        }
+        return hash;
+    }
+
+    /**
+     * @return the number of stored sequences
+     */
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the value of the given sequence, if it is stored. May be called concurrently.
+     *
+     * @param key      the key of the sequence
+     * @param sequence an array holding the sequence
+     * @param length   the length of the sequence
+     * @return the value of the sequence, or 0 if the sequence is not stored
+     */
+    public int get(long key, int[] sequence, int length) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                int value = find(key, sequence, length);
+                if (lock.validate(stamp)) {
+                    return value;
+                }
+            } catch (RuntimeException e) {
+                // inconsistent view while a sequence was being added; retry with a lock
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return find(key, sequence, length);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Stores the given sequence with the given value, if it is not stored, yet.
+     *
+     * @param key      the key of the sequence
+     * @param sequence an array holding the sequence
+     * @param length   the length of the sequence
+     * @param value    the value to store; must not be 0
+     * @return the value that was already stored for the sequence, or 0 if the sequence was added
+     */
+    public int putIfAbsent(long key, int[] sequence, int length, int value) {
+        if (value == 0) {
+            throw new IllegalArgumentException("Value must not be 0.");
+        }
+        long stamp = lock.writeLock();
+        try {
+            int existingValue = find(key, sequence, length);
+            if (existingValue != 0) {
+                return existingValue;
+            }
+            if (size + 1 > table.capacity * MAX_LOAD) {
+                rehash();
+            }
+            long record = appendRecord(value, sequence, length);
+            Table table = this.table;
+            long slot = findEmptySlot(table, key);
+            table.set(slot, key, record + 1);
+            ++size;
+            return 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Passes all stored sequences to the given consumer, in the order they were added.
+     *
+     * @param consumer the consumer
+     */
+    public void forEach(EntryConsumer consumer) {
+        long stamp = lock.readLock();
+        try {
+            ByteBuffer[] records = recordSegments;
+            long record = 0;
+            while (record < recordEnd) {
+                int value = getInt(records, record);
+                int length = getInt(records, record + 1);
+                int[] sequence = new int[length];
+                for (int i = 0; i < length; ++i) {
+                    sequence[i] = getInt(records, record + 2 + i);
+                }
+                consumer.accept(value, sequence);
+                record += 2 + length;
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Releases the buffers and deletes any files.
+     */
+    @Override
+    public void close() {
+        long stamp = lock.writeLock();
+        try {
+            table = newTable(INITIAL_CAPACITY, table.generation + 1);
+            recordSegments = new ByteBuffer[0];
+            recordEnd = 0;
+            size = 0;
+            for (File file : files) {
+                file.delete();
+            }
+            files.clear();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private int find(long key, int[] sequence, int length) {
+        Table table = this.table;
+        ByteBuffer[] records = recordSegments;
+        long mask = table.capacity - 1;
+        long slot = mix(key) & mask;
+        while (true) {
+            long reference = table.getReference(slot);
+            if (reference == 0) {
+                return 0;
+            }
+            if (table.getKey(slot) == key && matches(records, reference - 1, sequence, length)) {
+                return getInt(records, reference - 1);
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static boolean matches(ByteBuffer[] records, long record, int[] sequence, int length) {
+        if (getInt(records, record + 1) != length) {
+            return false;
+        }
+        for (int i = 0; i < length; ++i) {
+            if (getInt(records, record + 2 + i) != sequence[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long findEmptySlot(Table table, long key) {
+        long mask = table.capacity - 1;
+        long slot = mix(key) & mask;
+        while (table.getReference(slot) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        Table oldTable = this.table;
+        Table newTable = newTable(2 * oldTable.capacity, oldTable.generation + 1);
+        for (long slot = 0; slot < oldTable.capacity; ++slot) {
+            long reference = oldTable.getReference(slot);
+            if (reference != 0) {
+                long key = oldTable.getKey(slot);
+                newTable.set(findEmptySlot(newTable, key), key, reference);
+            }
+        }
+        this.table = newTable;
+        deleteFiles("table-" + oldTable.generation);
+    }
+
+    private long appendRecord(int value, int[] sequence, int length) {
+        long record = recordEnd;
+        long newEnd = record + 2 + length;
+        ByteBuffer[] records = recordSegments;
+        int neededSegments = (int) ((newEnd + INTS_PER_RECORD_SEGMENT - 1) >>> INTS_PER_RECORD_SEGMENT_SHIFT);
+        if (neededSegments > records.length) {
+            ByteBuffer[] newRecords = Arrays.copyOf(records, neededSegments);
+            for (int i = records.length; i < neededSegments; ++i) {
+                newRecords[i] = allocate("records-" + i, INTS_PER_RECORD_SEGMENT * 4);
+            }
+            records = newRecords;
+        }
+        putInt(records, record, value);
+        putInt(records, record + 1, length);
+        for (int i = 0; i < length; ++i) {
+            putInt(records, record + 2 + i, sequence[i]);
+        }
+        recordSegments = records;
+        recordEnd = newEnd;
+        return record;
+    }
+
+    private static int getInt(ByteBuffer[] records, long index) {
+        return records[(int) (index >>> INTS_PER_RECORD_SEGMENT_SHIFT)].getInt((int) (index & RECORD_SEGMENT_MASK) * 4);
+    }
+
+    private static void putInt(ByteBuffer[] records, long index, int value) {
+        records[(int) (index >>> INTS_PER_RECORD_SEGMENT_SHIFT)].putInt((int) (index & RECORD_SEGMENT_MASK) * 4, value);
+    }
+
+    private Table newTable(long capacity, int generation) {
+        int segmentCount = (int) ((capacity + SLOTS_PER_SEGMENT - 1) >>> SLOTS_PER_SEGMENT_SHIFT);
+        ByteBuffer[] segments = new ByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; ++i) {
+            long slots = Math.min(SLOTS_PER_SEGMENT, capacity - i * SLOTS_PER_SEGMENT);
+            segments[i] = allocate("table-" + generation + "-" + i, slots * SLOT_BYTES);
+        }
+        return new Table(segments, capacity, generation);
+    }
+
+    private ByteBuffer allocate(String name, long bytes) {
+        if (directory == null) {
+            return ByteBuffer.allocateDirect((int) bytes);
+        }
+        File file = new File(directory, filePrefix + "-" + name + ".idx");
+        files.add(file);
+        if (deleteOnExit) {
+            file.deleteOnExit();
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mapping stays valid after closing the channel
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map file " + file, e);
+        }
+    }
+
+    private void deleteFiles(String name) {
+        if (directory == null) {
+            return;
+        }
+        String prefix = filePrefix + "-" + name + "-";
+        for (int i = files.size() - 1; i >= 0; --i) {
+            // concurrent readers may still read from the mapped buffers, which stay valid
+            if (files.get(i).getName().startsWith(prefix)) {
+                files.remove(i).delete();
+            }
+        }
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        key *= 0xC4CEB9FE1A85EC53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+}
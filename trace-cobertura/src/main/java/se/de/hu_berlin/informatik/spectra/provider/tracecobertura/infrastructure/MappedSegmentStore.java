@@ -0,0 +1,383 @@
+package se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure;
+
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.data.CoverageIgnore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Stores the nodes of buffered queues and maps in fixed size slots inside of a few
+ * preallocated and memory-mapped segment files, instead of storing each node in
+ * its own file. Slots of deleted nodes are reused.
+ *
+ * <p> The first segment file is small and each further segment file doubles in
+ * size (up to a maximum size), so that small queues and maps do not reserve a
+ * large file each.
+ *
+ * <p> Each slot starts with the length of the stored data (in bytes).
+ *
+ * <p> A store belongs to a single queue or map, which has to call {@link #clear()}
+ * to remove the segment files when it is cleared itself.
+ */
+@CoverageIgnore
+public class MappedSegmentStore implements Serializable {
+
+    /**
+     *
+     */
+    private static final long serialVersionUID = 4412318740163962151L;
+
+    // preferred size of the first segment file
+    private static final long INITIAL_SEGMENT_SIZE = 64L * 1024L;
+    // preferred maximum size of a single segment file
+    private static final long SEGMENT_SIZE = 64L * 1024L * 1024L;
+
+    private File output;
+    private String filePrefix;
+    private int slotSize;
+    private int slotsPerSegment;
+    private int initialSlotsPerSegment;
+    // number of segments that are smaller than the maximum segment size
+    private int growingSegmentCount;
+
+    // (node index - slotOffset) -> slot + 1; 0 marks nodes that are not stored
+    private int[] slots = new int[0];
+    private int slotOffset = 0;
+    private int size = 0;
+    // slots that may be reused
+    private IntArrayStack freeSlots = new IntArrayStack();
+    private int nextSlot = 0;
+    private int segmentCount = 0;
+
+    private transient List<MappedByteBuffer> segments = new ArrayList<>();
+
+    private transient boolean deleteOnExit;
+
+    private void writeObject(java.io.ObjectOutputStream stream)
+            throws IOException {
+        force();
+        stream.writeObject(output);
+        stream.writeObject(filePrefix);
+        stream.writeInt(slotSize);
+        stream.writeInt(slotsPerSegment);
+        stream.writeInt(initialSlotsPerSegment);
+        stream.writeInt(growingSegmentCount);
+        stream.writeObject(slots);
+        stream.writeInt(slotOffset);
+        stream.writeInt(size);
+        stream.writeObject(freeSlots.toArray());
+        stream.writeInt(nextSlot);
+        stream.writeInt(segmentCount);
+    }
+
+    private void readObject(java.io.ObjectInputStream stream)
+            throws IOException, ClassNotFoundException {
+        output = (File) stream.readObject();
+        filePrefix = (String) stream.readObject();
+        slotSize = stream.readInt();
+        slotsPerSegment = stream.readInt();
+        initialSlotsPerSegment = stream.readInt();
+        growingSegmentCount = stream.readInt();
+        slots = (int[]) stream.readObject();
+        slotOffset = stream.readInt();
+        size = stream.readInt();
+        freeSlots = new IntArrayStack((int[]) stream.readObject());
+        nextSlot = stream.readInt();
+        segmentCount = stream.readInt();
+        // segments are mapped again on demand
+        segments = new ArrayList<>();
+
+        // always delete files from deserialized object
+        deleteOnExit = true;
+    }
+
+    /**
+     * @param outputDir    the directory to store the segment files in
+     * @param filePrefix   the prefix of the segment files
+     * @param maxDataSize  the maximum number of bytes that are stored per node
+     * @param deleteOnExit whether to delete the segment files on exit
+     */
+    public MappedSegmentStore(File outputDir, String filePrefix, int maxDataSize, boolean deleteOnExit) {
+        this.output = Objects.requireNonNull(outputDir);
+        this.filePrefix = Objects.requireNonNull(filePrefix);
+        this.deleteOnExit = deleteOnExit;
+        if (maxDataSize < 1 || maxDataSize > Integer.MAX_VALUE - 4) {
+            throw new IllegalArgumentException("Illegal node size: " + maxDataSize);
+        }
+        this.slotSize = maxDataSize + 4;
+        this.slotsPerSegment = (int) Math.max(1, Math.min(Integer.MAX_VALUE / slotSize, SEGMENT_SIZE / slotSize));
+        this.initialSlotsPerSegment = (int) Math.max(1, Math.min(slotsPerSegment, INITIAL_SEGMENT_SIZE / slotSize));
+        this.growingSegmentCount = 0;
+        while (getSlotCount(growingSegmentCount) < slotsPerSegment) {
+            ++growingSegmentCount;
+        }
+    }
+
+    public int getMaxDataSize() {
+        return slotSize - 4;
+    }
+
+    /**
+     * @param storeIndex the index of a node
+     * @return whether a node with the given index is stored
+     */
+    public boolean contains(int storeIndex) {
+        return getSlotOf(storeIndex) >= 0;
+    }
+
+    /**
+     * @return the number of stored nodes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a buffer to write the data of the node with the given index to.
+     * The returned buffer is a view on the mapped segment file with its position
+     * set to 0 and its limit set to the given length. The data is stored as soon
+     * as it is written to the buffer.
+     *
+     * @param storeIndex the index of the node
+     * @param length     the number of bytes to store
+     * @return the buffer to write the node's data to
+     */
+    public ByteBuffer getWriteBuffer(int storeIndex, int length) {
+        if (length < 0 || length > getMaxDataSize()) {
+            throw new IllegalArgumentException("Illegal data length: " + length + " (max: " + getMaxDataSize() + ")");
+        }
+        int slot = getSlotOf(storeIndex);
+        if (slot < 0) {
+            slot = freeSlots.isEmpty() ? nextSlot++ : freeSlots.pop();
+            setSlotOf(storeIndex, slot);
+        }
+        ByteBuffer buffer = getSlot(slot);
+        buffer.putInt(0, length);
+        buffer.position(4);
+        buffer.limit(4 + length);
+        return buffer.slice();
+    }
+
+    /**
+     * Returns the data of the node with the given index, without copying it.
+     *
+     * @param storeIndex the index of the node
+     * @return a read-only view on the stored data, or null if no such node exists
+     */
+    public ByteBuffer read(int storeIndex) {
+        int slot = getSlotOf(storeIndex);
+        if (slot < 0) {
+            return null;
+        }
+        ByteBuffer buffer = getSlot(slot);
+        int length = buffer.getInt(0);
+        buffer.position(4);
+        buffer.limit(4 + length);
+        return buffer.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Removes the node with the given index. Its slot may be reused by other nodes.
+     *
+     * @param storeIndex the index of the node
+     */
+    public void delete(int storeIndex) {
+        int slot = getSlotOf(storeIndex);
+        if (slot >= 0) {
+            slots[storeIndex - slotOffset] = 0;
+            --size;
+            freeSlots.push(slot);
+        }
+    }
+
+    /**
+     * Removes all nodes and deletes the segment files.
+     */
+    public void clear() {
+        // mapped buffers are only released by the garbage collector
+        segments.clear();
+        for (int i = 0; i < segmentCount; ++i) {
+            File file = new File(getFileName(i));
+            if (file.exists()) {
+                file.delete();
+            }
+        }
+        slots = new int[0];
+        slotOffset = 0;
+        size = 0;
+        freeSlots = new IntArrayStack();
+        nextSlot = 0;
+        segmentCount = 0;
+    }
+
+    /**
+     * Writes all modified data to the disk.
+     */
+    public void force() {
+        for (MappedByteBuffer segment : segments) {
+            if (segment != null) {
+                segment.force();
+            }
+        }
+    }
+
+    private int getSlotOf(int storeIndex) {
+        long position = (long) storeIndex - slotOffset;
+        if (position < 0 || position >= slots.length) {
+            return -1;
+        }
+        return slots[(int) position] - 1;
+    }
+
+    private void setSlotOf(int storeIndex, int slot) {
+        long position = (long) storeIndex - slotOffset;
+        if (position < 0 || position >= slots.length) {
+            growSlotTable(storeIndex);
+            position = (long) storeIndex - slotOffset;
+        }
+        slots[(int) position] = slot + 1;
+        ++size;
+    }
+
+    // resizes the slot table to cover the range of the stored nodes and the given node index
+    private void growSlotTable(int storeIndex) {
+        long low = storeIndex;
+        long high = storeIndex;
+        int first = 0;
+        int last = slots.length - 1;
+        if (size > 0) {
+            while (slots[first] == 0) {
+                ++first;
+            }
+            while (slots[last] == 0) {
+                --last;
+            }
+            low = Math.min(low, (long) slotOffset + first);
+            high = Math.max(high, (long) slotOffset + last);
+        }
+        long length = high - low + 1;
+        // leave some room to grow in the direction of the new node index
+        long capacity = Math.min(Integer.MAX_VALUE - 8, Math.max(16, length + (length >> 1)));
+        if (length > capacity) {
+            throw new IllegalStateException("Too many nodes: index range " + low + " to " + high);
+        }
+        long newOffset = storeIndex == high ? low : Math.max(Integer.MIN_VALUE, high - capacity + 1);
+        int[] newSlots = new int[(int) capacity];
+        if (size > 0) {
+            System.arraycopy(slots, first, newSlots, (int) (slotOffset + first - newOffset), last - first + 1);
+        }
+        slots = newSlots;
+        slotOffset = (int) newOffset;
+    }
+
+    private ByteBuffer getSlot(int slot) {
+        int segmentIndex;
+        long slotInSegment;
+        // the growing segments hold initialSlotsPerSegment * (2^growingSegmentCount - 1) slots
+        long growingSlots = (long) initialSlotsPerSegment * ((1L << growingSegmentCount) - 1);
+        if (slot < growingSlots) {
+            // segment i holds initialSlotsPerSegment * 2^i slots
+            segmentIndex = 31 - Integer.numberOfLeadingZeros(slot / initialSlotsPerSegment + 1);
+            slotInSegment = slot - (long) initialSlotsPerSegment * ((1L << segmentIndex) - 1);
+        } else {
+            segmentIndex = growingSegmentCount + (int) ((slot - growingSlots) / slotsPerSegment);
+            slotInSegment = (slot - growingSlots) % slotsPerSegment;
+        }
+        MappedByteBuffer segment = getSegment(segmentIndex);
+        ByteBuffer buffer = segment.duplicate();
+        int offset = (int) slotInSegment * slotSize;
+        buffer.position(offset);
+        buffer.limit(offset + slotSize);
+        return buffer.slice();
+    }
+
+    private MappedByteBuffer getSegment(int segmentIndex) {
+        while (segments.size() <= segmentIndex) {
+            segments.add(null);
+        }
+        MappedByteBuffer segment = segments.get(segmentIndex);
+        if (segment == null) {
+            segment = map(segmentIndex);
+            segments.set(segmentIndex, segment);
+            segmentCount = Math.max(segmentCount, segmentIndex + 1);
+        }
+        return segment;
+    }
+
+    private MappedByteBuffer map(int segmentIndex) {
+        String filename = getFileName(segmentIndex);
+        // mapping the file preallocates it with the full segment size
+        try (RandomAccessFile raFile = new RandomAccessFile(filename, "rw")) {
+            try (FileChannel file = raFile.getChannel()) {
+                MappedByteBuffer segment = file.map(FileChannel.MapMode.READ_WRITE, 0,
+                        getSlotCount(segmentIndex) * (long) slotSize);
+                if (deleteOnExit) {
+                    new File(filename).deleteOnExit();
+                }
+                return segment;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map segment file: " + filename, e);
+        }
+    }
+
+    private long getSlotCount(int segmentIndex) {
+        if (segmentIndex >= 31) {
+            return slotsPerSegment;
+        }
+        return Math.min(slotsPerSegment, (long) initialSlotsPerSegment << segmentIndex);
+    }
+
+    private String getFileName(int segmentIndex) {
+        return output.getAbsolutePath() + File.separator + filePrefix + "-seg-" + segmentIndex + ".sgm";
+    }
+
+    @CoverageIgnore
+    private static final class IntArrayStack {
+
+        private int[] items;
+        private int size;
+
+        private IntArrayStack() {
+            this(new int[0]);
+        }
+
+        private IntArrayStack(int[] items) {
+            this.items = items;
+            this.size = items.length;
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private void push(int item) {
+            if (size == items.length) {
+                int[] temp = items;
+                items = new int[Math.max(16, 2 * temp.length)];
+                System.arraycopy(temp, 0, items, 0, size);
+            }
+            items[size++] = item;
+        }
+
+        private int pop() {
+            return items[--size];
+        }
+
+        private int[] toArray() {
+            int[] result = new int[size];
+            System.arraycopy(items, 0, result, 0, size);
+            return result;
+        }
+    }
+
+}
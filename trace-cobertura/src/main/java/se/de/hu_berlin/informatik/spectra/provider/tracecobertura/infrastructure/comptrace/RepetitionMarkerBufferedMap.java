@@ -2,6 +2,7 @@ package se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructur
 
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.data.CoverageIgnore;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.BufferedMap;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.MappedSegmentStore;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -36,6 +37,24 @@ public class RepetitionMarkerBufferedMap extends BufferedMap<int[]> {
         super(outputDir, filePrefix);
     }
 
+    /**
+     * If {@code useMappedSegments} is true, the sub maps are stored in large, memory-mapped
+     * segment files (see {@link MappedSegmentStore}) instead of in one file per sub map.
+     */
+    public RepetitionMarkerBufferedMap(File output, String filePrefix, int maxSubMapSize, boolean deleteOnExit, boolean useMappedSegments) {
+        super(output, filePrefix, maxSubMapSize, deleteOnExit);
+        if (useMappedSegments) {
+            this.segmentStore = new MappedSegmentStore(output, filePrefix, 4 * (getMaxSubMapSize() * 3), deleteOnExit);
+        }
+    }
+
+    // stores the sub maps in memory-mapped segment files instead of one file per sub map, if not null
+    private MappedSegmentStore segmentStore = null;
+
+    public boolean usesMappedSegments() {
+        return segmentStore != null;
+    }
+
     private transient ByteBuffer writeBuffer = null;
 
     private ByteBuffer getFreshBuffer() {
@@ -58,10 +77,33 @@ public class RepetitionMarkerBufferedMap extends BufferedMap<int[]> {
     public void clear() {
         super.clear();
         writeBuffer = null;
+        if (segmentStore != null) {
+            // removes the segment files
+            segmentStore.clear();
+        }
+    }
+
+    @Override
+    protected void delete(int storeIndex, String filename) {
+        if (segmentStore != null) {
+            segmentStore.delete(storeIndex);
+        } else {
+            super.delete(storeIndex, filename);
+        }
     }
 
     @Override
     protected void store(Node<int[]> node, String filename) {
+        if (segmentStore != null) {
+            // write directly to the mapped segment
+            ByteBuffer mappedBuf = segmentStore.getWriteBuffer(node.getStoreIndex(), 12 * node.getSubMap().size());
+            for (Entry<Integer, int[]> entry : node.getSubMap().entrySet()) {
+                mappedBuf.putInt(entry.getKey());
+                mappedBuf.putInt(entry.getValue()[0]);
+                mappedBuf.putInt(entry.getValue()[1]);
+            }
+            return;
+        }
         try (RandomAccessFile raFile = new RandomAccessFile(filename, "rw")) {
             try (FileChannel file = raFile.getChannel()) {
 
@@ -88,6 +130,13 @@ public class RepetitionMarkerBufferedMap extends BufferedMap<int[]> {
 
     @Override
     protected Node<int[]> load(int storeIndex, String filename) throws IllegalStateException {
+        if (segmentStore != null) {
+            ByteBuffer mappedBuf = segmentStore.read(storeIndex);
+            if (mappedBuf == null) {
+                throw new IllegalStateException("Node " + storeIndex + " does not exist.");
+            }
+            return createNode(storeIndex, mappedBuf, mappedBuf.remaining() / 12);
+        }
         Node<int[]> loadedNode;
         try (FileInputStream in = new FileInputStream(filename)) {
             try (FileChannel file = in.getChannel()) {
@@ -101,25 +150,7 @@ public class RepetitionMarkerBufferedMap extends BufferedMap<int[]> {
 
                 int count = (int) fileSize / 12; // size/4/3
 
-                if (reusableNode == null) {
-                    // ((float)s / loadFactor) + 1.0F
-                    Map<Integer, int[]> map = new HashMap<>((int) (((float) count / 0.7F) + 1), 0.7F);
-                    // fill sub map
-                    for (int i = 0; i < count; ++i) {
-                        map.put(directBuf.getInt(), new int[]{directBuf.getInt(), directBuf.getInt()});
-                    }
-
-                    loadedNode = new Node<>(storeIndex, map);
-                } else {
-                    Map<Integer, int[]> map = reusableNode.getSubMap();
-                    // fill sub map
-                    for (int i = 0; i < count; ++i) {
-                        map.put(directBuf.getInt(), new int[]{directBuf.getInt(), directBuf.getInt()});
-                    }
-
-                    loadedNode = reusableNode.recycle(storeIndex, map);
-                    reusableNode = null;
-                }
+                loadedNode = createNode(storeIndex, directBuf, count);
 
                 // file can not be removed, due to serialization! TODO
                 if (deleteOnExit) {
@@ -132,4 +163,27 @@ public class RepetitionMarkerBufferedMap extends BufferedMap<int[]> {
         }
         return loadedNode;
     }
+
+    private Node<int[]> createNode(int storeIndex, ByteBuffer buf, int count) {
+        if (reusableNode == null) {
+            // ((float)s / loadFactor) + 1.0F
+            Map<Integer, int[]> map = new HashMap<>((int) (((float) count / 0.7F) + 1), 0.7F);
+            // fill sub map
+            for (int i = 0; i < count; ++i) {
+                map.put(buf.getInt(), new int[]{buf.getInt(), buf.getInt()});
+            }
+
+            return new Node<>(storeIndex, map);
+        } else {
+            Map<Integer, int[]> map = reusableNode.getSubMap();
+            // fill sub map
+            for (int i = 0; i < count; ++i) {
+                map.put(buf.getInt(), new int[]{buf.getInt(), buf.getInt()});
+            }
+
+            Node<int[]> loadedNode = reusableNode.recycle(storeIndex, map);
+            reusableNode = null;
+            return loadedNode;
+        }
+    }
 }
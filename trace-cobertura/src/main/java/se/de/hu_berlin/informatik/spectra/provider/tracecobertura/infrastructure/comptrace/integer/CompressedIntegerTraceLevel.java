@@ -51,14 +51,19 @@ public class CompressedIntegerTraceLevel implements Serializable {
 
 
     public CompressedIntegerTraceLevel(File outputDir, String prefix, int nodeSize, int mapSize, boolean deleteOnExit, boolean flat) {
+        this(outputDir, prefix, nodeSize, mapSize, deleteOnExit, flat, false);
+    }
+
+    public CompressedIntegerTraceLevel(File outputDir, String prefix, int nodeSize, int mapSize, boolean deleteOnExit, boolean flat,
+                                       boolean useMappedSegments) {
         String uuid = UUID.randomUUID().toString();
         traceWithoutRepetitions = new BufferedIntArrayQueue(outputDir,
-                prefix + "cpr_trace_lvl_" + uuid, nodeSize, deleteOnExit);
+                prefix + "cpr_trace_lvl_" + uuid, nodeSize, deleteOnExit, useMappedSegments);
 
         // don't need all this in flat mode!
         if (!flat) {
             traceRepetitions = new RepetitionMarkerBufferedMap(outputDir,
-                    prefix + "cpr_trace_rpt_" + uuid, mapSize, deleteOnExit);
+                    prefix + "cpr_trace_rpt_" + uuid, mapSize, deleteOnExit, useMappedSegments);
             elementToPositionMap = new HashMap<>();
             resultTraceIterator = traceWithoutRepetitions.iterator();
             inputTraceIterator = traceWithoutRepetitions.iterator();
@@ -35,6 +35,7 @@ public class EfficientCompressedIntegerTrace extends RepetitionMarkerBase implem
     private boolean deleteOnExit;
     private boolean log;
     private boolean flat;
+    private boolean useMappedSegments;
 
     private boolean locked = false;
 
@@ -52,7 +53,18 @@ public class EfficientCompressedIntegerTrace extends RepetitionMarkerBase implem
 
     public EfficientCompressedIntegerTrace(File outputDir, String prefix,
                                            int nodeSize, int mapSize, boolean deleteOnExit, boolean log, boolean flat) {
+        this(outputDir, prefix, nodeSize, mapSize, deleteOnExit, log, flat, false);
+    }
+
+    /**
+     * If {@code useMappedSegments} is true, the compressed trace and the repetition markers
+     * are stored in memory-mapped segment files instead of in one file per node.
+     */
+    public EfficientCompressedIntegerTrace(File outputDir, String prefix,
+                                           int nodeSize, int mapSize, boolean deleteOnExit, boolean log, boolean flat,
+                                           boolean useMappedSegments) {
         this.log = log;
+        this.useMappedSegments = useMappedSegments;
         this.flat = flat;
         this.outputDir = outputDir;
         this.prefix = prefix;
@@ -61,7 +73,7 @@ public class EfficientCompressedIntegerTrace extends RepetitionMarkerBase implem
         this.deleteOnExit = deleteOnExit;
         String uuid = UUID.randomUUID().toString();
         this.compressedTrace = new BufferedIntArrayQueue(outputDir,
-                prefix + "cpr_trace_" + uuid, nodeSize, deleteOnExit);
+                prefix + "cpr_trace_" + uuid, nodeSize, deleteOnExit, useMappedSegments);
         initialize();
     }
 
@@ -82,7 +94,8 @@ public class EfficientCompressedIntegerTrace extends RepetitionMarkerBase implem
      * @param flat  whether to ignore repetitions
      */
     public EfficientCompressedIntegerTrace(BufferedIntArrayQueue trace, boolean log, boolean flat) {
-        this(trace.getOutputDir(), trace.getFilePrefix(), trace.getNodeSize(), trace.getNodeSize(), trace.isDeleteOnExit(), log, flat);
+        this(trace.getOutputDir(), trace.getFilePrefix(), trace.getNodeSize(), trace.getNodeSize(), trace.isDeleteOnExit(), log, flat,
+                trace.usesMappedSegments());
         while (!trace.isEmpty()) {
             add(trace.remove());
         }
@@ -418,7 +431,7 @@ public class EfficientCompressedIntegerTrace extends RepetitionMarkerBase implem
     }
 
     private void addNewLevel() {
-        levels.add(new CompressedIntegerTraceLevel(outputDir, prefix, nodeSize, mapSize, deleteOnExit, flat));
+        levels.add(new CompressedIntegerTraceLevel(outputDir, prefix, nodeSize, mapSize, deleteOnExit, flat, useMappedSegments));
     }
 
 
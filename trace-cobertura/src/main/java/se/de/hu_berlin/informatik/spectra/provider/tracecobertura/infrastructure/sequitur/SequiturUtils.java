@@ -1,18 +1,42 @@
 package se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur;
 
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.data.CoverageIgnore;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.input.CompactDataInput;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.input.InputSequence;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.input.SharedInputGrammar;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output.CompactDataOutput;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output.CompactOutputSequence;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output.OutputSequence;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output.SharedCompactOutputGrammar;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output.SharedOutputGrammar;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 
 @CoverageIgnore
 public class SequiturUtils {
 
+    /**
+     * The formats that grammars and sequences can be stored in. Reading
+     * detects the format automatically.
+     */
+    public enum Format {
+        /**
+         * written to an {@link ObjectOutputStream}
+         */
+        JAVA_SERIALIZATION,
+        /**
+         * versioned format with variable length integers, written to a
+         * {@link ByteBuffer} (see {@link CompactDataOutput})
+         */
+        COMPACT
+    }
+
     public static InputSequence getInputSequenceFromByteArray(byte[] bytes,
                                                               SharedInputGrammar inGrammar) throws IOException {
+        if (CompactDataInput.isCompactFormat(bytes)) {
+            return InputSequence.readFrom(new CompactDataInput(bytes), inGrammar);
+        }
         ByteArrayInputStream byteIn = new ByteArrayInputStream(bytes);
         InputStream buffer = new BufferedInputStream(byteIn);
         ObjectInputStream objIn = new ObjectInputStream(buffer);
@@ -34,11 +58,33 @@ public class SequiturUtils {
         return getInputSequenceFromByteArray(bytes, null);
     }
     
+    /**
+     * Decodes a sequence in the compact format directly from the given buffer,
+     * starting at its current position.
+     *
+     * @param buffer    the buffer to read from
+     * @param inGrammar the shared grammar, if the sequence does not include its grammar
+     * @return the sequence
+     * @throws IOException if the data is not in the compact format or is corrupted
+     */
+    public static InputSequence getInputSequenceFromByteBuffer(ByteBuffer buffer,
+                                                               SharedInputGrammar inGrammar) throws IOException {
+        return InputSequence.readFrom(new CompactDataInput(buffer), inGrammar);
+    }
+
+    public static SharedInputGrammar getInputGrammarFromByteBuffer(ByteBuffer buffer)
+            throws IOException {
+        return SharedInputGrammar.readFrom(new CompactDataInput(buffer));
+    }
+
     public static SharedInputGrammar getInputGrammarFromByteArray(byte[] storedGrammar)
             throws IOException {
         if (storedGrammar == null) {
             return null;
         }
+        if (CompactDataInput.isCompactFormat(storedGrammar)) {
+            return SharedInputGrammar.readFrom(new CompactDataInput(storedGrammar));
+        }
         // load the current shared grammar (convert from byte array to input grammar...)
         ByteArrayInputStream byteIn = new ByteArrayInputStream(storedGrammar);
         InputStream buffer = new BufferedInputStream(byteIn);
@@ -50,17 +96,28 @@ public class SequiturUtils {
 		}
     }
 
-    public static byte[] convertToByteArray(SharedOutputGrammar outputGrammar)
-            throws IOException {
-        if (outputGrammar == null) {
-            return null;
+    /**
+     * Writes a grammar or a sequence in either of the supported formats.
+     */
+    private interface Writer {
+
+        void writeOut(ObjectOutputStream objOut) throws IOException;
+
+        void writeOut(CompactDataOutput out) throws IOException;
+
+    }
+
+    private static byte[] writeToByteArray(Writer writer, Format format) throws IOException {
+        if (format == Format.COMPACT) {
+            CompactDataOutput out = new CompactDataOutput();
+            writer.writeOut(out);
+            return out.toByteArray();
         }
-        // store/load the current shared grammar (convert from output grammar to byte array...)
         ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
         OutputStream buffer = new BufferedOutputStream(byteOut);
         ObjectOutputStream objOut = new ObjectOutputStream(buffer);
         try {
-        	outputGrammar.writeOut(objOut);
+        	writer.writeOut(objOut);
         	objOut.flush();
         	return byteOut.toByteArray();
         } finally {
@@ -68,24 +125,101 @@ public class SequiturUtils {
 		}
     }
 
+    public static byte[] convertToByteArray(SharedOutputGrammar outputGrammar)
+            throws IOException {
+        // store/load the current shared grammar (convert from output grammar to byte array...)
+        return convertToByteArray(outputGrammar, Format.JAVA_SERIALIZATION);
+    }
+
     public static byte[] convertToByteArray(OutputSequence outSeq, final boolean includeGrammar)
             throws IOException {
-    	ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
-    	OutputStream buffer = new BufferedOutputStream(byteOut);
-        ObjectOutputStream objOut = new ObjectOutputStream(buffer);
-    	try {
-    		outSeq.writeOut(objOut, includeGrammar);
-    		objOut.flush();
-    		return byteOut.toByteArray();
-    	} finally {
-    		objOut.close();
-    	}
+        return convertToByteArray(outSeq, includeGrammar, Format.JAVA_SERIALIZATION);
+    }
+
+    public static byte[] convertToByteArray(final SharedOutputGrammar outputGrammar, Format format)
+            throws IOException {
+        if (outputGrammar == null) {
+            return null;
+        }
+        return writeToByteArray(new Writer() {
+            @Override
+            public void writeOut(ObjectOutputStream objOut) throws IOException {
+                outputGrammar.writeOut(objOut);
+            }
+
+            @Override
+            public void writeOut(CompactDataOutput out) throws IOException {
+                outputGrammar.writeOut(out);
+            }
+        }, format);
+    }
+
+    public static byte[] convertToByteArray(final OutputSequence outSeq, final boolean includeGrammar, Format format)
+            throws IOException {
+        return writeToByteArray(new Writer() {
+            @Override
+            public void writeOut(ObjectOutputStream objOut) throws IOException {
+                outSeq.writeOut(objOut, includeGrammar);
+            }
+
+            @Override
+            public void writeOut(CompactDataOutput out) throws IOException {
+                outSeq.writeOut(out, includeGrammar);
+            }
+        }, format);
+    }
+
+    public static byte[] convertToByteArray(SharedCompactOutputGrammar outputGrammar)
+            throws IOException {
+        return convertToByteArray(outputGrammar, Format.JAVA_SERIALIZATION);
+    }
+
+    public static byte[] convertToByteArray(CompactOutputSequence outSeq, final boolean includeGrammar)
+            throws IOException {
+        return convertToByteArray(outSeq, includeGrammar, Format.JAVA_SERIALIZATION);
+    }
+
+    public static byte[] convertToByteArray(final SharedCompactOutputGrammar outputGrammar, Format format)
+            throws IOException {
+        if (outputGrammar == null) {
+            return null;
+        }
+        return writeToByteArray(new Writer() {
+            @Override
+            public void writeOut(ObjectOutputStream objOut) throws IOException {
+                outputGrammar.writeOut(objOut);
+            }
+
+            @Override
+            public void writeOut(CompactDataOutput out) throws IOException {
+                outputGrammar.writeOut(out);
+            }
+        }, format);
+    }
+
+    public static byte[] convertToByteArray(final CompactOutputSequence outSeq, final boolean includeGrammar,
+                                            Format format) throws IOException {
+        return writeToByteArray(new Writer() {
+            @Override
+            public void writeOut(ObjectOutputStream objOut) throws IOException {
+                outSeq.writeOut(objOut, includeGrammar);
+            }
+
+            @Override
+            public void writeOut(CompactDataOutput out) throws IOException {
+                outSeq.writeOut(out, includeGrammar);
+            }
+        }, format);
     }
 
-    
     public static SharedInputGrammar convertToInputGrammar(SharedOutputGrammar outputGrammar)
             throws IOException {
         return getInputGrammarFromByteArray(convertToByteArray(outputGrammar));
     }
 
+    public static SharedInputGrammar convertToInputGrammar(SharedCompactOutputGrammar outputGrammar)
+            throws IOException {
+        return getInputGrammarFromByteArray(convertToByteArray(outputGrammar, Format.COMPACT));
+    }
+
 }
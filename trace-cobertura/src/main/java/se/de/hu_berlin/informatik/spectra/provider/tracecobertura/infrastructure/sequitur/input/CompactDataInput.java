@@ -0,0 +1,132 @@
+package se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.input;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.data.CoverageIgnore;
+
+/**
+ * Reads grammars and sequences in the compact wire format directly from a
+ * {@link ByteBuffer}, starting at its current position. See
+ * {@link se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output.CompactDataOutput}
+ * for a description of the format.
+ */
+@CoverageIgnore
+public class CompactDataInput {
+
+    private static final byte[] MAGIC = {'S', 'Q', 'C'};
+    private static final byte VERSION = 1;
+
+    static final byte KIND_GRAMMAR = 1;
+    static final byte KIND_SEQUENCE = 2;
+    static final byte KIND_SEQUENCE_REFERENCE = 3;
+
+    private final ByteBuffer buffer;
+
+    public CompactDataInput(final ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public CompactDataInput(final byte[] bytes) {
+        this(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Checks whether the given buffer starts with the header of the compact wire format
+     * at its current position. Does not modify the buffer's position.
+     *
+     * @param buffer the buffer to check
+     * @return whether the buffer contains data in the compact format
+     */
+    public static boolean isCompactFormat(final ByteBuffer buffer) {
+        if (buffer.remaining() < MAGIC.length + 2)
+            return false;
+        final int position = buffer.position();
+        for (int i = 0; i < MAGIC.length; ++i) {
+            if (buffer.get(position + i) != MAGIC[i])
+                return false;
+        }
+        return true;
+    }
+
+    public static boolean isCompactFormat(final byte[] bytes) {
+        return bytes != null && isCompactFormat(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Reads and checks the header.
+     *
+     * @return the kind of the following data
+     * @throws IOException if the header is missing or the version is not supported
+     */
+    public byte readHeader() throws IOException {
+        if (!isCompactFormat(this.buffer))
+            throw new IOException("Not in compact sequitur format");
+        this.buffer.position(this.buffer.position() + MAGIC.length);
+        final byte version = this.buffer.get();
+        if (version != VERSION)
+            throw new IOException("Unsupported compact sequitur format version: " + version);
+        return this.buffer.get();
+    }
+
+    public int readByte() throws IOException {
+        if (!this.buffer.hasRemaining())
+            throw new EOFException();
+        return this.buffer.get() & 0xFF;
+    }
+
+    public int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if (b < 0x80)
+                return value;
+        }
+        throw new IOException("Corrupted data");
+    }
+
+    public long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            final int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b < 0x80)
+                return value;
+        }
+        throw new IOException("Corrupted data");
+    }
+
+    /**
+     * Reads the symbols of the next rule.
+     *
+     * @return the symbols, or <code>null</code> if the end of the rules is reached
+     * @throws IOException if the data is corrupted
+     */
+    Symbol[] readRule() throws IOException {
+        final int length = readVarInt() - 1;
+        if (length == -1)
+            return null;
+        // each symbol takes at least one byte, so corrupted lengths are detected
+        // before allocating the array
+        if (length < 0 || length > this.buffer.remaining())
+            throw new IOException("Corrupted data");
+        final Symbol[] symbols = new Symbol[length];
+        for (int i = 0; i < length; ++i) {
+            final long head = readVarLong();
+            final int count = (head & 1) == 0 ? 1 : readVarInt();
+            if (count < 1)
+                throw new IOException("Corrupted data");
+            final long payload = head >>> 2;
+            if ((head & 2) == 0) {
+                symbols[i] = NonTerminal.reference(payload, count);
+            } else {
+                final int zigzag = (int) payload;
+                symbols[i] = new Terminal((zigzag >>> 1) ^ -(zigzag & 1), count);
+            }
+        }
+        return symbols;
+    }
+
+}
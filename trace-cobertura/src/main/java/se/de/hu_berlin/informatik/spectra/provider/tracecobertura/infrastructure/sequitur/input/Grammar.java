@@ -44,7 +44,14 @@ class Grammar {
 
     public static Grammar readFrom(final ObjectInputStream objIn, final ObjectReader objectReader)
             throws IOException {
-        final LongArrayList<Rule> rules = Rule.readAll(objIn, objectReader);
+        return link(Rule.readAll(objIn, objectReader));
+    }
+
+    public static Grammar readFrom(final CompactDataInput in) throws IOException {
+        return link(Rule.readAll(in));
+    }
+
+    private static Grammar link(final LongArrayList<Rule> rules) {
         final Grammar grammar = new Grammar(rules);
         for (final Rule rule : rules)
             rule.substituteRealRules(grammar);
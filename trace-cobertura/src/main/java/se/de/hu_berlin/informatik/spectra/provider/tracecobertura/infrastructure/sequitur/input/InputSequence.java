@@ -332,6 +332,43 @@ public class InputSequence {
         return new InputSequence(rule);
     }
 
+    /**
+     * Reads a sequence in the compact wire format that includes its grammar.
+     */
+    public static InputSequence readFrom(final CompactDataInput in) throws IOException {
+        return readFrom(in, null);
+    }
+
+    /**
+     * Reads a sequence in the compact wire format.
+     *
+     * @param in            the input to read from
+     * @param sharedGrammar the shared grammar the sequence refers to; only needed
+     *                      (and only used) if the sequence does not include its grammar
+     * @return the sequence
+     * @throws IOException if the data is corrupted
+     */
+    public static InputSequence readFrom(final CompactDataInput in,
+                                         final SharedInputGrammar sharedGrammar) throws IOException {
+        final Grammar grammar;
+        switch (in.readHeader()) {
+            case CompactDataInput.KIND_SEQUENCE:
+                grammar = Grammar.readFrom(in);
+                break;
+            case CompactDataInput.KIND_SEQUENCE_REFERENCE:
+                if (sharedGrammar == null)
+                    throw new IOException("Sequence refers to a shared grammar");
+                grammar = sharedGrammar.grammar;
+                break;
+            default:
+                throw new IOException("Expected a sequence");
+        }
+        final Rule rule = grammar.getRule(in.readVarLong());
+        if (rule == null)
+            throw new IOException("Unknown rule number");
+        return new InputSequence(rule);
+    }
+
     public Set<Integer> computeTerminals() {
         Set<Integer> result = new HashSet<>();
         final TObjectLongMap<Rule> rules = this.firstRule.getUsedRules();
@@ -80,6 +80,11 @@ class NonTerminal extends Symbol {
         return sb.toString();
     }
 
+    // the reference is substituted by the real rule once all rules are read
+    public static NonTerminal reference(final long ruleNr, final int count) {
+        return new NonTerminal(new RuleReference(ruleNr), count);
+    }
+
     public static NonTerminal readFrom(final ObjectInputStream objIn, final boolean counted) throws IOException {
         final int count = counted ? DataInput.readInt(objIn) : 1;
         final long ruleNr = DataInput.readLong(objIn);
@@ -181,6 +181,15 @@ class Rule {
         return rules;
     }
 
+    public static LongArrayList<Rule> readAll(final CompactDataInput in) throws IOException {
+        final LongArrayList<Rule> rules = new LongArrayList<Rule>();
+        Symbol[] symbols;
+        while ((symbols = in.readRule()) != null)
+            rules.add(new Rule(symbols));
+        rules.trimToSize();
+        return rules;
+    }
+
     /**
      * Returns the maximum offset (= index of a symbol in this rule), s.t. the number of
      * symbols before this offset is smaller or equal to the given position.
@@ -49,4 +49,10 @@ public class SharedInputGrammar {
         return new SharedInputGrammar(Grammar.readFrom(objIn, objectReader));
     }
 
+    public static SharedInputGrammar readFrom(final CompactDataInput in) throws IOException {
+        if (in.readHeader() != CompactDataInput.KIND_GRAMMAR)
+            throw new IOException("Expected a grammar");
+        return new SharedInputGrammar(Grammar.readFrom(in));
+    }
+
 }
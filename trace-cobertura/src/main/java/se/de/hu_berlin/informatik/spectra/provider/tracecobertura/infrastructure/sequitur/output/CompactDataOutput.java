@@ -0,0 +1,155 @@
+package se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.data.CoverageIgnore;
+
+/**
+ * Writes grammars and sequences in the compact (versioned) wire format into a
+ * {@link ByteBuffer} that grows on demand. In contrast to the format written to an
+ * {@link java.io.ObjectOutputStream}, there is no stream header and no block data
+ * framing, and all numbers are written as variable length integers (LEB128).
+ *
+ * <p>Layout:
+ * <pre>
+ * header   := 'S' 'Q' 'C' version kind
+ * grammar  := rule* 0
+ * rule     := varint(number of symbols + 1) symbol*
+ * symbol   := varlong(payload &lt;&lt; 2 | isTerminal &lt;&lt; 1 | isCounted) [varint(count)]
+ * sequence := [grammar] varlong(start rule number)
+ * </pre>
+ * The payload of a terminal is its zigzag encoded value, the payload of a non-terminal
+ * is the number of the referenced rule. The kind byte tells whether the data is a
+ * grammar only ({@link #KIND_GRAMMAR}), a sequence including its grammar
+ * ({@link #KIND_SEQUENCE}) or a sequence that refers to a shared grammar
+ * ({@link #KIND_SEQUENCE_REFERENCE}).
+ */
+@CoverageIgnore
+public class CompactDataOutput {
+
+    private static final byte[] MAGIC = {'S', 'Q', 'C'};
+    private static final byte VERSION = 1;
+
+    public static final byte KIND_GRAMMAR = 1;
+    public static final byte KIND_SEQUENCE = 2;
+    public static final byte KIND_SEQUENCE_REFERENCE = 3;
+
+    private ByteBuffer buffer;
+
+    public CompactDataOutput() {
+        this(1024);
+    }
+
+    public CompactDataOutput(final int initialCapacity) {
+        this(ByteBuffer.allocate(Math.max(initialCapacity, 16)));
+    }
+
+    /**
+     * @param buffer the buffer to write into; content before its current position is kept,
+     *               and if it runs full, everything is moved to a new buffer of twice the size
+     */
+    public CompactDataOutput(final ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public void writeHeader(final byte kind) {
+        ensureRemaining(MAGIC.length + 2);
+        this.buffer.put(MAGIC);
+        this.buffer.put(VERSION);
+        this.buffer.put(kind);
+    }
+
+    public void writeByte(final int b) {
+        ensureRemaining(1);
+        this.buffer.put((byte) b);
+    }
+
+    public void writeVarInt(final int value) {
+        ensureRemaining(5);
+        int v = value;
+        while ((v & ~0x7F) != 0) {
+            this.buffer.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        this.buffer.put((byte) v);
+    }
+
+    public void writeVarLong(final long value) {
+        ensureRemaining(10);
+        long v = value;
+        while ((v & ~0x7FL) != 0) {
+            this.buffer.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        this.buffer.put((byte) v);
+    }
+
+    /**
+     * Marks the start of a rule with the given number of symbols.
+     */
+    void writeRuleStart(final int numSymbols) {
+        writeVarInt(numSymbols + 1);
+    }
+
+    void writeEndOfRules() {
+        writeByte(0);
+    }
+
+    void writeTerminal(final int value, final int count) {
+        final long zigzag = ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+        writeSymbol((zigzag << 2) | 2, count);
+    }
+
+    void writeNonTerminal(final long ruleNr, final int count) {
+        writeSymbol(ruleNr << 2, count);
+    }
+
+    private void writeSymbol(final long head, final int count) {
+        assert count >= 1;
+        if (count == 1) {
+            writeVarLong(head);
+        } else {
+            writeVarLong(head | 1);
+            writeVarInt(count);
+        }
+    }
+
+    /**
+     * @return the number of bytes written so far
+     */
+    public int size() {
+        return this.buffer.position();
+    }
+
+    /**
+     * @return a read-only view of the written bytes, ready to be read
+     */
+    public ByteBuffer getBuffer() {
+        final ByteBuffer view = this.buffer.duplicate();
+        view.flip();
+        return view.asReadOnlyBuffer();
+    }
+
+    public byte[] toByteArray() {
+        if (this.buffer.hasArray()) {
+            final int offset = this.buffer.arrayOffset();
+            return Arrays.copyOfRange(this.buffer.array(), offset, offset + this.buffer.position());
+        }
+        final byte[] bytes = new byte[this.buffer.position()];
+        getBuffer().get(bytes);
+        return bytes;
+    }
+
+    private void ensureRemaining(final int bytes) {
+        if (this.buffer.remaining() < bytes) {
+            final int capacity = Math.max(2 * this.buffer.capacity(), this.buffer.position() + bytes);
+            final ByteBuffer newBuffer = this.buffer.isDirect()
+                    ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+            this.buffer.flip();
+            newBuffer.put(this.buffer);
+            this.buffer = newBuffer;
+        }
+    }
+
+}
@@ -0,0 +1,884 @@
+package se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output;
+
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.data.CoverageIgnore;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.SingleLinkedIntArrayQueue;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Array based variant of {@link Grammar}. Symbols and rules are no objects, but
+ * indices into parallel int arrays (struct of arrays), and the digrams are stored
+ * in an open addressing hash table with long keys.
+ *
+ * <p> Apart from the storage, this is a step by step port of {@link Grammar},
+ * {@link Rule} and the {@link Symbol} implementations, such that the written
+ * grammar is byte for byte identical to the one written by {@link Grammar}.
+ * The names of the methods match the names of the respective methods in
+ * the object based implementation.
+ *
+ * <p> Slots of removed symbols are reused after each top-level operation.
+ * Rules are not reclaimed.
+ */
+// package-private
+@CoverageIgnore
+class CompactGrammar {
+
+    static final byte TERMINAL = 0;
+    static final byte NON_TERMINAL = 1;
+    static final byte DUMMY = 2;
+
+    static final int NONE = -1;
+
+    private static final int INITIAL_SYMBOL_CAPACITY = 64;
+    private static final int INITIAL_RULE_CAPACITY = 16;
+    private static final int INITIAL_DIGRAM_CAPACITY = 256;
+
+    final Lock lock = new ReentrantLock();
+
+    // symbols; for non-terminals and dummies, the value is the index of the rule
+    private byte[] types = new byte[INITIAL_SYMBOL_CAPACITY];
+    private int[] values = new int[INITIAL_SYMBOL_CAPACITY];
+    private int[] counts = new int[INITIAL_SYMBOL_CAPACITY];
+    private int[] nexts = new int[INITIAL_SYMBOL_CAPACITY];
+    private int[] prevs = new int[INITIAL_SYMBOL_CAPACITY];
+    // incremented each time the slot of a symbol is released (invalidates digram entries)
+    private int[] versions = new int[INITIAL_SYMBOL_CAPACITY];
+    private int symbolLimit = 0;
+
+    // released slots
+    private int[] freeSymbols = new int[INITIAL_SYMBOL_CAPACITY];
+    private int freeSymbolCount = 0;
+    // removed symbols may still be accessed until the current operation finishes
+    private int[] removedSymbols = new int[INITIAL_SYMBOL_CAPACITY];
+    private int removedSymbolCount = 0;
+
+    // rules
+    private int[] ruleDummies = new int[INITIAL_RULE_CAPACITY];
+    private int[] ruleUseCounts = new int[INITIAL_RULE_CAPACITY];
+    private int[] ruleNumbers = new int[INITIAL_RULE_CAPACITY];
+    private int ruleLimit = 0;
+
+    // in writeOut, the rule numbers are assigned
+    private int[] rulesByNumber = new int[INITIAL_RULE_CAPACITY];
+    private int nextRuleNumber = 0;
+
+    private final DigramTable digrams = new DigramTable(INITIAL_DIGRAM_CAPACITY);
+
+    private final List<CompactOutputSequence> usingSequences = new ArrayList<>(3);
+
+    private volatile boolean locked = false;
+
+    /**
+     * Creates a new rule.
+     *
+     * @param mayBeReused false if the rule is the first rule of a sequence
+     * @return the index of the new rule
+     */
+    int newRule(final boolean mayBeReused) {
+        if (this.ruleLimit == this.ruleDummies.length) {
+            final int capacity = 2 * this.ruleDummies.length;
+            this.ruleDummies = Arrays.copyOf(this.ruleDummies, capacity);
+            this.ruleUseCounts = Arrays.copyOf(this.ruleUseCounts, capacity);
+            this.ruleNumbers = Arrays.copyOf(this.ruleNumbers, capacity);
+        }
+        final int rule = this.ruleLimit++;
+        this.ruleUseCounts[rule] = mayBeReused ? 0 : -1;
+        this.ruleNumbers[rule] = NONE;
+        final int dummy = newSymbol(DUMMY, rule, 0);
+        this.nexts[dummy] = dummy;
+        this.prevs[dummy] = dummy;
+        this.ruleDummies[rule] = dummy;
+        return rule;
+    }
+
+    /**
+     * Appends a terminal to the given rule.
+     *
+     * @param rule  the rule
+     * @param value the value of the terminal
+     * @param count the number of consecutive repetitions of the value
+     */
+    void append(final int rule, final int value, final int count) {
+        append(rule, newSymbol(TERMINAL, value, count));
+        releaseRemovedSymbols();
+    }
+
+    void ensureInvariants(final int rule) {
+        ensureRuleInvariants(rule);
+        releaseRemovedSymbols();
+    }
+
+    long getRuleNr(final int rule) {
+        return getRuleNr(rule, null);
+    }
+
+    void newSequence(final CompactOutputSequence seq) {
+        this.usingSequences.add(seq);
+    }
+
+    void lock() {
+        this.locked = true;
+    }
+
+    boolean isLocked() {
+        return this.locked;
+    }
+
+    public void writeOut(final ObjectOutputStream objOut, final ObjectWriter objectWriter)
+            throws IOException {
+        final SingleLinkedIntArrayQueue ruleQueue = prepareWriteOut();
+        while (!ruleQueue.isEmpty()) {
+            writeOutRule(ruleQueue.removeNoAutoBoxing(), objOut, objectWriter, ruleQueue);
+        }
+        objOut.write(0); // mark end of rules
+    }
+
+    public void writeOut(final CompactDataOutput out) throws IOException {
+        final SingleLinkedIntArrayQueue ruleQueue = prepareWriteOut();
+        while (!ruleQueue.isEmpty()) {
+            writeOutRule(ruleQueue.removeNoAutoBoxing(), out, ruleQueue);
+        }
+        out.writeEndOfRules();
+    }
+
+    private SingleLinkedIntArrayQueue prepareWriteOut() {
+        final SingleLinkedIntArrayQueue ruleQueue = new SingleLinkedIntArrayQueue(50);
+        // first, fill in already written rules (in the order of their numbers)
+        for (int i = 0; i < this.nextRuleNumber; ++i) {
+            ruleQueue.addNoAutoBoxing(this.rulesByNumber[i]);
+        }
+        // then, fill in the first rule of sequences that use this grammar
+        for (final CompactOutputSequence seq : this.usingSequences) {
+            seq.flush();
+            getRuleNr(seq.firstRule, ruleQueue);
+        }
+        for (final SingleLinkedIntArrayQueue.MyIterator iterator = ruleQueue.iterator2(); iterator.hasNext(); ) {
+            ensureRuleInvariants(iterator.nextNoAutoBoxing());
+        }
+        releaseRemovedSymbols();
+        return ruleQueue;
+    }
+
+    // ----- symbols -----
+
+    private int newSymbol(final byte type, final int value, final int count) {
+        final int symbol;
+        if (this.freeSymbolCount > 0) {
+            symbol = this.freeSymbols[--this.freeSymbolCount];
+        } else {
+            if (this.symbolLimit == this.types.length) {
+                growSymbols();
+            }
+            symbol = this.symbolLimit++;
+        }
+        this.types[symbol] = type;
+        this.values[symbol] = value;
+        this.counts[symbol] = count;
+        this.nexts[symbol] = NONE;
+        this.prevs[symbol] = NONE;
+        return symbol;
+    }
+
+    private void growSymbols() {
+        final int capacity = this.types.length + (this.types.length >> 1);
+        this.types = Arrays.copyOf(this.types, capacity);
+        this.values = Arrays.copyOf(this.values, capacity);
+        this.counts = Arrays.copyOf(this.counts, capacity);
+        this.nexts = Arrays.copyOf(this.nexts, capacity);
+        this.prevs = Arrays.copyOf(this.prevs, capacity);
+        this.versions = Arrays.copyOf(this.versions, capacity);
+    }
+
+    private int newNonTerminal(final int rule) {
+        final int symbol = newSymbol(NON_TERMINAL, rule, 1);
+        incUseCount(rule);
+        return symbol;
+    }
+
+    private int cloneSymbol(final int symbol) {
+        final int clone = newSymbol(this.types[symbol], this.values[symbol], this.counts[symbol]);
+        this.nexts[clone] = this.nexts[symbol];
+        this.prevs[clone] = this.prevs[symbol];
+        if (this.types[symbol] == NON_TERMINAL) {
+            incUseCount(this.values[symbol]);
+        }
+        return clone;
+    }
+
+    private void linkTogether(final int first, final int second) {
+        this.nexts[first] = second;
+        this.prevs[second] = first;
+    }
+
+    private void insertBefore(final int symbol, final int toInsert) {
+        linkTogether(this.prevs[symbol], toInsert);
+        linkTogether(toInsert, symbol);
+    }
+
+    /**
+     * Removes the symbol from the implicit linked list. The symbol's own links
+     * stay intact until the current operation is finished.
+     */
+    private void remove(final int symbol) {
+        linkTogether(this.prevs[symbol], this.nexts[symbol]);
+        final boolean wasRemoved = this.counts[symbol] == 0;
+        this.counts[symbol] = 0;
+        if (this.types[symbol] == NON_TERMINAL) {
+            decUseCount(this.values[symbol]);
+        }
+        if (!wasRemoved) {
+            if (this.removedSymbolCount == this.removedSymbols.length) {
+                this.removedSymbols = Arrays.copyOf(this.removedSymbols, 2 * this.removedSymbols.length);
+            }
+            this.removedSymbols[this.removedSymbolCount++] = symbol;
+        }
+    }
+
+    private void releaseRemovedSymbols() {
+        if (this.freeSymbolCount + this.removedSymbolCount > this.freeSymbols.length) {
+            this.freeSymbols = Arrays.copyOf(this.freeSymbols,
+                    Math.max(2 * this.freeSymbols.length, this.freeSymbolCount + this.removedSymbolCount));
+        }
+        for (int i = 0; i < this.removedSymbolCount; ++i) {
+            final int symbol = this.removedSymbols[i];
+            ++this.versions[symbol];
+            this.freeSymbols[this.freeSymbolCount++] = symbol;
+        }
+        this.removedSymbolCount = 0;
+    }
+
+    private boolean singleEquals(final int symbol, final int other) {
+        return this.types[symbol] != DUMMY
+                && this.types[symbol] == this.types[other]
+                && this.counts[symbol] == this.counts[other]
+                && this.values[symbol] == this.values[other];
+    }
+
+    private boolean digramEquals(final int symbol, final int other) {
+        return singleEquals(symbol, other) && singleEquals(this.nexts[symbol], this.nexts[other]);
+    }
+
+    private long digramKey(final int symbol) {
+        final int next = this.nexts[symbol];
+        long key = (((long) this.values[symbol] << 32) | (this.counts[symbol] & 0xFFFFFFFFL)) + this.types[symbol];
+        key = key * 0x9E3779B97F4A7C15L
+                + (((long) this.values[next] << 32) | (this.counts[next] & 0xFFFFFFFFL)) + 31 * this.types[next];
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private int getHeader(final int symbol) {
+        assert this.counts[symbol] >= 1;
+        if (this.types[symbol] == TERMINAL) {
+            return this.counts[symbol] == 1 ? 2 : 3;
+        } else {
+            return this.counts[symbol] == 1 ? 0 : 1;
+        }
+    }
+
+    // ----- rules -----
+
+    private int newRule(final int first, final int second) {
+        final int rule = newRule(true);
+        final int dummy = this.ruleDummies[rule];
+        linkTogether(dummy, first);
+        linkTogether(first, second);
+        linkTogether(second, dummy);
+        return rule;
+    }
+
+    private void append(final int rule, final int newSymbol) {
+        // the dummy marks both the start and the end of the rule
+        insertBefore(this.ruleDummies[rule], newSymbol);
+        checkDigram(this.prevs[newSymbol]);
+    }
+
+    private boolean mayBeReused(final int rule) {
+        return this.ruleUseCounts[rule] >= 0;
+    }
+
+    private void incUseCount(final int rule) {
+        if (this.ruleUseCounts[rule] != -1) {
+            ++this.ruleUseCounts[rule];
+        }
+    }
+
+    private void decUseCount(final int rule) {
+        if (this.ruleUseCounts[rule] != -1) {
+            --this.ruleUseCounts[rule];
+        }
+    }
+
+    private long getRuleNr(final int rule, final SingleLinkedIntArrayQueue queue) {
+        int nr = this.ruleNumbers[rule];
+        if (nr == NONE) {
+            if (queue != null) {
+                queue.addNoAutoBoxing(rule);
+            }
+            nr = this.nextRuleNumber++;
+            // this rule must not be removed!!
+            incUseCount(rule);
+            this.ruleNumbers[rule] = nr;
+            if (nr == this.rulesByNumber.length) {
+                this.rulesByNumber = Arrays.copyOf(this.rulesByNumber, 2 * this.rulesByNumber.length);
+            }
+            this.rulesByNumber[nr] = rule;
+        }
+        return nr;
+    }
+
+    // returns the first and the last symbol of the copy
+    private int[] cloneRule(final int rule) {
+        final int dummy = this.ruleDummies[rule];
+        final int firstSym = cloneSymbol(this.nexts[dummy]);
+        int lastSym = firstSym;
+        while (this.nexts[lastSym] != dummy) {
+            final int new2 = cloneSymbol(this.nexts[lastSym]);
+            linkTogether(lastSym, new2);
+            lastSym = new2;
+        }
+        return new int[]{firstSym, lastSym};
+    }
+
+    private void ensureRuleInvariants(final int startRule) {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            final SingleLinkedIntArrayQueue queue = new SingleLinkedIntArrayQueue(20);
+            final BitSet ready = new BitSet();
+            queue.addNoAutoBoxing(startRule);
+            ready.set(startRule);
+
+            outer:
+            while (!queue.isEmpty()) {
+                final int rule = queue.removeNoAutoBoxing();
+                if (this.ruleUseCounts[rule] == 0)
+                    continue;
+                final int dummy = this.ruleDummies[rule];
+                for (int s = this.nexts[dummy]; s != dummy; s = this.nexts[s]) {
+                    if (this.types[s] == NON_TERMINAL) {
+                        final int r2 = this.values[s];
+                        final int dummy2 = this.ruleDummies[r2];
+                        if (this.nexts[this.nexts[dummy2]] == dummy2
+                                || (this.ruleUseCounts[r2] == 1 && this.counts[s] == 1)) {
+                            if (this.types[this.prevs[s]] != DUMMY)
+                                removeDigram(this.prevs[s]);
+                            if (this.types[this.nexts[s]] != DUMMY)
+                                removeDigram(s);
+                            remove(s);
+                            final int[] cloned = cloneRule(r2);
+                            // (the count of a removed symbol is always 0, like in Rule)
+                            if (this.counts[s] > 1)
+                                this.counts[cloned[0]] *= this.counts[s];
+                            linkTogether(this.prevs[s], cloned[0]);
+                            linkTogether(cloned[1], this.nexts[s]);
+                            if (!checkDigram(this.prevs[s]))
+                                checkDigram(s);
+                            queue.addNoAutoBoxing(rule);
+                            changed = true;
+                            continue outer;
+                        } else if (!ready.get(r2)) {
+                            ready.set(r2);
+                            queue.addNoAutoBoxing(r2);
+                        }
+                    }
+                }
+            }
+        }
+        final int dummy = this.ruleDummies[startRule];
+        while (this.nexts[this.nexts[dummy]] == dummy && this.types[this.nexts[dummy]] == NON_TERMINAL
+                && this.counts[this.nexts[dummy]] == 1) {
+            final int s = this.nexts[dummy];
+            remove(s);
+            if (this.types[this.prevs[s]] != DUMMY)
+                removeDigram(this.prevs[s]);
+            if (this.types[this.nexts[s]] != DUMMY)
+                removeDigram(s);
+            final int[] cloned = cloneRule(this.values[s]);
+            linkTogether(this.prevs[s], cloned[0]);
+            linkTogether(cloned[1], this.nexts[s]);
+            if (!checkDigram(this.prevs[s]))
+                checkDigram(s);
+        }
+    }
+
+    private void writeOutRule(final int rule, final ObjectOutputStream objOut,
+                              final ObjectWriter objectWriter, final SingleLinkedIntArrayQueue ruleQueue)
+            throws IOException {
+        final int dummy = this.ruleDummies[rule];
+        final int useCount = this.ruleUseCounts[rule];
+        int header = 0;
+        long written;
+        int next = this.nexts[dummy];
+        for (written = 0; written < 3 && next != dummy; ++written, next = this.nexts[next])
+            header |= (getHeader(next) << (4 - 2 * written));
+        assert (written >= 2 && written <= 3) || (written >= 0 && useCount == -1);
+        if (next == dummy && (useCount != -1 || written == 2 || written == 3)) {
+            header |= written == 2 ? (2 << 6) : (3 << 6);
+            objOut.write(header);
+        } else {
+            header |= 1 << 6;
+            objOut.write(header);
+
+            DataOutput.writeInt(objOut, numSymbols(rule));
+
+            int pos = 4;
+            int b = 0;
+            for (; next != dummy; next = this.nexts[next]) {
+                if (--pos == -1) {
+                    objOut.write(b);
+                    pos = 3;
+                    b = 0;
+                }
+                b |= getHeader(next) << (2 * pos);
+            }
+            if (pos != 4)
+                objOut.write(b);
+        }
+
+        for (int s = this.nexts[dummy]; s != dummy; s = this.nexts[s]) {
+            assert this.counts[s] >= 1;
+            if (this.counts[s] != 1) {
+                DataOutput.writeInt(objOut, this.counts[s]);
+            }
+            if (this.types[s] == TERMINAL) {
+                if (objectWriter == null)
+                    DataOutput.writeInt(objOut, this.values[s]);
+                else
+                    objectWriter.writeObject(this.values[s], objOut);
+            } else {
+                DataOutput.writeLong(objOut, getRuleNr(this.values[s], ruleQueue));
+            }
+        }
+    }
+
+    private void writeOutRule(final int rule, final CompactDataOutput out,
+                              final SingleLinkedIntArrayQueue ruleQueue) throws IOException {
+        final int dummy = this.ruleDummies[rule];
+        out.writeRuleStart(numSymbols(rule));
+        for (int s = this.nexts[dummy]; s != dummy; s = this.nexts[s]) {
+            if (this.types[s] == TERMINAL) {
+                out.writeTerminal(this.values[s], this.counts[s]);
+            } else {
+                out.writeNonTerminal(getRuleNr(this.values[s], ruleQueue), this.counts[s]);
+            }
+        }
+    }
+
+    private int numSymbols(final int rule) throws IOException {
+        final int dummy = this.ruleDummies[rule];
+        int length = 0;
+        for (int s = this.nexts[dummy]; s != dummy; s = this.nexts[s])
+            if (length++ == 1 << 30)
+                throw new IOException("Rule length > 1<<30!!");
+        return length;
+    }
+
+    // ----- digrams -----
+
+    /**
+     * Checks a new digram. If it appears
+     * elsewhere, deals with it by calling
+     * match(), otherwise inserts it into the
+     * hash table.
+     *
+     * @return whether or not there was a substitution
+     */
+    private boolean checkDigram(final int first) {
+        // dummies (and removed symbols) have count 0
+        if (this.counts[first] == 0 || this.counts[this.nexts[first]] == 0)
+            return false;
+
+        if (meltDigram(first))
+            return true;
+
+        final int oldDigram = this.digrams.getOrPut(first);
+        if (oldDigram == NONE || oldDigram == first)
+            return false;
+
+        match(first, oldDigram);
+        return true;
+    }
+
+    private void removeDigram(final int symbol) {
+        if (this.types[symbol] == DUMMY || this.types[this.nexts[symbol]] == DUMMY)
+            return;
+        // only remove the digram if the stored symbol is the same symbol!
+        this.digrams.removeIfMapped(symbol);
+    }
+
+    /**
+     * Tries to melt the symbol with its successor. Only possible if the successor
+     * is the same terminal or a non-terminal of the same rule.
+     */
+    private boolean meltDigram(final int symbol) {
+        final byte type = this.types[symbol];
+        final int other = this.nexts[symbol];
+        if (type == DUMMY || this.types[other] != type || this.values[other] != this.values[symbol])
+            return false;
+
+        final boolean hasPrev = this.types[this.prevs[symbol]] != DUMMY;
+        final boolean hasNextNext = this.types[this.nexts[other]] != DUMMY;
+        if (hasPrev)
+            removeDigram(this.prevs[symbol]);
+        if (hasNextNext)
+            removeDigram(other);
+        this.counts[symbol] += this.counts[other];
+        remove(other);
+        if (hasPrev)
+            checkDigram(this.prevs[symbol]);
+        if (hasNextNext)
+            checkDigram(symbol);
+        return true;
+    }
+
+    /**
+     * Replaces the symbol and its successor with a non-terminal representing the given rule.
+     */
+    private void substituteDigram(final int symbol, final int rule) {
+        removeDigram(this.prevs[symbol]);
+        removeDigram(symbol);
+        removeDigram(this.nexts[symbol]);
+        remove(symbol); // the links of the symbol are still intact
+        final int next = this.nexts[symbol];
+        remove(next); // the links of the next symbol are still intact
+        final int newSymbol = newNonTerminal(rule);
+        insertBefore(this.nexts[next], newSymbol);
+
+        // if the digram starting at the preceeding symbol is substituted, then
+        // the digram starting at this symbol is already checked
+        if (!checkDigram(this.prevs[newSymbol]))
+            checkDigram(newSymbol);
+    }
+
+    /**
+     * Replaces the non-terminal with the contents of its rule;
+     * works only if the rule is only used once.
+     */
+    private void checkExpand(final int nonTerminal) {
+        final int rule = this.values[nonTerminal];
+        assert this.counts[nonTerminal] >= 1;
+        if (this.counts[nonTerminal] == 1 && this.ruleUseCounts[rule] == 1) {
+            final int dummy = this.ruleDummies[rule];
+            removeDigram(this.prevs[nonTerminal]);
+            removeDigram(nonTerminal);
+            remove(nonTerminal);
+            linkTogether(this.prevs[nonTerminal], this.nexts[dummy]);
+            linkTogether(this.prevs[dummy], this.nexts[nonTerminal]);
+            checkDigram(this.prevs[nonTerminal]);
+            checkDigram(this.prevs[dummy]);
+        }
+    }
+
+    private boolean checkSubstRule(final int nonTerminal) {
+        assert this.counts[nonTerminal] >= 1;
+        final int dummy = this.ruleDummies[this.values[nonTerminal]];
+        // only works if rule is of length one...
+        if (this.nexts[this.nexts[dummy]] != dummy)
+            return false;
+
+        removeDigram(this.prevs[nonTerminal]);
+        removeDigram(nonTerminal);
+
+        // replace the non-terminal with the right side of the rule
+        final int newSymbol = cloneSymbol(this.nexts[dummy]);
+        this.counts[newSymbol] *= this.counts[nonTerminal];
+        remove(nonTerminal);
+        insertBefore(this.nexts[nonTerminal], newSymbol);
+        if (!checkDigram(this.prevs[nonTerminal]))
+            checkDigram(nonTerminal);
+        return true;
+    }
+
+    private void checkExpandFirst(final int rule) {
+        if (this.ruleUseCounts[rule] > 0) {
+            final int first = this.nexts[this.ruleDummies[rule]];
+            if (this.types[first] == NON_TERMINAL)
+                checkExpand(first);
+        }
+    }
+
+    private void match(final int newDigram, final int oldDigram) {
+        int rule;
+
+        // newDigram is a non-repeated non-terminal/rule which is used twice;
+        // this means, we have to replace the rule with its right side, since it...
+        if (this.types[newDigram] == NON_TERMINAL && this.counts[newDigram] == 1
+                && this.ruleUseCounts[rule = this.values[newDigram]] == 2) {
+            assert this.types[oldDigram] == NON_TERMINAL && this.values[oldDigram] == rule;
+
+            // remove the successor in both digrams and add it to the non-terminal's rule
+            final int next = this.nexts[newDigram];
+            removeDigram(next);
+            linkTogether(newDigram, this.nexts[next]);
+            removeDigram(oldDigram);
+            removeDigram(this.nexts[oldDigram]);
+            remove(this.nexts[oldDigram]);
+            append(rule, next);
+
+            // check if the length of the rule's right side is 1 after appending the new symbol
+            // and, if so, substitute the non-terminal with the right side
+            if (this.counts[newDigram] != 0 && checkSubstRule(newDigram))
+                return;
+            if (this.counts[oldDigram] != 0 && checkSubstRule(oldDigram))
+                return;
+
+            final int dummy = this.ruleDummies[rule];
+            // newDigram is the only symbol in its rule
+            if (this.prevs[newDigram] == this.nexts[newDigram]
+                    && mayBeReused(this.values[this.nexts[newDigram]])) {
+                final int otherRule = this.values[this.nexts[newDigram]];
+                // rule is expanded inside the otherRule, since otherRule consisted of only this one nonterminal
+                removeDigram(this.prevs[oldDigram]);
+                removeDigram(oldDigram);
+                linkTogether(this.nexts[newDigram], this.nexts[dummy]);
+                linkTogether(this.prevs[dummy], this.nexts[newDigram]);
+                remove(oldDigram);
+                insertBefore(this.nexts[oldDigram], newNonTerminal(otherRule));
+                checkDigram(this.prevs[oldDigram]);
+                checkDigram(this.nexts[oldDigram]);
+            } else
+
+                // oldDigram is the only symbol in its rule
+                if (this.prevs[oldDigram] == this.nexts[oldDigram]
+                        && mayBeReused(this.values[this.nexts[oldDigram]])) {
+                    final int otherRule = this.values[this.nexts[oldDigram]];
+                    // rule is expanded inside the otherRule, since otherRule consisted of only this one nonterminal
+                    removeDigram(this.prevs[newDigram]);
+                    removeDigram(newDigram);
+                    int firstSubst = this.nexts[dummy];
+                    int lastSubst = this.prevs[dummy];
+                    // if rule is used more than twice (in newDigram and oldDigram), we have to clone it
+                    if (this.ruleUseCounts[rule] > 2) {
+                        firstSubst = cloneSymbol(this.nexts[dummy]);
+                        int s = firstSubst;
+                        while (this.nexts[s] != lastSubst) {
+                            final int clone = cloneSymbol(this.nexts[s]);
+                            linkTogether(s, clone);
+                            s = clone;
+                        }
+                        lastSubst = cloneSymbol(lastSubst);
+                        linkTogether(s, lastSubst);
+                    }
+                    linkTogether(this.nexts[oldDigram], firstSubst);
+                    linkTogether(lastSubst, this.nexts[oldDigram]);
+                    remove(newDigram);
+                    insertBefore(this.nexts[newDigram], newNonTerminal(otherRule));
+                    checkDigram(this.prevs[newDigram]);
+                    checkDigram(this.nexts[newDigram]);
+                } else {
+                    checkDigram(newDigram);
+                    checkDigram(oldDigram);
+                }
+        } else
+
+            // the old digram's rule consists of only 2 (non-dummy) symbols
+            if (this.prevs[oldDigram] == this.nexts[this.nexts[oldDigram]]
+                    && mayBeReused(rule = this.values[this.prevs[oldDigram]])) {
+                // substitute the new digram with the old digram's rule
+                substituteDigram(newDigram, rule);
+                checkExpandFirst(rule);
+            } else
+
+                // the new digram's rule consists of only 2 (non-dummy) symbols
+                if (this.prevs[newDigram] == this.nexts[this.nexts[newDigram]]
+                        && mayBeReused(rule = this.values[this.prevs[newDigram]])) {
+                    // substitute the old digram with new digram's rule
+                    substituteDigram(oldDigram, rule);
+                    checkExpandFirst(rule);
+                } else
+
+                // we are either dealing with terminal symbols,
+                // (melted) non-terminal symbols,
+                // non-terminal symbols that have been used more than twice,
+                // symbols whose rules contain multiple symbols
+                {
+                    // create a new rule that consists of the new digram
+                    final int clone = cloneSymbol(newDigram);
+                    rule = newRule(clone, cloneSymbol(this.nexts[newDigram]));
+                    // explicit removal is necessary, since we care for the actual symbol that is inserted
+                    this.digrams.remove(clone);
+                    this.digrams.put(clone);
+                    substituteDigram(newDigram, rule);
+                    substituteDigram(oldDigram, rule);
+                    checkExpandFirst(rule);
+                }
+    }
+
+    @Override
+    public String toString() {
+        return "CompactGrammar [symbols: " + (this.symbolLimit - this.freeSymbolCount)
+                + ", rules: " + this.ruleLimit + ", digrams: " + this.digrams.size() + "]";
+    }
+
+    String toString(final int rule) {
+        final StringBuilder sb = new StringBuilder();
+        final int dummy = this.ruleDummies[rule];
+        for (int s = this.nexts[dummy]; s != dummy; s = this.nexts[s]) {
+            if (s != this.nexts[dummy])
+                sb.append(' ');
+            if (this.types[s] == NON_TERMINAL)
+                sb.append('R').append(this.values[s]);
+            else
+                sb.append(this.values[s]);
+            if (this.counts[s] > 1)
+                sb.append('^').append(this.counts[s]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Open addressing (linear probing) hash table that maps digrams to the
+     * symbol that starts the digram. Mirrors the semantics of the hash map
+     * in {@link Grammar}: each entry keeps the key that was computed on insertion,
+     * and entries are compared with the current contents of the stored symbols.
+     * Entries of released symbols are ignored.
+     */
+    private final class DigramTable {
+
+        private static final int EMPTY = -1;
+        private static final int DELETED = -2;
+
+        private long[] keys;
+        private int[] keySymbols;
+        private int[] keyVersions;
+        private int[] valueSymbols;
+        private int mask;
+        // number of non-empty slots (including deleted entries)
+        private int used = 0;
+        private int size = 0;
+
+        private DigramTable(final int capacity) {
+            allocate(capacity);
+        }
+
+        private void allocate(final int capacity) {
+            this.keys = new long[capacity];
+            this.keySymbols = new int[capacity];
+            Arrays.fill(this.keySymbols, EMPTY);
+            this.keyVersions = new int[capacity];
+            this.valueSymbols = new int[capacity];
+            this.mask = capacity - 1;
+            this.used = 0;
+            this.size = 0;
+        }
+
+        private int size() {
+            return this.size;
+        }
+
+        private int find(final int symbol, final long key) {
+            for (int i = (int) key & this.mask; ; i = (i + 1) & this.mask) {
+                final int stored = this.keySymbols[i];
+                if (stored == EMPTY) {
+                    return -1 - i;
+                }
+                if (stored >= 0 && this.keys[i] == key) {
+                    if (CompactGrammar.this.versions[stored] != this.keyVersions[i]) {
+                        // the symbol has been released
+                        this.keySymbols[i] = DELETED;
+                        --this.size;
+                    } else if (stored == symbol || digramEquals(symbol, stored)) {
+                        return i;
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return the symbol that is mapped to an equal digram, or {@link #NONE}
+         * if there is no such digram, in which case the given symbol is added
+         */
+        private int getOrPut(final int symbol) {
+            ensureCapacity();
+            final long key = digramKey(symbol);
+            final int slot = find(symbol, key);
+            if (slot >= 0) {
+                return this.valueSymbols[slot];
+            }
+            insert(-1 - slot, symbol, key);
+            return NONE;
+        }
+
+        private void put(final int symbol) {
+            ensureCapacity();
+            final long key = digramKey(symbol);
+            final int slot = find(symbol, key);
+            if (slot >= 0) {
+                // like a hash map, keep the key and replace the value
+                this.valueSymbols[slot] = symbol;
+            } else {
+                insert(-1 - slot, symbol, key);
+            }
+        }
+
+        private void remove(final int symbol) {
+            final int slot = find(symbol, digramKey(symbol));
+            if (slot >= 0) {
+                this.keySymbols[slot] = DELETED;
+                --this.size;
+            }
+        }
+
+        private void removeIfMapped(final int symbol) {
+            final int slot = find(symbol, digramKey(symbol));
+            if (slot >= 0 && this.valueSymbols[slot] == symbol) {
+                this.keySymbols[slot] = DELETED;
+                --this.size;
+            }
+        }
+
+        private void insert(final int slot, final int symbol, final long key) {
+            this.keys[slot] = key;
+            this.keySymbols[slot] = symbol;
+            this.keyVersions[slot] = CompactGrammar.this.versions[symbol];
+            this.valueSymbols[slot] = symbol;
+            ++this.used;
+            ++this.size;
+        }
+
+        private void ensureCapacity() {
+            final int capacity = this.keys.length;
+            if (2 * (this.used + 1) <= capacity) {
+                return;
+            }
+            final long[] oldKeys = this.keys;
+            final int[] oldKeySymbols = this.keySymbols;
+            final int[] oldKeyVersions = this.keyVersions;
+            final int[] oldValueSymbols = this.valueSymbols;
+            // only grow if the table is mostly filled with live entries
+            allocate(4 * (this.size + 1) > capacity ? 2 * capacity : capacity);
+            // start at an empty slot to keep the order of entries with the same key
+            int start = 0;
+            while (oldKeySymbols[start] != EMPTY) {
+                ++start;
+            }
+            for (int j = 0; j < capacity; ++j) {
+                final int i = (start + j) & (capacity - 1);
+                final int stored = oldKeySymbols[i];
+                if (stored >= 0 && CompactGrammar.this.versions[stored] == oldKeyVersions[i]) {
+                    int slot = (int) oldKeys[i] & this.mask;
+                    while (this.keySymbols[slot] != EMPTY) {
+                        slot = (slot + 1) & this.mask;
+                    }
+                    this.keys[slot] = oldKeys[i];
+                    this.keySymbols[slot] = stored;
+                    this.keyVersions[slot] = oldKeyVersions[i];
+                    this.valueSymbols[slot] = oldValueSymbols[i];
+                    ++this.used;
+                    ++this.size;
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,166 @@
+package se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.data.CoverageIgnore;
+
+/**
+ * Drop-in replacement for {@link OutputSequence} that is backed by a
+ * {@link CompactGrammar}. Appending values does not allocate any objects
+ * (apart from occasionally growing the underlying arrays), and the written
+ * sequence is identical to the one written by an {@link OutputSequence}
+ * with the same input. The written sequences can be read with
+ * {@link se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.input.InputSequence}.
+ */
+@CoverageIgnore
+public class CompactOutputSequence {
+
+    private final CompactGrammar grammar;
+    protected final int firstRule;
+    protected int firstValue = -1;
+    private final ObjectWriter objectWriter;
+    private int lastValue = Symbol.NULL_VALUE;
+    private int lastValueCount = 0;
+
+    private long length = 0;
+
+    public CompactOutputSequence() {
+        this(new CompactGrammar(), null);
+    }
+
+    public CompactOutputSequence(final SharedCompactOutputGrammar g) {
+        this(g.grammar, g.objectWriter);
+    }
+
+    public CompactOutputSequence(final ObjectWriter objectWriter) {
+        this(new CompactGrammar(), objectWriter);
+    }
+
+    private CompactOutputSequence(final CompactGrammar grammar, final ObjectWriter objectWriter) {
+        this.grammar = grammar;
+        this.firstRule = grammar.newRule(false);
+        this.objectWriter = objectWriter;
+        grammar.newSequence(this);
+    }
+
+    public int getFirstValue() {
+        return firstValue;
+    }
+
+    public void append(final int obj) {
+        if (length == 0) {
+            firstValue = obj;
+        }
+        ++length;
+        if (this.lastValueCount == 0) {
+            this.lastValue = obj;
+            this.lastValueCount = 1;
+        } else if (this.lastValue == obj) {
+            if (++this.lastValueCount == Integer.MAX_VALUE) {
+                this.grammar.append(this.firstRule, this.lastValue, this.lastValueCount);
+                this.lastValue = Symbol.NULL_VALUE;
+                this.lastValueCount = 0;
+            }
+        } else {
+            this.grammar.append(this.firstRule, this.lastValue, this.lastValueCount);
+            this.lastValue = obj;
+            this.lastValueCount = 1;
+        }
+    }
+
+    public void appendConcurrent(final int obj) {
+        if (grammar.isLocked()) {
+            System.err.println("Grammar locked!");
+            return;
+        }
+        if (length == 0) {
+            firstValue = obj;
+        }
+        ++length;
+        if (this.lastValueCount == 0) {
+            this.lastValue = obj;
+            this.lastValueCount = 1;
+        } else if (this.lastValue == obj) {
+            if (++this.lastValueCount == Integer.MAX_VALUE) {
+                appendLocked(this.lastValue, this.lastValueCount);
+                this.lastValue = Symbol.NULL_VALUE;
+                this.lastValueCount = 0;
+            }
+        } else {
+            appendLocked(this.lastValue, this.lastValueCount);
+            this.lastValue = obj;
+            this.lastValueCount = 1;
+        }
+    }
+
+    private void appendLocked(final int value, final int count) {
+        grammar.lock.lock();
+        try {
+            this.grammar.append(this.firstRule, value, count);
+        } finally {
+            grammar.lock.unlock();
+        }
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public long getStartRuleNumber() {
+        return this.grammar.getRuleNr(this.firstRule);
+    }
+
+    public void writeOut(final ObjectOutputStream objOut, final boolean includeGrammar) throws IOException {
+        flush();
+        if (includeGrammar)
+            writeOutGrammar(objOut);
+        DataOutput.writeLong(objOut, getStartRuleNumber());
+    }
+
+    public void writeOutGrammar(final ObjectOutputStream objOut) throws IOException {
+        flush();
+        this.grammar.writeOut(objOut, this.objectWriter);
+    }
+
+    /**
+     * Writes this sequence in the compact wire format (see {@link CompactDataOutput}).
+     * Not supported for sequences with a custom {@link ObjectWriter}.
+     *
+     * @param out            the output to write to
+     * @param includeGrammar whether to include the grammar; if not, the grammar has
+     *                       to be written separately (e.g. if it is shared)
+     * @throws IOException if a rule is too long
+     */
+    public void writeOut(final CompactDataOutput out, final boolean includeGrammar) throws IOException {
+        if (this.objectWriter != null)
+            throw new UnsupportedOperationException("Custom object writers need an ObjectOutputStream");
+        flush();
+        out.writeHeader(includeGrammar ? CompactDataOutput.KIND_SEQUENCE : CompactDataOutput.KIND_SEQUENCE_REFERENCE);
+        if (includeGrammar)
+            this.grammar.writeOut(out);
+        out.writeVarLong(getStartRuleNumber());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(this.grammar.toString(this.firstRule));
+        if (this.lastValueCount > 0) {
+            sb.append("  + ").append(this.lastValueCount).append('x').append(this.lastValue);
+        }
+        return sb.toString();
+    }
+
+    public void ensureInvariants() {
+        this.grammar.ensureInvariants(this.firstRule);
+    }
+
+    public void flush() {
+        if (this.lastValueCount > 0) {
+            this.grammar.append(this.firstRule, this.lastValue, this.lastValueCount);
+            this.lastValue = Symbol.NULL_VALUE;
+            this.lastValueCount = 0;
+        }
+    }
+
+}
@@ -294,6 +294,33 @@ class Grammar {
 
     public void writeOut(final ObjectOutputStream objOut, final ObjectWriter objectWriter)
             throws IOException {
+        final Queue<Rule> ruleQueue = prepareWriteOut();
+
+        long ruleNr = 0;
+        while (!ruleQueue.isEmpty()) {
+            final Rule rule = ruleQueue.poll();
+            assert getRuleNr(rule) == ruleNr;
+            ++ruleNr;
+            rule.writeOut(objOut, this, objectWriter, ruleQueue);
+            
+//            if (ruleNr % 1000 == 0) {
+//                System.out.print(':');
+//                if (ruleNr % 100000 == 0)
+//                    System.out.println(String.format("%,d", ruleNr));
+//            }
+        }
+        objOut.write(0); // mark end of rules
+    }
+
+    public void writeOut(final CompactDataOutput out) throws IOException {
+        final Queue<Rule> ruleQueue = prepareWriteOut();
+        while (!ruleQueue.isEmpty()) {
+            ruleQueue.poll().writeOut(out, this, ruleQueue);
+        }
+        out.writeEndOfRules();
+    }
+
+    private Queue<Rule> prepareWriteOut() {
         final Queue<Rule> ruleQueue = new SingleLinkedArrayQueue<Rule>(50);
         // first, fill in already written rules
         // take care of the order!
@@ -333,21 +360,7 @@ class Grammar {
         }
         for (final Rule rule : ruleQueue)
             rule.ensureInvariants(this);
-
-        long ruleNr = 0;
-        while (!ruleQueue.isEmpty()) {
-            final Rule rule = ruleQueue.poll();
-            assert getRuleNr(rule) == ruleNr;
-            ++ruleNr;
-            rule.writeOut(objOut, this, objectWriter, ruleQueue);
-            
-//            if (ruleNr % 1000 == 0) {
-//                System.out.print(':');
-//                if (ruleNr % 100000 == 0)
-//                    System.out.println(String.format("%,d", ruleNr));
-//            }
-        }
-        objOut.write(0); // mark end of rules
+        return ruleQueue;
     }
 
     private Rule[] newRuleArray(final int dim) {
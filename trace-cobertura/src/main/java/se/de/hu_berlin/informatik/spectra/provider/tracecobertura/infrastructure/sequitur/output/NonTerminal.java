@@ -145,6 +145,11 @@ class NonTerminal extends Symbol {
         DataOutput.writeLong(objOut, grammar.getRuleNr(this.rule, queue));
     }
 
+    @Override
+    public void writeOut(final CompactDataOutput out, final Grammar grammar, final Queue<Rule> queue) {
+        out.writeNonTerminal(grammar.getRuleNr(this.rule, queue), this.count);
+    }
+
     @Override
     protected NonTerminal clone() {
         final NonTerminal clone = (NonTerminal) super.clone();
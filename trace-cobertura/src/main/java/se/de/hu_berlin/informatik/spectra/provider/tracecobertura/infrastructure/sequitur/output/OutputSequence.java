@@ -137,6 +137,25 @@ public class OutputSequence {
         DataOutput.writeLong(objOut, getStartRuleNumber());
     }
 
+    /**
+     * Writes this sequence in the compact wire format (see {@link CompactDataOutput}).
+     * Not supported for sequences with a custom {@link ObjectWriter}.
+     *
+     * @param out            the output to write to
+     * @param includeGrammar whether to include the grammar; if not, the grammar has
+     *                       to be written separately (e.g. if it is shared)
+     * @throws IOException if a rule is too long
+     */
+    public void writeOut(final CompactDataOutput out, final boolean includeGrammar) throws IOException {
+        if (this.objectWriter != null)
+            throw new UnsupportedOperationException("Custom object writers need an ObjectOutputStream");
+        flush();
+        out.writeHeader(includeGrammar ? CompactDataOutput.KIND_SEQUENCE : CompactDataOutput.KIND_SEQUENCE_REFERENCE);
+        if (includeGrammar)
+            this.grammar.writeOut(out);
+        out.writeVarLong(getStartRuleNumber());
+    }
+
     public void writeOutGrammar(final ObjectOutputStream objOut) throws IOException {
         flush();
         this.grammar.writeOut(objOut, this.objectWriter);
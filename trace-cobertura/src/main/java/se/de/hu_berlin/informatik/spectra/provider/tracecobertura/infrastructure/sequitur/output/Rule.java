@@ -81,6 +81,11 @@ class Rule {
                              final Queue<Rule> queue) {
             assert false;
         }
+
+        @Override
+        public void writeOut(final CompactDataOutput out, final Grammar grammar, final Queue<Rule> queue) {
+            assert false;
+        }
     }
 
     protected final Dummy dummy;
@@ -166,6 +171,14 @@ class Rule {
         }
     }
 
+    public void writeOut(final CompactDataOutput out, final Grammar grammar,
+                         final Queue<Rule> ruleQueue) throws IOException {
+        out.writeRuleStart(numSymbols());
+        for (Symbol s = this.dummy.next; s != this.dummy; s = s.next) {
+            s.writeOut(out, grammar, ruleQueue);
+        }
+    }
+
     private int numSymbols() throws IOException {
         int length = 0;
         for (Symbol s = this.dummy.next; s != this.dummy; s = s.next)
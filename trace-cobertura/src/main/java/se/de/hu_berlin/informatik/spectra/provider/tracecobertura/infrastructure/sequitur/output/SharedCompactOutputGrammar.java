@@ -0,0 +1,54 @@
+package se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.data.CoverageIgnore;
+
+/**
+ * Drop-in replacement for {@link SharedOutputGrammar} that is backed by a
+ * {@link CompactGrammar}. To be used with {@link CompactOutputSequence}.
+ */
+@CoverageIgnore
+public class SharedCompactOutputGrammar {
+
+    protected final CompactGrammar grammar;
+    protected final ObjectWriter objectWriter;
+
+    public SharedCompactOutputGrammar() {
+        this(null);
+    }
+
+    public SharedCompactOutputGrammar(final ObjectWriter objectWriter) {
+        this.grammar = new CompactGrammar();
+        this.objectWriter = objectWriter;
+    }
+
+    public void writeOut(final ObjectOutputStream objOut) throws IOException {
+        this.grammar.writeOut(objOut, this.objectWriter);
+    }
+
+    /**
+     * Writes this grammar in the compact wire format (see {@link CompactDataOutput}).
+     * Not supported for grammars with a custom {@link ObjectWriter}.
+     *
+     * @param out the output to write to
+     * @throws IOException if a rule is too long
+     */
+    public void writeOut(final CompactDataOutput out) throws IOException {
+        if (this.objectWriter != null)
+            throw new UnsupportedOperationException("Custom object writers need an ObjectOutputStream");
+        out.writeHeader(CompactDataOutput.KIND_GRAMMAR);
+        this.grammar.writeOut(out);
+    }
+
+    @Override
+    public String toString() {
+        return this.grammar.toString();
+    }
+
+    public void lock() {
+        this.grammar.lock();
+    }
+
+}
@@ -54,6 +54,20 @@ public class SharedOutputGrammar {
         this.grammar.writeOut(objOut, this.objectWriter);
     }
 
+    /**
+     * Writes this grammar in the compact wire format (see {@link CompactDataOutput}).
+     * Not supported for grammars with a custom {@link ObjectWriter}.
+     *
+     * @param out the output to write to
+     * @throws IOException if a rule is too long
+     */
+    public void writeOut(final CompactDataOutput out) throws IOException {
+        if (this.objectWriter != null)
+            throw new UnsupportedOperationException("Custom object writers need an ObjectOutputStream");
+        out.writeHeader(CompactDataOutput.KIND_GRAMMAR);
+        this.grammar.writeOut(out);
+    }
+
     @Override
     public String toString() {
         return this.grammar.toString();
@@ -148,4 +148,6 @@ abstract class Symbol implements Cloneable {
                                   ObjectWriter objectWriter, Queue<Rule> queue)
             throws IOException;
 
+    public abstract void writeOut(final CompactDataOutput out, Grammar grammar, Queue<Rule> queue);
+
 }
@@ -90,6 +90,11 @@ class Terminal extends Symbol {
             objectWriter.writeObject(this.value, objOut);
     }
 
+    @Override
+    public void writeOut(final CompactDataOutput out, final Grammar grammar, final Queue<Rule> queue) {
+        out.writeTerminal(this.value, this.count);
+    }
+
     @Override
     protected boolean singleEquals(final Symbol obj) {
         if (obj.getClass() != this.getClass())
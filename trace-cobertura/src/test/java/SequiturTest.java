@@ -27,9 +27,18 @@
 import org.junit.Test;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.input.InputSequence;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.input.InputSequence.TraceIterator;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.input.SharedInputGrammar;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.SequiturUtils;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.SequiturUtils.Format;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output.CompactDataOutput;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output.CompactOutputSequence;
 import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output.OutputSequence;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output.SharedCompactOutputGrammar;
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output.SharedOutputGrammar;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Random;
 
 import static org.junit.Assert.*;
 
@@ -86,6 +95,157 @@ public class SequiturTest {
         assertEquals(74, bytes.length);
     }
 
+    @Test
+    public void compactGrammarWritesSameBytes() throws IOException {
+        int[] ints = concatenateArrays(a, b, e, c, d, d, d, a, a, c, b, b, a, e, c, c, d, d, d, a, d, a, b, e, a, b, c, a, b, c, e);
+        OutputSequence outSeq = new OutputSequence();
+        CompactOutputSequence compactSeq = new CompactOutputSequence();
+        for (int i = 0; i < ints.length; ++i) {
+            outSeq.append(ints[i]);
+            compactSeq.append(ints[i]);
+        }
+        assertArrayEquals(SequiturUtils.convertToByteArray(outSeq, true),
+                SequiturUtils.convertToByteArray(compactSeq, true));
+
+        Random rand = new Random(42);
+        for (int run = 0; run < 20; ++run) {
+            outSeq = new OutputSequence();
+            compactSeq = new CompactOutputSequence();
+            for (int i = 0; i < 5000; ++i) {
+                // repeat earlier parts of the sequence to produce some rules
+                int value = i > 10 && rand.nextBoolean() ? ints[rand.nextInt(ints.length)] : rand.nextInt(1 + run);
+                outSeq.append(value);
+                compactSeq.append(value);
+            }
+            byte[] bytes = SequiturUtils.convertToByteArray(compactSeq, true);
+            assertArrayEquals(SequiturUtils.convertToByteArray(outSeq, true), bytes);
+            assertEquals(5000, SequiturUtils.getInputSequenceFromByteArray(bytes).getLength());
+        }
+    }
+
+    @Test
+    public void compactSharedGrammarWritesSameBytes() throws IOException {
+        Random rand = new Random(4711);
+        SharedOutputGrammar sharedGrammar = new SharedOutputGrammar();
+        SharedCompactOutputGrammar sharedCompactGrammar = new SharedCompactOutputGrammar();
+        OutputSequence[] outSeqs = new OutputSequence[4];
+        CompactOutputSequence[] compactSeqs = new CompactOutputSequence[4];
+        for (int k = 0; k < outSeqs.length; ++k) {
+            outSeqs[k] = new OutputSequence(sharedGrammar);
+            compactSeqs[k] = new CompactOutputSequence(sharedCompactGrammar);
+        }
+        for (int i = 0; i < 20000; ++i) {
+            int k = rand.nextInt(outSeqs.length);
+            int value = rand.nextInt(10);
+            outSeqs[k].append(value);
+            compactSeqs[k].append(value);
+        }
+        for (int k = 0; k < outSeqs.length; ++k) {
+            assertArrayEquals(SequiturUtils.convertToByteArray(outSeqs[k], false),
+                    SequiturUtils.convertToByteArray(compactSeqs[k], false));
+        }
+        assertArrayEquals(SequiturUtils.convertToByteArray(sharedGrammar),
+                SequiturUtils.convertToByteArray(sharedCompactGrammar));
+    }
+
+    @Test
+    public void compactFormatRoundTrip() throws IOException {
+        Random rand = new Random(123);
+        int[] ints = new int[20000];
+        OutputSequence outSeq = new OutputSequence();
+        CompactOutputSequence compactSeq = new CompactOutputSequence();
+        for (int i = 0; i < ints.length; ++i) {
+            ints[i] = i > 10 && rand.nextBoolean() ? ints[rand.nextInt(10)] : rand.nextInt(100) - 50;
+            if (i % 1000 == 0) {
+                ints[i] = rand.nextBoolean() ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+            }
+            outSeq.append(ints[i]);
+            compactSeq.append(ints[i]);
+        }
+        byte[] javaBytes = SequiturUtils.convertToByteArray(compactSeq, true);
+        byte[] compactBytes = SequiturUtils.convertToByteArray(compactSeq, true, Format.COMPACT);
+        assertArrayEquals(SequiturUtils.convertToByteArray(outSeq, true, Format.COMPACT), compactBytes);
+        assertTrue(compactBytes.length < javaBytes.length);
+
+        // the format is detected automatically
+        assertSequenceEquals(ints, SequiturUtils.getInputSequenceFromByteArray(compactBytes));
+        assertSequenceEquals(ints, SequiturUtils.getInputSequenceFromByteArray(javaBytes));
+
+        // decode from the middle of a buffer
+        ByteBuffer buffer = ByteBuffer.allocate(compactBytes.length + 10);
+        buffer.position(10);
+        buffer.put(compactBytes);
+        buffer.position(10);
+        assertSequenceEquals(ints, SequiturUtils.getInputSequenceFromByteBuffer(buffer, null));
+        assertFalse(buffer.hasRemaining());
+
+        // empty sequence
+        assertEquals(0, SequiturUtils.getInputSequenceFromByteArray(
+                SequiturUtils.convertToByteArray(new CompactOutputSequence(), true, Format.COMPACT)).getLength());
+    }
+
+    @Test
+    public void compactFormatSharedGrammar() throws IOException {
+        Random rand = new Random(815);
+        SharedCompactOutputGrammar sharedGrammar = new SharedCompactOutputGrammar();
+        CompactOutputSequence[] outSeqs = new CompactOutputSequence[5];
+        int[][] ints = new int[outSeqs.length][3000];
+        for (int k = 0; k < outSeqs.length; ++k) {
+            outSeqs[k] = new CompactOutputSequence(sharedGrammar);
+        }
+        for (int i = 0; i < ints[0].length; ++i) {
+            for (int k = 0; k < outSeqs.length; ++k) {
+                ints[k][i] = rand.nextInt(8);
+                outSeqs[k].append(ints[k][i]);
+            }
+        }
+        // write grammar and all sequences into one buffer, then read them back in order
+        CompactDataOutput out = new CompactDataOutput(16);
+        sharedGrammar.writeOut(out);
+        for (CompactOutputSequence outSeq : outSeqs) {
+            outSeq.writeOut(out, false);
+        }
+        ByteBuffer buffer = out.getBuffer();
+        SharedInputGrammar inGrammar = SequiturUtils.getInputGrammarFromByteBuffer(buffer);
+        for (int k = 0; k < outSeqs.length; ++k) {
+            assertSequenceEquals(ints[k], SequiturUtils.getInputSequenceFromByteBuffer(buffer, inGrammar));
+        }
+        assertFalse(buffer.hasRemaining());
+
+        try {
+            SequiturUtils.getInputSequenceFromByteArray(
+                    SequiturUtils.convertToByteArray(outSeqs[0], false, Format.COMPACT));
+            fail("reading a sequence without its shared grammar should fail");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void compactFormatCorruptedRuleLength() throws IOException {
+        // a rule that claims to hold far more symbols than there are bytes left
+        CompactDataOutput out = new CompactDataOutput(16);
+        out.writeHeader(CompactDataOutput.KIND_SEQUENCE);
+        out.writeVarInt((1 << 30) + 1);
+        out.writeVarInt(2);
+        try {
+            SequiturUtils.getInputSequenceFromByteArray(out.toByteArray());
+            fail("reading a corrupted rule length should fail");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private static void assertSequenceEquals(int[] expected, InputSequence inSeq) {
+        assertEquals(expected.length, inSeq.getLength());
+        TraceIterator inIt = inSeq.iterator();
+        for (int i = 0; i < expected.length; ++i) {
+            assertTrue(inIt.hasNext());
+            assertEquals(expected[i], inIt.next());
+        }
+        assertFalse(inIt.hasNext());
+    }
+
 //    @Test
 //    public void sharedGrammar() {
 //        try {
@@ -220,6 +220,14 @@ public class BufferedArrayQueueTest {
         testIntQueue(queue);
     }
 
+    @Test
+    public void testBufferedIntArrayQueueWithMappedSegments() throws Exception {
+        BufferedIntArrayQueue queue = new BufferedIntArrayQueue(outputDir, "testIntMapped", 5, true, true);
+
+        testIntQueue(queue);
+        testIntQueue(queue);
+    }
+
     private void testIntQueue(BufferedIntArrayQueue queue) {
         for (int i = 0; i < 50; ++i) {
             queue.add(i);
@@ -319,6 +327,14 @@ public class BufferedArrayQueueTest {
         testLongQueue(queue);
     }
 
+    @Test
+    public void testBufferedLongArrayQueueWithMappedSegments() throws Exception {
+        BufferedLongArrayQueue queue = new BufferedLongArrayQueue(outputDir, "testLongMapped", 5, true, true);
+
+        testLongQueue(queue);
+        testLongQueue(queue);
+    }
+
     private void testLongQueue(BufferedLongArrayQueue queue) {
         for (int i = 0; i < 50; ++i) {
             queue.add(i);
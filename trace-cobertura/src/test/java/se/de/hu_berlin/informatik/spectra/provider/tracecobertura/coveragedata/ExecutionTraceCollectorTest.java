@@ -0,0 +1,130 @@
+package se.de.hu_berlin.informatik.spectra.provider.tracecobertura.coveragedata;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure.sequitur.output.CompactOutputSequence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class ExecutionTraceCollectorTest {
+
+    private static final int CLASS_ID = 4000;
+    private static final int COUNTER_COUNT = 7;
+
+    @Test
+    public void concurrentlyCollectedHitCountsAreExact() throws Exception {
+        final int threadCount = 8;
+        final int increments = 2000000;
+
+        ExecutionTraceCollector.initializeCounterArrayForClass(CLASS_ID, COUNTER_COUNT);
+        ExecutionTraceCollector.resetExecutionTraces();
+
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; ++t) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < increments; ++i) {
+                    ExecutionTraceCollector.incrementCounter(CLASS_ID, i % COUNTER_COUNT);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        long[] total = new long[COUNTER_COUNT];
+        start.countDown();
+        // collect the counts while the threads are still counting
+        boolean running = true;
+        while (running) {
+            addTo(total, ExecutionTraceCollector.getAndResetCounterArrayForClass(CLASS_ID));
+            running = false;
+            for (Thread thread : threads) {
+                running |= thread.isAlive();
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        addTo(total, ExecutionTraceCollector.getAndResetCounterArrayForClass(CLASS_ID));
+
+        for (int i = 0; i < COUNTER_COUNT; ++i) {
+            int perThread = increments / COUNTER_COUNT + (i < increments % COUNTER_COUNT ? 1 : 0);
+            Assert.assertEquals("counter " + i, (long) threadCount * perThread, total[i]);
+        }
+
+        // everything has been collected
+        int[] counters = ExecutionTraceCollector.getAndResetCounterArrayForClass(CLASS_ID);
+        for (int count : counters) {
+            Assert.assertEquals(0, count);
+        }
+    }
+
+    @Test
+    public void hitCountsOfRetiredRecordersAreKept() throws Exception {
+        ExecutionTraceCollector.initializeCounterArrayForClass(CLASS_ID, COUNTER_COUNT);
+        ExecutionTraceCollector.resetExecutionTraces();
+
+        Thread thread = new Thread(() -> {
+            for (int i = 0; i < 10; ++i) {
+                ExecutionTraceCollector.incrementCounter(CLASS_ID, 1);
+            }
+        });
+        thread.start();
+        thread.join();
+        ExecutionTraceCollector.incrementCounter(CLASS_ID, 2);
+
+        // partially collect the counts before the recorders are retired
+        Assert.assertEquals(10, ExecutionTraceCollector.getAndResetCounterArrayForClass(CLASS_ID)[1]);
+        ExecutionTraceCollector.incrementCounter(CLASS_ID, 1);
+        ExecutionTraceCollector.getAndResetExecutionTraces();
+
+        int[] counters = ExecutionTraceCollector.getAndResetCounterArrayForClass(CLASS_ID);
+        Assert.assertEquals(1, counters[1]);
+        Assert.assertEquals(0, counters[2]);
+    }
+
+    @Test
+    public void hitCountsOfFramesSpanningAResetAreKept() throws Exception {
+        ExecutionTraceCollector.initializeCounterArrayForClass(CLASS_ID, COUNTER_COUNT);
+        ExecutionTraceCollector.resetExecutionTraces();
+
+        // an instrumented method obtains its output sequence once at method entry
+        CompactOutputSequence frameTrace = ExecutionTraceCollector.getOutputSequence();
+        ExecutionTraceCollector.addStatementToExecutionTraceAndIncrementCounter(CLASS_ID, 1, frameTrace);
+
+        // the frame keeps running while the traces are reset (discarding the uncollected counts)...
+        ExecutionTraceCollector.resetExecutionTraces();
+        ExecutionTraceCollector.addStatementToExecutionTraceAndIncrementCounter(CLASS_ID, 1, frameTrace);
+        ExecutionTraceCollector.jumpAddStatementToExecutionTraceAndIncrementCounter(CLASS_ID, 2, frameTrace);
+
+        int[] counters = ExecutionTraceCollector.getAndResetCounterArrayForClass(CLASS_ID);
+        Assert.assertEquals(1, counters[1]);
+        Assert.assertEquals(1, counters[2]);
+
+        // ...and while the traces are collected
+        ExecutionTraceCollector.getAndResetExecutionTraces();
+        ExecutionTraceCollector.switchAddStatementToExecutionTraceAndIncrementCounter(CLASS_ID, 3, frameTrace);
+        ExecutionTraceCollector.getAndResetExecutionTraces();
+        ExecutionTraceCollector.variableAddStatementToExecutionTraceAndIncrementCounter(CLASS_ID, 3, frameTrace);
+
+        counters = ExecutionTraceCollector.getAndResetCounterArrayForClass(CLASS_ID);
+        Assert.assertEquals(0, counters[1]);
+        Assert.assertEquals(2, counters[3]);
+    }
+
+    private static void addTo(long[] total, int[] counters) {
+        for (int i = 0; i < total.length; ++i) {
+            total[i] += counters[i];
+        }
+    }
+
+}
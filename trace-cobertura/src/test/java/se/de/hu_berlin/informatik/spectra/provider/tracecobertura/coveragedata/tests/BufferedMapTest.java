@@ -77,4 +77,46 @@ public class BufferedMapTest {
 
     }
 
+    @Test
+    public void testBufferedMapRepMarkersWithMappedSegments() throws Exception {
+        RepetitionMarkerBufferedMap queue = new RepetitionMarkerBufferedMap(outputDir, "testMapped", 5, true, true);
+        Assert.assertTrue(queue.usesMappedSegments());
+
+        for (int i = 0; i < 5000; ++i) {
+            queue.put(i * 10, new int[]{i, i + 1});
+        }
+        queue.sleep();
+
+        Assert.assertEquals(5000, queue.size());
+        Assert.assertArrayEquals(new int[]{3, 4}, queue.get(30));
+        Assert.assertArrayEquals(new int[]{4999, 5000}, queue.get(49990));
+        Assert.assertNull(queue.get(35));
+
+        // overwrite and remove entries in stored sub maps
+        for (int i = 0; i < 5000; i += 2) {
+            queue.put(i * 10, new int[]{-i, i});
+        }
+        for (int i = 1; i < 5000; i += 4) {
+            queue.remove(i * 10);
+        }
+        queue.sleep();
+
+        for (int i = 0; i < 5000; ++i) {
+            if (i % 2 == 0) {
+                Assert.assertArrayEquals(new int[]{-i, i}, queue.get(i * 10));
+            } else if (i % 4 == 1) {
+                Assert.assertNull(queue.get(i * 10));
+            } else {
+                Assert.assertArrayEquals(new int[]{i, i + 1}, queue.get(i * 10));
+            }
+        }
+
+        queue.clear();
+        Assert.assertEquals(0, queue.size());
+        queue.put(10, new int[]{1, 2});
+        queue.sleep();
+        Assert.assertArrayEquals(new int[]{1, 2}, queue.get(10));
+        queue.clear();
+    }
+
 }
@@ -0,0 +1,90 @@
+package se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class IntSequenceIndexTest {
+
+    private final File outputDir = new File("target" + File.separator + "intSequenceIndexTest");
+
+    @Test
+    public void testDirectIndex() throws Exception {
+        try (IntSequenceIndex index = new IntSequenceIndex()) {
+            testIndex(index);
+        }
+    }
+
+    @Test
+    public void testMappedIndex() throws Exception {
+        IntSequenceIndex index = new IntSequenceIndex(outputDir, "test", true);
+        try {
+            testIndex(index);
+        } finally {
+            index.close();
+        }
+        String[] files = outputDir.list();
+        assertEquals(0, files == null ? 0 : files.length);
+    }
+
+    @Test
+    public void testSameKeyDifferentContent() throws Exception {
+        try (IntSequenceIndex index = new IntSequenceIndex()) {
+            int[] first = {1, 2, 3};
+            int[] second = {1, 5, 3};
+            int[] prefix = {1, 2};
+
+            assertEquals(0, index.putIfAbsent(42, first, first.length, 1));
+            assertEquals(0, index.putIfAbsent(42, second, second.length, 2));
+            assertEquals(0, index.putIfAbsent(42, prefix, prefix.length, 3));
+            assertEquals(1, index.putIfAbsent(42, first, first.length, 4));
+
+            assertEquals(1, index.get(42, first, first.length));
+            assertEquals(2, index.get(42, second, second.length));
+            // only the given length is considered
+            assertEquals(3, index.get(42, first, 2));
+            assertEquals(0, index.get(43, first, first.length));
+            assertEquals(3, index.size());
+        }
+    }
+
+    private void testIndex(IntSequenceIndex index) {
+        int count = 20000;
+        for (int i = 1; i <= count; ++i) {
+            int[] sequence = sequence(i);
+            assertEquals(0, index.putIfAbsent(IntSequenceIndex.hash(sequence, sequence.length),
+                    sequence, sequence.length, i));
+        }
+        assertEquals(count, index.size());
+
+        for (int i = 1; i <= count; ++i) {
+            int[] sequence = sequence(i);
+            assertEquals(i, index.get(IntSequenceIndex.hash(sequence, sequence.length), sequence, sequence.length));
+        }
+
+        // sequences are iterated in insertion order
+        List<int[]> sequences = new ArrayList<>();
+        index.forEach((value, sequence) -> {
+            assertEquals(sequences.size() + 1, value);
+            sequences.add(sequence);
+        });
+        assertEquals(count, sequences.size());
+        for (int i = 1; i <= count; ++i) {
+            assertArrayEquals(sequence(i), sequences.get(i - 1));
+        }
+    }
+
+    private static int[] sequence(int i) {
+        int[] sequence = new int[1 + i % 17];
+        for (int j = 0; j < sequence.length; ++j) {
+            sequence[j] = i * 31 + j - 5000;
+        }
+        return sequence;
+    }
+
+}
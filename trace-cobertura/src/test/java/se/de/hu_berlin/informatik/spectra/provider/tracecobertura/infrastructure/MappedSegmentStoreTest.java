@@ -0,0 +1,129 @@
+package se.de.hu_berlin.informatik.spectra.provider.tracecobertura.infrastructure;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+public class MappedSegmentStoreTest {
+
+    private File outputDir = new File("target" + File.separator + "mappedSegmentStoreTest");
+
+    private MappedSegmentStore store;
+
+    @Before
+    public void setUp() {
+        outputDir.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        if (store != null) {
+            store.clear();
+        }
+    }
+
+    @Test
+    public void smallStoreUsesSmallSegmentFile() {
+        store = new MappedSegmentStore(outputDir, "small", 60, true);
+        write(0, 1);
+        store.force();
+
+        File segment = new File(outputDir, "small-seg-0.sgm");
+        Assert.assertTrue(segment.exists());
+        Assert.assertTrue(segment.length() <= 64 * 1024);
+    }
+
+    @Test
+    public void segmentsGrowAndKeepTheData() {
+        store = new MappedSegmentStore(outputDir, "growing", 1020, true);
+        // 64 slots in the first segment, then 128, 256, ...
+        int nodeCount = 2000;
+        for (int i = 0; i < nodeCount; ++i) {
+            write(i, i);
+        }
+        Assert.assertEquals(nodeCount, store.size());
+        for (int i = 0; i < nodeCount; ++i) {
+            assertNode(i, i);
+        }
+
+        long previousLength = 0;
+        for (int i = 0; i < 5; ++i) {
+            long length = new File(outputDir, "growing-seg-" + i + ".sgm").length();
+            Assert.assertEquals(i == 0 ? 64 * 1024 : 2 * previousLength, length);
+            previousLength = length;
+        }
+    }
+
+    @Test
+    public void slotsOfDeletedNodesAreReused() {
+        store = new MappedSegmentStore(outputDir, "reuse", 1020, true);
+        for (int i = 0; i < 100; ++i) {
+            write(i, i);
+        }
+        for (int i = 0; i < 100; i += 2) {
+            store.delete(i);
+        }
+        Assert.assertNull(store.read(0));
+        for (int i = 100; i < 150; ++i) {
+            write(i, i);
+        }
+        // all nodes still fit into the first two segments
+        Assert.assertFalse(new File(outputDir, "reuse-seg-2.sgm").exists());
+        for (int i = 1; i < 150; ++i) {
+            if (i < 100 && i % 2 == 0) {
+                Assert.assertFalse(store.contains(i));
+            } else {
+                assertNode(i, i);
+            }
+        }
+    }
+
+    @Test
+    public void slotTableFollowsTheStoredIndices() {
+        store = new MappedSegmentStore(outputDir, "indices", 60, true);
+        // negative indices, like the indices of maps with negative keys
+        for (int i = -50; i < 50; ++i) {
+            write(i, i);
+        }
+        Assert.assertEquals(100, store.size());
+        // a queue keeps deleting its first node and adding new last nodes
+        for (int i = 50; i < 100000; ++i) {
+            store.delete(i - 100);
+            write(i, i);
+        }
+        Assert.assertEquals(100, store.size());
+        Assert.assertFalse(store.contains(-50));
+        Assert.assertFalse(store.contains(99899));
+        for (int i = 99900; i < 100000; ++i) {
+            assertNode(i, i);
+        }
+        // growing in both directions
+        write(-1000000, 1);
+        write(1000000, 2);
+        store.delete(-1000000);
+        write(-1000001, 3);
+        Assert.assertFalse(store.contains(-1000000));
+        assertNode(1000000, 2);
+        assertNode(-1000001, 3);
+        assertNode(99999, 99999);
+        Assert.assertEquals(102, store.size());
+    }
+
+    private void write(int storeIndex, int value) {
+        ByteBuffer buffer = store.getWriteBuffer(storeIndex, 8);
+        buffer.putInt(value);
+        buffer.putInt(-value);
+    }
+
+    private void assertNode(int storeIndex, int value) {
+        ByteBuffer buffer = store.read(storeIndex);
+        Assert.assertEquals(8, buffer.remaining());
+        Assert.assertEquals(value, buffer.getInt());
+        Assert.assertEquals(-value, buffer.getInt());
+    }
+
+}